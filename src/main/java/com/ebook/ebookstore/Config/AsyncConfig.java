@@ -0,0 +1,79 @@
+package com.ebook.ebookstore.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+
+    // spring.threads.virtual.enabled also moves Tomcat request handling and @Scheduled onto virtual threads.
+    // Executors for blocking JDBC / file work follow it; CPU-bound pools (bcrypt, analytics scans) stay on
+    // platform threads, where their size is what limits CPU use.
+    private final boolean virtualThreads;
+
+    public AsyncConfig(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    // Background purge of deleted books; small and bounded so it never competes with request traffic
+    @Bean(name = "bookPurgeExecutor")
+    public ThreadPoolTaskExecutor bookPurgeExecutor(@Value("${ebook.books.purge.threads:1}") int threads,
+                                                    @Value("${ebook.books.purge.queue-capacity:100}") int queueCapacity) {
+        // If the queue is full the scheduled sweep picks the book up later
+        return boundedExecutor("book-purge-", threads, queueCapacity, new ThreadPoolExecutor.DiscardPolicy(), true);
+    }
+
+    // Full rebuilds of in-memory indexes (recommendations, analytics); run one at a time so
+    // only one full scan of downloads is in flight, and surplus requests are dropped
+    @Bean(name = "indexRebuildExecutor")
+    public ThreadPoolTaskExecutor indexRebuildExecutor() {
+        return boundedExecutor("index-rebuild-", 1, 4, new ThreadPoolExecutor.DiscardPolicy(), true);
+    }
+
+    // Lead export jobs; the pool size caps how many exports run at once, a full queue rejects new jobs
+    @Bean(name = "exportExecutor")
+    public ThreadPoolTaskExecutor exportExecutor(@Value("${ebook.exports.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                                 @Value("${ebook.exports.queue-capacity:10}") int queueCapacity) {
+        return boundedExecutor("lead-export-", maxConcurrentJobs, queueCapacity, new ThreadPoolExecutor.AbortPolicy(), true);
+    }
+
+    // Parallel per-shard queries for scatter-gather reads over the sharded downloads table. No queue:
+    // when every worker is busy the caller queries that shard itself, so fan-out degrades to sequential
+    @Bean(name = "downloadShardExecutor")
+    public ThreadPoolTaskExecutor downloadShardExecutor(@Value("${ebook.downloads.shards.fan-out-threads:16}") int threads) {
+        return boundedExecutor("download-shard-", threads, 0, new ThreadPoolExecutor.CallerRunsPolicy(), true);
+    }
+
+    // Password hashing for logins and credential changes; caps the CPU spent on bcrypt so it cannot
+    // starve the request threads, and a full queue rejects further logins instead of piling up
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor(@Value("${ebook.auth.hash.threads:0}") int threads,
+                                                       @Value("${ebook.auth.hash.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return boundedExecutor("password-hash-", poolSize, queueCapacity, new ThreadPoolExecutor.AbortPolicy(), false);
+    }
+
+    private ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int threads, int queueCapacity,
+                                                   RejectedExecutionHandler rejectedExecutionHandler, boolean blocking) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        if (virtualThreads && blocking) {
+            // The pool size still caps concurrency; the workers just stop holding OS threads while blocked
+            executor.setThreadFactory(Thread.ofVirtual().name(threadNamePrefix, 1).factory());
+        }
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+        return executor;
+    }
+}
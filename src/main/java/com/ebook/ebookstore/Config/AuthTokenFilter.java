@@ -0,0 +1,59 @@
+package com.ebook.ebookstore.Config;
+
+import com.ebook.ebookstore.Services.AuthTokenServices;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Resolves the logged-in user into the {@value #USER_ID_ATTRIBUTE} request attribute. In token
+ * mode it comes from a valid {@code Authorization: Bearer} token, checked in memory without a
+ * session or a database hit; otherwise from the HTTP session. A missing, invalid or expired
+ * token leaves the attribute unset and the controller answers 401.
+ */
+@Component
+@Order(AuthTokenFilter.ORDER)
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID_ATTRIBUTE = "userId";
+    public static final int ORDER = 0;
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final AuthTokenServices authTokenServices;
+
+    @Autowired
+    public AuthTokenFilter(AuthTokenServices authTokenServices) {
+        this.authTokenServices = authTokenServices;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long userId = null;
+        if (authTokenServices.isEnabled()) {
+            String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (header != null && header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+                userId = authTokenServices.verify(header.substring(BEARER_PREFIX.length()).trim());
+            }
+        } else {
+            HttpSession session = request.getSession(false);
+            if (session != null && session.getAttribute(USER_ID_ATTRIBUTE) instanceof Long sessionUserId) {
+                userId = sessionUserId;
+            }
+        }
+        if (userId != null) {
+            request.setAttribute(USER_ID_ATTRIBUTE, userId);
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ebook.ebookstore.Config;
+
+import com.ebook.ebookstore.Util.ConcurrencyLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class JdbcLimiterConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcLimiterConfig.class);
+
+    // Wraps the connection pool in a ConcurrencyLimitedDataSource when ebook.jdbc.limiter.enabled.
+    // Defaults to the pool size with virtual threads on, where nothing else bounds concurrent JDBC callers.
+    // Routing and proxy data sources are skipped; the pools behind them are limited where they are built.
+    @Bean
+    public static BeanPostProcessor jdbcConcurrencyLimiter(Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource
+                        || bean instanceof AbstractRoutingDataSource) {
+                    return bean;
+                }
+                return limit(dataSource, poolSize, environment);
+            }
+        };
+    }
+
+    public static DataSource limit(DataSource dataSource, int poolSize, Environment environment) {
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (!environment.getProperty("ebook.jdbc.limiter.enabled", Boolean.class, virtualThreads)) {
+            return dataSource;
+        }
+        int limit = environment.getProperty("ebook.jdbc.limiter.max-concurrent", Integer.class, 0);
+        int maxWaiting = environment.getProperty("ebook.jdbc.limiter.max-waiting", Integer.class, 1000);
+        long timeoutMillis = environment.getProperty("ebook.jdbc.limiter.timeout-ms", Long.class, 5000L);
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+        int maxConcurrent = maxConcurrent(limit > 0 ? limit : poolSize, virtualThreads, mysqlDriverMajorVersion(), carriers);
+        if (maxConcurrent < (limit > 0 ? limit : poolSize)) {
+            logger.warn("MySQL Connector/J before 9 pins virtual threads during socket I/O; limiting JDBC to {} " +
+                    "concurrent callers so at least one of {} carrier threads stays free", maxConcurrent, carriers);
+        }
+        return new ConcurrencyLimitedDataSource(dataSource, new ConcurrencyLimiter(maxConcurrent, maxWaiting, timeoutMillis));
+    }
+
+    // Connector/J 8 guards its socket reads with synchronized, so every virtual thread inside a query
+    // holds its carrier; as many queries as carriers would stall every other virtual thread in the JVM
+    public static int maxConcurrent(int limit, boolean virtualThreads, int driverMajorVersion, int carriers) {
+        if (!virtualThreads || driverMajorVersion < 0 || driverMajorVersion >= 9) {
+            return limit;
+        }
+        return Math.max(1, Math.min(limit, carriers - 1));
+    }
+
+    // -1 when Connector/J is not on the classpath (H2 in tests, say)
+    static int mysqlDriverMajorVersion() {
+        try {
+            return Integer.parseInt((String) Class.forName("com.mysql.cj.Constants").getField("CJ_MAJOR_VERSION").get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
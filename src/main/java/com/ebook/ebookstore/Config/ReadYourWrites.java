@@ -0,0 +1,88 @@
+package com.ebook.ebookstore.Config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * When the current request's client last wrote, so its reads can follow its own writes. The time
+ * travels with the client in a cookie rather than living in one node's memory: whichever node the
+ * next request lands on sees it, and clients behind one NAT address are not lumped together.
+ * <p>
+ * Bound to the request thread by ReplicaRoutingFilter; absent for background work. A forged cookie
+ * can at most keep its own sender's reads on the primary for one window: times ahead of this node's
+ * clock are ignored.
+ */
+public final class ReadYourWrites {
+
+    public static final String COOKIE = "ebook_last_write";
+
+    // Allowance for clock differences between nodes
+    private static final long MAX_CLOCK_SKEW_MILLIS = 1000;
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private final long windowMillis;
+    private final HttpServletResponse response;
+    private volatile long lastWriteMillis;
+    private boolean cookieSent;
+
+    private ReadYourWrites(long windowMillis, HttpServletResponse response, long lastWriteMillis) {
+        this.windowMillis = windowMillis;
+        this.response = response;
+        this.lastWriteMillis = lastWriteMillis;
+    }
+
+    public static void begin(HttpServletRequest request, HttpServletResponse response, long windowMillis) {
+        CURRENT.set(new ReadYourWrites(windowMillis, response, cookieValue(request)));
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // Whether the current client wrote recently enough that a replica might not have its change yet
+    public static boolean isSticky() {
+        ReadYourWrites current = CURRENT.get();
+        if (current == null) {
+            return false;
+        }
+        long sinceWrite = System.currentTimeMillis() - current.lastWriteMillis;
+        return sinceWrite < current.windowMillis && sinceWrite > -MAX_CLOCK_SKEW_MILLIS;
+    }
+
+    // Called when a read-write transaction starts; later reads of this request and the next ones stay on the primary
+    public static void recordWrite() {
+        ReadYourWrites current = CURRENT.get();
+        if (current == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        current.lastWriteMillis = now;
+        // Headers can only be added before the response is committed; writes normally come first
+        if (!current.cookieSent && !current.response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (current.windowMillis + 999) / 1000));
+            current.response.addCookie(cookie);
+            current.cookieSent = true;
+        }
+    }
+
+    private static long cookieValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
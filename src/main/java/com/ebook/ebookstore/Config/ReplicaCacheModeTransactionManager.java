@@ -0,0 +1,41 @@
+package com.ebook.ebookstore.Config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Replica reads can be behind the primary, and a row they put into the second-level cache would be served
+// to every later read on this node. Sessions whose transaction will be routed to the replica therefore only
+// read from the cache (CacheMode.GET); decided at begin, before any query of the transaction checks the mode.
+public class ReplicaCacheModeTransactionManager extends JpaTransactionManager {
+
+    private final ReplicaRoutingDataSource routing;
+
+    public ReplicaCacheModeTransactionManager(ReplicaRoutingDataSource routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        boolean replica = routing.routesToReplica(definition.isReadOnly(), definition.getName());
+        setCacheMode(replica ? CacheMode.GET : CacheMode.NORMAL);
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        // The session can outlive the transaction (open-in-view)
+        setCacheMode(CacheMode.NORMAL);
+        super.doCleanupAfterCompletion(transaction);
+    }
+
+    private void setCacheMode(CacheMode cacheMode) {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+        if (holder != null) {
+            holder.getEntityManager().unwrap(Session.class).setCacheMode(cacheMode);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ebook.ebookstore.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Primary plus read replica, enabled by ebook.datasource.replica.enabled. The primary pool is
+ * built from the usual spring.datasource.* and spring.datasource.hikari.* settings, the replica
+ * pool from ebook.datasource.replica.*; each gets its own JDBC concurrency limiter. Transactions
+ * routed to the replica only read the second-level cache (ReplicaCacheModeTransactionManager).
+ */
+@Configuration
+@ConditionalOnProperty(name = "ebook.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                             @Value("${ebook.datasource.replica.url}") String url,
+                                                             @Value("${ebook.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                                             @Value("${ebook.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url).username(username).password(password)
+                .build();
+        binder.bind("ebook.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                JdbcLimiterConfig.limit(primary, primary.getMaximumPoolSize(), environment),
+                JdbcLimiterConfig.limit(replica, replica.getMaximumPoolSize(), environment));
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    // What JPA and JdbcTemplate use: the connection is only fetched, and routed, at the first statement
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // Replaces Boot's JpaTransactionManager so replica-routed sessions do not fill the second-level cache
+    @Bean
+    public PlatformTransactionManager transactionManager(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                         ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaCacheModeTransactionManager transactionManager = new ReplicaCacheModeTransactionManager(replicaRoutingDataSource);
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                               @Value("${ebook.datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                               @Value("${ebook.datasource.replica.max-lag-ms:2000}") long maxLagMillis) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, lagQuery, maxLagMillis);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReplicaRoutingFilter> replicaRoutingFilter(
+            @Value("${ebook.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        FilterRegistrationBean<ReplicaRoutingFilter> registration =
+                new FilterRegistrationBean<>(new ReplicaRoutingFilter(readYourWritesMillis));
+        registration.setOrder(AuthTokenFilter.ORDER + 1);
+        return registration;
+    }
+}
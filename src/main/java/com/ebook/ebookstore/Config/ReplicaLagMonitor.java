@@ -0,0 +1,82 @@
+package com.ebook.ebookstore.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.ResultSetMetaData;
+
+/**
+ * Polls the replica's lag and takes it out of rotation while it is unreachable, not replicating,
+ * or further behind than the limit. With MySQL's SHOW REPLICA STATUS the lag is read from
+ * Seconds_Behind_Source (or Seconds_Behind_Master on older servers); any other query must
+ * return the lag in milliseconds as its first column.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private volatile long lagMillis = -1;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, String lagQuery, long maxLagMillis) {
+        this.routingDataSource = routingDataSource;
+        this.replicaJdbcTemplate = new JdbcTemplate(routingDataSource.getReplica());
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${ebook.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        Long lag;
+        try {
+            lag = measureLag();
+        } catch (RuntimeException e) {
+            lag = null;
+            if (routingDataSource.isReplicaUsable()) {
+                logger.warn("Replica lag check failed", e);
+            }
+        }
+        lagMillis = lag != null ? lag : -1;
+
+        boolean usable = lag != null && lag <= maxLagMillis;
+        if (usable != routingDataSource.isReplicaUsable()) {
+            routingDataSource.setReplicaUsable(usable);
+            if (usable) {
+                logger.info("Replica back in rotation, {} ms behind", lag);
+            } else {
+                logger.warn("Reads falling back to the primary: replica {}",
+                        lag == null ? "not replicating or unreachable" : lag + " ms behind");
+            }
+        }
+    }
+
+    // -1 when the last check could not determine the lag
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    private Long measureLag() {
+        return replicaJdbcTemplate.query(lagQuery, rs -> {
+            if (!rs.next()) {
+                // SHOW REPLICA STATUS returns nothing when replication is not configured
+                return null;
+            }
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                String column = meta.getColumnLabel(i);
+                if (column.equalsIgnoreCase("Seconds_Behind_Source") || column.equalsIgnoreCase("Seconds_Behind_Master")) {
+                    long seconds = rs.getLong(i);
+                    // NULL while the replication threads are stopped
+                    return rs.wasNull() ? null : seconds * 1000;
+                }
+            }
+            long millis = rs.getLong(1);
+            return rs.wasNull() ? null : millis;
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.ebook.ebookstore.Config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions started by this application's services to the replica and
+ * everything else to the primary. Must sit behind a LazyConnectionDataSourceProxy so the
+ * connection is fetched after the transaction's read-only flag and name are known.
+ * <p>
+ * Reads stay on the primary when:
+ * <ul>
+ *     <li>the lag monitor has marked the replica unusable (down or too far behind),</li>
+ *     <li>the same client ran a read-write transaction within the read-your-writes window, so it
+ *     sees its own change even if the replica has not applied it yet (see {@link ReadYourWrites}),</li>
+ *     <li>the transaction is Spring Data's default read-only one around a bare repository call;
+ *     service methods that read and then save rely on those reads being current.</li>
+ * </ul>
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final String SERVICE_PACKAGE = "com.ebook.ebookstore.";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private volatile boolean replicaUsable = true;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder stickyReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReadYourWrites.recordWrite();
+            return PRIMARY;
+        }
+        if (!isServiceTransaction(TransactionSynchronizationManager.getCurrentTransactionName())) {
+            return PRIMARY;
+        }
+        if (!replicaUsable) {
+            fallbackReads.increment();
+            return PRIMARY;
+        }
+        if (ReadYourWrites.isSticky()) {
+            stickyReads.increment();
+            return PRIMARY;
+        }
+        replicaReads.increment();
+        return REPLICA;
+    }
+
+    // Whether a transaction with these attributes, begun now for the current client, will read from the replica
+    public boolean routesToReplica(boolean readOnly, String transactionName) {
+        return readOnly && isServiceTransaction(transactionName) && replicaUsable && !ReadYourWrites.isSticky();
+    }
+
+    private static boolean isServiceTransaction(String name) {
+        return name != null && name.startsWith(SERVICE_PACKAGE);
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public void setReplicaUsable(boolean replicaUsable) {
+        this.replicaUsable = replicaUsable;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getStickyReads() {
+        return stickyReads.sum();
+    }
+
+    public long getFallbackReads() {
+        return fallbackReads.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (DataSource target : new DataSource[]{primary, replica}) {
+                if (target.isWrapperFor(Closeable.class)) {
+                    target.unwrap(Closeable.class).close();
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not close connection pools", e);
+        }
+    }
+}
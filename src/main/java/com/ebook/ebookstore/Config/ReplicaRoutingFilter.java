@@ -0,0 +1,31 @@
+package com.ebook.ebookstore.Config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Binds the client's last write time (ReadYourWrites cookie) to the request, so ReplicaRoutingDataSource
+// keeps a client's reads on the primary for a while after it writes, on whichever node they land.
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+
+    private final long readYourWritesMillis;
+
+    public ReplicaRoutingFilter(long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadYourWrites.begin(request, response, readYourWritesMillis);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+}
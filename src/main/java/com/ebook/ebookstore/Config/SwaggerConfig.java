@@ -31,7 +31,7 @@ public class SwaggerConfig {
                         "bearerAuth",new SecurityScheme()
                                 .type(SecurityScheme.Type.HTTP)
                                 .scheme("bearer")
-                                .bearerFormat("JWT")
+                                .bearerFormat("HMAC")
                                 .in(SecurityScheme.In.HEADER)
                                 .name("Authorization")
                 ));
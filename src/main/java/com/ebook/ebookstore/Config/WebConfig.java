@@ -17,7 +17,9 @@ public class WebConfig implements WebMvcConfigurer {
                         .allowedOrigins("http://localhost:5173")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowCredentials(true)
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        // Login returns the bearer token in this header when token sessions are on
+                        .exposedHeaders("Authorization");
             }
         };
     }
@@ -1,15 +1,22 @@
 package com.ebook.ebookstore.Controller;
 
 import com.ebook.ebookstore.DTO.AdminDTO;
+import com.ebook.ebookstore.DTO.AnalyticsQueryDTO;
+import com.ebook.ebookstore.DTO.AnalyticsResultDTO;
 import com.ebook.ebookstore.DTO.BookDTO;
 import com.ebook.ebookstore.DTO.CreateBookDTO;
+import com.ebook.ebookstore.DTO.LoginThrottleStatsDTO;
 import com.ebook.ebookstore.Model.Admin;
 import com.ebook.ebookstore.Services.AdminServices;
+import com.ebook.ebookstore.Services.AnalyticsServices;
 import com.ebook.ebookstore.Services.BookServices;
+import com.ebook.ebookstore.Services.LoginThrottleServices;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -27,13 +34,20 @@ public class AdminController {
 
     private final BookServices bookServices;
 
+    private final AnalyticsServices analyticsServices;
+
+    private final LoginThrottleServices loginThrottleServices;
+
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
 
     @Autowired
-    public AdminController(AdminServices adminServices, BookServices bookServices) {
+    public AdminController(AdminServices adminServices, BookServices bookServices,
+                           AnalyticsServices analyticsServices, LoginThrottleServices loginThrottleServices) {
         this.adminServices = adminServices;
         this.bookServices = bookServices;
+        this.analyticsServices = analyticsServices;
+        this.loginThrottleServices = loginThrottleServices;
     }
 
     // Create Admin
@@ -79,15 +93,33 @@ public class AdminController {
 
     // Authenticate Admin (Login)
     @PostMapping("/authenticate")
-    public ResponseEntity<String> authenticate(@RequestBody AdminDTO adminDTO) {
-        boolean authenticated = adminServices.authenticate(adminDTO.getEmail(), adminDTO.getPassword());
+    public ResponseEntity<String> authenticate(@RequestBody AdminDTO adminDTO, HttpServletRequest request) {
+        if (!loginThrottleServices.tryAcquire(request.getRemoteAddr(), adminDTO.getEmail())) {
+            return status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginThrottleServices.getRetryAfterSeconds()))
+                    .body("Too many login attempts, try again later");
+        }
+        boolean authenticated;
+        try {
+            authenticated = adminServices.authenticate(adminDTO.getEmail(), adminDTO.getPassword());
+        } catch (IllegalStateException e) {
+            // Password hashing executor is saturated
+            return status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
         if (authenticated) {
             return ok("Authentication successful");
         } else {
+            loginThrottleServices.recordFailure(adminDTO.getEmail());
             return status(401).body("Invalid email or password");
         }
     }
 
+    // Allowed and shed login attempts for users and admins
+    @GetMapping("/login-throttle/stats")
+    public ResponseEntity<LoginThrottleStatsDTO> getLoginThrottleStats() {
+        return ok(loginThrottleServices.getStats());
+    }
+
     @PostMapping(value = "/createBook", consumes = "application/json", produces = "application/json")
     public ResponseEntity<BookDTO> createBook(@Valid @RequestBody CreateBookDTO createBookDTO) {
         logger.info("Received createBook request: {}", createBookDTO);
@@ -101,5 +133,15 @@ public class AdminController {
         }
     }
 
-
+    // Ad-hoc download reports from the in-memory columnar store
+    @PostMapping(value = "/analytics/downloads", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<AnalyticsResultDTO> queryDownloadAnalytics(@RequestBody AnalyticsQueryDTO query) {
+        try {
+            AnalyticsResultDTO result = analyticsServices.queryDownloads(query);
+            return ok(result);
+        } catch (RuntimeException e) {
+            logger.error("Error running analytics query", e);
+            return badRequest().build();
+        }
+    }
 }
@@ -1,8 +1,15 @@
 package com.ebook.ebookstore.Controller;
 
+import com.ebook.ebookstore.DTO.BookCodeFilterStatsDTO;
+import com.ebook.ebookstore.DTO.CacheRegionStatsDTO;
 import com.ebook.ebookstore.DTO.BookDTO;
+import com.ebook.ebookstore.DTO.CoalescingStatsDTO;
 import com.ebook.ebookstore.DTO.CreateBookDTO;
+import com.ebook.ebookstore.DTO.RelatedBookDTO;
+import com.ebook.ebookstore.DTO.TrendingBookDTO;
 import com.ebook.ebookstore.Services.BookServices;
+import com.ebook.ebookstore.Services.RecommendationServices;
+import com.ebook.ebookstore.Services.TrendingServices;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -23,12 +30,19 @@ public class BookController {
 
     private final BookServices bookServices;
 
+    private final TrendingServices trendingServices;
+
+    private final RecommendationServices recommendationServices;
+
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
 
 
     @Autowired
-    public BookController(BookServices bookServices) {
+    public BookController(BookServices bookServices, TrendingServices trendingServices,
+                          RecommendationServices recommendationServices) {
         this.bookServices = bookServices;
+        this.trendingServices = trendingServices;
+        this.recommendationServices = recommendationServices;
     }
 
     @GetMapping
@@ -37,6 +51,18 @@ public class BookController {
         return ok(books);
     }
 
+    // Answered from the in-memory trending snapshot, no database access
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingBookDTO>> getTrendingBooks(@RequestParam(defaultValue = "1h") String window,
+                                                                  @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<TrendingBookDTO> books = trendingServices.getTrending(window, limit);
+            return ok(books);
+        } catch (RuntimeException e) {
+            return badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<BookDTO> getBookById(@PathVariable Long id) {
         try {
@@ -47,6 +73,17 @@ public class BookController {
         }
     }
 
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<RelatedBookDTO>> getRelatedBooks(@PathVariable Long id,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<RelatedBookDTO> books = recommendationServices.getRelatedBooks(id, limit);
+            return ok(books);
+        } catch (RuntimeException e) {
+            return notFound().build();
+        }
+    }
+
     @GetMapping("/code/{code}")
     public ResponseEntity<BookDTO> getBookByCode(@PathVariable String code) {
         try {
@@ -135,4 +172,20 @@ public class BookController {
         boolean exists = bookServices.existsBookByCode(code);
         return ok(exists);
     }
+
+    @GetMapping("/code-filter/stats")
+    public ResponseEntity<BookCodeFilterStatsDTO> getCodeFilterStats() {
+        return ok(bookServices.getCodeFilterStats());
+    }
+
+    @GetMapping("/coalescing/stats")
+    public ResponseEntity<List<CoalescingStatsDTO>> getCoalescingStats() {
+        return ok(bookServices.getCoalescingStats());
+    }
+
+    // Second-level cache regions for Books: rows, code lookups and finder queries
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheRegionStatsDTO>> getCacheStats() {
+        return ok(bookServices.getCacheStats());
+    }
 }
@@ -1,15 +1,39 @@
 package com.ebook.ebookstore.Controller;
 
+import com.ebook.ebookstore.DTO.CoalescingStatsDTO;
 import com.ebook.ebookstore.DTO.CreateDownloadDTO;
+import com.ebook.ebookstore.DTO.CreateExportJobDTO;
 import com.ebook.ebookstore.DTO.DownloadDTO;
+import com.ebook.ebookstore.DTO.DownloadSeriesDTO;
+import com.ebook.ebookstore.DTO.DownloadShardStatsDTO;
+import com.ebook.ebookstore.DTO.ExportJobDTO;
+import com.ebook.ebookstore.DTO.ReshardResultDTO;
+import com.ebook.ebookstore.Services.DownloadRollupServices;
+import com.ebook.ebookstore.Services.DownloadPartitionServices;
 import com.ebook.ebookstore.Services.DownloadServices;
+import com.ebook.ebookstore.Services.DownloadShardServices;
+import com.ebook.ebookstore.Services.ExportJobServices;
+import com.ebook.ebookstore.Services.LeadExportServices;
+import com.ebook.ebookstore.Util.DeltaCursor;
+import com.ebook.ebookstore.Util.IdempotencyWindow;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.springframework.http.ResponseEntity.ok;
@@ -20,19 +44,40 @@ import static org.springframework.http.ResponseEntity.status;
 public class DownloadController {
 
     private final DownloadServices downloadServices;
+    private final DownloadRollupServices downloadRollupServices;
+    private final ExportJobServices exportJobServices;
+    private final LeadExportServices leadExportServices;
+    private final DownloadShardServices downloadShardServices;
+    private final DownloadPartitionServices downloadPartitionServices;
 
     @Autowired
-    public DownloadController(DownloadServices downloadServices) {
+    public DownloadController(DownloadServices downloadServices, DownloadRollupServices downloadRollupServices,
+                              ExportJobServices exportJobServices, LeadExportServices leadExportServices,
+                              DownloadShardServices downloadShardServices,
+                              DownloadPartitionServices downloadPartitionServices) {
         this.downloadServices = downloadServices;
+        this.downloadRollupServices = downloadRollupServices;
+        this.exportJobServices = exportJobServices;
+        this.leadExportServices = leadExportServices;
+        this.downloadShardServices = downloadShardServices;
+        this.downloadPartitionServices = downloadPartitionServices;
     }
 
     @PostMapping("/capture")
-    public ResponseEntity<DownloadDTO> captureDownload(@Valid @RequestBody CreateDownloadDTO createDownloadDTO) {
+    public ResponseEntity<DownloadDTO> captureDownload(@Valid @RequestBody CreateDownloadDTO createDownloadDTO,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            DownloadDTO download = downloadServices.captureDownload(createDownloadDTO);
+            // Repeats within the dedupe window get the original capture back
+            DownloadDTO download = downloadServices.captureDownload(createDownloadDTO, idempotencyKey);
             final ResponseEntity<DownloadDTO> body;
             body = status(HttpStatus.CREATED).body(download);
             return body;
+        } catch (IdempotencyWindow.KeyReusedException e) {
+            // Same Idempotency-Key, different body
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (IllegalStateException e) {
+            // Capture journal backlog is full
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -68,6 +113,11 @@ public class DownloadController {
         }
     }
 
+    @GetMapping("/secure/coalescing/stats")
+    public ResponseEntity<CoalescingStatsDTO> getSecureDownloadInfoCoalescingStats() {
+        return ok(downloadServices.getDownloadInfoCoalescingStats());
+    }
+
     @GetMapping("/leads")
     public ResponseEntity<List<DownloadDTO>> getAllDownloads() {
         List<DownloadDTO> downloads = downloadServices.getAllDownloads();
@@ -101,6 +151,162 @@ public class DownloadController {
         }
     }
 
+    // Newline-delimited JSON, one lead per line; same filters as the CSV export
+    @GetMapping("/leads/export/ndjson")
+    public void exportLeadsNdjson(@RequestParam(required = false) Long bookId,
+                                  @RequestParam(required = false) String startDate,
+                                  @RequestParam(required = false) String endDate,
+                                  HttpServletResponse response) throws IOException {
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = parseExportStart(startDate, endDate);
+            end = parseExportEnd(startDate, endDate);
+        } catch (RuntimeException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"leads_export.ndjson\"");
+        leadExportServices.writeLeadsNdjson(bookId, start, end, response.getOutputStream(), null);
+    }
+
+    // Columnar export for warehouse loads; same filters as the CSV export
+    @GetMapping("/leads/export/parquet")
+    public void exportLeadsParquet(@RequestParam(required = false) Long bookId,
+                                   @RequestParam(required = false) String startDate,
+                                   @RequestParam(required = false) String endDate,
+                                   HttpServletResponse response) throws IOException {
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = parseExportStart(startDate, endDate);
+            end = parseExportEnd(startDate, endDate);
+        } catch (RuntimeException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        response.setContentType("application/vnd.apache.parquet");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"leads_export.parquet\"");
+        leadExportServices.writeLeadsParquet(bookId, start, end, response.getOutputStream(), null);
+    }
+
+    // One CSV per book in a single zip, encoded in parallel and streamed as it is produced
+    @GetMapping("/leads/export/zip")
+    public void exportLeadsZip(@RequestParam(required = false) String startDate,
+                               @RequestParam(required = false) String endDate,
+                               HttpServletResponse response) throws IOException {
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = parseExportStart(startDate, endDate);
+            end = parseExportEnd(startDate, endDate);
+        } catch (RuntimeException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"leads_by_book.zip\"");
+        leadExportServices.writeLeadsZip(start, end, response.getOutputStream(), null);
+    }
+
+    // Incremental export: rows after the `since` cursor up to X-Export-Watermark, in ingest order; pass the
+    // watermark as `since` next time. Rows only become visible once they have settled (ebook.exports.delta.settle-ms)
+    @GetMapping("/leads/export/csv/delta")
+    public void exportLeadsCSVDelta(@RequestParam(defaultValue = "0") String since,
+                                    @RequestParam(required = false) Integer limit,
+                                    HttpServletResponse response) throws IOException {
+        DeltaCursor after;
+        try {
+            after = DeltaCursor.parse(since);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        if (limit != null && limit <= 0) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        DeltaCursor watermark;
+        try {
+            watermark = leadExportServices.resolveDeltaWatermark(after, limit);
+        } catch (RuntimeException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("X-Export-Since", after.toString());
+        response.setHeader("X-Export-Watermark", watermark.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"leads_delta_" + after + "_" + watermark + ".csv\"");
+        leadExportServices.writeLeadsCsvDelta(after, watermark, response.getOutputStream());
+    }
+
+    @PostMapping("/leads/exports")
+    public ResponseEntity<ExportJobDTO> createExportJob(@RequestBody(required = false) CreateExportJobDTO request) {
+        try {
+            ExportJobDTO job = exportJobServices.submitExport(request != null ? request : new CreateExportJobDTO());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/downloads/leads/exports/" + job.getId()))
+                    .body(job);
+        } catch (IllegalStateException e) {
+            return status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/leads/exports/{id}")
+    public ResponseEntity<ExportJobDTO> getExportJob(@PathVariable String id) {
+        try {
+            return ok(exportJobServices.getExportJob(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/leads/exports/{id}/file")
+    public void downloadExportFile(@PathVariable String id, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        Path file;
+        try {
+            file = exportJobServices.getExportFile(id);
+        } catch (RuntimeException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        long length = Files.size(file);
+        response.setContentType(exportContentType(file.getFileName().toString()));
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(file.getFileName().toString(), StandardCharsets.UTF_8)
+                .build().toString());
+
+        // Tomcat sends the file with sendfile(2) after this method returns; no bytes pass through the JVM
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             WritableByteChannel out = Channels.newChannel(response.getOutputStream())) {
+            long position = 0;
+            while (position < length) {
+                position += channel.transferTo(position, length - position, out);
+            }
+        }
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<?> getDownloadStats() {
         try {
@@ -111,4 +317,84 @@ public class DownloadController {
                     .body("Error fetching stats: " + e.getMessage());
         }
     }
+
+    // Served from the hourly/daily rollups only, never from the raw downloads table
+    @GetMapping("/stats/book/{id}/series")
+    public ResponseEntity<DownloadSeriesDTO> getBookDownloadSeries(@PathVariable Long id,
+                                                                   @RequestParam(required = false) String from,
+                                                                   @RequestParam(required = false) String to,
+                                                                   @RequestParam(required = false, defaultValue = "day") String step) {
+        try {
+            DownloadSeriesDTO series = downloadRollupServices.getBookSeries(id, from, to, step);
+            return ok(series);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/shards/stats")
+    public ResponseEntity<DownloadShardStatsDTO> getShardStats() {
+        return ok(downloadShardServices.getStats());
+    }
+
+    // Copies the primary's downloads table into the shards; call again with lastId until done
+    @PostMapping("/shards/backfill")
+    public ResponseEntity<ReshardResultDTO> backfillShards(@RequestParam(defaultValue = "0") long afterId,
+                                                           @RequestParam(defaultValue = "1000000") long maxRows) {
+        try {
+            return ok(downloadShardServices.backfillFromPrimary(afterId, maxRows));
+        } catch (IllegalStateException e) {
+            // Sharding is not enabled
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // After appending shards: moves one shard's rows that now belong elsewhere; call again with lastId until done
+    @PostMapping("/shards/{shard}/rebalance")
+    public ResponseEntity<ReshardResultDTO> rebalanceShard(@PathVariable int shard,
+                                                           @RequestParam(defaultValue = "0") long afterId,
+                                                           @RequestParam(defaultValue = "1000000") long maxRows) {
+        try {
+            return ok(downloadShardServices.rebalanceShard(shard, afterId, maxRows));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/partitions")
+    public ResponseEntity<List<String>> getPartitions() {
+        return ok(downloadPartitionServices.getPartitionNames());
+    }
+
+    // One-off conversion of the downloads table to monthly partitions; rebuilds the table, so run it at a quiet time
+    @PostMapping("/partitions/initialize")
+    public ResponseEntity<List<String>> initializePartitions() {
+        try {
+            return ok(downloadPartitionServices.partitionDownloadsTable());
+        } catch (IllegalStateException e) {
+            // Partitioning disabled, or another instance holds the partitioning lock
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Dates are yyyy-MM-dd and only apply when both are given, as in exportLeadsCSV
+    private LocalDateTime parseExportStart(String startDate, String endDate) {
+        return startDate != null && endDate != null ? LocalDateTime.parse(startDate + "T00:00:00") : null;
+    }
+
+    private LocalDateTime parseExportEnd(String startDate, String endDate) {
+        return startDate != null && endDate != null ? LocalDateTime.parse(endDate + "T23:59:59") : null;
+    }
+
+    private String exportContentType(String fileName) {
+        if (fileName.endsWith(".zip")) {
+            return "application/zip";
+        }
+        if (fileName.endsWith(".parquet")) {
+            return "application/vnd.apache.parquet";
+        }
+        return "application/gzip";
+    }
 }
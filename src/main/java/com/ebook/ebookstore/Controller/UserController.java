@@ -1,19 +1,31 @@
 package com.ebook.ebookstore.Controller;
 
+import com.ebook.ebookstore.Config.AuthTokenFilter;
+import com.ebook.ebookstore.DTO.CredentialDTO;
 import com.ebook.ebookstore.DTO.UserDTO;
 import com.ebook.ebookstore.DTO.UserLoginDTO;
+import com.ebook.ebookstore.DTO.UserPageDTO;
+import com.ebook.ebookstore.DTO.UserSummaryDTO;
 import com.ebook.ebookstore.Model.User;
+import com.ebook.ebookstore.Services.AuthTokenServices;
+import com.ebook.ebookstore.Services.LoginThrottleServices;
+import com.ebook.ebookstore.Services.UserProvisioningServices;
 import com.ebook.ebookstore.ServicesImpl.UserServiceImpl;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -28,10 +40,18 @@ import static org.springframework.web.servlet.function.ServerResponse.notFound;
 public class UserController {
 
     private final UserServiceImpl userService;
+    private final AuthTokenServices authTokenServices;
+    private final LoginThrottleServices loginThrottleServices;
+    private final UserProvisioningServices userProvisioningServices;
 
     @Autowired
-    public UserController(UserServiceImpl userService) {
+    public UserController(UserServiceImpl userService, AuthTokenServices authTokenServices,
+                          LoginThrottleServices loginThrottleServices,
+                          UserProvisioningServices userProvisioningServices) {
         this.userService = userService;
+        this.authTokenServices = authTokenServices;
+        this.loginThrottleServices = loginThrottleServices;
+        this.userProvisioningServices = userProvisioningServices;
     }
 
     @PostMapping("/register")
@@ -51,7 +71,7 @@ public class UserController {
                     Math.toIntExact(createdUser.getId()),
                     createdUser.getName(),
                     createdUser.getEmail(),
-                    createdUser.getPassword()
+                    null // Exclude password hash
             );
             return ok(responseDTO);
         } catch (IllegalArgumentException e) {
@@ -62,9 +82,22 @@ public class UserController {
         }
     }
 
+    // Bulk creation: one UserDTO JSON object per line in, one result per line out as chunks complete
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public void bulkRegisterUsers(@RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long userId,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (userId == null) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "You must be logged in to provision users.");
+            return;
+        }
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        userProvisioningServices.provisionUsers(request.getInputStream(), response.getOutputStream());
+    }
+
     @PostMapping("/login")
     public ResponseEntity<?> loginUser(@Valid @RequestBody UserLoginDTO userLoginDTO,
-                                       Errors errors, HttpSession session) {
+                                       Errors errors, HttpServletRequest request) {
         // Check for validation errors
         if (errors.hasErrors()) {
             List<String> errorMessages = errors.getAllErrors()
@@ -74,59 +107,74 @@ public class UserController {
             return ResponseEntity.badRequest().body(errorMessages);
         }
 
-        // Authenticate user
-        if (userService.authenticate(userLoginDTO.getEmail(), userLoginDTO.getPassword())) {
-            // Retrieve user details
-            User user = userService.getUserByEmail(userLoginDTO.getEmail());
-            if (user == null) {
-                return status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body("User not found after authentication");
-            }
+        // Shed abusive IPs and targeted accounts before any hashing or database work
+        if (!loginThrottleServices.tryAcquire(request.getRemoteAddr(), userLoginDTO.getEmail())) {
+            return status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginThrottleServices.getRetryAfterSeconds()))
+                    .body("Too many login attempts, try again later");
+        }
 
-            // Store user ID in session
-            session.setAttribute("userId", user.getId());
+        // Authenticate user; one lookup returns both the user and the stored hash
+        CredentialDTO credential;
+        try {
+            credential = userService.login(userLoginDTO.getEmail(), userLoginDTO.getPassword());
+        } catch (IllegalStateException e) {
+            // Password hashing executor is saturated
+            return status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+        if (credential != null) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (authTokenServices.isEnabled()) {
+                // Stateless: the client sends this back as a bearer token, no session is created
+                response.header(HttpHeaders.AUTHORIZATION, "Bearer " + authTokenServices.issue(credential.getId()));
+            } else {
+                // Store user ID in session
+                request.getSession().setAttribute(AuthTokenFilter.USER_ID_ATTRIBUTE, credential.getId());
+            }
 
-            // Map User entity to UserDTO, excluding password
+            // Map the credential to UserDTO, excluding password
             UserDTO userDTO = new UserDTO(
-                    Math.toIntExact(user.getId()),
-                    user.getName(),
-                    user.getEmail(),
-                    user.getPassword()
+                    Math.toIntExact(credential.getId()),
+                    credential.getName(),
+                    credential.getEmail(),
+                    null // Exclude password hash
             );
 
-            return ok(userDTO);
+            return response.body(userDTO);
         } else {
+            loginThrottleServices.recordFailure(userLoginDTO.getEmail());
             return status(HttpStatus.UNAUTHORIZED).body("Invalid email or password");
         }
     }
 
     @GetMapping("/home")
-    public ResponseEntity<?> home(HttpSession session) {
-        Integer userId = (Integer) session.getAttribute("userId");
+    public ResponseEntity<?> home(@RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long userId) {
         if (userId == null) {
             return status(HttpStatus.UNAUTHORIZED).body("Please log in");
         }
 
-        Optional<User> userOptional = userService.getUserById(userId);
+        Optional<User> userOptional = userService.getUserById(Math.toIntExact(userId));
         // Fixed: handle Optional properly
         return userOptional.map(user -> ok("Welcome, " + user.getName())).orElseGet(() -> status(HttpStatus.UNAUTHORIZED).body("User not found"));
 
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<String> logout(HttpSession session) {
-        Integer userId = (Integer) session.getAttribute("userId");
+    public ResponseEntity<String> logout(HttpServletRequest request,
+                                         @RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long userId) {
         if (userId == null) {
             return ok("No active session to logout");
         }
-        session.invalidate();
+        // A token stays valid until it expires; the client logs out by discarding it
+        invalidateSession(request);
         return ok("Logged out successfully");
     }
 
     @PutMapping("/update/{userId}")
     public ResponseEntity<?> updateUser(@PathVariable Integer userId,
                                         @Valid @RequestBody UserDTO userDTO,
-                                        Errors errors, HttpSession session) {
+                                        Errors errors,
+                                        @RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long sessionUserId) {
         // Check for validation errors
         if (errors.hasErrors()) {
             List<String> errorMessages = errors.getAllErrors()
@@ -137,8 +185,7 @@ public class UserController {
         }
 
         // Authorization check
-        Integer sessionUserId = (Integer) session.getAttribute("userId");
-        if (sessionUserId == null || !sessionUserId.equals(userId)) {
+        if (sessionUserId == null || sessionUserId.longValue() != userId) {
             return status(HttpStatus.UNAUTHORIZED)
                     .body("Unauthorized to update this user");
         }
@@ -164,10 +211,10 @@ public class UserController {
     }
 
     @DeleteMapping("/delete/{userId}")
-    public ResponseEntity<?> deleteUser(@PathVariable Integer userId, HttpSession session) {
+    public ResponseEntity<?> deleteUser(@PathVariable Integer userId, HttpServletRequest request,
+                                        @RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long sessionUserId) {
         // Authorization check
-        Integer sessionUserId = (Integer) session.getAttribute("userId");
-        if (sessionUserId == null || !sessionUserId.equals(userId)) {
+        if (sessionUserId == null || sessionUserId.longValue() != userId) {
             return status(HttpStatus.UNAUTHORIZED)
                     .body("Unauthorized to delete this user");
         }
@@ -175,7 +222,7 @@ public class UserController {
         try {
             userService.deleteUser(userId);
             // Invalidate session after deleting user
-            session.invalidate();
+            invalidateSession(request);
             return ok("User deleted successfully");
         } catch (EntityNotFoundException e) {
             return (ResponseEntity<?>) notFound().build();
@@ -187,18 +234,45 @@ public class UserController {
 
     // --- NEW ENDPOINT FOR ADMIN PANEL ---
     @GetMapping("/all")
-    public ResponseEntity<?> getAllUsers(HttpSession session) {
+    public ResponseEntity<?> getAllUsers(@RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long userId) {
         // Basic check to see if a user is logged in. In a real app, you'd check for an admin role.
-        Integer userId = (Integer) session.getAttribute("userId");
         if (userId == null) {
             return status(HttpStatus.UNAUTHORIZED).body("You must be logged in to view users.");
         }
 
         try {
-            List<User> users = userService.getAllUsers();
+            List<UserSummaryDTO> users = userService.getAllUsers();
             return ok(users);
         } catch (Exception e) {
             return status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not retrieve users.");
         }
     }
+
+    // Paged directory for the admin panel; optional name or email prefix, follow nextCursor for more
+    @GetMapping("/directory")
+    public ResponseEntity<?> getUserDirectory(@RequestAttribute(name = AuthTokenFilter.USER_ID_ATTRIBUTE, required = false) Long userId,
+                                              @RequestParam(required = false) String name,
+                                              @RequestParam(required = false) String email,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
+        if (userId == null) {
+            return status(HttpStatus.UNAUTHORIZED).body("You must be logged in to view users.");
+        }
+
+        try {
+            UserPageDTO page = userService.getUserDirectory(name, email, cursor, limit);
+            return ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not retrieve users.");
+        }
+    }
+
+    private void invalidateSession(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+// Ad-hoc download report: dimensions are book, category, subcategory, emailDomain, email, day, week, month
+@Data
+public class AnalyticsQueryDTO {
+    private List<String> groupBy;
+    private Map<String, List<String>> filters;
+    private String from;
+    private String to;
+    private Integer limit;
+
+    public AnalyticsQueryDTO() {
+    }
+}
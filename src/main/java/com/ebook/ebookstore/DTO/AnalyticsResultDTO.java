@@ -0,0 +1,28 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// AnalyticsResultDTO for admin download reports, groups sorted by downloads descending
+@Setter
+@Getter
+public class AnalyticsResultDTO {
+    private List<String> groupBy;
+    private List<AnalyticsRowDTO> rows;
+    private Long matchedRows;
+    private Long scannedRows;
+    private Long elapsedMicros;
+
+    public AnalyticsResultDTO() {}
+
+    public AnalyticsResultDTO(List<String> groupBy, List<AnalyticsRowDTO> rows, Long matchedRows,
+                              Long scannedRows, Long elapsedMicros) {
+        this.groupBy = groupBy;
+        this.rows = rows;
+        this.matchedRows = matchedRows;
+        this.scannedRows = scannedRows;
+        this.elapsedMicros = elapsedMicros;
+    }
+}
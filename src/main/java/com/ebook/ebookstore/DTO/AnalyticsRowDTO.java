@@ -0,0 +1,20 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+public class AnalyticsRowDTO {
+    private List<String> keys;
+    private Long downloads;
+
+    public AnalyticsRowDTO() {}
+
+    public AnalyticsRowDTO(List<String> keys, Long downloads) {
+        this.keys = keys;
+        this.downloads = downloads;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Bloom filter in front of book code existence checks: sizing, memory and how often it saved a query
+@Setter
+@Getter
+public class BookCodeFilterStatsDTO {
+    private long codes;
+    private long expectedCodes;
+    private long bitCount;
+    private int hashFunctions;
+    private long memoryBytes;
+    private double targetFalsePositiveRate;
+    private double estimatedFalsePositiveRate;
+    private long lookups;
+    private long definiteNegatives;
+    private long databaseChecks;
+    private long falsePositives;
+    private double observedFalsePositiveRate;
+
+    public BookCodeFilterStatsDTO() {}
+}
@@ -0,0 +1,27 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Outcome of one row of a bulk user upload: CREATED (with id), INVALID, DUPLICATE or FAILED (with message)
+@Setter
+@Getter
+public class BulkUserResultDTO {
+    private long row;
+    private String status;
+    private Long id;
+    private String name;
+    private String email;
+    private String message;
+
+    public BulkUserResultDTO() {}
+
+    public BulkUserResultDTO(long row, String status, Long id, String name, String email, String message) {
+        this.row = row;
+        this.status = status;
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.message = message;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Hit, miss and put counts of one Hibernate second-level cache region since startup
+@Setter
+@Getter
+public class CacheRegionStatsDTO {
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private double hitRatio;
+
+    public CacheRegionStatsDTO() {}
+
+    public CacheRegionStatsDTO(String region, long hits, long misses, long puts) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// How many lookups of one kind shared another caller's in-flight query
+@Setter
+@Getter
+public class CoalescingStatsDTO {
+    private String lookup;
+    private long calls;
+    private long queries;
+    private long coalesced;
+    private double coalescingRatio;
+
+    public CoalescingStatsDTO() {}
+
+    public CoalescingStatsDTO(String lookup, long calls, long queries) {
+        this.lookup = lookup;
+        this.calls = calls;
+        this.queries = queries;
+        this.coalesced = calls - queries;
+        this.coalescingRatio = calls == 0 ? 0 : (double) (calls - queries) / calls;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Data;
+
+// Same filters as the synchronous CSV export; dates are yyyy-MM-dd.
+// format is "csv.gz" (default), "ndjson.gz", "zip" for one CSV per book, or "parquet"
+@Data
+public class CreateExportJobDTO {
+    private Long bookId;
+    private String startDate;
+    private String endDate;
+    private String format;
+
+    public CreateExportJobDTO() {
+    }
+}
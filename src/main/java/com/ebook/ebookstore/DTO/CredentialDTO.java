@@ -0,0 +1,14 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Principal plus its stored password hash, loaded in one query for login; never returned to clients
+@Getter
+@AllArgsConstructor
+public class CredentialDTO {
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String passwordHash;
+}
@@ -0,0 +1,31 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// DownloadSeriesDTO for per-book download curves; empty buckets are omitted
+@Setter
+@Getter
+public class DownloadSeriesDTO {
+    private Long bookId;
+    private String step;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Long totalDownloads;
+    private List<DownloadSeriesPointDTO> points;
+
+    public DownloadSeriesDTO() {}
+
+    public DownloadSeriesDTO(Long bookId, String step, LocalDateTime from, LocalDateTime to,
+                             Long totalDownloads, List<DownloadSeriesPointDTO> points) {
+        this.bookId = bookId;
+        this.step = step;
+        this.from = from;
+        this.to = to;
+        this.totalDownloads = totalDownloads;
+        this.points = points;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// One bucket of a per-book download series
+@Setter
+@Getter
+public class DownloadSeriesPointDTO {
+    private LocalDateTime bucketStart;
+    private Long downloads;
+
+    public DownloadSeriesPointDTO() {}
+
+    public DownloadSeriesPointDTO(LocalDateTime bucketStart, Long downloads) {
+        this.bucketStart = bucketStart;
+        this.downloads = downloads;
+    }
+}
@@ -0,0 +1,30 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// Row counts per download shard and how many reads went to one shard versus all of them
+@Setter
+@Getter
+public class DownloadShardStatsDTO {
+    private boolean enabled;
+    private int shards;
+    private int previousShards;
+    private List<Long> rowsPerShard;
+    private long routedQueries;
+    private long scatterQueries;
+
+    public DownloadShardStatsDTO() {}
+
+    public DownloadShardStatsDTO(boolean enabled, int shards, int previousShards, List<Long> rowsPerShard,
+                                 long routedQueries, long scatterQueries) {
+        this.enabled = enabled;
+        this.shards = shards;
+        this.previousShards = previousShards;
+        this.rowsPerShard = rowsPerShard;
+        this.routedQueries = routedQueries;
+        this.scatterQueries = scatterQueries;
+    }
+}
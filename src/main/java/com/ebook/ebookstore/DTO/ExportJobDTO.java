@@ -0,0 +1,41 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// ExportJobDTO for polling asynchronous lead exports
+@Setter
+@Getter
+public class ExportJobDTO {
+    private String id;
+    private String status;
+    private String format;
+    private Long processedRows;
+    private Long totalRows;
+    private Integer progressPercent;
+    private Long fileSizeBytes;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private String downloadUrl;
+
+    public ExportJobDTO() {}
+
+    public ExportJobDTO(String id, String status, String format, Long processedRows, Long totalRows,
+                        Integer progressPercent, Long fileSizeBytes, LocalDateTime createdAt,
+                        LocalDateTime finishedAt, String error, String downloadUrl) {
+        this.id = id;
+        this.status = status;
+        this.format = format;
+        this.processedRows = processedRows;
+        this.totalRows = totalRows;
+        this.progressPercent = progressPercent;
+        this.fileSizeBytes = fileSizeBytes;
+        this.createdAt = createdAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+        this.downloadUrl = downloadUrl;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// One exported lead; streaming exports reuse a single instance per cursor, so do not keep references
+@Setter
+@Getter
+public class LeadRowDTO {
+    private long id;
+    private long ebookId;
+    private String bookName;
+    private String bookCode;
+    private String userName;
+    private String email;
+    private String contactNumber;
+    private LocalDateTime downloadTime;
+    // False when the book is missing or archived; CSV then writes Unknown for its name and code
+    private boolean bookFound;
+
+    public LeadRowDTO() {}
+}
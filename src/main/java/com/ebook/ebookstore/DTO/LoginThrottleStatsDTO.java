@@ -0,0 +1,24 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Login throttling: limits, memory and how many attempts were let through or shed
+@Setter
+@Getter
+public class LoginThrottleStatsDTO {
+    private boolean enabled;
+    private long maxAttemptsPerIp;
+    private long ipWindowMillis;
+    private long maxFailuresPerEmail;
+    private long emailWindowMillis;
+    private long trackedEmails;
+    private long memoryBytes;
+    private long allowed;
+    private long blockedByIp;
+    private long blockedByEmail;
+    private long failures;
+    private double blockedRatio;
+
+    public LoginThrottleStatsDTO() {}
+}
@@ -0,0 +1,25 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// RelatedBookDTO for "readers also downloaded"
+@Setter
+@Getter
+public class RelatedBookDTO {
+    private Long bookId;
+    private String bookName;
+    private String bookCode;
+    private String author;
+    private Long sharedReaders;
+
+    public RelatedBookDTO() {}
+
+    public RelatedBookDTO(Long bookId, String bookName, String bookCode, String author, Long sharedReaders) {
+        this.bookId = bookId;
+        this.bookName = bookName;
+        this.bookCode = bookCode;
+        this.author = author;
+        this.sharedReaders = sharedReaders;
+    }
+}
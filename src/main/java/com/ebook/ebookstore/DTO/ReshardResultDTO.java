@@ -0,0 +1,27 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// One pass of a backfill or rebalance; pass lastId back as afterId to continue until done
+@Setter
+@Getter
+public class ReshardResultDTO {
+    private String source;
+    private long scanned;
+    private long copied;
+    private long deleted;
+    private long lastId;
+    private boolean done;
+
+    public ReshardResultDTO() {}
+
+    public ReshardResultDTO(String source, long scanned, long copied, long deleted, long lastId, boolean done) {
+        this.source = source;
+        this.scanned = scanned;
+        this.copied = copied;
+        this.deleted = deleted;
+        this.lastId = lastId;
+        this.done = done;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// TrendingBookDTO for the "trending now" shelf; downloads is a sketch estimate for the window
+@Setter
+@Getter
+public class TrendingBookDTO {
+    private Long bookId;
+    private String bookName;
+    private String bookCode;
+    private String author;
+    private Long downloads;
+
+    public TrendingBookDTO() {}
+
+    public TrendingBookDTO(Long bookId, String bookName, String bookCode, String author, Long downloads) {
+        this.bookId = bookId;
+        this.bookName = bookName;
+        this.bookCode = bookCode;
+        this.author = author;
+        this.downloads = downloads;
+    }
+}
@@ -1,5 +1,7 @@
 package com.ebook.ebookstore.DTO;
 
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -9,6 +11,12 @@ public class UserDTO {
     private Integer id;
     private String name;
     private String email;
+    // Checked on the raw password before hashing; null leaves the password unchanged on update
+    @Size(max = 72, message = "Password must not exceed 72 characters")
+    @Pattern(
+            regexp = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{8,}$",
+            message = "Password must contain at least one uppercase letter, one lowercase letter, one digit, and one special character"
+    )
     private String password;
 
     // Constructor that matches what you're using in the controller
@@ -0,0 +1,21 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// A page of the user directory; pass nextCursor back to get the following page, null on the last one
+@Setter
+@Getter
+public class UserPageDTO {
+    private List<UserSummaryDTO> users;
+    private String nextCursor;
+
+    public UserPageDTO() {}
+
+    public UserPageDTO(List<UserSummaryDTO> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ebook.ebookstore.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// One row of the admin user directory: the columns the panel shows, never the password
+@Getter
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private final Long id;
+    private final String name;
+    private final String email;
+}
@@ -0,0 +1,13 @@
+package com.ebook.ebookstore.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Published when the book cache invalidation log shows books written on any node, this one included
+@Getter
+@AllArgsConstructor
+public class BooksChangedEvent {
+    private final List<Long> bookIds;
+}
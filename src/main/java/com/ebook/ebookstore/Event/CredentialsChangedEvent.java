@@ -0,0 +1,14 @@
+package com.ebook.ebookstore.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Published when the credential invalidation log shows user or admin writes on any node, this one included
+@Getter
+@AllArgsConstructor
+public class CredentialsChangedEvent {
+    // Lower-cased, as the credential caches key them
+    private final List<String> emails;
+}
@@ -0,0 +1,16 @@
+package com.ebook.ebookstore.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Published after a download lead has been stored; in-memory rollups and indexes listen for it
+@Getter
+@AllArgsConstructor
+public class DownloadCapturedEvent {
+    private final Long downloadId;
+    private final Long ebookId;
+    private final String email;
+    private final LocalDateTime downloadTime;
+}
@@ -4,17 +4,32 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "books")
+@SQLRestriction("archived = false")
+// Read-mostly: rows and code -> id lookups live in the second-level cache; see BookRepository for invalidation
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Books.CACHE_REGION)
+@NaturalIdCache(region = Books.NATURAL_ID_CACHE_REGION)
 @AllArgsConstructor
 @Data
 @Getter
 @Setter
 public class Books {
+
+    public static final String CACHE_REGION = "books";
+    public static final String NATURAL_ID_CACHE_REGION = "books-by-code";
+    public static final String QUERY_CACHE_REGION = "books-queries";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,6 +39,8 @@ public class Books {
     @Column(name = "book_name", nullable = false)
     private String name;
 
+    // Mutable: books can be re-coded, and archiving clears the code
+    @NaturalId(mutable = true)
     @Column(name = "book_code", unique = true)
     private String code;
 
@@ -43,7 +60,13 @@ public class Books {
     @Column(name = "download_url")
     private String downloadUrl;
 
-    @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // Archived books are hidden from every query and purged in the background
+    @Column(name = "archived", nullable = false)
+    private boolean archived = false;
+
+    // No cascade: downloads are removed in chunks by BookPurgeService, never loaded through this collection.
+    // Deliberately not cached: downloads are written by JDBC (capture journal, shards), which Hibernate never sees
+    @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
     private List<Download> downloads = new ArrayList<>();
 
     public Books() {}
@@ -12,7 +12,12 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "downloads")
+@Table(name = "downloads", indexes = {
+        @Index(name = "idx_downloads_time", columnList = "download_time"),
+        @Index(name = "idx_downloads_ebook_time", columnList = "ebook_id, download_time"),
+        @Index(name = "idx_downloads_email_time", columnList = "email, download_time"),
+        @Index(name = "idx_downloads_ingested", columnList = "ingested_at, id")
+})
 @Getter
 @Setter
 @RequiredArgsConstructor
@@ -44,9 +49,16 @@ public class Download {
     @Column(name = "download_time", nullable = false)
     private LocalDateTime downloadTime;
 
-    // Foreign key relationship with Book entity
+    // Set by MySQL on insert; moves between shards carry it over. Delta exports page on it rather than on id,
+    // because ids (identity or journal) are not committed in order
+    @Column(name = "ingested_at", insertable = false, updatable = false,
+            columnDefinition = "DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)")
+    private LocalDateTime ingestedAt;
+
+    // Relationship with Book entity; no FK constraint because MySQL cannot partition tables that have one
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "ebook_id", insertable = false, updatable = false)
+    @JoinColumn(name = "ebook_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Books book;
 
     @Override
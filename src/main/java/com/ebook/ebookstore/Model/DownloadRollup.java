@@ -0,0 +1,36 @@
+package com.ebook.ebookstore.Model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Pre-aggregated download counts per book and time bucket
+@Entity
+@Table(name = "download_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_download_rollups_bucket", columnNames = {"ebook_id", "granularity", "bucket_start"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class DownloadRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ebook_id", nullable = false)
+    private Long ebookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "download_count", nullable = false)
+    private long downloadCount;
+}
@@ -0,0 +1,6 @@
+package com.ebook.ebookstore.Model;
+
+public enum RollupGranularity {
+    HOUR,
+    DAY
+}
@@ -3,7 +3,6 @@ package com.ebook.ebookstore.Model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 
@@ -13,7 +12,10 @@ import lombok.*;
 @Data
 @Getter
 @Setter
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // Prefix search and keyset paging by name in the user directory; email already has its unique index
+        @Index(name = "idx_users_name", columnList = "name, id")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,10 +36,7 @@ public class User {
 
     @NotBlank(message = "Password is required")
     @Size(max = 255, message = "Password must not exceed 255 characters")
-    @Pattern(
-            regexp = "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{8,}$",
-            message = "Password must contain at least one uppercase letter, one lowercase letter, one digit, and one special character"
-    )
+    // bcrypt hash; the password policy is checked on the raw value in UserDTO / AdminDTO
     @Column(name = "password", nullable = false)
     private String password;
 
@@ -1,11 +1,19 @@
 package com.ebook.ebookstore.Repository;
 
+import com.ebook.ebookstore.DTO.CredentialDTO;
 import com.ebook.ebookstore.Model.Admin;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AdminRepository extends JpaRepository<Admin, Integer> {
@@ -19,4 +27,19 @@ public interface AdminRepository extends JpaRepository<Admin, Integer> {
     Admin findByEmail(String email);
 
     Admin findByName(String name);
+
+    // Login: principal and credential in one round trip
+    @Query("SELECT new com.ebook.ebookstore.DTO.CredentialDTO(a.id, a.name, a.email, a.password) " +
+            "FROM Admin a WHERE a.email = :email")
+    Optional<CredentialDTO> findCredentialByEmail(@Param("email") String email);
+
+    // Creation: both uniqueness checks in one query
+    List<Admin> findByNameOrEmail(String name, String email);
+
+    // Only replaces the hash that was checked, so a rehash racing a password change writes nothing
+    @Modifying
+    @Transactional
+    @Query("UPDATE Admin a SET a.password = :password WHERE a.id = :id AND a.password = :previousHash")
+    int updatePassword(@Param("id") Long id, @Param("password") String password,
+                       @Param("previousHash") String previousHash);
 }
@@ -0,0 +1,11 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.Model.Books;
+
+import java.util.Optional;
+
+// Lookups by the Books natural id (code), which go through Hibernate's natural-id cache instead of a query
+public interface BookNaturalIdRepository {
+
+    Optional<Books> findByCode(String code);
+}
@@ -0,0 +1,27 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.Model.Books;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class BookNaturalIdRepositoryImpl implements BookNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // code -> id comes from the books-by-code region and the row from the books region; both miss to MySQL
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Books> findByCode(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Books.class)
+                .loadOptional(code);
+    }
+}
@@ -1,31 +1,58 @@
 package com.ebook.ebookstore.Repository;
 
 import com.ebook.ebookstore.Model.Books;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
+// Finders are in the query cache: results are kept as ids, resolved through the Books entity cache, and dropped
+// whenever the books table changes. Native writes name the tables they touch (HINT_NATIVE_SPACES); without
+// that Hibernate cannot tell what they changed and empties every second-level cache region.
+// findByCode is a natural-id lookup (BookNaturalIdRepository), served from the books-by-code region.
 @Repository
-public interface BookRepository extends JpaRepository<Books, Long> {
+public interface BookRepository extends JpaRepository<Books, Long>, BookNaturalIdRepository {
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     List<Books> findByAuthorContainingIgnoreCase(String author);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     List<Books> findByNameContainingIgnoreCase(String name);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     List<Books> findByCategoryIgnoreCase(String category);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     List<Books> findBySubcategoryIgnoreCase(String subcategory);
 
-    Optional<Books> findByCode(String code);
-
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     boolean existsByCode(String code);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     boolean existsByNameIgnoreCase(String name);
 
+    @Query("SELECT b.code FROM Books b WHERE b.code IS NOT NULL")
+    List<String> findAllCodes();
+
+    @Query("SELECT b.code FROM Books b WHERE b.id IN :ids AND b.code IS NOT NULL")
+    List<String> findCodesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Books.QUERY_CACHE_REGION)})
     @Query("SELECT b FROM Books b WHERE " +
             "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
             "(:category IS NULL OR LOWER(b.category) = LOWER(:category)) AND " +
@@ -33,4 +60,21 @@ public interface BookRepository extends JpaRepository<Books, Long> {
     List<Books> findBooksWithFilters(@Param("author") String author,
                                      @Param("category") String category,
                                      @Param("subcategory") String subcategory);
-}
\ No newline at end of file
+
+    // Soft delete; also releases the unique book code so it can be reused straight away
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "books"))
+    @Query(value = "UPDATE books SET archived = true, book_code = NULL WHERE id = :id AND archived = false",
+            nativeQuery = true)
+    int archiveById(@Param("id") Long id);
+
+    @Query(value = "SELECT id FROM books WHERE archived = true", nativeQuery = true)
+    List<Long> findArchivedIds();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "books"))
+    @Query(value = "DELETE FROM books WHERE id = :id AND archived = true", nativeQuery = true)
+    int deleteArchivedById(@Param("id") Long id);
+}
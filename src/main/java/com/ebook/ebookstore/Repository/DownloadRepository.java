@@ -2,10 +2,16 @@
 package com.ebook.ebookstore.Repository;
 
 import com.ebook.ebookstore.Model.Download;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -44,4 +50,16 @@ public interface DownloadRepository extends JpaRepository<Download, Long> {
 
     @Query("SELECT d FROM Download d ORDER BY d.downloadTime DESC")
     List<Download> findAllOrderByDownloadTimeDesc();
-}
\ No newline at end of file
+
+    // Keyset pages in id order, for copying the table into the download shards
+    @Query("SELECT d FROM Download d WHERE d.id > :afterId ORDER BY d.id")
+    List<Download> findAfterId(@Param("afterId") Long afterId, Pageable page);
+
+    // Each call is its own short transaction; callers loop until it returns 0.
+    // Naming the table keeps each chunk from emptying the whole second-level cache (Books included)
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "downloads"))
+    @Query(value = "DELETE FROM downloads WHERE ebook_id = :ebookId LIMIT :limit", nativeQuery = true)
+    int deleteChunkByEbookId(@Param("ebookId") Long ebookId, @Param("limit") int limit);
+}
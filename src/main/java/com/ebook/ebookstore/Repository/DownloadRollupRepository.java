@@ -0,0 +1,35 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.Model.DownloadRollup;
+import com.ebook.ebookstore.Model.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DownloadRollupRepository extends JpaRepository<DownloadRollup, Long> {
+
+    @Query("SELECT r FROM DownloadRollup r WHERE r.ebookId = :ebookId AND r.granularity = :granularity " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<DownloadRollup> findSeries(@Param("ebookId") Long ebookId,
+                                    @Param("granularity") RollupGranularity granularity,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DownloadRollup r WHERE r.granularity = :granularity AND r.bucketStart < :before")
+    int deleteByGranularityAndBucketStartBefore(@Param("granularity") RollupGranularity granularity,
+                                                @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DownloadRollup r WHERE r.ebookId = :ebookId")
+    int deleteByEbookId(@Param("ebookId") Long ebookId);
+}
@@ -0,0 +1,285 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Util.DeltaCursor;
+import com.ebook.ebookstore.Util.JdbcStreaming;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+// Streaming reads of downloads joined to their book, for exports that must not load the table into memory.
+// With sharding on, downloads are read from the shards and joined to the primary's books in memory.
+@Repository
+public class LeadExportRepository {
+
+    private static final String SELECT_SQL =
+            "SELECT d.id, d.ebook_id, b.book_name, b.book_code, d.user_name, d.email, d.contact_number, d.download_time, " +
+                    "b.id IS NOT NULL " +
+                    "FROM downloads d LEFT JOIN books b ON b.id = d.ebook_id AND b.archived = false";
+
+    private static final RowMapper<DeltaCursor> CURSOR_MAPPER =
+            (rs, rowNum) -> new DeltaCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2));
+
+    @FunctionalInterface
+    public interface LeadRowHandler {
+        void handle(LeadRowDTO row) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+
+    @Autowired
+    public LeadExportRepository(JdbcTemplate jdbcTemplate, ShardedDownloadRepository shardedDownloadRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+    }
+
+    public long countLeads(Long bookId, LocalDateTime start, LocalDateTime end) {
+        if (shardedDownloadRepository.isEnabled()) {
+            List<Object> args = new ArrayList<>();
+            if (bookId != null) {
+                return shardedDownloadRepository.countByEbookId(bookId, timeConditions(start, end, args, " AND "), args);
+            }
+            String where = timeConditions(start, end, args, " WHERE ");
+            return shardedDownloadRepository.countGroupedByEbookId(where, args).values().stream()
+                    .mapToLong(Long::longValue).sum();
+        }
+        List<Object> args = new ArrayList<>();
+        String where = whereClause(new ArrayList<>(), bookId, start, end, args);
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM downloads d" + where, Long.class, args.toArray());
+        return Optional.ofNullable(count).orElse(0L);
+    }
+
+    // Same filter semantics as exportLeadsCSV: the dates only apply when both are given
+    public void streamLeads(Long bookId, LocalDateTime start, LocalDateTime end, LeadRowHandler handler) {
+        if (shardedDownloadRepository.isEnabled()) {
+            // Shard by shard rather than in global id order
+            Map<Long, String[]> books = liveBooks(bookId);
+            List<Object> args = new ArrayList<>();
+            if (bookId != null) {
+                shardedDownloadRepository.streamByEbookId(bookId, timeConditions(start, end, args, " AND "), args,
+                        leadRows(books, handler));
+            } else {
+                shardedDownloadRepository.streamAll(timeConditions(start, end, args, " WHERE "), args,
+                        leadRows(books, handler));
+            }
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        String where = whereClause(new ArrayList<>(), bookId, start, end, args);
+        stream(SELECT_SQL + where + " ORDER BY d.id", args, handler);
+    }
+
+    // Row count per book in ebook_id order; used to split per-book exports into balanced ranges
+    public Map<Long, Long> countLeadsByBook(LocalDateTime start, LocalDateTime end) {
+        if (shardedDownloadRepository.isEnabled()) {
+            List<Object> args = new ArrayList<>();
+            return shardedDownloadRepository.countGroupedByEbookId(timeConditions(start, end, args, " WHERE "), args);
+        }
+        List<Object> args = new ArrayList<>();
+        String where = whereClause(new ArrayList<>(), null, start, end, args);
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT d.ebook_id, COUNT(*) FROM downloads d" + where +
+                        " GROUP BY d.ebook_id ORDER BY d.ebook_id",
+                (RowCallbackHandler) rs -> counts.put(rs.getLong(1), rs.getLong(2)), args.toArray());
+        return counts;
+    }
+
+    // Rows of the books in [fromBookId, toBookId], grouped by book; ordered to match idx_downloads_ebook_time
+    public void streamLeadsForBooks(long fromBookId, long toBookId, LocalDateTime start, LocalDateTime end,
+                                    LeadRowHandler handler) {
+        if (shardedDownloadRepository.isEnabled()) {
+            List<Object> args = new ArrayList<>(List.of(fromBookId, toBookId));
+            String time = timeConditions(start, end, args, " AND ");
+            TreeSet<Long> bookIds = new TreeSet<>(shardedDownloadRepository.queryEachShard(
+                    "SELECT DISTINCT ebook_id FROM downloads WHERE ebook_id BETWEEN ? AND ?" + time,
+                    (rs, rowNum) -> rs.getLong(1), args.toArray()));
+            Map<Long, String[]> books = liveBooks(null);
+            List<Object> timeArgs = args.subList(2, args.size());
+            for (Long bookId : bookIds) {
+                shardedDownloadRepository.streamByEbookId(bookId, time, timeArgs, leadRows(books, handler));
+            }
+            return;
+        }
+        List<String> conditions = new ArrayList<>(List.of("d.ebook_id BETWEEN ? AND ?"));
+        List<Object> args = new ArrayList<>(List.of(fromBookId, toBookId));
+        String where = whereClause(conditions, null, start, end, args);
+        stream(SELECT_SQL + where + " ORDER BY d.ebook_id, d.download_time, d.id", args, handler);
+    }
+
+    /**
+     * Last of the next {@code limit} rows after {@code after} in (ingested_at, id) order (all of them
+     * when limit is null), or {@code after} if there are none. Ids are not committed in order, so only
+     * rows ingested at least {@code settleMillis} before the database's current time are considered:
+     * anything still uncommitted by then would land behind the cursor and never be exported. The
+     * settle time must exceed the longest insert transaction and any clock skew between shards.
+     */
+    public DeltaCursor findDeltaWatermark(DeltaCursor after, long settleMillis, Integer limit) {
+        Timestamp settled = Timestamp.valueOf(jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(6)", Timestamp.class)
+                .toLocalDateTime().minusNanos(settleMillis * 1_000_000));
+        List<Object> args = new ArrayList<>();
+        String where = " WHERE " + afterCursor("", after, args) + " AND ingested_at <= ?";
+        args.add(settled);
+        if (shardedDownloadRepository.isEnabled()) {
+            // The first `limit` rows overall are among the first `limit` of each shard; a set drops mid-move copies
+            String sql = "SELECT ingested_at, id FROM downloads" + where +
+                    (limit == null ? " ORDER BY ingested_at DESC, id DESC LIMIT 1" : " ORDER BY ingested_at, id LIMIT ?");
+            if (limit != null) {
+                args.add(limit);
+            }
+            TreeSet<DeltaCursor> cursors = new TreeSet<>(
+                    shardedDownloadRepository.queryEachShard(sql, CURSOR_MAPPER, args.toArray()));
+            if (limit == null) {
+                return cursors.isEmpty() ? after : cursors.last();
+            }
+            DeltaCursor watermark = after;
+            int taken = 0;
+            for (DeltaCursor cursor : cursors) {
+                if (taken++ == limit) {
+                    break;
+                }
+                watermark = cursor;
+            }
+            return watermark;
+        }
+        String sql = limit == null
+                ? "SELECT ingested_at, id FROM downloads" + where + " ORDER BY ingested_at DESC, id DESC LIMIT 1"
+                : "SELECT ingested_at, id FROM (SELECT ingested_at, id FROM downloads" + where +
+                " ORDER BY ingested_at, id LIMIT ?) t ORDER BY ingested_at DESC, id DESC LIMIT 1";
+        if (limit != null) {
+            args.add(limit);
+        }
+        List<DeltaCursor> watermark = jdbcTemplate.query(sql, CURSOR_MAPPER, args.toArray());
+        return watermark.isEmpty() ? after : watermark.get(0);
+    }
+
+    // Range scan on idx_downloads_ingested, in (ingested_at, id) order; per shard when sharded
+    public void streamLeadsAfter(DeltaCursor after, DeltaCursor upTo, LeadRowHandler handler) {
+        List<Object> args = new ArrayList<>();
+        if (shardedDownloadRepository.isEnabled()) {
+            String range = " WHERE " + afterCursor("", after, args) + " AND " + upToCursor("", upTo, args);
+            shardedDownloadRepository.streamAll(range, args, leadRows(liveBooks(null), handler));
+            return;
+        }
+        String range = " WHERE " + afterCursor("d.", after, args) + " AND " + upToCursor("d.", upTo, args);
+        stream(SELECT_SQL + range + " ORDER BY d.ingested_at, d.id", args, handler);
+    }
+
+    private void stream(String sql, List<Object> args, LeadRowHandler handler) {
+        LeadRowDTO row = new LeadRowDTO();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL streams the result row by row with this fetch size instead of buffering it
+            statement.setFetchSize(JdbcStreaming.fetchSize(connection));
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            row.setId(rs.getLong(1));
+            row.setEbookId(rs.getLong(2));
+            row.setBookName(rs.getString(3));
+            row.setBookCode(rs.getString(4));
+            row.setUserName(rs.getString(5));
+            row.setEmail(rs.getString(6));
+            row.setContactNumber(rs.getString(7));
+            row.setDownloadTime(rs.getTimestamp(8).toLocalDateTime());
+            row.setBookFound(rs.getBoolean(9));
+            try {
+                handler.handle(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // id -> {book_name, book_code} of the live books, or of one book; the LEFT JOIN of the unsharded query
+    private Map<Long, String[]> liveBooks(Long bookId) {
+        Map<Long, String[]> books = new HashMap<>();
+        RowCallbackHandler put = rs -> books.put(rs.getLong(1), new String[]{rs.getString(2), rs.getString(3)});
+        if (bookId != null) {
+            jdbcTemplate.query("SELECT id, book_name, book_code FROM books WHERE archived = false AND id = ?", put, bookId);
+        } else {
+            jdbcTemplate.query("SELECT id, book_name, book_code FROM books WHERE archived = false", put);
+        }
+        return books;
+    }
+
+    private static Consumer<Download> leadRows(Map<Long, String[]> books, LeadRowHandler handler) {
+        LeadRowDTO row = new LeadRowDTO();
+        String[] noBook = new String[2];
+        return download -> {
+            String[] book = books.getOrDefault(download.getEbookId(), noBook);
+            row.setId(download.getId());
+            row.setEbookId(download.getEbookId());
+            row.setBookName(book[0]);
+            row.setBookCode(book[1]);
+            row.setUserName(download.getUserName());
+            row.setEmail(download.getEmail());
+            row.setContactNumber(download.getContactNumber());
+            row.setDownloadTime(download.getDownloadTime());
+            row.setBookFound(book != noBook);
+            try {
+                handler.handle(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    // Keyset conditions spelled out rather than as row comparisons, which MySQL does not always turn into a range scan
+    private static String afterCursor(String alias, DeltaCursor after, List<Object> args) {
+        Timestamp time = Timestamp.valueOf(after.ingestedAt());
+        args.addAll(List.of(time, time, after.id()));
+        return "(" + alias + "ingested_at > ? OR (" + alias + "ingested_at = ? AND " + alias + "id > ?))";
+    }
+
+    private static String upToCursor(String alias, DeltaCursor upTo, List<Object> args) {
+        Timestamp time = Timestamp.valueOf(upTo.ingestedAt());
+        args.addAll(List.of(time, time, upTo.id()));
+        return "(" + alias + "ingested_at < ? OR (" + alias + "ingested_at = ? AND " + alias + "id <= ?))";
+    }
+
+    // Shard queries have no table alias; same rule as whereClause, the dates only apply when both are given
+    private static String timeConditions(LocalDateTime start, LocalDateTime end, List<Object> args, String prefix) {
+        if (start == null || end == null) {
+            return "";
+        }
+        args.add(Timestamp.valueOf(start));
+        args.add(Timestamp.valueOf(end));
+        return prefix + "download_time > ? AND download_time < ?";
+    }
+
+    private String whereClause(List<String> conditions, Long bookId, LocalDateTime start, LocalDateTime end,
+                               List<Object> args) {
+        if (bookId != null) {
+            conditions.add("d.ebook_id = ?");
+            args.add(bookId);
+        }
+        if (start != null && end != null) {
+            conditions.add("d.download_time > ? AND d.download_time < ?");
+            args.add(Timestamp.valueOf(start));
+            args.add(Timestamp.valueOf(end));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+}
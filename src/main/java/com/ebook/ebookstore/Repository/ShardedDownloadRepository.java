@@ -0,0 +1,671 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.Config.JdbcLimiterConfig;
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Util.DeltaCursor;
+import com.ebook.ebookstore.Util.HyperLogLog;
+import com.ebook.ebookstore.Util.JdbcStreaming;
+import com.ebook.ebookstore.Util.JumpConsistentHash;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The downloads table spread over several databases, enabled by ebook.downloads.shards.enabled.
+ * Rows live on the shard picked by a jump consistent hash of ebook_id, so everything about one
+ * book (its leads, counts, range queries and purge) is answered by a single shard. Queries on
+ * other columns fan out to every shard in parallel on the downloadShardExecutor and the sorted
+ * per-shard results are merged.
+ * <p>
+ * Shards can only be appended. While rows are being moved after adding one, set
+ * ebook.downloads.shards.previous-count to the old count: per-book reads then also ask the
+ * book's old shard, and results and per-book counts are de-duplicated by id. Whole-table
+ * counts are plain sums and include rows copied but not yet deleted from their old shard.
+ * <p>
+ * Index rebuilds and exports read through {@link #streamAll} and {@link #streamByEbookId}, which
+ * stream rows instead of loading them; shards hold no books, so callers join book columns themselves.
+ * <p>
+ * Shard rows take their ids from the capture journal, which makes them unique across shards.
+ * <p>
+ * Distinct emails are estimated from a HyperLogLog sketch per shard, which later calls extend
+ * with the rows ingested since and rebuild from scratch after ebook.downloads.shards.email-sketch.rebuild-hours.
+ */
+@Repository
+public class ShardedDownloadRepository implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedDownloadRepository.class);
+
+    // Same columns and keys as the JPA-managed table, including the (id, download_time) key partitioning needs
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS downloads (" +
+                    "id BIGINT NOT NULL, ebook_id BIGINT NOT NULL, user_name VARCHAR(100) NOT NULL, " +
+                    "contact_number VARCHAR(15) NOT NULL, email VARCHAR(100) NOT NULL, " +
+                    "download_time DATETIME(6) NOT NULL, " +
+                    "ingested_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), PRIMARY KEY (id, download_time), " +
+                    "INDEX idx_downloads_time (download_time), " +
+                    "INDEX idx_downloads_ebook_time (ebook_id, download_time), " +
+                    "INDEX idx_downloads_email_time (email, download_time), " +
+                    "INDEX idx_downloads_ingested (ingested_at, id))";
+
+    // Shard tables created before delta exports paged on ingest time; online DDL, writes carry on meanwhile
+    private static final String ADD_INGESTED_AT_SQL =
+            "ALTER TABLE downloads ADD COLUMN ingested_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), " +
+                    "ADD INDEX idx_downloads_ingested (ingested_at, id), ALGORITHM=INPLACE, LOCK=NONE";
+
+    // A row moved between shards keeps its ingest time; a replayed capture gets the shard's clock
+    private static final String INSERT_SQL =
+            "INSERT INTO downloads (id, ebook_id, user_name, contact_number, email, download_time, ingested_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP(6))) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String SELECT =
+            "SELECT id, ebook_id, user_name, contact_number, email, download_time, ingested_at FROM downloads";
+
+    private static final RowMapper<Download> ROW_MAPPER = (rs, rowNum) -> {
+        Download download = new Download();
+        download.setId(rs.getLong(1));
+        download.setEbookId(rs.getLong(2));
+        download.setUserName(rs.getString(3));
+        download.setContactNumber(rs.getString(4));
+        download.setEmail(rs.getString(5));
+        download.setDownloadTime(rs.getTimestamp(6).toLocalDateTime());
+        download.setIngestedAt(rs.getTimestamp(7).toLocalDateTime());
+        return download;
+    };
+
+    private static final Comparator<Download> BY_ID = Comparator.comparing(Download::getId);
+    private static final Comparator<Download> BY_TIME = Comparator.comparing(Download::getDownloadTime).thenComparing(BY_ID);
+
+    // Rows left behind on a shard that no longer owns their book are checked against the owner this many at a time
+    private static final int STRAY_BATCH = 500;
+
+    // 16 KB per shard, about 0.8% standard error
+    private static final int EMAIL_SKETCH_PRECISION = 14;
+
+    private final boolean enabled;
+    private final int previousCount;
+    private final TaskExecutor executor;
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final List<TransactionTemplate> transactions = new ArrayList<>();
+
+    private final LongAdder routedQueries = new LongAdder();
+    private final LongAdder scatterQueries = new LongAdder();
+
+    private final long emailSketchOverlapMillis;
+    private final long emailSketchRebuildMillis;
+    // Guards emailSketches; held across the shard reads that extend them
+    private final ReentrantLock emailSketchLock = new ReentrantLock();
+    private EmailSketch[] emailSketches = new EmailSketch[0];
+
+    @Autowired
+    public ShardedDownloadRepository(Environment environment,
+                                     @Qualifier("downloadShardExecutor") TaskExecutor executor,
+                                     @Value("${ebook.downloads.shards.enabled:false}") boolean enabled,
+                                     @Value("${ebook.downloads.shards.urls:}") List<String> urls,
+                                     @Value("${ebook.downloads.shards.username:${spring.datasource.username:}}") String username,
+                                     @Value("${ebook.downloads.shards.password:${spring.datasource.password:}}") String password,
+                                     @Value("${ebook.downloads.shards.previous-count:0}") int previousCount,
+                                     @Value("${ebook.capture.journal.enabled:false}") boolean journalEnabled,
+                                     @Value("${ebook.downloads.shards.email-sketch.overlap-ms:60000}") long emailSketchOverlapMillis,
+                                     @Value("${ebook.downloads.shards.email-sketch.rebuild-hours:24}") long emailSketchRebuildHours) {
+        this.enabled = enabled;
+        this.executor = executor;
+        this.previousCount = previousCount;
+        this.emailSketchOverlapMillis = emailSketchOverlapMillis;
+        this.emailSketchRebuildMillis = emailSketchRebuildHours * 3_600_000L;
+        if (!enabled) {
+            return;
+        }
+        if (!journalEnabled) {
+            throw new IllegalStateException(
+                    "ebook.downloads.shards.enabled needs ebook.capture.journal.enabled: shard rows take their ids from the journal");
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("ebook.downloads.shards.urls must list at least one shard");
+        }
+        if (previousCount < 0 || previousCount > urls.size()) {
+            throw new IllegalStateException("ebook.downloads.shards.previous-count must be between 0 and " + urls.size());
+        }
+
+        Binder binder = Binder.get(environment);
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(urls.get(i).trim()).username(username).password(password)
+                    .build();
+            binder.bind("ebook.downloads.shards.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("download-shard-" + i);
+            DataSource dataSource = JdbcLimiterConfig.limit(pool, pool.getMaximumPoolSize(), environment);
+
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute(CREATE_TABLE_SQL);
+            addIngestedAt(jdbcTemplate, i);
+            dataSources.add(pool);
+            shards.add(jdbcTemplate);
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+        emailSketches = new EmailSketch[urls.size()];
+        logger.info("Downloads sharded over {} database(s){}", urls.size(),
+                previousCount > 0 ? ", moving from " + previousCount : "");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int shardOf(Long ebookId) {
+        return JumpConsistentHash.bucket(ebookId, shards.size());
+    }
+
+    // ---- Single-shard queries: everything keyed by ebook_id ----
+
+    public List<Download> findByEbookId(Long ebookId) {
+        return routed(ebookId, BY_ID, shard -> shard.query(SELECT + " WHERE ebook_id = ? ORDER BY id", ROW_MAPPER, ebookId));
+    }
+
+    public List<Download> findByEbookIdAndDownloadTimeBetween(Long ebookId, LocalDateTime startDate, LocalDateTime endDate) {
+        return routed(ebookId, BY_TIME, shard -> shard.query(
+                SELECT + " WHERE ebook_id = ? AND download_time BETWEEN ? AND ? ORDER BY download_time, id",
+                ROW_MAPPER, ebookId, Timestamp.valueOf(startDate), Timestamp.valueOf(endDate)));
+    }
+
+    public Long countByEbookId(Long ebookId) {
+        return countByEbookId(ebookId, "", List.of());
+    }
+
+    // and: extra conditions, empty or starting with " AND"; mid-move the book's rows can be on both shards, so
+    // distinct ids are counted instead of adding up the counts
+    public Long countByEbookId(Long ebookId, String and, List<Object> args) {
+        List<Integer> owners = owners(ebookId);
+        List<Object> bookArgs = withEbookId(ebookId, args);
+        if (owners.size() == 1) {
+            return shards.get(owners.get(0)).queryForObject(
+                    "SELECT COUNT(*) FROM downloads WHERE ebook_id = ?" + and, Long.class, bookArgs.toArray());
+        }
+        Set<Long> ids = new HashSet<>();
+        fanOut(owners, shard -> shard.queryForList("SELECT id FROM downloads WHERE ebook_id = ?" + and,
+                Long.class, bookArgs.toArray())).forEach(ids::addAll);
+        return (long) ids.size();
+    }
+
+    // One book's rows, ordered by download_time then id, streamed from its shard
+    public void streamByEbookId(Long ebookId, String and, List<Object> args, Consumer<Download> consumer) {
+        List<Integer> owners = owners(ebookId);
+        List<Object> bookArgs = withEbookId(ebookId, args);
+        String sql = SELECT + " WHERE ebook_id = ?" + and + " ORDER BY download_time, id";
+        if (owners.size() == 1) {
+            stream(shards.get(owners.get(0)), sql, bookArgs, consumer);
+            return;
+        }
+        // Mid-move only: one book's rows are merged in memory, which also drops the copies present on both shards
+        merge(fanOut(owners, shard -> shard.query(sql, ROW_MAPPER, bookArgs.toArray())), BY_TIME).forEach(consumer);
+    }
+
+    // Each call is its own short statement per shard; callers loop until it returns 0
+    public int deleteChunkByEbookId(Long ebookId, int limit) {
+        int deleted = 0;
+        for (int shard : owners(ebookId)) {
+            deleted += shards.get(shard).update("DELETE FROM downloads WHERE ebook_id = ? LIMIT ?", ebookId, limit);
+        }
+        return deleted;
+    }
+
+    // ---- Scatter-gather: every shard in parallel, merged in the order each shard returns ----
+
+    public Optional<Download> findById(Long id) {
+        return scatter(shard -> shard.query(SELECT + " WHERE id = ?", ROW_MAPPER, id)).stream()
+                .flatMap(List::stream)
+                .findFirst();
+    }
+
+    public List<Download> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String sql = SELECT + " WHERE id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        return merge(scatter(shard -> shard.query(sql, ROW_MAPPER, ids.toArray())), BY_ID);
+    }
+
+    public List<Download> findAll() {
+        return merge(scatter(shard -> shard.query(SELECT + " ORDER BY id", ROW_MAPPER)), BY_ID);
+    }
+
+    public List<Download> findByEmail(String email) {
+        return merge(scatter(shard -> shard.query(SELECT + " WHERE email = ? ORDER BY id", ROW_MAPPER, email)), BY_ID);
+    }
+
+    public List<Download> findByContactNumber(String contactNumber) {
+        return merge(scatter(shard -> shard.query(
+                SELECT + " WHERE contact_number = ? ORDER BY id", ROW_MAPPER, contactNumber)), BY_ID);
+    }
+
+    public List<Download> findByUserName(String userName) {
+        return merge(scatter(shard -> shard.query(SELECT + " WHERE user_name = ? ORDER BY id", ROW_MAPPER, userName)), BY_ID);
+    }
+
+    public List<Download> findByDownloadTimeBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return merge(scatter(shard -> shard.query(
+                SELECT + " WHERE download_time BETWEEN ? AND ? ORDER BY download_time, id",
+                ROW_MAPPER, Timestamp.valueOf(startDate), Timestamp.valueOf(endDate))), BY_TIME);
+    }
+
+    public List<Download> findAllOrderByDownloadTimeDesc() {
+        return merge(scatter(shard -> shard.query(SELECT + " ORDER BY download_time DESC, id DESC", ROW_MAPPER)),
+                BY_TIME.reversed());
+    }
+
+    // Mid-move this includes rows copied to their new shard but not yet deleted from the old one
+    public long count() {
+        return sum(scatter(shard -> shard.queryForObject("SELECT COUNT(*) FROM downloads", Long.class)));
+    }
+
+    public Long countByDownloadTimeAfter(LocalDateTime dateTime) {
+        return sum(scatter(shard -> shard.queryForObject(
+                "SELECT COUNT(*) FROM downloads WHERE download_time > ?", Long.class, Timestamp.valueOf(dateTime))));
+    }
+
+    // Emails are not the shard key, so the same email shows up on several shards: per-shard counts
+    // cannot be added up. The shards' sketches are merged instead, over lower-cased emails like the
+    // MySQL collation compares them. An estimate; emails of purged rows count until the next rebuild.
+    public Long countDistinctByEmail() {
+        emailSketchLock.lock();
+        try {
+            scatterQueries.increment();
+            List<CompletableFuture<Void>> refreshes = new ArrayList<>(shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int current = shard;
+                refreshes.add(CompletableFuture.runAsync(() -> refreshEmailSketch(current), executor));
+            }
+            refreshes.forEach(ShardedDownloadRepository::await);
+            HyperLogLog union = new HyperLogLog(EMAIL_SKETCH_PRECISION);
+            for (EmailSketch emailSketch : emailSketches) {
+                union.merge(emailSketch.sketch);
+            }
+            return union.estimate();
+        } finally {
+            emailSketchLock.unlock();
+        }
+    }
+
+    // Per-book counts summed over shards, in ebook_id order; where is empty or starts with " WHERE".
+    // Mid-move, books being moved can be over-counted
+    public Map<Long, Long> countGroupedByEbookId(String where, List<Object> args) {
+        Map<Long, Long> counts = new TreeMap<>();
+        for (List<long[]> shardCounts : scatter(shard -> shard.query(
+                "SELECT ebook_id, COUNT(*) FROM downloads" + where + " GROUP BY ebook_id",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, args.toArray()))) {
+            shardCounts.forEach(count -> counts.merge(count[0], count[1], Long::sum));
+        }
+        return counts;
+    }
+
+    // Runs the same query on every shard and concatenates the rows, for aggregates the caller combines itself
+    public <T> List<T> queryEachShard(String sql, RowMapper<T> mapper, Object... args) {
+        List<T> rows = new ArrayList<>();
+        scatter(shard -> shard.query(sql, mapper, args)).forEach(rows::addAll);
+        return rows;
+    }
+
+    // Highest id among the next `limit` ids after afterId over all shards (all of them when limit is null); afterId if none
+    public long findIdWatermark(long afterId, Integer limit) {
+        if (limit == null) {
+            long max = afterId;
+            for (Long shardMax : scatter(shard -> shard.queryForObject(
+                    "SELECT MAX(id) FROM downloads WHERE id > ?", Long.class, afterId))) {
+                max = shardMax != null ? Math.max(max, shardMax) : max;
+            }
+            return max;
+        }
+        // The smallest `limit` ids overall are among the smallest `limit` of each shard; a set drops mid-move copies
+        TreeSet<Long> ids = new TreeSet<>();
+        scatter(shard -> shard.queryForList("SELECT id FROM downloads WHERE id > ? ORDER BY id LIMIT ?",
+                Long.class, afterId, limit)).forEach(ids::addAll);
+        long watermark = afterId;
+        int taken = 0;
+        for (Long id : ids) {
+            if (taken++ == limit) {
+                break;
+            }
+            watermark = id;
+        }
+        return watermark;
+    }
+
+    /**
+     * Passes every row matching {@code where} (empty or starting with " WHERE") to the consumer, one
+     * shard after another and in id order within a shard, without loading them; there is no order
+     * across shards. A row found on a shard that no longer owns its book, left behind by a move, is only
+     * passed on if its owner does not have it yet, so each row is seen once.
+     */
+    public void streamAll(String where, List<Object> args, Consumer<Download> consumer) {
+        scatterQueries.increment();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int current = shard;
+            List<Download> strays = new ArrayList<>();
+            stream(shards.get(shard), SELECT + where + " ORDER BY id", args, download -> {
+                if (shardOf(download.getEbookId()) == current) {
+                    consumer.accept(download);
+                    return;
+                }
+                strays.add(download);
+                if (strays.size() >= STRAY_BATCH) {
+                    passStrays(strays, consumer);
+                }
+            });
+            passStrays(strays, consumer);
+        }
+    }
+
+    // ---- Writes and resharding ----
+
+    // Groups the rows by shard and inserts each group in one transaction, shards in parallel. ON DUPLICATE
+    // KEY UPDATE id = id on the (id, download_time) key makes a retry after a partial failure harmless.
+    public void insertAll(List<Download> downloads) {
+        Map<Integer, List<Object[]>> rowsByShard = new TreeMap<>();
+        for (Download download : downloads) {
+            rowsByShard.computeIfAbsent(shardOf(download.getEbookId()), shard -> new ArrayList<>()).add(new Object[]{
+                    download.getId(), download.getEbookId(), download.getUserName(), download.getContactNumber(),
+                    download.getEmail(), Timestamp.valueOf(download.getDownloadTime()),
+                    download.getIngestedAt() != null ? Timestamp.valueOf(download.getIngestedAt()) : null});
+        }
+        List<CompletableFuture<Void>> inserts = new ArrayList<>(rowsByShard.size());
+        for (Map.Entry<Integer, List<Object[]>> entry : rowsByShard.entrySet()) {
+            int shard = entry.getKey();
+            inserts.add(CompletableFuture.runAsync(() -> transactions.get(shard).executeWithoutResult(
+                    status -> shards.get(shard).batchUpdate(INSERT_SQL, entry.getValue())), executor));
+        }
+        inserts.forEach(ShardedDownloadRepository::await);
+    }
+
+    // One keyset page of a shard's rows in id order, for moving them elsewhere
+    public List<Download> scanAfter(int shard, long afterId, int limit) {
+        return shards.get(shard).query(SELECT + " WHERE id > ? ORDER BY id LIMIT ?", ROW_MAPPER, afterId, limit);
+    }
+
+    public int deleteByIds(int shard, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return shards.get(shard).update("DELETE FROM downloads WHERE id IN (" + placeholders + ")", ids.toArray());
+    }
+
+    public List<Long> countPerShard() {
+        return scatter(shard -> shard.queryForObject("SELECT COUNT(*) FROM downloads", Long.class));
+    }
+
+    public long getRoutedQueries() {
+        return routedQueries.sum();
+    }
+
+    public long getScatterQueries() {
+        return scatterQueries.sum();
+    }
+
+    public int getPreviousCount() {
+        return previousCount;
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        try {
+            for (DataSource dataSource : dataSources) {
+                if (dataSource.isWrapperFor(Closeable.class)) {
+                    dataSource.unwrap(Closeable.class).close();
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not close download shard pools", e);
+        }
+    }
+
+    private void passStrays(List<Download> strays, Consumer<Download> consumer) {
+        Map<Integer, List<Download>> byOwner = new TreeMap<>();
+        for (Download stray : strays) {
+            byOwner.computeIfAbsent(shardOf(stray.getEbookId()), owner -> new ArrayList<>()).add(stray);
+        }
+        strays.clear();
+        for (Map.Entry<Integer, List<Download>> entry : byOwner.entrySet()) {
+            List<Download> rows = entry.getValue();
+            String placeholders = String.join(",", Collections.nCopies(rows.size(), "?"));
+            Set<Long> moved = new HashSet<>(shards.get(entry.getKey()).queryForList(
+                    "SELECT id FROM downloads WHERE id IN (" + placeholders + ")", Long.class,
+                    rows.stream().map(Download::getId).toArray()));
+            for (Download row : rows) {
+                if (!moved.contains(row.getId())) {
+                    consumer.accept(row);
+                }
+            }
+        }
+    }
+
+    private static void addIngestedAt(JdbcTemplate shard, int index) {
+        if (hasIngestedAt(shard)) {
+            return;
+        }
+        logger.info("Adding downloads.ingested_at to shard {}", index);
+        try {
+            shard.execute(ADD_INGESTED_AT_SQL);
+        } catch (DataAccessException e) {
+            // Another instance starting at the same time may have added it first
+            if (!hasIngestedAt(shard)) {
+                throw e;
+            }
+        }
+    }
+
+    // Rebuilds a shard's sketch when it is due, otherwise adds the rows ingested since the last read. That
+    // read starts overlap-ms before the newest ingest time seen, so rows committed late are not missed;
+    // adding an email again changes nothing. Moved rows keep their ingest time, but were counted on their old shard.
+    private void refreshEmailSketch(int index) {
+        JdbcTemplate shard = shards.get(index);
+        EmailSketch emailSketch = emailSketches[index];
+        long now = System.currentTimeMillis();
+        if (emailSketch == null || now - emailSketch.builtAt >= emailSketchRebuildMillis) {
+            Timestamp newest = shard.queryForObject("SELECT MAX(ingested_at) FROM downloads", Timestamp.class);
+            HyperLogLog sketch = new HyperLogLog(EMAIL_SKETCH_PRECISION);
+            streamEmails(shard, "SELECT DISTINCT LOWER(email) FROM downloads", List.of(), false, sketch);
+            emailSketches[index] = new EmailSketch(sketch,
+                    newest != null ? newest.toLocalDateTime() : DeltaCursor.START.ingestedAt(), now);
+            return;
+        }
+        // Unordered rows: the newest ingest time is only taken over once every row up to it was added
+        LocalDateTime newest = streamEmails(shard,
+                "SELECT LOWER(email), ingested_at FROM downloads WHERE ingested_at >= ?",
+                List.of(Timestamp.valueOf(emailSketch.newestIngestedAt.minusNanos(emailSketchOverlapMillis * 1_000_000L))),
+                true, emailSketch.sketch);
+        if (newest != null && newest.isAfter(emailSketch.newestIngestedAt)) {
+            emailSketch.newestIngestedAt = newest;
+        }
+    }
+
+    // Adds the first column of each row to the sketch; returns the newest ingest time in the second column, if asked
+    private static LocalDateTime streamEmails(JdbcTemplate shard, String sql, List<Object> args, boolean withIngestedAt,
+                                              HyperLogLog sketch) {
+        LocalDateTime[] newest = new LocalDateTime[1];
+        shard.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(JdbcStreaming.fetchSize(connection));
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            sketch.add(rs.getString(1));
+            if (withIngestedAt) {
+                LocalDateTime ingestedAt = rs.getTimestamp(2).toLocalDateTime();
+                if (newest[0] == null || ingestedAt.isAfter(newest[0])) {
+                    newest[0] = ingestedAt;
+                }
+            }
+        });
+        return newest[0];
+    }
+
+    private static boolean hasIngestedAt(JdbcTemplate shard) {
+        try {
+            shard.queryForList("SELECT ingested_at FROM downloads WHERE 1 = 0");
+            return true;
+        } catch (BadSqlGrammarException e) {
+            return false;
+        }
+    }
+
+    private static void stream(JdbcTemplate shard, String sql, List<Object> args, Consumer<Download> consumer) {
+        shard.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(JdbcStreaming.fetchSize(connection));
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(ROW_MAPPER.mapRow(rs, rs.getRow())));
+    }
+
+    private static List<Object> withEbookId(Long ebookId, List<Object> args) {
+        List<Object> bookArgs = new ArrayList<>(args.size() + 1);
+        bookArgs.add(ebookId);
+        bookArgs.addAll(args);
+        return bookArgs;
+    }
+
+    // The book's shard, plus its shard under the previous count while rows are being moved
+    private List<Integer> owners(Long ebookId) {
+        routedQueries.increment();
+        int current = shardOf(ebookId);
+        if (previousCount == 0) {
+            return List.of(current);
+        }
+        int previous = JumpConsistentHash.bucket(ebookId, previousCount);
+        return previous == current ? List.of(current) : List.of(current, previous);
+    }
+
+    private List<Download> routed(Long ebookId, Comparator<Download> order, Function<JdbcTemplate, List<Download>> query) {
+        return merge(fanOut(owners(ebookId), query), order);
+    }
+
+    private <T> List<T> scatter(Function<JdbcTemplate, T> query) {
+        scatterQueries.increment();
+        List<Integer> all = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            all.add(i);
+        }
+        return fanOut(all, query);
+    }
+
+    // The executor runs surplus work on the calling thread, so a busy pool degrades to sequential queries
+    private <T> List<T> fanOut(List<Integer> targets, Function<JdbcTemplate, T> query) {
+        if (targets.size() == 1) {
+            return List.of(query.apply(shards.get(targets.get(0))));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(targets.size());
+        for (int shard : targets) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shards.get(shard)), executor));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    // k-way merge of lists that are each sorted by order; rows present on two shards mid-move appear once
+    private List<Download> merge(List<List<Download>> sorted, Comparator<Download> order) {
+        if (sorted.size() == 1 && previousCount == 0) {
+            return sorted.get(0);
+        }
+        int total = 0;
+        for (List<Download> list : sorted) {
+            total += list.size();
+        }
+        int[] positions = new int[sorted.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(sorted.get(a).get(positions[a]), sorted.get(b).get(positions[b])));
+        for (int i = 0; i < sorted.size(); i++) {
+            if (!sorted.get(i).isEmpty()) {
+                heads.add(i);
+            }
+        }
+        List<Download> merged = new ArrayList<>(total);
+        Set<Long> seen = previousCount > 0 ? new HashSet<>() : null;
+        while (!heads.isEmpty()) {
+            int list = heads.poll();
+            Download next = sorted.get(list).get(positions[list]++);
+            if (seen == null || seen.add(next.getId())) {
+                merged.add(next);
+            }
+            if (positions[list] < sorted.get(list).size()) {
+                heads.add(list);
+            }
+        }
+        return merged;
+    }
+
+    private static long sum(List<Long> counts) {
+        long total = 0;
+        for (Long count : counts) {
+            total += count != null ? count : 0;
+        }
+        return total;
+    }
+
+    // A shard's distinct emails as of the newest ingest time read from it, and when it was last rebuilt
+    private static final class EmailSketch {
+        private final HyperLogLog sketch;
+        private LocalDateTime newestIngestedAt;
+        private final long builtAt;
+
+        private EmailSketch(HyperLogLog sketch, LocalDateTime newestIngestedAt, long builtAt) {
+            this.sketch = sketch;
+            this.newestIngestedAt = newestIngestedAt;
+            this.builtAt = builtAt;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+}
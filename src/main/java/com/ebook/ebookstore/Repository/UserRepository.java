@@ -1,9 +1,17 @@
 package com.ebook.ebookstore.Repository;
 
+import com.ebook.ebookstore.DTO.CredentialDTO;
+import com.ebook.ebookstore.DTO.UserSummaryDTO;
 import com.ebook.ebookstore.Model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +24,51 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     boolean existsByEmailAndIdNot(String email, Integer id);
     Optional<User> findById(Integer id);
     List<User> findAll();
+
+    // Login: principal and credential in one round trip
+    @Query("SELECT new com.ebook.ebookstore.DTO.CredentialDTO(u.id, u.name, u.email, u.password) " +
+            "FROM User u WHERE u.email = :email")
+    Optional<CredentialDTO> findCredentialByEmail(@Param("email") String email);
+
+    // Registration: both uniqueness checks in one query
+    List<User> findByNameOrEmail(String name, String email);
+
+    // Only replaces the hash that was checked, so a rehash racing a password change writes nothing
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id AND u.password = :previousHash")
+    int updatePassword(@Param("id") Long id, @Param("password") String password,
+                       @Param("previousHash") String previousHash);
+
+    // User directory: keyset pages over indexes, so a page costs the same wherever it starts.
+    // Prefixes arrive with LIKE wildcards escaped by '!' and a trailing '%'.
+    @Query("SELECT new com.ebook.ebookstore.DTO.UserSummaryDTO(u.id, u.name, u.email) FROM User u " +
+            "WHERE u.id > :afterId ORDER BY u.id")
+    List<UserSummaryDTO> findSummariesAfterId(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("SELECT new com.ebook.ebookstore.DTO.UserSummaryDTO(u.id, u.name, u.email) FROM User u " +
+            "WHERE u.name LIKE :prefix ESCAPE '!' " +
+            "AND (u.name > :afterName OR (u.name = :afterName AND u.id > :afterId)) ORDER BY u.name, u.id")
+    List<UserSummaryDTO> findSummariesByNamePrefix(@Param("prefix") String prefix, @Param("afterName") String afterName,
+                                                   @Param("afterId") Long afterId, Pageable page);
+
+    @Query("SELECT new com.ebook.ebookstore.DTO.UserSummaryDTO(u.id, u.name, u.email) FROM User u " +
+            "WHERE u.email LIKE :prefix ESCAPE '!' AND u.email > :afterEmail ORDER BY u.email")
+    List<UserSummaryDTO> findSummariesByEmailPrefix(@Param("prefix") String prefix, @Param("afterEmail") String afterEmail,
+                                                    Pageable page);
+
+    @Query("SELECT new com.ebook.ebookstore.DTO.UserSummaryDTO(u.id, u.name, u.email) FROM User u ORDER BY u.id")
+    List<UserSummaryDTO> findAllSummaries();
+
+    // Bulk provisioning: which of a chunk's names / emails are taken, one query each
+    @Query("SELECT u.name FROM User u WHERE u.name IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // With the stored hash, which tells a row this upload inserted from one that was already there
+    @Query("SELECT new com.ebook.ebookstore.DTO.CredentialDTO(u.id, u.name, u.email, u.password) " +
+            "FROM User u WHERE u.email IN :emails")
+    List<CredentialDTO> findCredentialsByEmails(@Param("emails") Collection<String> emails);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.ebook.ebookstore.Services;
 
 import com.ebook.ebookstore.DTO.AdminDTO;
+import com.ebook.ebookstore.DTO.CredentialDTO;
 import com.ebook.ebookstore.Model.Admin;
 
 import java.util.List;
@@ -20,6 +21,8 @@ public interface AdminServices {
 
     boolean authenticate(String email, String password);
 
+    CredentialDTO login(String email, String password);
+
     Optional<Admin> getAdminById(Integer adminId);
 
     List<Admin> getAllAdmins();
@@ -0,0 +1,9 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.AnalyticsQueryDTO;
+import com.ebook.ebookstore.DTO.AnalyticsResultDTO;
+
+public interface AnalyticsServices {
+    AnalyticsResultDTO queryDownloads(AnalyticsQueryDTO query);
+    void rebuild();
+}
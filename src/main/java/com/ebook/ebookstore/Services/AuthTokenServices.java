@@ -0,0 +1,8 @@
+package com.ebook.ebookstore.Services;
+
+public interface AuthTokenServices {
+    boolean isEnabled();
+    String issue(Long userId);
+    Long verify(String token);
+    long getTtlSeconds();
+}
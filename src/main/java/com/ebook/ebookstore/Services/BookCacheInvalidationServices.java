@@ -0,0 +1,8 @@
+package com.ebook.ebookstore.Services;
+
+public interface BookCacheInvalidationServices {
+    void bookChanged(Long bookId);
+    void pollInvalidations();
+    void deleteOldInvalidations();
+    boolean isCurrent(long maxStalenessMillis);
+}
@@ -0,0 +1,7 @@
+package com.ebook.ebookstore.Services;
+
+public interface BookPurgeServices {
+    void purgeBookAsync(Long bookId);
+    void purgeBook(Long bookId);
+    void sweepArchivedBooks();
+}
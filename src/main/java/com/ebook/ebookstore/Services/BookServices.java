@@ -1,6 +1,9 @@
 package com.ebook.ebookstore.Services;
 
+import com.ebook.ebookstore.DTO.BookCodeFilterStatsDTO;
+import com.ebook.ebookstore.DTO.CacheRegionStatsDTO;
 import com.ebook.ebookstore.DTO.BookDTO;
+import com.ebook.ebookstore.DTO.CoalescingStatsDTO;
 import com.ebook.ebookstore.DTO.CreateBookDTO;
 
 import java.util.List;
@@ -18,5 +21,9 @@ public interface BookServices {
     void deleteBook(Long id);
     boolean existsBookById(Long id);
     boolean existsBookByCode(String code);
+    void rebuildCodeFilter();
+    BookCodeFilterStatsDTO getCodeFilterStats();
+    List<CoalescingStatsDTO> getCoalescingStats();
+    List<CacheRegionStatsDTO> getCacheStats();
     List<BookDTO> searchBooks(String author, String category, String subcategory);
 }
\ No newline at end of file
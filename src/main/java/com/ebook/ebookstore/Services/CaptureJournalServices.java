@@ -0,0 +1,11 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.Model.Download;
+
+public interface CaptureJournalServices {
+    boolean isEnabled();
+    Download journalCapture(Download download);
+    Long findPendingEbookId(Long downloadId);
+    void replayJournal();
+    void flushJournal();
+}
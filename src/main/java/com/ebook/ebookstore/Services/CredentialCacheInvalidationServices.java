@@ -0,0 +1,7 @@
+package com.ebook.ebookstore.Services;
+
+public interface CredentialCacheInvalidationServices {
+    void credentialChanged(String email);
+    void pollInvalidations();
+    void deleteOldInvalidations();
+}
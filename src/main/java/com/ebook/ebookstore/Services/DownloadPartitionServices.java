@@ -0,0 +1,11 @@
+package com.ebook.ebookstore.Services;
+
+import java.util.List;
+
+public interface DownloadPartitionServices {
+    List<String> partitionDownloadsTable();
+    void addUpcomingPartitions();
+    List<String> archiveExpiredPartitions();
+    void maintainPartitions();
+    List<String> getPartitionNames();
+}
@@ -0,0 +1,14 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.DownloadSeriesDTO;
+
+import java.time.LocalDateTime;
+
+public interface DownloadRollupServices {
+    void recordDownload(Long ebookId, LocalDateTime downloadTime);
+    void flushPendingCounts();
+    void compactHourlyRollups();
+    void rebuildRollups();
+    void deleteRollupsForBook(Long ebookId);
+    DownloadSeriesDTO getBookSeries(Long bookId, String from, String to, String step);
+}
@@ -1,5 +1,6 @@
 package com.ebook.ebookstore.Services;
 
+import com.ebook.ebookstore.DTO.CoalescingStatsDTO;
 import com.ebook.ebookstore.DTO.DownloadDTO;
 import com.ebook.ebookstore.DTO.CreateDownloadDTO;
 import com.ebook.ebookstore.DTO.DownloadInfoDTO;
@@ -9,10 +10,11 @@ import org.springframework.core.io.Resource;
 import java.util.List;
 
 public interface DownloadServices {
-    DownloadDTO captureDownload(CreateDownloadDTO createDownloadDTO);
+    DownloadDTO captureDownload(CreateDownloadDTO createDownloadDTO, String idempotencyKey);
     Resource getDownloadFile(Long downloadId);
     String getFilename(Long downloadId);
     DownloadInfoDTO getDownloadInfo(String bookCode);
+    CoalescingStatsDTO getDownloadInfoCoalescingStats();
     List<DownloadDTO> getAllDownloads();
     List<DownloadDTO> getDownloadsByBook(Long bookId);
     List<DownloadDTO> getDownloadsByEmail(String email);
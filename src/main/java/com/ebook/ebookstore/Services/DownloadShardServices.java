@@ -0,0 +1,10 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.DownloadShardStatsDTO;
+import com.ebook.ebookstore.DTO.ReshardResultDTO;
+
+public interface DownloadShardServices {
+    ReshardResultDTO backfillFromPrimary(long afterId, long maxRows);
+    ReshardResultDTO rebalanceShard(int shard, long afterId, long maxRows);
+    DownloadShardStatsDTO getStats();
+}
@@ -0,0 +1,13 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.CreateExportJobDTO;
+import com.ebook.ebookstore.DTO.ExportJobDTO;
+
+import java.nio.file.Path;
+
+public interface ExportJobServices {
+    ExportJobDTO submitExport(CreateExportJobDTO request);
+    ExportJobDTO getExportJob(String jobId);
+    Path getExportFile(String jobId);
+    void cleanupExpiredExports();
+}
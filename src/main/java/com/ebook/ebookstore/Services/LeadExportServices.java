@@ -0,0 +1,18 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.Util.DeltaCursor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+public interface LeadExportServices {
+    long countLeads(Long bookId, LocalDateTime start, LocalDateTime end);
+    void writeLeadsCsv(Long bookId, LocalDateTime start, LocalDateTime end, OutputStream out, AtomicLong progress) throws IOException;
+    void writeLeadsParquet(Long bookId, LocalDateTime start, LocalDateTime end, OutputStream out, AtomicLong progress) throws IOException;
+    void writeLeadsZip(LocalDateTime start, LocalDateTime end, OutputStream out, AtomicLong progress) throws IOException;
+    void writeLeadsNdjson(Long bookId, LocalDateTime start, LocalDateTime end, OutputStream out, AtomicLong progress) throws IOException;
+    DeltaCursor resolveDeltaWatermark(DeltaCursor after, Integer limit);
+    void writeLeadsCsvDelta(DeltaCursor after, DeltaCursor watermark, OutputStream out) throws IOException;
+}
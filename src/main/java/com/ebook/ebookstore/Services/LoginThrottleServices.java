@@ -0,0 +1,10 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.LoginThrottleStatsDTO;
+
+public interface LoginThrottleServices {
+    boolean tryAcquire(String clientIp, String email);
+    void recordFailure(String email);
+    long getRetryAfterSeconds();
+    LoginThrottleStatsDTO getStats();
+}
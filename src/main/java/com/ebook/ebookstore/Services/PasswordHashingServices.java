@@ -0,0 +1,12 @@
+package com.ebook.ebookstore.Services;
+
+import java.util.List;
+
+public interface PasswordHashingServices {
+    String hash(String rawPassword);
+    List<String> hashAll(List<String> rawPasswords, int parallelism);
+    boolean matches(String rawPassword, String storedPassword);
+    boolean needsRehash(String storedPassword);
+    boolean isHashed(String storedPassword);
+    int getCost();
+}
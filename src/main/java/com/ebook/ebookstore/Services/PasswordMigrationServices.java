@@ -0,0 +1,6 @@
+package com.ebook.ebookstore.Services;
+
+public interface PasswordMigrationServices {
+    int migratePlaintextPasswords();
+    void sweepPlaintextPasswords();
+}
@@ -0,0 +1,11 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.RelatedBookDTO;
+
+import java.util.List;
+
+public interface RecommendationServices {
+    void recordDownload(String email, Long ebookId);
+    List<RelatedBookDTO> getRelatedBooks(Long bookId, int limit);
+    void rebuild();
+}
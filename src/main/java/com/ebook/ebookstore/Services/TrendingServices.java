@@ -0,0 +1,11 @@
+package com.ebook.ebookstore.Services;
+
+import com.ebook.ebookstore.DTO.TrendingBookDTO;
+
+import java.util.List;
+
+public interface TrendingServices {
+    void recordDownload(Long ebookId);
+    List<TrendingBookDTO> getTrending(String window, int limit);
+    void refresh();
+}
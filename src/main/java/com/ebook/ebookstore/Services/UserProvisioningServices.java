@@ -0,0 +1,9 @@
+package com.ebook.ebookstore.Services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface UserProvisioningServices {
+    void provisionUsers(InputStream ndjsonRows, OutputStream ndjsonResults) throws IOException;
+}
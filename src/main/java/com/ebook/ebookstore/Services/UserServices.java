@@ -1,6 +1,8 @@
 package com.ebook.ebookstore.Services;
 
+import com.ebook.ebookstore.DTO.CredentialDTO;
 import com.ebook.ebookstore.DTO.UserDTO;
+import com.ebook.ebookstore.DTO.UserPageDTO;
 import com.ebook.ebookstore.Model.User;
 
 public interface UserServices {
@@ -10,4 +12,7 @@ public interface UserServices {
     void deleteUser(Integer userId);
     User getUserByUsername(String username);
     boolean authenticate(String email, String password);
+    CredentialDTO login(String email, String password);
+    void evictCredential(String email);
+    UserPageDTO getUserDirectory(String namePrefix, String emailPrefix, String cursor, Integer limit);
 }
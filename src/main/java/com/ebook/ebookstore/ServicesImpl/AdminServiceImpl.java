@@ -1,41 +1,75 @@
 package com.ebook.ebookstore.ServicesImpl;
 
 import com.ebook.ebookstore.DTO.AdminDTO;
+import com.ebook.ebookstore.DTO.CredentialDTO;
+import com.ebook.ebookstore.Event.CredentialsChangedEvent;
 import com.ebook.ebookstore.Model.Admin;
 import com.ebook.ebookstore.Repository.AdminRepository;
 import com.ebook.ebookstore.Services.AdminServices;
+import com.ebook.ebookstore.Services.CredentialCacheInvalidationServices;
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import com.ebook.ebookstore.Util.ExpiringCache;
+import com.ebook.ebookstore.Util.SingleFlight;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
 public class AdminServiceImpl implements AdminServices {
 
+    private static final Logger logger = LoggerFactory.getLogger(AdminServiceImpl.class);
+
     private final AdminRepository adminRepository;
+    private final PasswordHashingServices passwordHashingServices;
+    private final CredentialCacheInvalidationServices credentialCacheInvalidationServices;
+
+    // Login credentials by lower-cased email; Optional.empty() remembers unknown emails as well
+    private final ExpiringCache<String, Optional<CredentialDTO>> credentialCache;
+    // A login storm on one account loads its credential once
+    private final SingleFlight<String, Optional<CredentialDTO>> credentialFlight = new SingleFlight<>("adminCredential");
 
     @Autowired
-    public AdminServiceImpl(AdminRepository adminRepository) {
+    public AdminServiceImpl(AdminRepository adminRepository, PasswordHashingServices passwordHashingServices,
+                            CredentialCacheInvalidationServices credentialCacheInvalidationServices,
+                            @Value("${ebook.auth.credential-cache.ttl-ms:30000}") long credentialCacheTtlMillis,
+                            @Value("${ebook.auth.credential-cache.max-entries:10000}") int credentialCacheMaxEntries) {
         this.adminRepository = adminRepository;
+        this.passwordHashingServices = passwordHashingServices;
+        this.credentialCacheInvalidationServices = credentialCacheInvalidationServices;
+        this.credentialCache = new ExpiringCache<>(credentialCacheTtlMillis, credentialCacheMaxEntries);
     }
 
     @Override
     public Admin createAdmin(AdminDTO adminDTO) {
-        if (adminRepository.existsByName(adminDTO.getName())) {
+        List<Admin> conflicts = adminRepository.findByNameOrEmail(adminDTO.getName(), adminDTO.getEmail());
+        if (conflicts.stream().anyMatch(existing -> existing.getName().equalsIgnoreCase(adminDTO.getName()))) {
             throw new IllegalArgumentException("Admin name already exists");
         }
-        if (adminRepository.existsByEmail(adminDTO.getEmail())) {
+        if (!conflicts.isEmpty()) {
             throw new IllegalArgumentException("Email already exists");
         }
 
+        if (adminDTO.getPassword() == null || adminDTO.getPassword().isBlank()) {
+            throw new IllegalArgumentException("Password is required");
+        }
+
         Admin admin = new Admin();
         admin.setName(adminDTO.getName());
         admin.setEmail(adminDTO.getEmail());
-        admin.setPassword(adminDTO.getPassword());
+        admin.setPassword(passwordHashingServices.hash(adminDTO.getPassword()));
 
-        return adminRepository.save(admin);
+        Admin saved = adminRepository.save(admin);
+        // Drop a cached "no such email" from an earlier failed login
+        invalidateCredential(saved.getEmail());
+        return saved;
     }
 
     @Override
@@ -47,6 +81,7 @@ public class AdminServiceImpl implements AdminServices {
     public Admin updateAdmin(Integer adminId, AdminDTO adminDTO) {
         Admin admin = adminRepository.findById(adminId)
                 .orElseThrow(() -> new EntityNotFoundException("Admin with id " + adminId + " not found"));
+        String previousEmail = admin.getEmail();
 
         if (adminDTO.getName() != null && !adminDTO.getName().isBlank()) {
             admin.setName(adminDTO.getName());
@@ -60,18 +95,21 @@ public class AdminServiceImpl implements AdminServices {
         }
 
         if (adminDTO.getPassword() != null && !adminDTO.getPassword().isBlank()) {
-            admin.setPassword(adminDTO.getPassword());
+            admin.setPassword(passwordHashingServices.hash(adminDTO.getPassword()));
         }
 
-        return adminRepository.save(admin);
+        Admin saved = adminRepository.save(admin);
+        invalidateCredential(previousEmail);
+        invalidateCredential(saved.getEmail());
+        return saved;
     }
 
     @Override
     public void deleteAdmin(Integer adminId) {
-        if (!adminRepository.existsById(adminId)) {
-            throw new EntityNotFoundException("Admin with id " + adminId + " not found");
-        }
-        adminRepository.deleteById(adminId);
+        Admin admin = adminRepository.findById(adminId)
+                .orElseThrow(() -> new EntityNotFoundException("Admin with id " + adminId + " not found"));
+        adminRepository.delete(admin);
+        invalidateCredential(admin.getEmail());
     }
 
     @Override
@@ -81,8 +119,63 @@ public class AdminServiceImpl implements AdminServices {
 
     @Override
     public boolean authenticate(String email, String password) {
-        Admin admin = adminRepository.findByEmail(email);
-        return admin != null && admin.getPassword().equals(password);
+        return login(email, password) != null;
+    }
+
+    @Override
+    public CredentialDTO login(String email, String password) {
+        CredentialDTO credential = findCredential(email).orElse(null);
+        if (!passwordHashingServices.matches(password, credential != null ? credential.getPasswordHash() : null)) {
+            return null;
+        }
+        upgradePasswordHash(credential, password);
+        return credential;
+    }
+
+    private Optional<CredentialDTO> findCredential(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String key = email.toLowerCase(Locale.ROOT);
+        Optional<CredentialDTO> cached = credentialCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return credentialFlight.execute(key, () -> {
+            long version = credentialCache.version();
+            Optional<CredentialDTO> loaded = adminRepository.findCredentialByEmail(email);
+            credentialCache.put(key, loaded, version);
+            return loaded;
+        });
+    }
+
+    // Here at once, and on the other nodes when they next poll the invalidation log
+    private void invalidateCredential(String email) {
+        if (email != null) {
+            credentialCache.invalidate(email.toLowerCase(Locale.ROOT));
+            credentialCacheInvalidationServices.credentialChanged(email);
+        }
+    }
+
+    @EventListener
+    public void onCredentialsChanged(CredentialsChangedEvent event) {
+        event.getEmails().forEach(credentialCache::invalidate);
+    }
+
+    // Rehash on a successful login when the stored hash uses another cost or is still plaintext
+    private void upgradePasswordHash(CredentialDTO credential, String password) {
+        if (!passwordHashingServices.needsRehash(credential.getPasswordHash())) {
+            return;
+        }
+        try {
+            // Zero rows when the password changed since it was read; that change wins
+            adminRepository.updatePassword(credential.getId(), passwordHashingServices.hash(password),
+                    credential.getPasswordHash());
+            invalidateCredential(credential.getEmail());
+        } catch (RuntimeException e) {
+            // The login itself succeeded; the next one tries again
+            logger.warn("Could not upgrade password hash for admin {}", credential.getId(), e);
+        }
     }
 
     public Optional<Admin> getAdminById(Integer adminId) {
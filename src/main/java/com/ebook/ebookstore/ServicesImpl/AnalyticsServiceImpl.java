@@ -0,0 +1,241 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.AnalyticsQueryDTO;
+import com.ebook.ebookstore.DTO.AnalyticsResultDTO;
+import com.ebook.ebookstore.DTO.AnalyticsRowDTO;
+import com.ebook.ebookstore.Event.DownloadCapturedEvent;
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.AnalyticsServices;
+import com.ebook.ebookstore.Util.ColumnarDownloadStore;
+import com.ebook.ebookstore.Util.ColumnarDownloadStore.Dimension;
+import com.ebook.ebookstore.Util.JdbcStreaming;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Admin download reports served from an in-memory columnar mirror of the downloads
+ * table, with the book's category and subcategory denormalised onto each row.
+ * Loaded at startup and rebuilt nightly; captures are appended as they happen.
+ */
+@Service
+public class AnalyticsServiceImpl implements AnalyticsServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsServiceImpl.class);
+
+    private static final String REBUILD_SQL =
+            "SELECT d.id, d.ebook_id, d.email, d.download_time, b.category, b.subcategory " +
+                    "FROM downloads d LEFT JOIN books b ON b.id = d.ebook_id ORDER BY d.id";
+
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+    private final TaskExecutor rebuildExecutor;
+    private final ForkJoinPool scanPool;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    private final Object lock = new Object();
+    private volatile ColumnarDownloadStore store = new ColumnarDownloadStore();
+    // Non-null while a rebuild is streaming; captures are replayed into the new store afterwards
+    private List<DownloadCapturedEvent> capturedDuringRebuild;
+    // Their ids, readable by the scan without the lock
+    private volatile Set<Long> capturedIdsDuringRebuild = Set.of();
+    // ebookId -> {category, subcategory}
+    private final Map<Long, String[]> bookCategories = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AnalyticsServiceImpl(BookRepository bookRepository,
+                                JdbcTemplate jdbcTemplate,
+                                ShardedDownloadRepository shardedDownloadRepository,
+                                @Qualifier("indexRebuildExecutor") TaskExecutor rebuildExecutor,
+                                @Value("${ebook.analytics.parallelism:0}") int parallelism,
+                                @Value("${ebook.analytics.default-limit:100}") int defaultLimit,
+                                @Value("${ebook.analytics.max-limit:10000}") int maxLimit) {
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+        this.rebuildExecutor = rebuildExecutor;
+        this.scanPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    @Scheduled(cron = "${ebook.analytics.rebuild-cron:0 30 4 * * *}")
+    public void scheduledRebuild() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    @EventListener
+    public void onDownloadCaptured(DownloadCapturedEvent event) {
+        String[] categories = categoriesFor(event.getEbookId());
+        synchronized (lock) {
+            store.append(event.getDownloadId(), event.getEbookId(), event.getEmail(),
+                    event.getDownloadTime().toLocalDate(), categories[0], categories[1]);
+            if (capturedDuringRebuild != null) {
+                capturedDuringRebuild.add(event);
+                capturedIdsDuringRebuild.add(event.getDownloadId());
+            }
+        }
+    }
+
+    @Override
+    public AnalyticsResultDTO queryDownloads(AnalyticsQueryDTO query) {
+        long started = System.nanoTime();
+
+        List<Dimension> groupBy = new ArrayList<>();
+        Map<Dimension, Collection<String>> filters = new EnumMap<>(Dimension.class);
+        ColumnarDownloadStore.Result result;
+        try {
+            if (query.getGroupBy() != null) {
+                for (String name : query.getGroupBy()) {
+                    groupBy.add(Dimension.fromName(name));
+                }
+            }
+            if (query.getFilters() != null) {
+                query.getFilters().forEach((name, values) -> filters.put(Dimension.fromName(name), values));
+            }
+            LocalDate from = query.getFrom() == null ? null : LocalDate.parse(query.getFrom());
+            LocalDate to = query.getTo() == null ? null : LocalDate.parse(query.getTo());
+            result = store.count(groupBy, filters, from, to, scanPool);
+        } catch (IllegalArgumentException | ArithmeticException | java.time.DateTimeException e) {
+            throw new RuntimeException("Invalid analytics query: " + e.getMessage(), e);
+        }
+
+        int limit = query.getLimit() == null ? defaultLimit : Math.min(Math.max(query.getLimit(), 0), maxLimit);
+        List<AnalyticsRowDTO> rows = result.rows().stream()
+                .limit(limit)
+                .map(row -> new AnalyticsRowDTO(row.values(), row.count()))
+                .collect(Collectors.toList());
+        List<String> groupNames = groupBy.stream().map(Dimension::name).collect(Collectors.toList());
+
+        return new AnalyticsResultDTO(groupNames, rows, result.matchedRows(), result.scannedRows(),
+                (System.nanoTime() - started) / 1000);
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (lock) {
+            capturedDuringRebuild = new ArrayList<>();
+            capturedIdsDuringRebuild = ConcurrentHashMap.newKeySet();
+        }
+
+        long started = System.currentTimeMillis();
+        ColumnarDownloadStore fresh = new ColumnarDownloadStore();
+        // Ids are neither scanned nor committed in order, so instead of trusting the highest id scanned, the scan
+        // remembers every row it read that was added since it began (beyond the starting watermark) or captured
+        // while it ran; captures it did not read are replayed afterwards
+        Set<Long> scannedSinceStart = ConcurrentHashMap.newKeySet();
+        try {
+            if (shardedDownloadRepository.isEnabled()) {
+                long startId = shardedDownloadRepository.findIdWatermark(0, null);
+                Map<Long, String[]> categories = new HashMap<>();
+                jdbcTemplate.query("SELECT id, category, subcategory FROM books", (RowCallbackHandler) rs ->
+                        categories.put(rs.getLong(1), new String[]{rs.getString(2), rs.getString(3)}));
+                String[] none = new String[2];
+                shardedDownloadRepository.streamAll("", List.of(), download -> {
+                    String[] book = categories.getOrDefault(download.getEbookId(), none);
+                    fresh.append(download.getId(), download.getEbookId(), download.getEmail(),
+                            download.getDownloadTime().toLocalDate(), book[0], book[1]);
+                    rememberIfNew(download.getId(), startId, scannedSinceStart);
+                });
+            } else {
+                long startId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM downloads", Long.class);
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(REBUILD_SQL,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(JdbcStreaming.fetchSize(connection));
+                    return statement;
+                }, (RowCallbackHandler) rs -> {
+                    long id = rs.getLong("id");
+                    fresh.append(
+                            id,
+                            rs.getLong("ebook_id"),
+                            rs.getString("email"),
+                            rs.getTimestamp("download_time").toLocalDateTime().toLocalDate(),
+                            rs.getString("category"),
+                            rs.getString("subcategory"));
+                    rememberIfNew(id, startId, scannedSinceStart);
+                });
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                capturedDuringRebuild = null;
+                capturedIdsDuringRebuild = Set.of();
+            }
+            logger.error("Error rebuilding the analytics store", e);
+            return;
+        }
+
+        synchronized (lock) {
+            // The scan may already contain some of these
+            for (DownloadCapturedEvent event : capturedDuringRebuild) {
+                if (!scannedSinceStart.contains(event.getDownloadId())) {
+                    String[] categories = categoriesFor(event.getEbookId());
+                    fresh.append(event.getDownloadId(), event.getEbookId(), event.getEmail(),
+                            event.getDownloadTime().toLocalDate(), categories[0], categories[1]);
+                }
+            }
+            capturedDuringRebuild = null;
+            capturedIdsDuringRebuild = Set.of();
+            store = fresh;
+        }
+        // Category edits are picked up from here on
+        bookCategories.clear();
+        logger.info("Rebuilt analytics store in {} ms: {} rows, ~{} MB",
+                System.currentTimeMillis() - started, fresh.size(), fresh.memoryBytes() / (1024 * 1024));
+    }
+
+    private void rememberIfNew(long id, long startId, Set<Long> scannedSinceStart) {
+        if (id > startId || capturedIdsDuringRebuild.contains(id)) {
+            scannedSinceStart.add(id);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanPool.shutdown();
+    }
+
+    private String[] categoriesFor(Long ebookId) {
+        String[] categories = bookCategories.get(ebookId);
+        if (categories == null) {
+            try {
+                categories = bookRepository.findById(ebookId)
+                        .map(book -> new String[]{book.getCategory(), book.getSubcategory()})
+                        .orElse(new String[]{null, null});
+            } catch (DataAccessException e) {
+                // Captures keep arriving through the journal while the database is down; count this one
+                // without categories rather than failing it, and look the book up again next time
+                return new String[]{null, null};
+            }
+            bookCategories.put(ebookId, categories);
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,84 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Services.AuthTokenServices;
+import com.ebook.ebookstore.Util.HmacTokenCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stateless login tokens. Keys are configured as {@code id:base64-secret} pairs and the active
+ * one signs new tokens; the others still verify, which is how a key is rotated: add the new key
+ * on every node, switch active-key to it, and remove the old key after one token lifetime.
+ * Token mode refuses to start without configured keys: a key generated at startup would only
+ * verify on the node that made it and log everyone out on restart.
+ */
+@Service
+public class AuthTokenServiceImpl implements AuthTokenServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthTokenServiceImpl.class);
+
+    private final boolean enabled;
+    private final long ttlSeconds;
+    private final HmacTokenCodec codec;
+
+    @Autowired
+    public AuthTokenServiceImpl(@Value("${ebook.auth.token.enabled:false}") boolean enabled,
+                                @Value("${ebook.auth.token.ttl-seconds:3600}") long ttlSeconds,
+                                @Value("${ebook.auth.token.keys:}") String keys,
+                                @Value("${ebook.auth.token.active-key:}") String activeKey) {
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+        if (!enabled) {
+            this.codec = null;
+            return;
+        }
+
+        Map<String, byte[]> secrets = new LinkedHashMap<>();
+        for (String entry : keys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("ebook.auth.token.keys entries must be id:base64-secret");
+            }
+            secrets.put(entry.substring(0, colon).trim(), Base64.getDecoder().decode(entry.substring(colon + 1).trim()));
+        }
+        if (secrets.isEmpty()) {
+            throw new IllegalStateException("ebook.auth.token.enabled requires ebook.auth.token.keys");
+        }
+        if (activeKey.isBlank()) {
+            throw new IllegalArgumentException("ebook.auth.token.active-key is required when keys are configured");
+        }
+        this.codec = new HmacTokenCodec(secrets, activeKey.trim());
+        logger.info("Token sessions enabled, signing with key {} of {}", codec.activeKeyId(), secrets.size());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String issue(Long userId) {
+        return codec.issue(userId, System.currentTimeMillis() / 1000 + ttlSeconds);
+    }
+
+    @Override
+    public Long verify(String token) {
+        HmacTokenCodec.Claims claims = codec.verify(token, System.currentTimeMillis() / 1000);
+        return claims != null ? claims.subject() : null;
+    }
+
+    @Override
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+}
@@ -0,0 +1,150 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Event.BooksChangedEvent;
+import com.ebook.ebookstore.Model.Books;
+import com.ebook.ebookstore.Services.BookCacheInvalidationServices;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Keeps the per-node Books second-level cache coherent across nodes. Every book write is logged
+ * to book_cache_invalidations in the shared database; each node polls the log and evicts the
+ * book's row, the code lookups and the cached finder results, so a change made on one node
+ * (an archive in particular, which cache hits would otherwise not filter out) is visible
+ * everywhere within a poll interval instead of the region expiry.
+ * <p>
+ * Polls read by the database's clock and look back an overlap window, so an entry that commits
+ * after a later one is still seen; evicting twice is harmless. Each poll that finds writes also
+ * publishes a BooksChangedEvent, which keeps the per-node book code filter complete.
+ */
+@Service
+public class BookCacheInvalidationServiceImpl implements BookCacheInvalidationServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookCacheInvalidationServiceImpl.class);
+
+    private static final String TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS book_cache_invalidations (" +
+                    "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, book_id BIGINT NOT NULL, " +
+                    "created_at DATETIME(6) NOT NULL, INDEX idx_book_cache_invalidations_created (created_at))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long overlapMillis;
+    private final int retentionHours;
+
+    private volatile boolean ready;
+    // Database time of the last poll; entries from overlapMillis before it on are read again
+    private Timestamp polledUpTo;
+    // Local time at which the last completed poll started; writes logged before then have been applied
+    private volatile long currentAsOfMillis;
+
+    @Autowired
+    public BookCacheInvalidationServiceImpl(JdbcTemplate jdbcTemplate,
+                                            EntityManagerFactory entityManagerFactory,
+                                            ApplicationEventPublisher eventPublisher,
+                                            @Value("${ebook.books.cache.invalidation.enabled:true}") boolean enabled,
+                                            @Value("${ebook.books.cache.invalidation.overlap-ms:5000}") long overlapMillis,
+                                            @Value("${ebook.books.cache.invalidation.retention-hours:24}") int retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.overlapMillis = overlapMillis;
+        this.retentionHours = retentionHours;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute(TABLE_SQL);
+        // The cache starts empty, so older entries need no replay
+        polledUpTo = now();
+        currentAsOfMillis = System.currentTimeMillis();
+        ready = true;
+    }
+
+    @Override
+    public void bookChanged(Long bookId) {
+        if (!ready) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO book_cache_invalidations (book_id, created_at) VALUES (?, CURRENT_TIMESTAMP(6))",
+                    bookId);
+        } catch (DataAccessException e) {
+            // The write itself went through; other nodes serve the old row until the region expires
+            logger.warn("Could not publish cache invalidation for book {}", bookId, e);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.books.cache.invalidation.poll-interval-ms:1000}")
+    public void pollInvalidations() {
+        if (!ready) {
+            return;
+        }
+        long startedMillis = System.currentTimeMillis();
+        Timestamp pollStart = now();
+        List<Long> bookIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT book_id FROM book_cache_invalidations WHERE created_at >= ?", Long.class,
+                new Timestamp(polledUpTo.getTime() - overlapMillis));
+        if (!bookIds.isEmpty()) {
+            Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+            for (Long bookId : bookIds) {
+                cache.evictEntityData(Books.class, bookId);
+            }
+            // Neither is keyed by book id: a re-coded or archived book's code entry and any finder result may hold it
+            cache.evictNaturalIdData(Books.class);
+            cache.evictQueryRegion(Books.QUERY_CACHE_REGION);
+            eventPublisher.publishEvent(new BooksChangedEvent(bookIds));
+        }
+        polledUpTo = pollStart;
+        currentAsOfMillis = startedMillis;
+    }
+
+    // Whether every node's book writes, up to maxStalenessMillis ago, have been applied here. Always true when
+    // disabled, which declares a single node
+    @Override
+    public boolean isCurrent(long maxStalenessMillis) {
+        if (!enabled) {
+            return true;
+        }
+        return ready && System.currentTimeMillis() - currentAsOfMillis <= maxStalenessMillis;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.books.cache.invalidation.cleanup-interval-ms:3600000}")
+    public void deleteOldInvalidations() {
+        if (!ready) {
+            return;
+        }
+        int removed = jdbcTemplate.update("DELETE FROM book_cache_invalidations WHERE created_at < ?",
+                new Timestamp(now().getTime() - retentionHours * 3_600_000L));
+        if (removed > 0) {
+            logger.info("Removed {} book cache invalidations older than {} hours", removed, retentionHours);
+        }
+    }
+
+    private Timestamp now() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(6)", Timestamp.class);
+    }
+}
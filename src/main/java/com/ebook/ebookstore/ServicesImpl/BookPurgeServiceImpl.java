@@ -0,0 +1,79 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Repository.DownloadRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.BookPurgeServices;
+import com.ebook.ebookstore.Services.DownloadRollupServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class BookPurgeServiceImpl implements BookPurgeServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookPurgeServiceImpl.class);
+
+    private final BookRepository bookRepository;
+    private final DownloadRepository downloadRepository;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+    private final DownloadRollupServices downloadRollupServices;
+    private final int chunkSize;
+
+    @Autowired
+    public BookPurgeServiceImpl(BookRepository bookRepository,
+                                DownloadRepository downloadRepository,
+                                ShardedDownloadRepository shardedDownloadRepository,
+                                DownloadRollupServices downloadRollupServices,
+                                @Value("${ebook.books.purge.chunk-size:1000}") int chunkSize) {
+        this.bookRepository = bookRepository;
+        this.downloadRepository = downloadRepository;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+        this.downloadRollupServices = downloadRollupServices;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    @Async("bookPurgeExecutor")
+    public void purgeBookAsync(Long bookId) {
+        purgeBook(bookId);
+    }
+
+    @Override
+    public void purgeBook(Long bookId) {
+        // Set-based deletes in bounded chunks: memory stays flat and no transaction holds locks for long
+        long total = 0;
+        int deleted;
+        do {
+            deleted = shardedDownloadRepository.isEnabled()
+                    ? shardedDownloadRepository.deleteChunkByEbookId(bookId, chunkSize)
+                    : downloadRepository.deleteChunkByEbookId(bookId, chunkSize);
+            total += deleted;
+        } while (deleted > 0);
+
+        downloadRollupServices.deleteRollupsForBook(bookId);
+        bookRepository.deleteArchivedById(bookId);
+        logger.info("Purged archived book {} and {} downloads", bookId, total);
+    }
+
+    // Picks up purges that were dropped or interrupted (queue full, restart)
+    @Override
+    @Scheduled(initialDelayString = "${ebook.books.purge.sweep-initial-delay-ms:60000}",
+            fixedDelayString = "${ebook.books.purge.sweep-interval-ms:600000}")
+    public void sweepArchivedBooks() {
+        List<Long> archivedIds = bookRepository.findArchivedIds();
+        for (Long bookId : archivedIds) {
+            try {
+                purgeBook(bookId);
+            } catch (RuntimeException e) {
+                logger.error("Error purging archived book {}", bookId, e);
+            }
+        }
+    }
+}
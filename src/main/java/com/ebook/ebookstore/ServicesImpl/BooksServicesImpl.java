@@ -1,78 +1,173 @@
 package com.ebook.ebookstore.ServicesImpl;
 
+import com.ebook.ebookstore.Config.ReadYourWrites;
+import com.ebook.ebookstore.DTO.BookCodeFilterStatsDTO;
 import com.ebook.ebookstore.DTO.BookDTO;
+import com.ebook.ebookstore.DTO.CacheRegionStatsDTO;
+import com.ebook.ebookstore.DTO.CoalescingStatsDTO;
 import com.ebook.ebookstore.DTO.CreateBookDTO;
+import com.ebook.ebookstore.Event.BooksChangedEvent;
 import com.ebook.ebookstore.Model.Books;
 import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Services.BookCacheInvalidationServices;
+import com.ebook.ebookstore.Services.BookPurgeServices;
 import com.ebook.ebookstore.Services.BookServices;
+import com.ebook.ebookstore.Util.BloomFilter;
+import com.ebook.ebookstore.Util.SingleFlight;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class BooksServicesImpl implements BookServices {
 
+    private static final Logger logger = LoggerFactory.getLogger(BooksServicesImpl.class);
+
     private final BookRepository bookRepository;
+    private final BookPurgeServices bookPurgeServices;
+    private final BookCacheInvalidationServices bookCacheInvalidationServices;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TaskExecutor rebuildExecutor;
+    private final double codeFilterFalsePositiveRate;
+    private final int codeFilterMinCapacity;
+    private final long codeFilterMaxStalenessMillis;
+
+    // Answers "no such code" without a query; null until the first build, when every check goes to MySQL.
+    // Codes written on other nodes arrive through the cache invalidation log, so a negative is only trusted
+    // while that log has been applied recently; create and update always ask MySQL
+    private volatile BloomFilter codeFilter;
+    // Set while a rebuild for outgrowing the filter is queued, so only one is submitted
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    // Codes written while a rebuild is loading, replayed into the new filter before it is swapped in
+    private List<String> codesAddedDuringRebuild;
+    private final Object codeFilterLock = new Object();
+    // One rebuild at a time. A lock rather than a synchronized method: the rebuild queries MySQL,
+    // and blocking on I/O inside a monitor pins a virtual thread's carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final LongAdder codeLookups = new LongAdder();
+    private final LongAdder codeDefiniteNegatives = new LongAdder();
+    private final LongAdder codeFalsePositives = new LongAdder();
+
+    // Concurrent identical reads share one query, e.g. a newsletter link opened thousands of times at once
+    private final SingleFlight<Long, BookDTO> bookByIdFlight = new SingleFlight<>("bookById");
+    private final SingleFlight<String, BookDTO> bookByCodeFlight = new SingleFlight<>("bookByCode");
+    private final SingleFlight<List<String>, List<BookDTO>> bookListFlight = new SingleFlight<>("bookLists");
+    private final SingleFlight<Long, Boolean> bookExistsFlight = new SingleFlight<>("bookExistsById");
+    private final SingleFlight<String, Boolean> codeExistsFlight = new SingleFlight<>("bookExistsByCode");
 
     @Autowired
-    public BooksServicesImpl(BookRepository bookRepository) {
+    public BooksServicesImpl(BookRepository bookRepository, BookPurgeServices bookPurgeServices,
+                             BookCacheInvalidationServices bookCacheInvalidationServices,
+                             EntityManagerFactory entityManagerFactory,
+                             @Qualifier("indexRebuildExecutor") TaskExecutor rebuildExecutor,
+                             @Value("${ebook.books.code-filter.false-positive-rate:0.01}") double codeFilterFalsePositiveRate,
+                             @Value("${ebook.books.code-filter.min-capacity:10000}") int codeFilterMinCapacity,
+                             @Value("${ebook.books.code-filter.max-staleness-ms:3000}") long codeFilterMaxStalenessMillis) {
         this.bookRepository = bookRepository;
+        this.bookPurgeServices = bookPurgeServices;
+        this.bookCacheInvalidationServices = bookCacheInvalidationServices;
+        this.entityManagerFactory = entityManagerFactory;
+        this.rebuildExecutor = rebuildExecutor;
+        this.codeFilterFalsePositiveRate = codeFilterFalsePositiveRate;
+        this.codeFilterMinCapacity = codeFilterMinCapacity;
+        this.codeFilterMaxStalenessMillis = codeFilterMaxStalenessMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            rebuildCodeFilter();
+        } catch (RuntimeException e) {
+            // Checks keep going to MySQL until the scheduled rebuild succeeds
+            logger.warn("Could not build book code filter", e);
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getAllBooks() {
-        return bookRepository.findAll()
+        return coalesce(bookListFlight, List.of("all"), () -> bookRepository.findAll()
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BookDTO getBookById(Long id) {
-        Books book = bookRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
-        return convertToDTO(book);
+        return coalesce(bookByIdFlight, id, () -> {
+            Books book = bookRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
+            return convertToDTO(book);
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getBooksByAuthor(String author) {
-        return bookRepository.findByAuthorContainingIgnoreCase(author)
+        return coalesce(bookListFlight, Arrays.asList("author", author), () -> bookRepository.findByAuthorContainingIgnoreCase(author)
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getBooksByName(String name) {
-        return bookRepository.findByNameContainingIgnoreCase(name)
+        return coalesce(bookListFlight, Arrays.asList("name", name), () -> bookRepository.findByNameContainingIgnoreCase(name)
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getBooksByCategory(String category) {
-        return bookRepository.findByCategoryIgnoreCase(category)
+        return coalesce(bookListFlight, Arrays.asList("category", category), () -> bookRepository.findByCategoryIgnoreCase(category)
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> getBooksBySubcategory(String subcategory) {
-        return bookRepository.findBySubcategoryIgnoreCase(subcategory)
+        return coalesce(bookListFlight, Arrays.asList("subcategory", subcategory), () -> bookRepository.findBySubcategoryIgnoreCase(subcategory)
                 .stream()
                 .map(this::convertToDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public BookDTO getBookByCode(String code) {
-        Books book = bookRepository.findByCode(code)
-                .orElseThrow(() -> new RuntimeException("Book not found with code: " + code));
-        return convertToDTO(book);
+        return coalesce(bookByCodeFlight, code, () -> {
+            Books book = bookRepository.findByCode(code)
+                    .orElseThrow(() -> new RuntimeException("Book not found with code: " + code));
+            return convertToDTO(book);
+        });
     }
 
     @Override
@@ -83,6 +178,9 @@ public class BooksServicesImpl implements BookServices {
 
         Books book = convertToEntity(createBookDTO);
         Books savedBook = bookRepository.save(book);
+        recordCode(savedBook.getCode());
+        // Other nodes' cached finder results do not include it yet
+        bookCacheInvalidationServices.bookChanged(savedBook.getId());
         return convertToDTO(savedBook);
     }
 
@@ -97,37 +195,165 @@ public class BooksServicesImpl implements BookServices {
             throw new RuntimeException("Book with code already exists: " + createBookDTO.getCode());
         }
 
+        // The old code stays in the filter as a false positive until the next rebuild
         updateBookFromDTO(existingBook, createBookDTO);
         Books savedBook = bookRepository.save(existingBook);
+        recordCode(savedBook.getCode());
+        bookCacheInvalidationServices.bookChanged(id);
         return convertToDTO(savedBook);
     }
 
     @Override
     public void deleteBook(Long id) {
-        if (!bookRepository.existsById(id)) {
+        // Archive is a single-row update; the downloads are removed in the background
+        if (bookRepository.archiveById(id) == 0) {
             throw new RuntimeException("Book not found with id: " + id);
         }
-        bookRepository.deleteById(id);
+        // Cache hits skip the archived filter, so other nodes must drop the row
+        bookCacheInvalidationServices.bookChanged(id);
+        bookPurgeServices.purgeBookAsync(id);
     }
 
     @Override
     public boolean existsBookById(Long id) {
-        return bookRepository.existsById(id);
+        return coalesce(bookExistsFlight, id, () -> bookRepository.existsById(id));
     }
 
     @Override
     public boolean existsBookByCode(String code) {
-        return bookRepository.existsByCode(code);
+        return codeExists(code);
+    }
+
+    // Also sheds codes of archived or renamed books, which a Bloom filter cannot remove
+    @Override
+    @Scheduled(cron = "${ebook.books.code-filter.rebuild-cron:0 45 3 * * *}")
+    public void rebuildCodeFilter() {
+        rebuildLock.lock();
+        synchronized (codeFilterLock) {
+            codesAddedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            List<String> codes = bookRepository.findAllCodes();
+            BloomFilter fresh = new BloomFilter(Math.max(codeFilterMinCapacity, codes.size() * 2L), codeFilterFalsePositiveRate);
+            codes.forEach(fresh::add);
+            synchronized (codeFilterLock) {
+                codesAddedDuringRebuild.forEach(fresh::add);
+                codeFilter = fresh;
+            }
+            logger.info("Built book code filter: {} codes, {} KB, {} hash functions",
+                    codes.size(), fresh.memoryBytes() / 1024, fresh.hashFunctions());
+        } finally {
+            synchronized (codeFilterLock) {
+                codesAddedDuringRebuild = null;
+            }
+            rebuildQueued.set(false);
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public BookCodeFilterStatsDTO getCodeFilterStats() {
+        BookCodeFilterStatsDTO stats = new BookCodeFilterStatsDTO();
+        BloomFilter filter = codeFilter;
+        if (filter != null) {
+            stats.setCodes(filter.insertions());
+            stats.setExpectedCodes(filter.expectedInsertions());
+            stats.setBitCount(filter.bitCount());
+            stats.setHashFunctions(filter.hashFunctions());
+            stats.setMemoryBytes(filter.memoryBytes());
+            stats.setEstimatedFalsePositiveRate(filter.estimatedFalsePositiveRate());
+        }
+        long definiteNegatives = codeDefiniteNegatives.sum();
+        long falsePositives = codeFalsePositives.sum();
+        stats.setTargetFalsePositiveRate(codeFilterFalsePositiveRate);
+        stats.setLookups(codeLookups.sum());
+        stats.setDefiniteNegatives(definiteNegatives);
+        stats.setDatabaseChecks(codeLookups.sum() - definiteNegatives);
+        stats.setFalsePositives(falsePositives);
+        // Share of absent codes that still reached MySQL
+        stats.setObservedFalsePositiveRate(definiteNegatives + falsePositives == 0 ? 0
+                : (double) falsePositives / (definiteNegatives + falsePositives));
+        return stats;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDTO> searchBooks(String author, String category, String subcategory) {
-        return bookRepository.findBooksWithFilters(author, category, subcategory)
+        return coalesce(bookListFlight, Arrays.asList("search", author, category, subcategory),
+                () -> bookRepository.findBooksWithFilters(author, category, subcategory)
+                        .stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+    }
+
+    // Codes written on any node, this one's own writes included, once the invalidation poll has seen them
+    @EventListener
+    public void onBooksChanged(BooksChangedEvent event) {
+        bookRepository.findCodesByIdIn(event.getBookIds()).forEach(this::recordCode);
+    }
+
+    private boolean codeExists(String code) {
+        codeLookups.increment();
+        BloomFilter filter = codeFilter;
+        if (filter != null && bookCacheInvalidationServices.isCurrent(codeFilterMaxStalenessMillis)
+                && !filter.mightContain(code)) {
+            codeDefiniteNegatives.increment();
+            return false;
+        }
+        boolean exists = coalesce(codeExistsFlight, code, () -> bookRepository.existsByCode(code));
+        if (filter != null && !exists) {
+            codeFalsePositives.increment();
+        }
+        return exists;
+    }
+
+    // Called after the row is saved, so a rebuild that loads before the commit still sees the code here
+    private void recordCode(String code) {
+        BloomFilter filter;
+        synchronized (codeFilterLock) {
+            if (codesAddedDuringRebuild != null) {
+                codesAddedDuringRebuild.add(code);
+            }
+            filter = codeFilter;
+            if (filter != null) {
+                filter.add(code);
+            }
+        }
+        // Past its sizing the false-positive rate climbs quickly; grow it, off the request thread. The
+        // executor drops work when full, in which case the nightly rebuild clears the flag
+        if (filter != null && filter.insertions() > filter.expectedInsertions() && rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuildCodeFilter);
+        }
+    }
+
+    @Override
+    public List<CoalescingStatsDTO> getCoalescingStats() {
+        return Arrays.asList(bookByIdFlight, bookByCodeFlight, bookListFlight, bookExistsFlight, codeExistsFlight)
                 .stream()
-                .map(this::convertToDTO)
+                .map(flight -> new CoalescingStatsDTO(flight.name(), flight.calls(), flight.executions()))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<CacheRegionStatsDTO> getCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<CacheRegionStatsDTO> regions = new ArrayList<>();
+        for (String region : Arrays.asList(Books.CACHE_REGION, Books.NATURAL_ID_CACHE_REGION, Books.QUERY_CACHE_REGION)) {
+            // Null for a region nothing has touched yet (query regions are created on first use)
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            regions.add(stats == null
+                    ? new CacheRegionStatsDTO(region, 0, 0, 0)
+                    : new CacheRegionStatsDTO(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount()));
+        }
+        return regions;
+    }
+
+    // A client that has just written reads from the primary (read-your-writes), so it must not be handed the
+    // result of a flight that another client's request is reading from the replica
+    private static <K, V> V coalesce(SingleFlight<K, V> flight, K key, Supplier<V> loader) {
+        return ReadYourWrites.isSticky() ? loader.get() : flight.execute(key, loader);
+    }
+
     // Helper methods for conversion
     private BookDTO convertToDTO(Books book) {
         return new BookDTO(
@@ -0,0 +1,462 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.CaptureJournalServices;
+import com.ebook.ebookstore.Util.SegmentedJournal;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable capture path that does not wait for MySQL. Captures are appended to a local
+ * segmented journal and acknowledged once the append is on disk (or right away when
+ * sync-on-capture is off and a background flush bounds the loss window); a scheduled
+ * replayer drains the journal into the downloads table in batches, or into the owning
+ * download shards when the table is sharded.
+ * <p>
+ * Download ids are assigned here rather than by AUTO_INCREMENT so the caller gets its id
+ * before the row exists: 41 bits of milliseconds since 2025-01-01, 5 bits of node id and
+ * 7 bits of sequence, which keeps ids increasing and within 2^53. 128 ids per millisecond per
+ * node is far above the capture rate; a burst beyond it borrows the next millisecond. Two instances with
+ * the same node id would hand out the same ids, so node-id has no default and startup fails without it.
+ * <p>
+ * Before inserting, the replayer looks up the batch's ids: a row that is already there and holds the
+ * same capture was inserted by an earlier pass (a crash between the insert and the checkpoint), and is
+ * skipped; a row holding a different capture is an id collision, and the capture goes to the dead
+ * letter table rather than being dropped or stored under a duplicate id. Inserts use
+ * ON DUPLICATE KEY UPDATE id = id rather than INSERT IGNORE, so any other error still fails the batch.
+ * <p>
+ * A capture taken while the database was down could not check its book, so the replayer does:
+ * captures for a book that does not exist (or is archived) go to downloads_dead_letter with the
+ * reason instead of into downloads, where they would show up as leads for an unknown book.
+ */
+@Service
+public class CaptureJournalServiceImpl implements CaptureJournalServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureJournalServiceImpl.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO downloads (id, ebook_id, user_name, contact_number, email, download_time) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String DEAD_LETTER_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS downloads_dead_letter (" +
+                    "id BIGINT NOT NULL PRIMARY KEY, ebook_id BIGINT NOT NULL, user_name VARCHAR(100) NOT NULL, " +
+                    "contact_number VARCHAR(15) NOT NULL, email VARCHAR(100) NOT NULL, " +
+                    "download_time DATETIME(6) NOT NULL, reason VARCHAR(64) NOT NULL, diverted_at DATETIME(6) NOT NULL)";
+
+    private static final String DEAD_LETTER_INSERT_SQL =
+            "INSERT INTO downloads_dead_letter " +
+                    "(id, ebook_id, user_name, contact_number, email, download_time, reason, diverted_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String UNKNOWN_BOOK = "UNKNOWN_BOOK";
+    private static final String ID_CONFLICT = "ID_CONFLICT";
+
+    private static final long ID_EPOCH_MILLIS = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+    private static final int MAX_PENDING_LOOKUPS = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean syncOnCapture;
+    private final int replayBatchSize;
+    private final long nodeId;
+    private final SegmentedJournal journal;
+
+    // Journalled but not yet replayed, so a download link works before the row lands
+    private final ConcurrentHashMap<Long, Long> pendingEbookIds = new ConcurrentHashMap<>();
+
+    // Id assignment and append happen together so the journal stays in id order. A lock rather than a
+    // monitor: the append can rotate to a new segment, and a virtual thread must not hold a monitor over disk I/O
+    private final ReentrantLock idLock = new ReentrantLock();
+    // Guarded by idLock
+    private long lastIdMillis;
+    private int idSequence;
+
+    private boolean replayFailing;
+    private long reportedSkippedBytes;
+    private long malformedRecords;
+    private long reportedMalformedRecords;
+    private boolean deadLetterTableReady;
+    private long deadLetteredCaptures;
+
+    @Autowired
+    public CaptureJournalServiceImpl(JdbcTemplate jdbcTemplate,
+                                     ShardedDownloadRepository shardedDownloadRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${ebook.capture.journal.enabled:false}") boolean enabled,
+                                     @Value("${ebook.capture.journal.dir:./data/capture-journal}") String dir,
+                                     @Value("${ebook.capture.journal.segment-bytes:67108864}") int segmentBytes,
+                                     @Value("${ebook.capture.journal.max-segments:64}") int maxSegments,
+                                     @Value("${ebook.capture.journal.node-id:-1}") int nodeId,
+                                     @Value("${ebook.capture.journal.sync-on-capture:true}") boolean syncOnCapture,
+                                     @Value("${ebook.capture.journal.replay-batch-size:500}") int replayBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.syncOnCapture = syncOnCapture;
+        this.replayBatchSize = replayBatchSize;
+        if (nodeId < -1 || nodeId >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("ebook.capture.journal.node-id must be between 0 and " + ((1 << NODE_BITS) - 1));
+        }
+        if (enabled && nodeId == -1) {
+            throw new IllegalStateException("ebook.capture.journal.enabled needs ebook.capture.journal.node-id, " +
+                    "unique per instance: it goes into the download ids");
+        }
+        this.nodeId = nodeId;
+
+        if (!enabled) {
+            this.journal = null;
+            return;
+        }
+        try {
+            this.journal = new SegmentedJournal(Paths.get(dir).toAbsolutePath(), segmentBytes, maxSegments);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open capture journal in " + dir, e);
+        }
+
+        // Continue the id sequence after the last journalled capture, even if the clock went back
+        byte[] last = journal.lastRecoveredRecord();
+        if (last != null) {
+            try {
+                long lastId = decode(last).getId();
+                lastIdMillis = lastId >>> (NODE_BITS + SEQUENCE_BITS);
+                idSequence = MAX_SEQUENCE;
+            } catch (UncheckedIOException | DateTimeException e) {
+                logger.warn("Last capture journal record is malformed; ids continue from the clock", e);
+            }
+        }
+        logger.info("Capture journal opened in {} with {} segment(s), {} bytes to replay",
+                dir, journal.segmentCount(), journal.backlogBytes());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Download journalCapture(Download download) {
+        // DATETIME(6) rounds anything finer, which would make a replayed row differ from the journalled one
+        download.setDownloadTime(download.getDownloadTime().truncatedTo(ChronoUnit.MICROS));
+        long position;
+        try {
+            idLock.lock();
+            try {
+                download.setId(nextId());
+                position = journal.append(encode(download));
+            } finally {
+                idLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not journal download capture", e);
+        }
+        if (syncOnCapture) {
+            journal.awaitDurable(position);
+        }
+        if (pendingEbookIds.size() < MAX_PENDING_LOOKUPS) {
+            pendingEbookIds.put(download.getId(), download.getEbookId());
+        }
+        return download;
+    }
+
+    @Override
+    public Long findPendingEbookId(Long downloadId) {
+        return pendingEbookIds.get(downloadId);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.capture.journal.replay-interval-ms:200}")
+    public void replayJournal() {
+        if (!enabled) {
+            return;
+        }
+        while (true) {
+            SegmentedJournal.Batch batch = journal.readBatch(replayBatchSize);
+            if (batch.isEmpty()) {
+                // Still commit: moving past an exhausted segment lets it be deleted
+                commit(batch);
+                return;
+            }
+
+            List<Long> ids = new ArrayList<>(batch.records().size());
+            List<Download> decoded = new ArrayList<>(batch.records().size());
+            for (byte[] record : batch.records()) {
+                Download download;
+                try {
+                    download = decode(record);
+                } catch (UncheckedIOException | DateTimeException e) {
+                    // It would fail the same way on every pass; skip it like a corrupt frame instead of stalling replay
+                    malformedRecords++;
+                    continue;
+                }
+                ids.add(download.getId());
+                decoded.add(download);
+            }
+            if (decoded.isEmpty()) {
+                if (!commit(batch)) {
+                    return;
+                }
+                continue;
+            }
+
+            List<Download> downloads = new ArrayList<>(decoded.size());
+            List<Object[]> deadLetters = new ArrayList<>();
+            try {
+                Set<Long> knownBooks = findLiveBookIds(decoded);
+                Timestamp divertedAt = Timestamp.valueOf(LocalDateTime.now());
+                List<Download> live = new ArrayList<>(decoded.size());
+                for (Download download : decoded) {
+                    if (knownBooks.contains(download.getEbookId())) {
+                        live.add(download);
+                    } else {
+                        deadLetters.add(deadLetter(download, UNKNOWN_BOOK, divertedAt));
+                    }
+                }
+
+                if (shardedDownloadRepository.isEnabled()) {
+                    // Dead letters live next to books on the primary; both inserts are idempotent if the batch is replayed.
+                    // If one shard fails after others committed, the whole batch is replayed and finds those rows in place.
+                    Map<Long, Download> existing = index(shardedDownloadRepository.findByIds(ids(live)));
+                    List<Object[]> conflicts = sortOut(live, existing, downloads, divertedAt);
+                    deadLetters.addAll(conflicts);
+                    insertDeadLetters(deadLetters);
+                    if (!downloads.isEmpty()) {
+                        shardedDownloadRepository.insertAll(downloads);
+                    }
+                } else {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        Map<Long, Download> existing = index(findByIds(ids(live)));
+                        deadLetters.addAll(sortOut(live, existing, downloads, divertedAt));
+                        insertDeadLetters(deadLetters);
+                        if (!downloads.isEmpty()) {
+                            jdbcTemplate.batchUpdate(INSERT_SQL, downloads.stream().map(download -> new Object[]{
+                                    download.getId(), download.getEbookId(), download.getUserName(),
+                                    download.getContactNumber(), download.getEmail(),
+                                    Timestamp.valueOf(download.getDownloadTime())}).toList());
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                downloads.clear();
+                deadLetters.clear();
+                if (!replayFailing) {
+                    replayFailing = true;
+                    logger.warn("Capture journal replay failed, {} bytes waiting; retrying", journal.backlogBytes(), e);
+                }
+                return;
+            }
+            if (replayFailing) {
+                replayFailing = false;
+                logger.info("Capture journal replay resumed");
+            }
+
+            if (!commit(batch)) {
+                return;
+            }
+            ids.forEach(pendingEbookIds::remove);
+            if (!deadLetters.isEmpty()) {
+                deadLetteredCaptures += deadLetters.size();
+                logger.warn("Capture journal diverted {} capture(s) for unknown books or conflicting ids " +
+                        "to downloads_dead_letter ({} so far)", deadLetters.size(), deadLetteredCaptures);
+            }
+        }
+    }
+
+    /**
+     * Adds the captures that are not stored yet to {@code toInsert} and returns dead letters for those whose
+     * id is taken by a different row. A stored row equal to the capture was inserted by an earlier pass.
+     */
+    private static List<Object[]> sortOut(List<Download> captures, Map<Long, Download> existing,
+                                          List<Download> toInsert, Timestamp divertedAt) {
+        List<Object[]> conflicts = new ArrayList<>();
+        for (Download capture : captures) {
+            Download stored = existing.get(capture.getId());
+            if (stored == null) {
+                toInsert.add(capture);
+            } else if (!sameCapture(stored, capture)) {
+                logger.error("Download id {} is already taken by another capture; check that every instance has " +
+                        "its own ebook.capture.journal.node-id", capture.getId());
+                conflicts.add(deadLetter(capture, ID_CONFLICT, divertedAt));
+            }
+        }
+        return conflicts;
+    }
+
+    // Capture times are journalled at DATETIME(6) precision, so they compare equal to the stored ones
+    private static boolean sameCapture(Download stored, Download capture) {
+        return stored.getEbookId().equals(capture.getEbookId())
+                && stored.getUserName().equals(capture.getUserName())
+                && stored.getContactNumber().equals(capture.getContactNumber())
+                && stored.getEmail().equals(capture.getEmail())
+                && stored.getDownloadTime().equals(capture.getDownloadTime());
+    }
+
+    private void insertDeadLetters(List<Object[]> deadLetters) {
+        if (deadLetters.isEmpty()) {
+            return;
+        }
+        if (!deadLetterTableReady) {
+            jdbcTemplate.execute(DEAD_LETTER_TABLE_SQL);
+            deadLetterTableReady = true;
+        }
+        jdbcTemplate.batchUpdate(DEAD_LETTER_INSERT_SQL, deadLetters);
+    }
+
+    private List<Download> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query("SELECT id, ebook_id, user_name, contact_number, email, download_time " +
+                "FROM downloads WHERE id IN (" + placeholders + ")", (rs, rowNum) -> {
+            Download download = new Download();
+            download.setId(rs.getLong(1));
+            download.setEbookId(rs.getLong(2));
+            download.setUserName(rs.getString(3));
+            download.setContactNumber(rs.getString(4));
+            download.setEmail(rs.getString(5));
+            download.setDownloadTime(rs.getTimestamp(6).toLocalDateTime());
+            return download;
+        }, ids.toArray());
+    }
+
+    private static Object[] deadLetter(Download download, String reason, Timestamp divertedAt) {
+        return new Object[]{download.getId(), download.getEbookId(), download.getUserName(),
+                download.getContactNumber(), download.getEmail(), Timestamp.valueOf(download.getDownloadTime()),
+                reason, divertedAt};
+    }
+
+    private static List<Long> ids(List<Download> downloads) {
+        return downloads.stream().map(Download::getId).toList();
+    }
+
+    private static Map<Long, Download> index(List<Download> downloads) {
+        Map<Long, Download> byId = new HashMap<>();
+        downloads.forEach(download -> byId.put(download.getId(), download));
+        return byId;
+    }
+
+    // Same rule as a capture with the database up: the book must exist and not be archived
+    private Set<Long> findLiveBookIds(List<Download> downloads) {
+        List<Long> ebookIds = downloads.stream().map(Download::getEbookId).distinct().toList();
+        String placeholders = String.join(", ", Collections.nCopies(ebookIds.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM books WHERE archived = false AND id IN (" + placeholders + ")",
+                Long.class, ebookIds.toArray()));
+    }
+
+    // With sync-on-capture off, this bounds how much an OS crash can lose
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.capture.journal.flush-interval-ms:50}")
+    public void flushJournal() {
+        if (enabled && !syncOnCapture) {
+            journal.flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Could not close capture journal", e);
+        }
+    }
+
+    private boolean commit(SegmentedJournal.Batch batch) {
+        try {
+            journal.commit(batch);
+            if (journal.skippedBytes() > reportedSkippedBytes) {
+                reportedSkippedBytes = journal.skippedBytes();
+                logger.error("Capture journal skipped {} corrupt bytes so far", reportedSkippedBytes);
+            }
+            if (malformedRecords > reportedMalformedRecords) {
+                reportedMalformedRecords = malformedRecords;
+                logger.error("Capture journal skipped {} malformed records so far", reportedMalformedRecords);
+            }
+            return true;
+        } catch (IOException e) {
+            // The rows are in; the next pass replays them again and finds them already stored
+            logger.warn("Could not write capture journal checkpoint", e);
+            return false;
+        }
+    }
+
+    private long nextId() {
+        long now = System.currentTimeMillis() - ID_EPOCH_MILLIS;
+        if (now > lastIdMillis) {
+            lastIdMillis = now;
+            idSequence = 0;
+        } else if (++idSequence > MAX_SEQUENCE) {
+            // Sequence exhausted within a millisecond: borrow the next one
+            lastIdMillis++;
+            idSequence = 0;
+        }
+        return (lastIdMillis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | idSequence;
+    }
+
+    private static byte[] encode(Download download) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        LocalDateTime time = download.getDownloadTime();
+        out.writeLong(download.getId());
+        out.writeLong(download.getEbookId());
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+        out.writeUTF(download.getUserName());
+        out.writeUTF(download.getContactNumber());
+        out.writeUTF(download.getEmail());
+        return bytes.toByteArray();
+    }
+
+    private static Download decode(byte[] record) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            Download download = new Download();
+            download.setId(in.readLong());
+            download.setEbookId(in.readLong());
+            download.setDownloadTime(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+            download.setUserName(in.readUTF());
+            download.setContactNumber(in.readUTF());
+            download.setEmail(in.readUTF());
+            return download;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed capture journal record", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Event.CredentialsChangedEvent;
+import com.ebook.ebookstore.Services.CredentialCacheInvalidationServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps the per-node login credential caches coherent across nodes, the way book cache
+ * invalidations do. Every user or admin write that invalidates a cached credential is logged
+ * to credential_cache_invalidations; each node polls the log and publishes a
+ * CredentialsChangedEvent, on which the user and admin services drop those emails. A password
+ * change or account deletion on one node therefore stops working logins everywhere within a
+ * poll interval instead of the cache TTL.
+ * <p>
+ * Polls read by the database's clock and look back an overlap window, so an entry that commits
+ * after a later one is still seen; invalidating twice is harmless.
+ */
+@Service
+public class CredentialCacheInvalidationServiceImpl implements CredentialCacheInvalidationServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialCacheInvalidationServiceImpl.class);
+
+    private static final String TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS credential_cache_invalidations (" +
+                    "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, email VARCHAR(100) NOT NULL, " +
+                    "created_at DATETIME(6) NOT NULL, INDEX idx_credential_cache_invalidations_created (created_at))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long overlapMillis;
+    private final int retentionHours;
+
+    private volatile boolean ready;
+    // Database time of the last poll; entries from overlapMillis before it on are read again
+    private Timestamp polledUpTo;
+
+    @Autowired
+    public CredentialCacheInvalidationServiceImpl(JdbcTemplate jdbcTemplate,
+                                                  ApplicationEventPublisher eventPublisher,
+                                                  @Value("${ebook.auth.credential-cache.invalidation.enabled:true}") boolean enabled,
+                                                  @Value("${ebook.auth.credential-cache.invalidation.overlap-ms:5000}") long overlapMillis,
+                                                  @Value("${ebook.auth.credential-cache.invalidation.retention-hours:24}") int retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.overlapMillis = overlapMillis;
+        this.retentionHours = retentionHours;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.execute(TABLE_SQL);
+        // The caches start empty, so older entries need no replay
+        polledUpTo = now();
+        ready = true;
+    }
+
+    // Joins the caller's transaction, if any, so the entry is only seen once the write has committed
+    @Override
+    public void credentialChanged(String email) {
+        if (!ready || email == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO credential_cache_invalidations (email, created_at) VALUES (?, CURRENT_TIMESTAMP(6))",
+                    email.toLowerCase(Locale.ROOT));
+        } catch (DataAccessException e) {
+            // The write itself goes through; other nodes keep the old credential until their cache entry expires
+            logger.warn("Could not publish credential cache invalidation", e);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.auth.credential-cache.invalidation.poll-interval-ms:1000}")
+    public void pollInvalidations() {
+        if (!ready) {
+            return;
+        }
+        Timestamp pollStart = now();
+        List<String> emails = jdbcTemplate.queryForList(
+                "SELECT DISTINCT email FROM credential_cache_invalidations WHERE created_at >= ?", String.class,
+                new Timestamp(polledUpTo.getTime() - overlapMillis));
+        if (!emails.isEmpty()) {
+            eventPublisher.publishEvent(new CredentialsChangedEvent(emails));
+        }
+        polledUpTo = pollStart;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.auth.credential-cache.invalidation.cleanup-interval-ms:3600000}")
+    public void deleteOldInvalidations() {
+        if (!ready) {
+            return;
+        }
+        int removed = jdbcTemplate.update("DELETE FROM credential_cache_invalidations WHERE created_at < ?",
+                new Timestamp(now().getTime() - retentionHours * 3_600_000L));
+        if (removed > 0) {
+            logger.info("Removed {} credential cache invalidations older than {} hours", removed, retentionHours);
+        }
+    }
+
+    private Timestamp now() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(6)", Timestamp.class);
+    }
+}
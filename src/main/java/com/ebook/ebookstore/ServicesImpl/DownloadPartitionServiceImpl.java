@@ -0,0 +1,265 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.DownloadPartitionServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keeps the downloads table range-partitioned by month on download_time.
+ * Upcoming months are created ahead of time and months older than the
+ * retention window are swapped out into downloads_archive_pYYYYMM tables.
+ * Only the primary's table is managed, so it refuses to start alongside download sharding.
+ * <p>
+ * Converting an unpartitioned table rebuilds it, so it never happens at startup: it is run
+ * once through {@code POST /api/downloads/partitions/initialize}, at a quiet time. Every
+ * DDL statement here runs under a MySQL named lock held on its own connection, so several
+ * instances (the nightly maintenance fires on all of them) never alter the table at once;
+ * an instance that finds the lock taken skips its run.
+ */
+@Service
+public class DownloadPartitionServiceImpl implements DownloadPartitionServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadPartitionServiceImpl.class);
+
+    private static final String TABLE = "downloads";
+    private static final String MAX_PARTITION = "pmax";
+    private static final String ARCHIVE_PREFIX = "downloads_archive_";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter BOUNDARY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String LOCK_NAME = "ebook.downloads.partitioning";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    @Autowired
+    public DownloadPartitionServiceImpl(JdbcTemplate jdbcTemplate,
+                                        ShardedDownloadRepository shardedDownloadRepository,
+                                        @Value("${ebook.downloads.partitioning.enabled:true}") boolean enabled,
+                                        @Value("${ebook.downloads.partitioning.months-ahead:3}") int monthsAhead,
+                                        @Value("${ebook.downloads.partitioning.retention-months:24}") int retentionMonths) {
+        if (enabled && shardedDownloadRepository.isEnabled()) {
+            throw new IllegalStateException("ebook.downloads.partitioning.enabled cannot be combined with " +
+                    "ebook.downloads.shards.enabled: downloads live on the shards, not the partitioned primary table");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    // Only checks: the table is converted by an operator, never by whichever instance boots first
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (getPartitionNames().isEmpty()) {
+                logger.warn("Downloads table is not partitioned yet; POST /api/downloads/partitions/initialize " +
+                        "converts it (rebuilds the table)");
+            }
+        } catch (DataAccessException e) {
+            logger.error("Could not read the downloads table's partitions", e);
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${ebook.downloads.partitioning.cron:0 30 2 * * *}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            withLock(db -> {
+                addUpcomingPartitions(db);
+                return archiveExpiredPartitions(db);
+            });
+        } catch (IllegalStateException e) {
+            logger.info("Skipping downloads partition maintenance: {}", e.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Error maintaining downloads partitions", e);
+        }
+    }
+
+    @Override
+    public List<String> partitionDownloadsTable() {
+        if (!enabled) {
+            throw new IllegalStateException("Downloads partitioning is not enabled");
+        }
+        return withLock(db -> {
+            partitionDownloadsTable(db);
+            addUpcomingPartitions(db);
+            return getPartitionNames(db, TABLE);
+        });
+    }
+
+    @Override
+    public void addUpcomingPartitions() {
+        withLock(db -> {
+            addUpcomingPartitions(db);
+            return null;
+        });
+    }
+
+    @Override
+    public List<String> archiveExpiredPartitions() {
+        return withLock(this::archiveExpiredPartitions);
+    }
+
+    @Override
+    public List<String> getPartitionNames() {
+        return getPartitionNames(jdbcTemplate, TABLE);
+    }
+
+    /**
+     * Runs the action with a template bound to one connection holding the partitioning lock.
+     * Throws IllegalStateException if another instance holds it.
+     */
+    private <T> T withLock(Function<JdbcTemplate, T> action) {
+        return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            JdbcTemplate db = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Integer acquired = db.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, LOCK_NAME);
+            if (acquired == null || acquired != 1) {
+                throw new IllegalStateException("another instance is changing the downloads partitions");
+            }
+            try {
+                return action.apply(db);
+            } finally {
+                db.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, LOCK_NAME);
+            }
+        });
+    }
+
+    private void partitionDownloadsTable(JdbcTemplate db) {
+        if (!getPartitionNames(db, TABLE).isEmpty()) {
+            return;
+        }
+
+        List<String> foreignKeys = db.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_TYPE = 'FOREIGN KEY'",
+                String.class, TABLE);
+        for (String foreignKey : foreignKeys) {
+            db.execute("ALTER TABLE downloads DROP FOREIGN KEY `" + foreignKey + "`");
+        }
+
+        // MySQL requires the partitioning column in every unique key, primary key included
+        db.execute("ALTER TABLE downloads DROP PRIMARY KEY, ADD PRIMARY KEY (id, download_time)");
+
+        LocalDateTime oldest = db.queryForObject(
+                "SELECT MIN(download_time) FROM downloads", LocalDateTime.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+
+        StringBuilder ddl = new StringBuilder("ALTER TABLE downloads PARTITION BY RANGE COLUMNS(download_time) (");
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            ddl.append(partitionDefinition(month)).append(", ");
+        }
+        ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+        db.execute(ddl.toString());
+
+        logger.info("Partitioned downloads table by month from {} to {}", first, last);
+    }
+
+    private void addUpcomingPartitions(JdbcTemplate db) {
+        List<String> names = getPartitionNames(db, TABLE);
+        if (names.isEmpty()) {
+            return;
+        }
+
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        YearMonth latest = names.stream()
+                .filter(this::isMonthlyPartition)
+                .map(this::partitionMonth)
+                .max(Comparator.naturalOrder())
+                .orElse(YearMonth.now().minusMonths(1));
+        if (!latest.isBefore(target)) {
+            return;
+        }
+
+        // pmax is empty in normal operation, so splitting it is a metadata change
+        StringBuilder ddl = new StringBuilder("ALTER TABLE downloads REORGANIZE PARTITION ")
+                .append(MAX_PARTITION).append(" INTO (");
+        for (YearMonth month = latest.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            ddl.append(partitionDefinition(month)).append(", ");
+        }
+        ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+        db.execute(ddl.toString());
+
+        logger.info("Added downloads partitions up to {}", target);
+    }
+
+    private List<String> archiveExpiredPartitions(JdbcTemplate db) {
+        List<String> archivedTables = new ArrayList<>();
+        if (retentionMonths <= 0) {
+            return archivedTables;
+        }
+
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (String name : getPartitionNames(db, TABLE)) {
+            if (!isMonthlyPartition(name) || !partitionMonth(name).isBefore(cutoff)) {
+                continue;
+            }
+
+            String archiveTable = ARCHIVE_PREFIX + name;
+            db.execute("CREATE TABLE IF NOT EXISTS " + archiveTable + " LIKE downloads");
+            if (!getPartitionNames(db, archiveTable).isEmpty()) {
+                db.execute("ALTER TABLE " + archiveTable + " REMOVE PARTITIONING");
+            }
+
+            // A non-empty archive table means an earlier run already swapped this partition out
+            Long archivedRows = db.queryForObject("SELECT COUNT(*) FROM " + archiveTable, Long.class);
+            if (archivedRows == null || archivedRows == 0) {
+                // Exchange swaps the partition's tablespace with the empty table; no rows are copied
+                db.execute("ALTER TABLE downloads EXCHANGE PARTITION " + name + " WITH TABLE " + archiveTable);
+            }
+            db.execute("ALTER TABLE downloads DROP PARTITION " + name);
+
+            archivedTables.add(archiveTable);
+            logger.info("Archived downloads partition {} into {}", name, archiveTable);
+        }
+        return archivedTables;
+    }
+
+    private static List<String> getPartitionNames(JdbcTemplate db, String table) {
+        return db.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+                        "ORDER BY PARTITION_ORDINAL_POSITION",
+                String.class, table);
+    }
+
+    private String partitionDefinition(YearMonth month) {
+        String upperBound = month.plusMonths(1).atDay(1).atStartOfDay().format(BOUNDARY);
+        return "PARTITION p" + month.format(MONTH_SUFFIX) + " VALUES LESS THAN ('" + upperBound + "')";
+    }
+
+    private boolean isMonthlyPartition(String name) {
+        return name.matches("p\\d{6}");
+    }
+
+    private YearMonth partitionMonth(String name) {
+        return YearMonth.parse(name.substring(1), MONTH_SUFFIX);
+    }
+}
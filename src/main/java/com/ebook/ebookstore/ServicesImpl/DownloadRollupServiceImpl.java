@@ -0,0 +1,265 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.DownloadSeriesDTO;
+import com.ebook.ebookstore.DTO.DownloadSeriesPointDTO;
+import com.ebook.ebookstore.Event.DownloadCapturedEvent;
+import com.ebook.ebookstore.Model.DownloadRollup;
+import com.ebook.ebookstore.Model.RollupGranularity;
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Repository.DownloadRepository;
+import com.ebook.ebookstore.Repository.DownloadRollupRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.DownloadRollupServices;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hourly and daily download counts per book. Captures are counted in memory
+ * and flushed as batched upserts; hourly buckets past the retention window are
+ * compacted away since the daily buckets already hold their totals.
+ */
+@Service
+public class DownloadRollupServiceImpl implements DownloadRollupServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadRollupServiceImpl.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO download_rollups (ebook_id, granularity, bucket_start, download_count) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE download_count = download_count + VALUES(download_count)";
+
+    private static final String HOURLY_COUNTS_SQL =
+            "SELECT ebook_id, 'HOUR', DATE_FORMAT(download_time, '%Y-%m-%d %H:00:00'), COUNT(*) " +
+                    "FROM downloads WHERE download_time >= ? " +
+                    "GROUP BY ebook_id, DATE_FORMAT(download_time, '%Y-%m-%d %H:00:00')";
+
+    private static final String DAILY_COUNTS_SQL =
+            "SELECT ebook_id, 'DAY', TIMESTAMP(DATE(download_time)), COUNT(*) " +
+                    "FROM downloads GROUP BY ebook_id, DATE(download_time)";
+
+    private static final String REBUILD_HOURLY_SQL =
+            "INSERT INTO download_rollups (ebook_id, granularity, bucket_start, download_count) " + HOURLY_COUNTS_SQL;
+
+    private static final String REBUILD_DAILY_SQL =
+            "INSERT INTO download_rollups (ebook_id, granularity, bucket_start, download_count) " + DAILY_COUNTS_SQL;
+
+    private final DownloadRollupRepository rollupRepository;
+    private final DownloadRepository downloadRepository;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int hourlyRetentionDays;
+    private final int maxHourlyRangeDays;
+
+    // Counts not yet written, keyed by book and hour
+    private final ConcurrentHashMap<BucketKey, Long> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DownloadRollupServiceImpl(DownloadRollupRepository rollupRepository,
+                                     DownloadRepository downloadRepository,
+                                     ShardedDownloadRepository shardedDownloadRepository,
+                                     BookRepository bookRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${ebook.downloads.rollups.hourly-retention-days:90}") int hourlyRetentionDays,
+                                     @Value("${ebook.downloads.rollups.max-hourly-range-days:31}") int maxHourlyRangeDays) {
+        this.rollupRepository = rollupRepository;
+        this.downloadRepository = downloadRepository;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hourlyRetentionDays = hourlyRetentionDays;
+        this.maxHourlyRangeDays = maxHourlyRangeDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        // First run against an existing database: backfill from the raw downloads once
+        long downloads = shardedDownloadRepository.isEnabled()
+                ? shardedDownloadRepository.count() : downloadRepository.count();
+        if (rollupRepository.count() == 0 && downloads > 0) {
+            rebuildRollups();
+        }
+    }
+
+    @EventListener
+    public void onDownloadCaptured(DownloadCapturedEvent event) {
+        recordDownload(event.getEbookId(), event.getDownloadTime());
+    }
+
+    @Override
+    public void recordDownload(Long ebookId, LocalDateTime downloadTime) {
+        BucketKey key = new BucketKey(ebookId, downloadTime.truncatedTo(ChronoUnit.HOURS));
+        pending.merge(key, 1L, Long::sum);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.downloads.rollups.flush-interval-ms:5000}")
+    public void flushPendingCounts() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // remove() is atomic against merge(), so a capture racing with the flush lands in the next one
+        Map<BucketKey, Long> drained = new HashMap<>();
+        for (BucketKey key : pending.keySet()) {
+            Long count = pending.remove(key);
+            if (count != null) {
+                drained.put(key, count);
+            }
+        }
+
+        List<Object[]> batch = new ArrayList<>(drained.size() * 2);
+        drained.forEach((key, count) -> {
+            batch.add(new Object[]{key.ebookId(), RollupGranularity.HOUR.name(), Timestamp.valueOf(key.hour()), count});
+            batch.add(new Object[]{key.ebookId(), RollupGranularity.DAY.name(),
+                    Timestamp.valueOf(key.hour().truncatedTo(ChronoUnit.DAYS)), count});
+        });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch));
+        } catch (RuntimeException e) {
+            // Put the counts back so nothing is lost while the database is unavailable
+            drained.forEach((key, count) -> pending.merge(key, count, Long::sum));
+            logger.warn("Could not flush {} download rollup buckets, will retry", drained.size(), e);
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${ebook.downloads.rollups.compaction-cron:0 15 3 * * *}")
+    public void compactHourlyRollups() {
+        LocalDateTime cutoff = LocalDate.now().minusDays(hourlyRetentionDays).atStartOfDay();
+        int removed = rollupRepository.deleteByGranularityAndBucketStartBefore(RollupGranularity.HOUR, cutoff);
+        logger.info("Compacted {} hourly download rollups older than {}", removed, cutoff);
+    }
+
+    // Full recount from the downloads table; meant for first start or offline repair
+    @Override
+    public void rebuildRollups() {
+        pending.clear();
+        LocalDateTime hourlyCutoff = LocalDate.now().minusDays(hourlyRetentionDays).atStartOfDay();
+        if (shardedDownloadRepository.isEnabled()) {
+            rebuildFromShards(hourlyCutoff);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM download_rollups");
+            jdbcTemplate.update(REBUILD_HOURLY_SQL, Timestamp.valueOf(hourlyCutoff));
+            jdbcTemplate.update(REBUILD_DAILY_SQL);
+        });
+        logger.info("Rebuilt download rollups from the downloads table");
+    }
+
+    // Each shard is counted separately and the upsert adds up buckets present on several shards
+    private void rebuildFromShards(LocalDateTime hourlyCutoff) {
+        if (shardedDownloadRepository.getPreviousCount() > 0) {
+            // Rows copied but not yet deleted from their old shard would be counted twice
+            throw new IllegalStateException("Download rollups cannot be rebuilt while shards are being rebalanced");
+        }
+        RowMapper<Object[]> bucket = (rs, rowNum) ->
+                new Object[]{rs.getLong(1), rs.getString(2), rs.getObject(3), rs.getLong(4)};
+        List<Object[]> batch = new ArrayList<>(shardedDownloadRepository.queryEachShard(
+                HOURLY_COUNTS_SQL, bucket, Timestamp.valueOf(hourlyCutoff)));
+        batch.addAll(shardedDownloadRepository.queryEachShard(DAILY_COUNTS_SQL, bucket));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM download_rollups");
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+        });
+        logger.info("Rebuilt download rollups from {} download shards", shardedDownloadRepository.shardCount());
+    }
+
+    @Override
+    public void deleteRollupsForBook(Long ebookId) {
+        pending.keySet().removeIf(key -> key.ebookId() == ebookId);
+        rollupRepository.deleteByEbookId(ebookId);
+    }
+
+    @Override
+    public DownloadSeriesDTO getBookSeries(Long bookId, String from, String to, String step) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+
+        String normalizedStep = step == null || step.isBlank() ? "day" : step.toLowerCase(Locale.ROOT);
+        boolean hourly = normalizedStep.equals("hour");
+        if (!hourly && !normalizedStep.equals("day") && !normalizedStep.equals("week") && !normalizedStep.equals("month")) {
+            throw new RuntimeException("Unsupported step: " + step + " (expected hour, day, week or month)");
+        }
+
+        LocalDateTime end = parseBound(to, true, LocalDateTime.now());
+        LocalDateTime start = parseBound(from, false, hourly ? end.minusDays(2) : end.minusDays(30));
+        if (!start.isBefore(end)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+        if (hourly && start.isBefore(end.minusDays(maxHourlyRangeDays))) {
+            throw new RuntimeException("Hourly series are limited to " + maxHourlyRangeDays + " days");
+        }
+
+        RollupGranularity granularity = hourly ? RollupGranularity.HOUR : RollupGranularity.DAY;
+        LocalDateTime queryStart = start.truncatedTo(hourly ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+        List<DownloadRollup> rollups = rollupRepository.findSeries(bookId, granularity, queryStart, end);
+
+        // Rows arrive ordered by bucket, so weeks and months can be folded in a single pass
+        Map<LocalDateTime, Long> buckets = new LinkedHashMap<>();
+        long total = 0;
+        for (DownloadRollup rollup : rollups) {
+            buckets.merge(bucketStart(rollup.getBucketStart(), normalizedStep), rollup.getDownloadCount(), Long::sum);
+            total += rollup.getDownloadCount();
+        }
+
+        List<DownloadSeriesPointDTO> points = new ArrayList<>(buckets.size());
+        buckets.forEach((bucket, count) -> points.add(new DownloadSeriesPointDTO(bucket, count)));
+        return new DownloadSeriesDTO(bookId, normalizedStep, queryStart, end, total, points);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushPendingCounts();
+    }
+
+    private LocalDateTime parseBound(String value, boolean upper, LocalDateTime fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        if (value.length() == 10) {
+            LocalDate date = LocalDate.parse(value);
+            return upper ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime time, String step) {
+        switch (step) {
+            case "week":
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            case "month":
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            default:
+                return time;
+        }
+    }
+
+    private record BucketKey(long ebookId, LocalDateTime hour) {
+    }
+}
@@ -1,50 +1,149 @@
 package com.ebook.ebookstore.ServicesImpl;
 
 import com.ebook.ebookstore.DTO.*;
+import com.ebook.ebookstore.Event.DownloadCapturedEvent;
 import com.ebook.ebookstore.Model.Download;
 import com.ebook.ebookstore.Model.Books;
 import com.ebook.ebookstore.Repository.DownloadRepository;
 import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.CaptureJournalServices;
 import com.ebook.ebookstore.Services.DownloadServices;
+import com.ebook.ebookstore.Services.LeadExportServices;
+import com.ebook.ebookstore.Util.IdempotencyWindow;
+import com.ebook.ebookstore.Util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
 public class DownloadServiceImpl implements DownloadServices {
 
+    private static final Logger logger = LoggerFactory.getLogger(DownloadServiceImpl.class);
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final DownloadRepository downloadRepository;
+    // Replaces downloadRepository for every read when ebook.downloads.shards.enabled; writes go through the journal
+    private final ShardedDownloadRepository shardedDownloadRepository;
     private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LeadExportServices leadExportServices;
+    private final CaptureJournalServices captureJournalServices;
+
+    // Recent captures by Idempotency-Key and by email + book, so retries and double clicks return the first one
+    private final IdempotencyWindow<DownloadDTO> recentCaptures;
+
+    // Concurrent /secure/{bookCode} requests for the same book share one query
+    private final SingleFlight<String, DownloadInfoDTO> downloadInfoFlight = new SingleFlight<>("downloadInfo");
 
     @Autowired
-    public DownloadServiceImpl(DownloadRepository downloadRepository, BookRepository bookRepository) {
+    public DownloadServiceImpl(DownloadRepository downloadRepository, ShardedDownloadRepository shardedDownloadRepository,
+                               BookRepository bookRepository,
+                               ApplicationEventPublisher eventPublisher, LeadExportServices leadExportServices,
+                               CaptureJournalServices captureJournalServices,
+                               @Value("${ebook.capture.dedupe.window-minutes:10}") long dedupeWindowMinutes,
+                               @Value("${ebook.capture.dedupe.buckets:10}") int dedupeBuckets,
+                               @Value("${ebook.capture.dedupe.max-entries:1000000}") int dedupeMaxEntries) {
         this.downloadRepository = downloadRepository;
+        this.shardedDownloadRepository = shardedDownloadRepository;
         this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
+        this.leadExportServices = leadExportServices;
+        this.captureJournalServices = captureJournalServices;
+        this.recentCaptures = new IdempotencyWindow<>(dedupeWindowMinutes * 60_000L, dedupeBuckets, dedupeMaxEntries);
     }
 
     @Override
-    public DownloadDTO captureDownload(CreateDownloadDTO createDownloadDTO) {
+    public DownloadDTO captureDownload(CreateDownloadDTO createDownloadDTO, String idempotencyKey) {
+        // A repeat must carry the same body: the original capture is only returned to someone who already has its details
+        String fingerprint = fingerprint(createDownloadDTO);
+        List<String> keys = new ArrayList<>(2);
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new RuntimeException("Idempotency-Key must not exceed " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            }
+            keys.add("key:" + idempotencyKey);
+        }
+        // Double clicks send the same body; a corrected name or number for the same email is a new capture
+        keys.add("lead:" + fingerprint);
+
+        CompletableFuture<DownloadDTO> claim = new CompletableFuture<>();
+        CompletableFuture<DownloadDTO> original = recentCaptures.claim(keys, fingerprint, claim, System.currentTimeMillis());
+        if (original != null) {
+            try {
+                return original.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            DownloadDTO captured = storeCapture(createDownloadDTO);
+            claim.complete(captured);
+            return captured;
+        } catch (RuntimeException e) {
+            recentCaptures.release(keys, claim);
+            claim.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static String fingerprint(CreateDownloadDTO createDownloadDTO) {
+        String body = createDownloadDTO.getEbookId() + "\n" + createDownloadDTO.getUserName() + "\n"
+                + createDownloadDTO.getContactNumber() + "\n" + createDownloadDTO.getEmail().trim().toLowerCase(Locale.ROOT);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private DownloadDTO storeCapture(CreateDownloadDTO createDownloadDTO) {
         // Validate book exists
-        Optional<Books> bookOptional = bookRepository.findById(createDownloadDTO.getEbookId());
-        if (bookOptional.isEmpty()) {
+        Optional<Books> bookOptional;
+        try {
+            bookOptional = bookRepository.findById(createDownloadDTO.getEbookId());
+        } catch (DataAccessException e) {
+            // With the journal on, an unreachable database must not lose the lead; the replayer checks the book and
+            // diverts captures for unknown books to downloads_dead_letter
+            if (!captureJournalServices.isEnabled()) {
+                throw e;
+            }
+            bookOptional = null;
+        }
+        if (bookOptional != null && bookOptional.isEmpty()) {
             throw new RuntimeException("Book not found with ID: " + createDownloadDTO.getEbookId());
         }
 
-        Books book = bookOptional.get();
+        Books book = bookOptional != null ? bookOptional.get() : null;
 
         // Create download record
         Download download = new Download();
@@ -54,14 +153,28 @@ public class DownloadServiceImpl implements DownloadServices {
         download.setEmail(createDownloadDTO.getEmail());
         download.setDownloadTime(LocalDateTime.now());
 
-        Download savedDownload = downloadRepository.save(download);
+        Download savedDownload = captureJournalServices.isEnabled()
+                ? captureJournalServices.journalCapture(download)
+                : downloadRepository.save(download);
+        // The lead is stored from here on; failing now would make the client retry and capture it twice, so a
+        // listener that cannot keep up (database down, say) only costs that in-memory index this one download
+        try {
+            eventPublisher.publishEvent(new DownloadCapturedEvent(
+                    savedDownload.getId(),
+                    savedDownload.getEbookId(),
+                    savedDownload.getEmail(),
+                    savedDownload.getDownloadTime()
+            ));
+        } catch (RuntimeException e) {
+            logger.warn("Download {} was stored but a capture listener failed", savedDownload.getId(), e);
+        }
 
         // Convert to DTO
         return new DownloadDTO(
                 savedDownload.getId(),
                 savedDownload.getEbookId(),
-                book.getName(),
-                book.getCode(),
+                book != null ? book.getName() : null,
+                book != null ? book.getCode() : null,
                 savedDownload.getUserName(),
                 savedDownload.getContactNumber(),
                 savedDownload.getEmail(),
@@ -70,14 +183,9 @@ public class DownloadServiceImpl implements DownloadServices {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Resource getDownloadFile(Long downloadId) {
-        Optional<Download> downloadOptional = downloadRepository.findById(downloadId);
-        if (downloadOptional.isEmpty()) {
-            throw new RuntimeException("Download not found with ID: " + downloadId);
-        }
-
-        Download download = downloadOptional.get();
-        Optional<Books> bookOptional = bookRepository.findById(download.getEbookId());
+        Optional<Books> bookOptional = bookRepository.findById(findDownloadEbookId(downloadId));
 
         if (bookOptional.isEmpty()) {
             throw new RuntimeException("Book not found");
@@ -100,14 +208,9 @@ public class DownloadServiceImpl implements DownloadServices {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public String getFilename(Long downloadId) {
-        Optional<Download> downloadOptional = downloadRepository.findById(downloadId);
-        if (downloadOptional.isEmpty()) {
-            throw new RuntimeException("Download not found with ID: " + downloadId);
-        }
-
-        Download download = downloadOptional.get();
-        Optional<Books> bookOptional = bookRepository.findById(download.getEbookId());
+        Optional<Books> bookOptional = bookRepository.findById(findDownloadEbookId(downloadId));
 
         if (bookOptional.isEmpty()) {
             throw new RuntimeException("Book not found");
@@ -118,104 +221,108 @@ public class DownloadServiceImpl implements DownloadServices {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public DownloadInfoDTO getDownloadInfo(String bookCode) {
-        Optional<Books> bookOptional = bookRepository.findByCode(bookCode);
-        if (bookOptional.isEmpty()) {
-            throw new RuntimeException("Book not found with code: " + bookCode);
-        }
+        return downloadInfoFlight.execute(bookCode, () -> {
+            Optional<Books> bookOptional = bookRepository.findByCode(bookCode);
+            if (bookOptional.isEmpty()) {
+                throw new RuntimeException("Book not found with code: " + bookCode);
+            }
 
-        Books book = bookOptional.get();
-        return new DownloadInfoDTO(
-                book.getId(),
-                book.getName(),
-                book.getCode(),
-                book.getAuthor(),
-                true // downloadAllowed - you can add logic here
-        );
+            Books book = bookOptional.get();
+            return new DownloadInfoDTO(
+                    book.getId(),
+                    book.getName(),
+                    book.getCode(),
+                    book.getAuthor(),
+                    true // downloadAllowed - you can add logic here
+            );
+        });
+    }
+
+    @Override
+    public CoalescingStatsDTO getDownloadInfoCoalescingStats() {
+        return new CoalescingStatsDTO(downloadInfoFlight.name(), downloadInfoFlight.calls(), downloadInfoFlight.executions());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<DownloadDTO> getAllDownloads() {
-        List<Download> downloads = downloadRepository.findAll();
+        List<Download> downloads = shardedDownloadRepository.isEnabled()
+                ? shardedDownloadRepository.findAll()
+                : downloadRepository.findAll();
         return downloads.stream().map(this::convertToDTO).collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<DownloadDTO> getDownloadsByBook(Long bookId) {
-        List<Download> downloads = downloadRepository.findByEbookId(bookId);
+        List<Download> downloads = shardedDownloadRepository.isEnabled()
+                ? shardedDownloadRepository.findByEbookId(bookId)
+                : downloadRepository.findByEbookId(bookId);
         return downloads.stream().map(this::convertToDTO).collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<DownloadDTO> getDownloadsByEmail(String email) {
-        List<Download> downloads = downloadRepository.findByEmail(email);
+        List<Download> downloads = shardedDownloadRepository.isEnabled()
+                ? shardedDownloadRepository.findByEmail(email)
+                : downloadRepository.findByEmail(email);
         return downloads.stream().map(this::convertToDTO).collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Resource exportLeadsCSV(Long bookId, String startDate, String endDate) {
-        List<Download> downloads;
-
-        if (bookId != null) {
-            downloads = downloadRepository.findByEbookId(bookId);
-        } else {
-            downloads = downloadRepository.findAll();
-        }
+        LocalDateTime start = null;
+        LocalDateTime end = null;
 
         // Filter by date if provided
         if (startDate != null && endDate != null) {
-            LocalDateTime start = LocalDateTime.parse(startDate + "T00:00:00");
-            LocalDateTime end = LocalDateTime.parse(endDate + "T23:59:59");
-            downloads = downloads.stream()
-                    .filter(d -> d.getDownloadTime().isAfter(start) && d.getDownloadTime().isBefore(end))
-                    .collect(Collectors.toList());
+            start = LocalDateTime.parse(startDate + "T00:00:00");
+            end = LocalDateTime.parse(endDate + "T23:59:59");
         }
 
-        // Generate CSV
+        // Book name and code come from a join in the same streaming query instead of a lookup per row
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(outputStream);
-
-        // CSV Header
-        writer.println("ID,Book Name,Book Code,User Name,Email,Contact Number,Download Time");
-
-        // CSV Data
-        for (Download download : downloads) {
-            Optional<Books> bookOptional = bookRepository.findById(download.getEbookId());
-            String bookName = bookOptional.isPresent() ? bookOptional.get().getName() : "Unknown";
-            String bookCode = bookOptional.isPresent() ? bookOptional.get().getCode() : "Unknown";
-
-            writer.printf("%d,%s,%s,%s,%s,%s,%s%n",
-                    download.getId(),
-                    escapeCsvField(bookName),
-                    escapeCsvField(bookCode),
-                    escapeCsvField(download.getUserName()),
-                    escapeCsvField(download.getEmail()),
-                    escapeCsvField(download.getContactNumber()),
-                    download.getDownloadTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
-            );
+        try {
+            leadExportServices.writeLeadsCsv(bookId, start, end, outputStream, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to export leads", e);
         }
 
-        writer.flush();
-        writer.close();
-
         byte[] csvBytes = outputStream.toByteArray();
         return new ByteArrayResource(csvBytes);
 
     }
 
     @Override
+    @Transactional(readOnly = true)
     public DownloadStatsDTO getDownloadStats() {
-        Long totalDownloads = downloadRepository.count();
-        Long totalBooks = bookRepository.count();
-        Long uniqueUsers = downloadRepository.countDistinctByEmail();
-
         LocalDateTime today = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
         LocalDateTime weekStart = today.minusDays(7);
         LocalDateTime monthStart = today.minusDays(30);
 
-        Long downloadsToday = downloadRepository.countByDownloadTimeAfter(today);
-        Long downloadsThisWeek = downloadRepository.countByDownloadTimeAfter(weekStart);
-        Long downloadsThisMonth = downloadRepository.countByDownloadTimeAfter(monthStart);
+        Long totalBooks = bookRepository.count();
+        Long totalDownloads;
+        Long uniqueUsers;
+        Long downloadsToday;
+        Long downloadsThisWeek;
+        Long downloadsThisMonth;
+        if (shardedDownloadRepository.isEnabled()) {
+            totalDownloads = shardedDownloadRepository.count();
+            uniqueUsers = shardedDownloadRepository.countDistinctByEmail();
+            downloadsToday = shardedDownloadRepository.countByDownloadTimeAfter(today);
+            downloadsThisWeek = shardedDownloadRepository.countByDownloadTimeAfter(weekStart);
+            downloadsThisMonth = shardedDownloadRepository.countByDownloadTimeAfter(monthStart);
+        } else {
+            totalDownloads = downloadRepository.count();
+            uniqueUsers = downloadRepository.countDistinctByEmail();
+            downloadsToday = downloadRepository.countByDownloadTimeAfter(today);
+            downloadsThisWeek = downloadRepository.countByDownloadTimeAfter(weekStart);
+            downloadsThisMonth = downloadRepository.countByDownloadTimeAfter(monthStart);
+        }
 
         return new DownloadStatsDTO(
                 totalDownloads,
@@ -244,15 +351,17 @@ public class DownloadServiceImpl implements DownloadServices {
         );
     }
 
-    private String escapeCsvField(String field) {
-        if (field == null) {
-            return "";
+    // A journalled capture may not have been replayed into the table yet
+    private Long findDownloadEbookId(Long downloadId) {
+        Long pendingEbookId = captureJournalServices.findPendingEbookId(downloadId);
+        if (pendingEbookId != null) {
+            return pendingEbookId;
         }
-
-        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
-            return "\"" + field.replace("\"", "\"\"") + "\"";
-        }
-
-        return field;
+        Optional<Download> download = shardedDownloadRepository.isEnabled()
+                ? shardedDownloadRepository.findById(downloadId)
+                : downloadRepository.findById(downloadId);
+        return download
+                .map(Download::getEbookId)
+                .orElseThrow(() -> new RuntimeException("Download not found with ID: " + downloadId));
     }
-}
\ No newline at end of file
+}
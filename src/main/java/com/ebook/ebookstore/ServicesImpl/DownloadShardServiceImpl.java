@@ -0,0 +1,127 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.DownloadShardStatsDTO;
+import com.ebook.ebookstore.DTO.ReshardResultDTO;
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Repository.DownloadRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.DownloadShardServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves download rows into the shard layout. Both passes walk their source in id order in
+ * batches and report the last id they reached, so an interrupted pass is resumed by passing
+ * that id back; copies skip ids already on the target (ON DUPLICATE KEY UPDATE id = id), so
+ * going over the same rows twice is harmless.
+ * <ul>
+ *   <li>Backfill copies the primary's downloads table into the shards when sharding is first
+ *   turned on. The primary rows are left in place until the copy has been checked.</li>
+ *   <li>Rebalance runs on each existing shard after shards were appended: rows whose book now
+ *   hashes elsewhere are copied to their new shard, then deleted from the old one.</li>
+ * </ul>
+ */
+@Service
+public class DownloadShardServiceImpl implements DownloadShardServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadShardServiceImpl.class);
+
+    private final DownloadRepository downloadRepository;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+    private final int batchSize;
+
+    @Autowired
+    public DownloadShardServiceImpl(DownloadRepository downloadRepository,
+                                    ShardedDownloadRepository shardedDownloadRepository,
+                                    @Value("${ebook.downloads.shards.reshard.batch-size:1000}") int batchSize) {
+        this.downloadRepository = downloadRepository;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public ReshardResultDTO backfillFromPrimary(long afterId, long maxRows) {
+        requireEnabled();
+        long scanned = 0;
+        long lastId = afterId;
+        while (scanned < maxRows) {
+            List<Download> batch = downloadRepository.findAfterId(lastId, PageRequest.of(0, batchSize(maxRows - scanned)));
+            if (batch.isEmpty()) {
+                logger.info("Backfilled downloads into {} shards up to id {}", shardedDownloadRepository.shardCount(), lastId);
+                return new ReshardResultDTO("primary", scanned, scanned, 0, lastId, true);
+            }
+            shardedDownloadRepository.insertAll(batch);
+            scanned += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        return new ReshardResultDTO("primary", scanned, scanned, 0, lastId, false);
+    }
+
+    @Override
+    public ReshardResultDTO rebalanceShard(int shard, long afterId, long maxRows) {
+        requireEnabled();
+        if (shard < 0 || shard >= shardedDownloadRepository.shardCount()) {
+            throw new IllegalArgumentException("No download shard " + shard);
+        }
+        String source = "shard-" + shard;
+        long scanned = 0;
+        long moved = 0;
+        long lastId = afterId;
+        while (scanned < maxRows) {
+            List<Download> batch = shardedDownloadRepository.scanAfter(shard, lastId, batchSize(maxRows - scanned));
+            if (batch.isEmpty()) {
+                logger.info("Rebalanced download shard {}: moved {} rows in this pass", shard, moved);
+                return new ReshardResultDTO(source, scanned, moved, moved, lastId, true);
+            }
+            List<Download> misplaced = new ArrayList<>();
+            List<Long> misplacedIds = new ArrayList<>();
+            for (Download download : batch) {
+                if (shardedDownloadRepository.shardOf(download.getEbookId()) != shard) {
+                    misplaced.add(download);
+                    misplacedIds.add(download.getId());
+                }
+            }
+            // Copy before delete: a failure in between leaves a duplicate, which the next pass cleans up
+            if (!misplaced.isEmpty()) {
+                shardedDownloadRepository.insertAll(misplaced);
+                shardedDownloadRepository.deleteByIds(shard, misplacedIds);
+                moved += misplaced.size();
+            }
+            scanned += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        return new ReshardResultDTO(source, scanned, moved, moved, lastId, false);
+    }
+
+    @Override
+    public DownloadShardStatsDTO getStats() {
+        if (!shardedDownloadRepository.isEnabled()) {
+            return new DownloadShardStatsDTO(false, 0, 0, List.of(), 0, 0);
+        }
+        return new DownloadShardStatsDTO(
+                true,
+                shardedDownloadRepository.shardCount(),
+                shardedDownloadRepository.getPreviousCount(),
+                shardedDownloadRepository.countPerShard(),
+                shardedDownloadRepository.getRoutedQueries(),
+                shardedDownloadRepository.getScatterQueries()
+        );
+    }
+
+    private int batchSize(long remaining) {
+        return (int) Math.min(batchSize, remaining);
+    }
+
+    private void requireEnabled() {
+        if (!shardedDownloadRepository.isEnabled()) {
+            throw new IllegalStateException("Download sharding is not enabled");
+        }
+    }
+}
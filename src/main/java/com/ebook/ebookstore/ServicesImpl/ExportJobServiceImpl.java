@@ -0,0 +1,253 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.CreateExportJobDTO;
+import com.ebook.ebookstore.DTO.ExportJobDTO;
+import com.ebook.ebookstore.Services.ExportJobServices;
+import com.ebook.ebookstore.Services.LeadExportServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs lead exports in the background on the bounded export executor. Each job
+ * streams the downloads table into a gzip-compressed CSV or NDJSON file, a zip with
+ * one CSV per book, or a Parquet file in the spool directory; callers poll for
+ * progress and fetch the file once the job has completed.
+ */
+@Service
+public class ExportJobServiceImpl implements ExportJobServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private enum ExportStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private static final String FORMAT_CSV_GZIP = "csv.gz";
+    private static final String FORMAT_NDJSON_GZIP = "ndjson.gz";
+    private static final String FORMAT_ZIP = "zip";
+    private static final String FORMAT_PARQUET = "parquet";
+    private static final Set<String> FORMATS = Set.of(FORMAT_CSV_GZIP, FORMAT_NDJSON_GZIP, FORMAT_ZIP, FORMAT_PARQUET);
+
+    private final LeadExportServices leadExportServices;
+    private final TaskExecutor exportExecutor;
+    private final Path spoolDir;
+    private final Duration retention;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExportJobServiceImpl(LeadExportServices leadExportServices,
+                                @Qualifier("exportExecutor") TaskExecutor exportExecutor,
+                                @Value("${ebook.exports.spool-dir:${java.io.tmpdir}/ebook-exports}") String spoolDir,
+                                @Value("${ebook.exports.retention-hours:24}") long retentionHours) {
+        this.leadExportServices = leadExportServices;
+        this.exportExecutor = exportExecutor;
+        this.spoolDir = Paths.get(spoolDir).toAbsolutePath();
+        this.retention = Duration.ofHours(retentionHours);
+        try {
+            Files.createDirectories(this.spoolDir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create export spool directory " + this.spoolDir, e);
+        }
+    }
+
+    @Override
+    public ExportJobDTO submitExport(CreateExportJobDTO request) {
+        String format = request.getFormat() != null ? request.getFormat() : FORMAT_CSV_GZIP;
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        if (FORMAT_ZIP.equals(format) && request.getBookId() != null) {
+            throw new IllegalArgumentException("The zip export already contains one file per book");
+        }
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), format, request.getBookId(),
+                parseStart(request.getStartDate(), request.getEndDate()),
+                parseEnd(request.getStartDate(), request.getEndDate()));
+        jobs.put(job.id, job);
+        try {
+            exportExecutor.execute(() -> runJob(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            throw new IllegalStateException("Too many export jobs in progress, try again later", e);
+        }
+        return toDTO(job);
+    }
+
+    @Override
+    public ExportJobDTO getExportJob(String jobId) {
+        return toDTO(findJob(jobId));
+    }
+
+    @Override
+    public Path getExportFile(String jobId) {
+        ExportJob job = findJob(jobId);
+        if (job.status != ExportStatus.COMPLETED || job.file == null || !Files.isReadable(job.file)) {
+            throw new RuntimeException("Export " + jobId + " is not ready");
+        }
+        return job.file;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.exports.cleanup-interval-ms:600000}")
+    public void cleanupExpiredExports() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.finishedAt != null && job.finishedAt.isBefore(cutoff);
+            if (expired && job.file != null) {
+                deleteQuietly(job.file);
+            }
+            return expired;
+        });
+
+        // Files left behind by earlier runs of the application
+        Instant fileCutoff = Instant.now().minus(retention);
+        Set<Path> live = new HashSet<>();
+        jobs.values().forEach(job -> {
+            if (job.file != null) {
+                live.add(job.file);
+            }
+        });
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            files.filter(file -> !live.contains(file))
+                    .filter(file -> lastModified(file).isBefore(fileCutoff))
+                    .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            logger.warn("Could not clean export spool directory {}", spoolDir, e);
+        }
+    }
+
+    private void runJob(ExportJob job) {
+        job.status = ExportStatus.RUNNING;
+        Path partial = spoolDir.resolve(job.id + ".part");
+        Path target = spoolDir.resolve("leads_export_" + job.id + "." + job.format);
+
+        try {
+            job.totalRows = leadExportServices.countLeads(job.bookId, job.start, job.end);
+            if (FORMAT_ZIP.equals(job.format)) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE)) {
+                    leadExportServices.writeLeadsZip(job.start, job.end, out, job.processedRows);
+                }
+            } else if (FORMAT_PARQUET.equals(job.format)) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE)) {
+                    leadExportServices.writeLeadsParquet(job.bookId, job.start, job.end, out, job.processedRows);
+                }
+            } else if (FORMAT_NDJSON_GZIP.equals(job.format)) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), BUFFER_SIZE)) {
+                    leadExportServices.writeLeadsNdjson(job.bookId, job.start, job.end, out, job.processedRows);
+                }
+            } else {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), BUFFER_SIZE)) {
+                    leadExportServices.writeLeadsCsv(job.bookId, job.start, job.end, out, job.processedRows);
+                }
+            }
+
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.file = target;
+            job.fileSize = Files.size(target);
+            job.status = ExportStatus.COMPLETED;
+            logger.info("Export {} completed: {} rows, {} bytes", job.id, job.processedRows.get(), job.fileSize);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(partial);
+            job.error = e.getMessage();
+            job.status = ExportStatus.FAILED;
+            logger.error("Export {} failed", job.id, e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private LocalDateTime parseStart(String startDate, String endDate) {
+        return startDate != null && endDate != null ? LocalDateTime.parse(startDate + "T00:00:00") : null;
+    }
+
+    private LocalDateTime parseEnd(String startDate, String endDate) {
+        return startDate != null && endDate != null ? LocalDateTime.parse(endDate + "T23:59:59") : null;
+    }
+
+    private ExportJob findJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Export job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private ExportJobDTO toDTO(ExportJob job) {
+        long processed = job.processedRows.get();
+        long total = job.totalRows;
+        int percent;
+        if (job.status == ExportStatus.COMPLETED) {
+            percent = 100;
+        } else if (total > 0) {
+            percent = (int) Math.min(99, processed * 100 / total);
+        } else {
+            percent = 0;
+        }
+        String downloadUrl = job.status == ExportStatus.COMPLETED
+                ? "/api/downloads/leads/exports/" + job.id + "/file" : null;
+        return new ExportJobDTO(job.id, job.status.name(), job.format, processed, total >= 0 ? total : null,
+                percent, job.status == ExportStatus.COMPLETED ? job.fileSize : null,
+                job.createdAt, job.finishedAt, job.error, downloadUrl);
+    }
+
+    private Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            return Instant.now();
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete export file {}", file, e);
+        }
+    }
+
+    private static final class ExportJob {
+        private final String id;
+        private final String format;
+        private final Long bookId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong processedRows = new AtomicLong();
+
+        private volatile ExportStatus status = ExportStatus.QUEUED;
+        private volatile long totalRows = -1;
+        private volatile Path file;
+        private volatile long fileSize;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private ExportJob(String id, String format, Long bookId, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.format = format;
+            this.bookId = bookId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
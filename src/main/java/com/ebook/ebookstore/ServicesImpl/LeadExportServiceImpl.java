@@ -0,0 +1,329 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+import com.ebook.ebookstore.Repository.LeadExportRepository;
+import com.ebook.ebookstore.Services.LeadExportServices;
+import com.ebook.ebookstore.Util.DeltaCursor;
+import com.ebook.ebookstore.Util.LeadRecordEncoder;
+import com.ebook.ebookstore.Util.ParquetLeadWriter;
+import com.ebook.ebookstore.Util.PrecompressedZipWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+@Service
+public class LeadExportServiceImpl implements LeadExportServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadExportServiceImpl.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LeadExportRepository leadExportRepository;
+    private final Path spoolDir;
+    private final ForkJoinPool partitionPool;
+    private final long partitionRows;
+    private final int compressionLevel;
+    private final int parquetRowGroupRows;
+    private final long deltaSettleMillis;
+
+    @Autowired
+    public LeadExportServiceImpl(LeadExportRepository leadExportRepository,
+                                 @Value("${ebook.exports.spool-dir:${java.io.tmpdir}/ebook-exports}") String spoolDir,
+                                 @Value("${ebook.exports.zip.parallelism:0}") int parallelism,
+                                 @Value("${ebook.exports.zip.partition-rows:100000}") long partitionRows,
+                                 @Value("${ebook.exports.zip.compression-level:1}") int compressionLevel,
+                                 @Value("${ebook.exports.parquet.row-group-rows:100000}") int parquetRowGroupRows,
+                                 @Value("${ebook.exports.delta.settle-ms:10000}") long deltaSettleMillis) {
+        this.leadExportRepository = leadExportRepository;
+        this.spoolDir = Paths.get(spoolDir).toAbsolutePath();
+        // Each worker holds one streaming connection, so this also caps the export's share of the JDBC pool
+        this.partitionPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.partitionRows = Math.max(1, partitionRows);
+        this.compressionLevel = compressionLevel;
+        this.parquetRowGroupRows = Math.max(1, parquetRowGroupRows);
+        this.deltaSettleMillis = Math.max(0, deltaSettleMillis);
+    }
+
+    @Override
+    public long countLeads(Long bookId, LocalDateTime start, LocalDateTime end) {
+        return leadExportRepository.countLeads(bookId, start, end);
+    }
+
+    @Override
+    public void writeLeadsCsv(Long bookId, LocalDateTime start, LocalDateTime end,
+                              OutputStream out, AtomicLong progress) throws IOException {
+        writeLeads(bookId, start, end, out, progress, LeadRecordEncoder.Format.CSV);
+    }
+
+    @Override
+    public void writeLeadsNdjson(Long bookId, LocalDateTime start, LocalDateTime end,
+                                 OutputStream out, AtomicLong progress) throws IOException {
+        writeLeads(bookId, start, end, out, progress, LeadRecordEncoder.Format.NDJSON);
+    }
+
+    @Override
+    public DeltaCursor resolveDeltaWatermark(DeltaCursor after, Integer limit) {
+        return leadExportRepository.findDeltaWatermark(after, deltaSettleMillis, limit);
+    }
+
+    @Override
+    public void writeLeadsCsvDelta(DeltaCursor after, DeltaCursor watermark, OutputStream out) throws IOException {
+        try (LeadRecordEncoder encoder = new LeadRecordEncoder(out, LeadRecordEncoder.Format.CSV)) {
+            encoder.writeHeader();
+            leadExportRepository.streamLeadsAfter(after, watermark, encoder::write);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Only one row group is held in memory; the footer is written once the cursor is exhausted
+    @Override
+    public void writeLeadsParquet(Long bookId, LocalDateTime start, LocalDateTime end,
+                                  OutputStream out, AtomicLong progress) throws IOException {
+        ParquetLeadWriter writer = new ParquetLeadWriter(out, parquetRowGroupRows);
+        try {
+            leadExportRepository.streamLeads(bookId, start, end, row -> {
+                writer.write(row);
+                if (progress != null) {
+                    progress.incrementAndGet();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    /**
+     * Splits the books into contiguous ebook_id ranges of similar row counts. Ranges are read and
+     * deflated in parallel, each into its own temp file, and copied into the zip in ebook_id order
+     * as soon as they are done; at most two ranges per worker are buffered on disk at any time.
+     */
+    @Override
+    public void writeLeadsZip(LocalDateTime start, LocalDateTime end, OutputStream out, AtomicLong progress) throws IOException {
+        List<BookRange> ranges = planPartitions(leadExportRepository.countLeadsByBook(start, end));
+        int maxInFlight = partitionPool.getParallelism() * 2;
+        LocalDateTime modified = LocalDateTime.now();
+
+        Files.createDirectories(spoolDir);
+        Path workDir = Files.createTempDirectory(spoolDir, "zip-");
+        AtomicBoolean aborted = new AtomicBoolean();
+        Deque<ForkJoinTask<EncodedPartition>> inFlight = new ArrayDeque<>();
+        PrecompressedZipWriter zip = new PrecompressedZipWriter(out);
+        int next = 0;
+        try {
+            while (next < ranges.size() || !inFlight.isEmpty()) {
+                while (next < ranges.size() && inFlight.size() < maxInFlight) {
+                    BookRange range = ranges.get(next++);
+                    inFlight.add(partitionPool.submit(() -> encodePartition(range, start, end, workDir, aborted)));
+                }
+                EncodedPartition partition = awaitPartition(inFlight.poll());
+                try (FileChannel channel = FileChannel.open(partition.file(), StandardOpenOption.READ)) {
+                    for (EncodedEntry entry : partition.entries()) {
+                        zip.writeEntry(entry.name(), entry.crc(), entry.compressedSize(), entry.size(), modified,
+                                channel, entry.position());
+                    }
+                }
+                Files.delete(partition.file());
+                if (progress != null) {
+                    progress.addAndGet(partition.rows());
+                }
+            }
+            zip.finish();
+        } finally {
+            if (!inFlight.isEmpty()) {
+                // Failed or the client went away; stop the workers before removing their files
+                aborted.set(true);
+                inFlight.forEach(ForkJoinTask::quietlyJoin);
+            }
+            deleteRecursively(workDir);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitionPool.shutdown();
+    }
+
+    private List<BookRange> planPartitions(Map<Long, Long> countsByBook) {
+        long total = 0;
+        for (long count : countsByBook.values()) {
+            total += count;
+        }
+        // Small exports are still split so every worker gets a share
+        long target = Math.max(1, Math.min(partitionRows, total / (partitionPool.getParallelism() * 4L)));
+
+        List<BookRange> ranges = new ArrayList<>();
+        Long from = null;
+        long last = 0;
+        long rows = 0;
+        for (Map.Entry<Long, Long> entry : countsByBook.entrySet()) {
+            if (from == null) {
+                from = entry.getKey();
+            }
+            last = entry.getKey();
+            rows += entry.getValue();
+            if (rows >= target) {
+                ranges.add(new BookRange(from, last));
+                from = null;
+                rows = 0;
+            }
+        }
+        if (from != null) {
+            ranges.add(new BookRange(from, last));
+        }
+        return ranges;
+    }
+
+    private EncodedPartition encodePartition(BookRange range, LocalDateTime start, LocalDateTime end,
+                                             Path workDir, AtomicBoolean aborted) throws IOException {
+        Path file = workDir.resolve("books-" + range.fromBookId() + "-" + range.toBookId());
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            BookEntryEncoder encoder = new BookEntryEncoder(fileOut, deflater);
+            leadExportRepository.streamLeadsForBooks(range.fromBookId(), range.toBookId(), start, end, row -> {
+                if (aborted.get()) {
+                    throw new CancellationException("Export aborted");
+                }
+                encoder.write(row);
+            });
+            encoder.finishEntry();
+            return new EncodedPartition(file, encoder.entries, encoder.rows);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private EncodedPartition awaitPartition(ForkJoinTask<EncodedPartition> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for export partition");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Export partition failed", cause);
+        }
+    }
+
+    private void deleteRecursively(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("Could not delete export work file {}", file, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not clean export work directory {}", dir, e);
+        }
+    }
+
+    // The caller owns and closes the underlying stream
+    private void writeLeads(Long bookId, LocalDateTime start, LocalDateTime end, OutputStream out,
+                            AtomicLong progress, LeadRecordEncoder.Format format) throws IOException {
+        try (LeadRecordEncoder encoder = new LeadRecordEncoder(out, format)) {
+            encoder.writeHeader();
+            leadExportRepository.streamLeads(bookId, start, end, row -> {
+                encoder.write(row);
+                if (progress != null) {
+                    progress.incrementAndGet();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record BookRange(long fromBookId, long toBookId) {
+    }
+
+    private record EncodedEntry(String name, long crc, long compressedSize, long size, long position) {
+    }
+
+    private record EncodedPartition(Path file, List<EncodedEntry> entries, long rows) {
+    }
+
+    // Deflates one CSV per book back to back into a partition file, recording where each one starts
+    private static final class BookEntryEncoder {
+        private final OutputStream fileOut;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final List<EncodedEntry> entries = new ArrayList<>();
+        private long rows;
+        private long position;
+
+        private long bookId;
+        private String name;
+        private DeflaterOutputStream deflaterOut;
+        private LeadRecordEncoder encoder;
+
+        private BookEntryEncoder(OutputStream fileOut, Deflater deflater) {
+            this.fileOut = fileOut;
+            this.deflater = deflater;
+        }
+
+        private void write(LeadRowDTO row) throws IOException {
+            if (encoder == null || row.getEbookId() != bookId) {
+                finishEntry();
+                startEntry(row);
+            }
+            encoder.write(row);
+            rows++;
+        }
+
+        private void startEntry(LeadRowDTO row) throws IOException {
+            bookId = row.getEbookId();
+            name = "book_" + bookId + (row.getBookCode() != null
+                    ? "_" + row.getBookCode().replaceAll("[^A-Za-z0-9._-]", "_") : "") + ".csv";
+            crc.reset();
+            deflater.reset();
+            deflaterOut = new DeflaterOutputStream(fileOut, deflater, BUFFER_SIZE);
+            encoder = new LeadRecordEncoder(new CheckedOutputStream(deflaterOut, crc), LeadRecordEncoder.Format.CSV);
+            encoder.writeHeader();
+        }
+
+        private void finishEntry() throws IOException {
+            if (encoder == null) {
+                return;
+            }
+            encoder.close();
+            deflaterOut.finish();
+            entries.add(new EncodedEntry(name, crc.getValue(), deflater.getBytesWritten(), deflater.getBytesRead(), position));
+            position += deflater.getBytesWritten();
+            encoder = null;
+        }
+    }
+}
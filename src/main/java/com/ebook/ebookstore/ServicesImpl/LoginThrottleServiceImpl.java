@@ -0,0 +1,113 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.LoginThrottleStatsDTO;
+import com.ebook.ebookstore.Services.LoginThrottleServices;
+import com.ebook.ebookstore.Util.BoundedFailureLog;
+import com.ebook.ebookstore.Util.SlidingWindowCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds credential-stuffing traffic before it reaches password hashing or MySQL. Every attempt
+ * counts against the client IP; only failed attempts count against the email, so an account
+ * owner logging in normally never uses up their own budget. Both limits are sliding windows.
+ * IP attempts go into a fixed-size lock-free counter table, which bounds memory however many
+ * IPs an attack rotates through. Email failures are kept exactly for a bounded number of
+ * recently failing emails: a shared table sized for normal traffic fills up under credential
+ * stuffing, which tries each of millions of emails a few times, until every email reads as over
+ * the limit and real users are locked out.
+ * <p>
+ * Behind a reverse proxy, set server.forward-headers-strategy so the client IP is the real one.
+ */
+@Service
+public class LoginThrottleServiceImpl implements LoginThrottleServices {
+
+    private final boolean enabled;
+    private final long maxAttemptsPerIp;
+    private final long maxFailuresPerEmail;
+    private final SlidingWindowCounter ipAttempts;
+    private final BoundedFailureLog emailFailures;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder blockedByIp = new LongAdder();
+    private final LongAdder blockedByEmail = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public LoginThrottleServiceImpl(@Value("${ebook.auth.throttle.enabled:true}") boolean enabled,
+                                    @Value("${ebook.auth.throttle.max-attempts-per-ip:30}") long maxAttemptsPerIp,
+                                    @Value("${ebook.auth.throttle.ip-window-ms:60000}") long ipWindowMillis,
+                                    @Value("${ebook.auth.throttle.max-failures-per-email:10}") long maxFailuresPerEmail,
+                                    @Value("${ebook.auth.throttle.email-window-ms:900000}") long emailWindowMillis,
+                                    @Value("${ebook.auth.throttle.table-width:65536}") int tableWidth,
+                                    @Value("${ebook.auth.throttle.max-tracked-emails:100000}") int maxTrackedEmails,
+                                    @Value("${ebook.auth.throttle.lock-stripes:16}") int lockStripes) {
+        this.enabled = enabled;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.ipAttempts = new SlidingWindowCounter(ipWindowMillis, 2, tableWidth);
+        this.emailFailures = new BoundedFailureLog(emailWindowMillis, (int) Math.max(1, Math.min(maxFailuresPerEmail, 1000)),
+                maxTrackedEmails, lockStripes);
+    }
+
+    @Override
+    public boolean tryAcquire(String clientIp, String email) {
+        if (!enabled) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (email != null && emailFailures.count(emailKey(email), now) >= maxFailuresPerEmail) {
+            blockedByEmail.increment();
+            return false;
+        }
+        // Rejected attempts still count, so an IP that keeps hammering stays blocked
+        if (clientIp != null && ipAttempts.increment(clientIp, now) > maxAttemptsPerIp) {
+            blockedByIp.increment();
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    @Override
+    public void recordFailure(String email) {
+        if (!enabled || email == null) {
+            return;
+        }
+        failures.increment();
+        emailFailures.record(emailKey(email), System.currentTimeMillis());
+    }
+
+    @Override
+    public long getRetryAfterSeconds() {
+        return Math.max(1, ipAttempts.windowMillis() / 1000);
+    }
+
+    @Override
+    public LoginThrottleStatsDTO getStats() {
+        LoginThrottleStatsDTO stats = new LoginThrottleStatsDTO();
+        long allowedCount = allowed.sum();
+        long blocked = blockedByIp.sum() + blockedByEmail.sum();
+        stats.setEnabled(enabled);
+        stats.setMaxAttemptsPerIp(maxAttemptsPerIp);
+        stats.setIpWindowMillis(ipAttempts.windowMillis());
+        stats.setMaxFailuresPerEmail(maxFailuresPerEmail);
+        stats.setEmailWindowMillis(emailFailures.windowMillis());
+        stats.setTrackedEmails(emailFailures.size());
+        stats.setMemoryBytes(ipAttempts.memoryBytes() + emailFailures.memoryBytes());
+        stats.setAllowed(allowedCount);
+        stats.setBlockedByIp(blockedByIp.sum());
+        stats.setBlockedByEmail(blockedByEmail.sum());
+        stats.setFailures(failures.sum());
+        stats.setBlockedRatio(allowedCount + blocked == 0 ? 0 : (double) blocked / (allowedCount + blocked));
+        return stats;
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
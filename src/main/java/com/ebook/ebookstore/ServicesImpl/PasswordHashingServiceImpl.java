@@ -0,0 +1,188 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * bcrypt hashing on the bounded password hash executor. The cost is picked at startup so
+ * that one hash takes about the configured target on this machine: one hash is timed at
+ * the minimum cost and, since each extra cost step doubles the work, the cost is raised
+ * by log2(target / measured). Stored hashes with a lower cost, and plaintext passwords
+ * left from before hashing, report needsRehash so the login path can upgrade them. Hashes
+ * with a higher cost are kept: calibration on a slower or busier node must not downgrade them.
+ */
+@Service
+public class PasswordHashingServiceImpl implements PasswordHashingServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingServiceImpl.class);
+
+    private static final String CALIBRATION_PASSWORD = "Calibrate#2025";
+
+    private final TaskExecutor passwordHashExecutor;
+    private final long timeoutMillis;
+    private final int cost;
+    // Checked against when the account does not exist or still has a plaintext password, so neither
+    // answers faster than a wrong password against a bcrypt hash
+    private final String dummyHash;
+
+    @Autowired
+    public PasswordHashingServiceImpl(@Qualifier("passwordHashExecutor") TaskExecutor passwordHashExecutor,
+                                      @Value("${ebook.auth.hash.target-ms:250}") long targetMillis,
+                                      @Value("${ebook.auth.hash.min-cost:10}") int minCost,
+                                      @Value("${ebook.auth.hash.max-cost:16}") int maxCost,
+                                      @Value("${ebook.auth.hash.timeout-ms:5000}") long timeoutMillis) {
+        this.passwordHashExecutor = passwordHashExecutor;
+        this.timeoutMillis = timeoutMillis;
+        this.cost = calibrate(targetMillis, minCost, maxCost);
+        this.dummyHash = BCrypt.hashpw(CALIBRATION_PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Override
+    public String hash(String rawPassword) {
+        return submit(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost)));
+    }
+
+    /**
+     * Hashes a batch for bulk provisioning with at most {@code parallelism} hashes on the executor
+     * at once, leaving the rest of its threads and queue to interactive logins. A hash the executor
+     * rejects runs on the calling thread instead, so a bulk load slows down rather than failing.
+     */
+    @Override
+    public List<String> hashAll(List<String> rawPasswords, int parallelism) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<CompletableFuture<String>> futures = new ArrayList<>(rawPasswords.size());
+        try {
+            for (String rawPassword : rawPasswords) {
+                permits.acquire();
+                CompletableFuture<String> future = new CompletableFuture<>();
+                futures.add(future);
+                Runnable task = () -> {
+                    try {
+                        future.complete(BCrypt.hashpw(rawPassword, BCrypt.gensalt(cost)));
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        permits.release();
+                    }
+                };
+                try {
+                    passwordHashExecutor.execute(task);
+                } catch (TaskRejectedException e) {
+                    task.run();
+                }
+            }
+            List<String> hashes = new ArrayList<>(futures.size());
+            for (CompletableFuture<String> future : futures) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null) {
+            return false;
+        }
+        if (storedPassword == null) {
+            submit(() -> BCrypt.checkpw(rawPassword, dummyHash));
+            return false;
+        }
+        if (!isBcrypt(storedPassword)) {
+            // Plaintext from before passwords were hashed; the caller rehashes it on success
+            submit(() -> BCrypt.checkpw(rawPassword, dummyHash));
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return submit(() -> BCrypt.checkpw(rawPassword, storedPassword));
+    }
+
+    @Override
+    public boolean needsRehash(String storedPassword) {
+        return !isBcrypt(storedPassword) || costOf(storedPassword) < cost;
+    }
+
+    @Override
+    public int getCost() {
+        return cost;
+    }
+
+    private <T> T submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            passwordHashExecutor.execute(() -> {
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw new IllegalStateException("Too many password checks in progress, try again later", e);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new IllegalStateException("Password check timed out, try again later", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while checking password", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static int calibrate(long targetMillis, int minCost, int maxCost) {
+        // Best of three, so a cold JIT or a GC pause does not drag the cost down
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long started = System.nanoTime();
+            BCrypt.hashpw(CALIBRATION_PASSWORD, BCrypt.gensalt(minCost));
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        double measuredMillis = Math.max(best / 1_000_000.0, 0.001);
+        int steps = (int) Math.floor(Math.log(targetMillis / measuredMillis) / Math.log(2));
+        int cost = Math.max(minCost, Math.min(maxCost, minCost + steps));
+        logger.info("Password hashing: bcrypt cost {} ({} ms at cost {}, target {} ms)",
+                cost, String.format("%.1f", measuredMillis), minCost, targetMillis);
+        return cost;
+    }
+
+    @Override
+    public boolean isHashed(String storedPassword) {
+        return isBcrypt(storedPassword);
+    }
+
+    private static boolean isBcrypt(String storedPassword) {
+        return storedPassword.length() == 60 && storedPassword.startsWith("$2") && storedPassword.charAt(3) == '$';
+    }
+
+    private static int costOf(String hash) {
+        return Integer.parseInt(hash.substring(4, 6));
+    }
+}
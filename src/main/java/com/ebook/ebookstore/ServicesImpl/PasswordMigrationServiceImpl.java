@@ -0,0 +1,111 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import com.ebook.ebookstore.Services.PasswordMigrationServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashes the plaintext passwords left from before hashing for accounts that never log in, which
+ * the login path would otherwise never upgrade. Users and admins are walked in id order in chunks,
+ * hashed with bounded parallelism on the password hash executor, and written back only if the row
+ * still holds the plaintext that was read, so a password changed meanwhile is not overwritten and
+ * two nodes sweeping at once only repeat work. Once a sweep finds nothing it stops running: every
+ * write path stores hashes.
+ */
+@Service
+public class PasswordMigrationServiceImpl implements PasswordMigrationServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordMigrationServiceImpl.class);
+
+    private static final List<String> TABLES = List.of("users", "admin");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordHashingServices passwordHashingServices;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int parallelism;
+    private volatile boolean complete;
+
+    @Autowired
+    public PasswordMigrationServiceImpl(JdbcTemplate jdbcTemplate,
+                                        PasswordHashingServices passwordHashingServices,
+                                        @Value("${ebook.auth.hash.migration.enabled:true}") boolean enabled,
+                                        @Value("${ebook.auth.hash.migration.chunk-size:200}") int chunkSize,
+                                        @Value("${ebook.auth.hash.migration.parallelism:1}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordHashingServices = passwordHashingServices;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${ebook.auth.hash.migration.initial-delay-ms:120000}",
+            fixedDelayString = "${ebook.auth.hash.migration.interval-ms:3600000}")
+    public void sweepPlaintextPasswords() {
+        if (!enabled || complete) {
+            return;
+        }
+        try {
+            if (migratePlaintextPasswords() == 0) {
+                complete = true;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Plaintext password migration failed, retrying next sweep", e);
+        }
+    }
+
+    // Returns the number of plaintext passwords found, including any changed before they could be replaced
+    @Override
+    public int migratePlaintextPasswords() {
+        int found = 0;
+        for (String table : TABLES) {
+            int tableFound = 0;
+            int replaced = 0;
+            long lastId = 0;
+            List<Object[]> rows;
+            do {
+                rows = jdbcTemplate.query("SELECT id, password FROM " + table +
+                                " WHERE id > ? AND (CHAR_LENGTH(password) <> 60 OR password NOT LIKE '$2%') ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)}, lastId, chunkSize);
+                List<Long> ids = new ArrayList<>(rows.size());
+                List<String> plaintexts = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    lastId = (Long) row[0];
+                    if (!passwordHashingServices.isHashed((String) row[1])) {
+                        ids.add((Long) row[0]);
+                        plaintexts.add((String) row[1]);
+                    }
+                }
+                if (ids.isEmpty()) {
+                    continue;
+                }
+                List<String> hashes = passwordHashingServices.hashAll(plaintexts, parallelism);
+                List<Object[]> updates = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    updates.add(new Object[]{hashes.get(i), ids.get(i), plaintexts.get(i)});
+                }
+                for (int count : jdbcTemplate.batchUpdate(
+                        "UPDATE " + table + " SET password = ? WHERE id = ? AND password = ?", updates)) {
+                    // Statement.SUCCESS_NO_INFO when the driver rewrites the batch
+                    replaced += count == 0 ? 0 : 1;
+                }
+                tableFound += ids.size();
+            } while (rows.size() == chunkSize);
+            if (tableFound > 0) {
+                logger.info("Hashed {} of {} plaintext passwords in {}", replaced, tableFound, table);
+            }
+            found += tableFound;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,193 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.RelatedBookDTO;
+import com.ebook.ebookstore.Event.DownloadCapturedEvent;
+import com.ebook.ebookstore.Model.Books;
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.RecommendationServices;
+import com.ebook.ebookstore.Util.CooccurrenceIndex;
+import com.ebook.ebookstore.Util.JdbcStreaming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+
+/**
+ * "Readers also downloaded" recommendations from an in-memory co-occurrence index.
+ * Captures update the index incrementally; a full rebuild streams the downloads
+ * table at startup and nightly, and captures that arrive during a rebuild are
+ * replayed into the new index before it is swapped in. The index locks by stripe
+ * itself; {@code lock} only orders captures against the swap.
+ */
+@Service
+public class RecommendationServiceImpl implements RecommendationServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationServiceImpl.class);
+
+    private static final String REBUILD_SQL = "SELECT email, ebook_id FROM downloads ORDER BY id";
+
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardedDownloadRepository shardedDownloadRepository;
+    private final TaskExecutor rebuildExecutor;
+    private final int topK;
+    private final int maxHistory;
+    private final int maxRowSize;
+    private final int maxUsers;
+    private final int lockStripes;
+
+    private final Object lock = new Object();
+    private volatile CooccurrenceIndex index;
+    // Non-null while a rebuild is streaming; holds [userKey, ebookId] pairs captured meanwhile
+    private List<long[]> capturedDuringRebuild;
+
+    @Autowired
+    public RecommendationServiceImpl(BookRepository bookRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     ShardedDownloadRepository shardedDownloadRepository,
+                                     @Qualifier("indexRebuildExecutor") TaskExecutor rebuildExecutor,
+                                     @Value("${ebook.recommendations.top-k:20}") int topK,
+                                     @Value("${ebook.recommendations.max-history-per-user:50}") int maxHistory,
+                                     @Value("${ebook.recommendations.max-row-size:200}") int maxRowSize,
+                                     @Value("${ebook.recommendations.max-users:200000}") int maxUsers,
+                                     @Value("${ebook.recommendations.lock-stripes:64}") int lockStripes) {
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardedDownloadRepository = shardedDownloadRepository;
+        this.rebuildExecutor = rebuildExecutor;
+        this.topK = topK;
+        this.maxHistory = maxHistory;
+        this.maxRowSize = maxRowSize;
+        this.maxUsers = maxUsers;
+        this.lockStripes = lockStripes;
+        this.index = newIndex();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    @Scheduled(cron = "${ebook.recommendations.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    @EventListener
+    public void onDownloadCaptured(DownloadCapturedEvent event) {
+        recordDownload(event.getEmail(), event.getEbookId());
+    }
+
+    @Override
+    public void recordDownload(String email, Long ebookId) {
+        long userKey = userKey(email);
+        CooccurrenceIndex current;
+        synchronized (lock) {
+            current = index;
+            if (capturedDuringRebuild != null) {
+                capturedDuringRebuild.add(new long[]{userKey, ebookId});
+            }
+        }
+        // A capture that lands in the old index after the swap was queued above and is replayed into the new one
+        current.record(userKey, ebookId);
+    }
+
+    @Override
+    public List<RelatedBookDTO> getRelatedBooks(Long bookId, int limit) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+
+        long[] related = index.related(bookId);
+
+        int count = Math.min(Math.max(limit, 0), related.length / 2);
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(related[2 * i]);
+        }
+        Map<Long, Books> books = new HashMap<>();
+        bookRepository.findAllById(ids).forEach(book -> books.put(book.getId(), book));
+
+        List<RelatedBookDTO> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Books book = books.get(related[2 * i]);
+            // Books deleted since the pair was counted are skipped
+            if (book != null) {
+                result.add(new RelatedBookDTO(book.getId(), book.getName(), book.getCode(),
+                        book.getAuthor(), related[2 * i + 1]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (lock) {
+            capturedDuringRebuild = new ArrayList<>();
+        }
+
+        long started = System.currentTimeMillis();
+        CooccurrenceIndex fresh = newIndex();
+        try {
+            if (shardedDownloadRepository.isEnabled()) {
+                // Shard by shard; only the per-user history order differs from the id-ordered scan
+                shardedDownloadRepository.streamAll("", List.of(),
+                        download -> fresh.record(userKey(download.getEmail()), download.getEbookId()));
+            } else {
+                // Streamed row by row on MySQL (see JdbcStreaming) so the table is never held in memory
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(REBUILD_SQL,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(JdbcStreaming.fetchSize(connection));
+                    return statement;
+                }, (RowCallbackHandler) rs -> fresh.record(userKey(rs.getString("email")), rs.getLong("ebook_id")));
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                capturedDuringRebuild = null;
+            }
+            logger.error("Error rebuilding the recommendation index", e);
+            return;
+        }
+
+        synchronized (lock) {
+            // Replaying is safe even if the scan already saw a capture: repeat pairs are ignored
+            for (long[] captured : capturedDuringRebuild) {
+                fresh.record(captured[0], captured[1]);
+            }
+            capturedDuringRebuild = null;
+            index = fresh;
+        }
+        logger.info("Rebuilt recommendation index in {} ms: {} books, {} readers, {} pairs, ~{} MB",
+                System.currentTimeMillis() - started, fresh.itemCount(), fresh.userCount(),
+                fresh.pairCount(), fresh.memoryBytes() / (1024 * 1024));
+    }
+
+    private CooccurrenceIndex newIndex() {
+        return new CooccurrenceIndex(topK, maxHistory, maxRowSize, maxUsers, lockStripes);
+    }
+
+    // 64-bit FNV-1a of the normalised email; collisions are negligible at this width
+    private static long userKey(String email) {
+        String normalized = email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.TrendingBookDTO;
+import com.ebook.ebookstore.Event.DownloadCapturedEvent;
+import com.ebook.ebookstore.Model.Books;
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Services.TrendingServices;
+import com.ebook.ebookstore.Util.TrendingTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory "trending now" ranking fed by download captures. Rankings are
+ * recomputed off the request path every few seconds and published as immutable
+ * lists, so the endpoint only reads a volatile reference.
+ */
+@Service
+public class TrendingServiceImpl implements TrendingServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingServiceImpl.class);
+
+    private final BookRepository bookRepository;
+    private final TrendingTracker tracker;
+    private final List<String> windows;
+    private final int maxLimit;
+
+    // Latest ranking per window, replaced wholesale on refresh
+    private volatile Map<String, List<TrendingBookDTO>> snapshots = Map.of();
+    // Titles of books currently ranked, so refreshes only query books that are new to the shelf
+    private final Map<Long, Books> bookDetails = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TrendingServiceImpl(BookRepository bookRepository,
+                               @Value("${ebook.trending.windows:15m,1h,6h,24h}") List<String> windows,
+                               @Value("${ebook.trending.bucket-seconds:300}") long bucketSeconds,
+                               @Value("${ebook.trending.sketch-depth:4}") int depth,
+                               @Value("${ebook.trending.sketch-width:1024}") int width,
+                               @Value("${ebook.trending.max-candidates:20000}") int maxCandidates,
+                               @Value("${ebook.trending.max-limit:100}") int maxLimit) {
+        this.bookRepository = bookRepository;
+        this.windows = List.copyOf(windows);
+        this.maxLimit = maxLimit;
+
+        long[] windowMillis = new long[this.windows.size()];
+        for (int i = 0; i < windowMillis.length; i++) {
+            windowMillis[i] = parseWindow(this.windows.get(i)).toMillis();
+        }
+        this.tracker = new TrendingTracker(bucketSeconds * 1000, windowMillis, depth, width, maxCandidates,
+                System.currentTimeMillis());
+    }
+
+    @EventListener
+    public void onDownloadCaptured(DownloadCapturedEvent event) {
+        recordDownload(event.getEbookId());
+    }
+
+    @Override
+    public void recordDownload(Long ebookId) {
+        tracker.record(ebookId);
+    }
+
+    @Override
+    public List<TrendingBookDTO> getTrending(String window, int limit) {
+        if (!windows.contains(window)) {
+            throw new RuntimeException("Unsupported window: " + window + " (expected one of " + windows + ")");
+        }
+        List<TrendingBookDTO> ranking = snapshots.getOrDefault(window, List.of());
+        return ranking.subList(0, Math.min(Math.max(limit, 0), ranking.size()));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ebook.trending.refresh-interval-ms:2000}")
+    public void refresh() {
+        tracker.advance(System.currentTimeMillis());
+
+        Map<String, List<TrendingTracker.Entry>> rankings = new HashMap<>();
+        Set<Long> rankedIds = new HashSet<>();
+        for (int w = 0; w < windows.size(); w++) {
+            List<TrendingTracker.Entry> top = tracker.top(w, maxLimit);
+            rankings.put(windows.get(w), top);
+            top.forEach(entry -> rankedIds.add(entry.key()));
+        }
+
+        bookDetails.keySet().retainAll(rankedIds);
+        List<Long> missing = rankedIds.stream().filter(id -> !bookDetails.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            try {
+                bookRepository.findAllById(missing).forEach(book -> bookDetails.put(book.getId(), book));
+            } catch (RuntimeException e) {
+                logger.warn("Could not load details for trending books", e);
+            }
+        }
+
+        Map<String, List<TrendingBookDTO>> next = new HashMap<>();
+        rankings.forEach((window, top) -> {
+            List<TrendingBookDTO> ranking = new ArrayList<>(top.size());
+            for (TrendingTracker.Entry entry : top) {
+                Books book = bookDetails.get(entry.key());
+                // Deleted or archived books drop off the shelf
+                if (book != null) {
+                    ranking.add(new TrendingBookDTO(book.getId(), book.getName(), book.getCode(),
+                            book.getAuthor(), entry.count()));
+                }
+            }
+            next.put(window, List.copyOf(ranking));
+        });
+        snapshots = Map.copyOf(next);
+    }
+
+    // Accepts windows such as 15m, 1h, 24h or 7d
+    private Duration parseWindow(String window) {
+        String value = window.trim();
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            case 'd':
+                return Duration.ofDays(amount);
+            default:
+                throw new IllegalArgumentException("Invalid trending window: " + window);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.BulkUserResultDTO;
+import com.ebook.ebookstore.DTO.CredentialDTO;
+import com.ebook.ebookstore.DTO.UserDTO;
+import com.ebook.ebookstore.Model.User;
+import com.ebook.ebookstore.Repository.UserRepository;
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import com.ebook.ebookstore.Services.UserProvisioningServices;
+import com.ebook.ebookstore.Services.UserServices;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user creation from newline-delimited JSON, one {@link UserDTO} per line, with one result
+ * line written back per input row as each chunk finishes. Instead of createUser's two existence
+ * queries and IDENTITY insert per user, each chunk of rows is:
+ * <ol>
+ *     <li>validated against the UserDTO and User constraints and deduplicated within the upload,</li>
+ *     <li>checked against existing names and emails with one IN query each,</li>
+ *     <li>hashed on the password hash executor in parallel,</li>
+ *     <li>inserted with one JDBC batch in its own transaction, then matched to its ids.</li>
+ * </ol>
+ * Names are checked like createUser checks them, before the insert; users.name has no unique
+ * index, so a registration that takes a name between the check and the insert is not caught.
+ * A failing chunk marks only its own rows FAILED; earlier chunks stay committed. Reading stops at
+ * the first row beyond max-rows, which is reported INVALID; nothing after it is read.
+ */
+@Service
+public class UserProvisioningServiceImpl implements UserProvisioningServices {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserProvisioningServiceImpl.class);
+
+    // Only email is unique in users; a row whose email was taken meanwhile is left as it is
+    private static final String INSERT_SQL =
+            "INSERT INTO users (name, email, password) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String CREATED = "CREATED";
+    private static final String INVALID = "INVALID";
+    private static final String DUPLICATE = "DUPLICATE";
+    private static final String FAILED = "FAILED";
+
+    private final UserRepository userRepository;
+    private final UserServices userServices;
+    private final PasswordHashingServices passwordHashingServices;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxRows;
+    private final int hashParallelism;
+
+    @Autowired
+    public UserProvisioningServiceImpl(UserRepository userRepository,
+                                       UserServices userServices,
+                                       PasswordHashingServices passwordHashingServices,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ObjectMapper objectMapper,
+                                       Validator validator,
+                                       @Value("${ebook.users.bulk.chunk-size:500}") int chunkSize,
+                                       @Value("${ebook.users.bulk.max-rows:100000}") int maxRows,
+                                       @Value("${ebook.users.bulk.hash-parallelism:0}") int hashParallelism) {
+        this.userRepository = userRepository;
+        this.userServices = userServices;
+        this.passwordHashingServices = passwordHashingServices;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+        // By default half the cores, so logins keep the other half of the hash executor
+        this.hashParallelism = hashParallelism > 0 ? hashParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    @Override
+    public void provisionUsers(InputStream ndjsonRows, OutputStream ndjsonResults) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjsonRows, StandardCharsets.UTF_8));
+        // Lower-cased, as MySQL compares them case-insensitively
+        Set<String> seenNames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        long rows = 0;
+        int created = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Row row = new Row(lineNumber);
+            chunk.add(row);
+            if (rows == maxRows) {
+                row.reject(INVALID, "Upload exceeds " + maxRows + " rows; the rest was not read");
+                break;
+            }
+            rows++;
+            parse(row, line, seenNames, seenEmails);
+            if (chunk.size() >= chunkSize) {
+                created += process(chunk, ndjsonResults);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += process(chunk, ndjsonResults);
+        }
+        logger.info("Bulk provisioning created {} of {} users", created, rows);
+    }
+
+    private void parse(Row row, String line, Set<String> seenNames, Set<String> seenEmails) {
+        UserDTO user;
+        try {
+            user = objectMapper.readValue(line, UserDTO.class);
+        } catch (JsonProcessingException e) {
+            row.reject(INVALID, "Malformed JSON");
+            return;
+        }
+        row.user = user;
+
+        Set<ConstraintViolation<?>> violations = new LinkedHashSet<>(validator.validate(user));
+        violations.addAll(validator.validateValue(User.class, "name", user.getName()));
+        violations.addAll(validator.validateValue(User.class, "email", user.getEmail()));
+        if (user.getPassword() == null || user.getPassword().isBlank()) {
+            row.reject(INVALID, "Password is required");
+            return;
+        }
+        if (!violations.isEmpty()) {
+            row.reject(INVALID, violations.stream().map(ConstraintViolation::getMessage)
+                    .sorted().collect(Collectors.joining("; ")));
+            return;
+        }
+
+        if (!seenNames.add(key(user.getName()))) {
+            row.reject(DUPLICATE, "Username repeated in upload");
+        } else if (!seenEmails.add(key(user.getEmail()))) {
+            row.reject(DUPLICATE, "Email repeated in upload");
+        }
+    }
+
+    // Returns how many users the chunk created
+    private int process(List<Row> chunk, OutputStream out) throws IOException {
+        List<Row> pending = chunk.stream().filter(row -> row.status == null).collect(Collectors.toList());
+        try {
+            if (!pending.isEmpty()) {
+                rejectExisting(pending);
+                pending.removeIf(row -> row.status != null);
+            }
+            if (!pending.isEmpty()) {
+                insert(pending);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Bulk provisioning chunk starting at line {} failed", chunk.get(0).line, e);
+            for (Row row : pending) {
+                if (row.status == null || row.status.equals(CREATED)) {
+                    row.reject(FAILED, "Could not create user, try again");
+                    row.id = null;
+                }
+            }
+        }
+
+        int created = 0;
+        for (Row row : chunk) {
+            if (CREATED.equals(row.status)) {
+                created++;
+                userServices.evictCredential(row.user.getEmail());
+            }
+            UserDTO user = row.user;
+            out.write(objectMapper.writeValueAsBytes(new BulkUserResultDTO(row.line, row.status, row.id,
+                    user != null ? user.getName() : null, user != null ? user.getEmail() : null, row.message)));
+            out.write('\n');
+        }
+        out.flush();
+        return created;
+    }
+
+    private void rejectExisting(List<Row> rows) {
+        Set<String> names = rows.stream().map(row -> row.user.getName()).collect(Collectors.toSet());
+        Set<String> emails = rows.stream().map(row -> row.user.getEmail()).collect(Collectors.toSet());
+        Set<String> takenNames = userRepository.findExistingNames(names).stream()
+                .map(UserProvisioningServiceImpl::key).collect(Collectors.toSet());
+        Set<String> takenEmails = userRepository.findExistingEmails(emails).stream()
+                .map(UserProvisioningServiceImpl::key).collect(Collectors.toSet());
+        for (Row row : rows) {
+            if (takenNames.contains(key(row.user.getName()))) {
+                row.reject(DUPLICATE, "Username already exists");
+            } else if (takenEmails.contains(key(row.user.getEmail()))) {
+                row.reject(DUPLICATE, "Email already exists");
+            }
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        List<String> hashes = passwordHashingServices.hashAll(
+                rows.stream().map(row -> row.user.getPassword()).collect(Collectors.toList()), hashParallelism);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                args.add(new Object[]{rows.get(i).user.getName(), rows.get(i).user.getEmail(), hashes.get(i)});
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, args);
+
+            // IDENTITY keys do not come back reliably from a batch, so match rows up by email. The update
+            // counts cannot tell an ignored row either: with rewriteBatchedStatements they are all
+            // SUCCESS_NO_INFO. A row is ours only if it holds the hash just made, whose salt is unique.
+            Map<String, CredentialDTO> stored = new HashMap<>();
+            for (CredentialDTO user : userRepository.findCredentialsByEmails(
+                    rows.stream().map(row -> row.user.getEmail()).collect(Collectors.toList()))) {
+                stored.put(key(user.getEmail()), user);
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = rows.get(i);
+                CredentialDTO user = stored.get(key(row.user.getEmail()));
+                // The insert left an existing row alone: a concurrent registration took the email first
+                if (user == null || !hashes.get(i).equals(user.getPasswordHash())) {
+                    row.reject(DUPLICATE, "Email already exists");
+                } else {
+                    row.status = CREATED;
+                    row.id = user.getId();
+                }
+            }
+        });
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Row {
+        private final long line;
+        private UserDTO user;
+        private String status;
+        private String message;
+        private Long id;
+
+        private Row(long line) {
+            this.line = line;
+        }
+
+        private void reject(String status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
@@ -1,43 +1,87 @@
 package com.ebook.ebookstore.ServicesImpl;
 
+import com.ebook.ebookstore.DTO.CredentialDTO;
 import com.ebook.ebookstore.DTO.UserDTO;
+import com.ebook.ebookstore.DTO.UserPageDTO;
+import com.ebook.ebookstore.DTO.UserSummaryDTO;
+import com.ebook.ebookstore.Event.CredentialsChangedEvent;
 import com.ebook.ebookstore.Model.User;
 import com.ebook.ebookstore.Repository.UserRepository;
+import com.ebook.ebookstore.Services.CredentialCacheInvalidationServices;
 import com.ebook.ebookstore.Services.UserServices;
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import com.ebook.ebookstore.Util.ExpiringCache;
+import com.ebook.ebookstore.Util.SingleFlight;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
 public class UserServiceImpl implements UserServices {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final UserRepository userRepository;
+    private final PasswordHashingServices passwordHashingServices;
+    private final CredentialCacheInvalidationServices credentialCacheInvalidationServices;
+
+    // Login credentials by lower-cased email; Optional.empty() remembers unknown emails as well
+    private final ExpiringCache<String, Optional<CredentialDTO>> credentialCache;
+    // A login storm on one account loads its credential once
+    private final SingleFlight<String, Optional<CredentialDTO>> credentialFlight = new SingleFlight<>("userCredential");
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, PasswordHashingServices passwordHashingServices,
+                           CredentialCacheInvalidationServices credentialCacheInvalidationServices,
+                           @Value("${ebook.auth.credential-cache.ttl-ms:30000}") long credentialCacheTtlMillis,
+                           @Value("${ebook.auth.credential-cache.max-entries:10000}") int credentialCacheMaxEntries) {
         this.userRepository = userRepository;
+        this.passwordHashingServices = passwordHashingServices;
+        this.credentialCacheInvalidationServices = credentialCacheInvalidationServices;
+        this.credentialCache = new ExpiringCache<>(credentialCacheTtlMillis, credentialCacheMaxEntries);
     }
 
     @Override
     public User createUser(UserDTO userDTO) {
-        if(userRepository.existsByName(userDTO.getName())){
+        List<User> conflicts = userRepository.findByNameOrEmail(userDTO.getName(), userDTO.getEmail());
+        if (conflicts.stream().anyMatch(existing -> existing.getName().equalsIgnoreCase(userDTO.getName()))) {
             throw new IllegalArgumentException("Username already exists");
         }
-        if(userRepository.existsByEmail(userDTO.getEmail())){
+        if (!conflicts.isEmpty()) {
             throw new IllegalArgumentException("Email already exists");
         }
 
+        if (userDTO.getPassword() == null || userDTO.getPassword().isBlank()) {
+            throw new IllegalArgumentException("Password is required");
+        }
+
         User user = new User();
         user.setName(userDTO.getName());
         user.setEmail(userDTO.getEmail());
-        user.setPassword(userDTO.getPassword());
-        return userRepository.save(user);
+        user.setPassword(passwordHashingServices.hash(userDTO.getPassword()));
+        User saved = userRepository.save(user);
+        // Drop a cached "no such email" from an earlier failed login
+        invalidateCredential(saved.getEmail());
+        return saved;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
@@ -46,6 +90,7 @@ public class UserServiceImpl implements UserServices {
     public User updateUser(Integer userId, UserDTO userDTO) {
         User user = userRepository.findById(userId)
                 .orElseThrow(()-> new EntityNotFoundException("User with id " + userId + " not found"));
+        String previousEmail = user.getEmail();
 
         // Fixed logic: should check if NOT blank, not if blank
         if(userDTO.getName() != null && !userDTO.getName().isBlank()){
@@ -60,36 +105,170 @@ public class UserServiceImpl implements UserServices {
         }
 
         if(userDTO.getPassword() != null && !userDTO.getPassword().isBlank()){
-            user.setPassword(userDTO.getPassword());
+            user.setPassword(passwordHashingServices.hash(userDTO.getPassword()));
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        invalidateCredential(previousEmail);
+        invalidateCredential(saved.getEmail());
+        return saved;
     }
 
     @Override
     public void deleteUser(Integer userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new EntityNotFoundException("User with id " + userId + " not found");
-        }
-        userRepository.deleteById(userId);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("User with id " + userId + " not found"));
+        userRepository.delete(user);
+        invalidateCredential(user.getEmail());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public User getUserByUsername(String username) {
         return userRepository.findByName(username);
     }
 
     @Override
     public boolean authenticate(String email, String password) {
-        User user = userRepository.findByEmail(email);
-        return user != null && user.getPassword().equals(password);
+        return login(email, password) != null;
+    }
+
+    @Override
+    public CredentialDTO login(String email, String password) {
+        CredentialDTO credential = findCredential(email).orElse(null);
+        if (!passwordHashingServices.matches(password, credential != null ? credential.getPasswordHash() : null)) {
+            return null;
+        }
+        upgradePasswordHash(credential, password);
+        return credential;
+    }
+
+    private Optional<CredentialDTO> findCredential(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String key = email.toLowerCase(Locale.ROOT);
+        Optional<CredentialDTO> cached = credentialCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return credentialFlight.execute(key, () -> {
+            long version = credentialCache.version();
+            Optional<CredentialDTO> loaded = userRepository.findCredentialByEmail(email);
+            credentialCache.put(key, loaded, version);
+            return loaded;
+        });
+    }
+
+    // For writes that bypass this service, such as bulk provisioning
+    @Override
+    public void evictCredential(String email) {
+        invalidateCredential(email);
+    }
+
+    // Here at once, and on the other nodes when they next poll the invalidation log
+    private void invalidateCredential(String email) {
+        if (email != null) {
+            credentialCache.invalidate(email.toLowerCase(Locale.ROOT));
+            credentialCacheInvalidationServices.credentialChanged(email);
+        }
+    }
+
+    @EventListener
+    public void onCredentialsChanged(CredentialsChangedEvent event) {
+        event.getEmails().forEach(credentialCache::invalidate);
+    }
+
+    // Rehash on a successful login when the stored hash uses another cost or is still plaintext
+    private void upgradePasswordHash(CredentialDTO credential, String password) {
+        if (!passwordHashingServices.needsRehash(credential.getPasswordHash())) {
+            return;
+        }
+        try {
+            // Zero rows when the password changed since it was read; that change wins
+            userRepository.updatePassword(credential.getId(), passwordHashingServices.hash(password),
+                    credential.getPasswordHash());
+            invalidateCredential(credential.getEmail());
+        } catch (RuntimeException e) {
+            // The login itself succeeded; the next one tries again
+            logger.warn("Could not upgrade password hash for user {}", credential.getId(), e);
+        }
     }
 
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Integer userId) {
         return userRepository.findById(userId);
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<UserSummaryDTO> getAllUsers() {
+        return userRepository.findAllSummaries();
+    }
+
+    /**
+     * One page of the user directory, ordered by id, or by name / email when filtering on a prefix
+     * of that column. The cursor is the sort key of the last row returned, so the next page seeks
+     * straight to it in the index instead of skipping rows with OFFSET.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserPageDTO getUserDirectory(String namePrefix, String emailPrefix, String cursor, Integer limit) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether there is a next page
+        PageRequest page = PageRequest.of(0, size + 1);
+        String after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+
+        List<UserSummaryDTO> rows;
+        if (emailPrefix != null && !emailPrefix.isBlank()) {
+            rows = userRepository.findSummariesByEmailPrefix(likePrefix(emailPrefix), after != null ? after : "", page);
+        } else if (namePrefix != null && !namePrefix.isBlank()) {
+            String afterName = "";
+            long afterId = 0;
+            if (after != null) {
+                int separator = after.indexOf(':');
+                afterId = parseCursorId(separator < 0 ? after : after.substring(0, separator));
+                afterName = separator < 0 ? "" : after.substring(separator + 1);
+            }
+            rows = userRepository.findSummariesByNamePrefix(likePrefix(namePrefix), afterName, afterId, page);
+        } else {
+            rows = userRepository.findSummariesAfterId(after != null ? parseCursorId(after) : 0L, page);
+        }
+
+        if (rows.size() <= size) {
+            return new UserPageDTO(rows, null);
+        }
+        rows = rows.subList(0, size);
+        UserSummaryDTO last = rows.get(size - 1);
+        String next;
+        if (emailPrefix != null && !emailPrefix.isBlank()) {
+            next = last.getEmail();
+        } else if (namePrefix != null && !namePrefix.isBlank()) {
+            next = last.getId() + ":" + last.getName();
+        } else {
+            next = String.valueOf(last.getId());
+        }
+        return new UserPageDTO(rows, Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(next.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static long parseCursorId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // LIKE pattern matching values that start with the prefix literally
+    private static String likePrefix(String prefix) {
+        return prefix.trim().replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
     }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exact per-key failure counts over a sliding time window, for a bounded number of keys. Each
+ * key keeps the times of its last {@code limit} failures in a small ring, which is all a
+ * "limit failures per window" check needs, so one key's count is never inflated by another's.
+ * <p>
+ * Keys are split by hash into independent stripes, each with its own lock and a bound of
+ * {@code maxKeys / stripes} keys, so concurrent logins for different accounts rarely wait on each
+ * other. Within a stripe keys are kept in order of their latest failure, and past its bound the key
+ * that failed least recently is dropped. An attack that rotates through more keys than fit makes the
+ * oldest ones forget their failures early, which errs towards letting a login through, rather than
+ * filling shared counters until every account reads as over the limit.
+ */
+public final class BoundedFailureLog {
+
+    // Rough per-key overhead: map entry, key string, ring object
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final long windowMillis;
+    private final int limit;
+    private final int mask;
+    private final Stripe[] stripes;
+
+    public BoundedFailureLog(long windowMillis, int limit, int maxKeys, int stripes) {
+        if (windowMillis < 1 || limit < 1 || maxKeys < 1 || stripes < 1) {
+            throw new IllegalArgumentException("Window, limit, key count and stripes must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.limit = limit;
+        // A power of two, and no more stripes than keys so every stripe holds at least one
+        int count = Math.min(Integer.highestOneBit(stripes * 2 - 1), Integer.highestOneBit(maxKeys));
+        this.mask = count - 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(maxKeys / count);
+        }
+    }
+
+    // Records one failure for the key and returns its failures within the window, at most the limit
+    public int record(String key, long nowMillis) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Ring ring = stripe.remove(key);
+            if (ring == null) {
+                ring = new Ring(limit);
+            }
+            ring.times[ring.next] = nowMillis;
+            ring.next = (ring.next + 1) % limit;
+            // Re-inserting moves the key to the most recent end
+            stripe.put(key, ring);
+            return ring.count(nowMillis - windowMillis);
+        }
+    }
+
+    // Failures within the window, at most the limit; does not change the key's place in the eviction order
+    public int count(String key, long nowMillis) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Ring ring = stripe.get(key);
+            return ring == null ? 0 : ring.count(nowMillis - windowMillis);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long windowMillis() {
+        return windowMillis;
+    }
+
+    public long memoryBytes() {
+        return (long) size() * (ENTRY_OVERHEAD_BYTES + 8L * limit);
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    // Insertion-ordered, and records re-insert, so the eldest entry is the least recent failure
+    private static final class Stripe extends LinkedHashMap<String, Ring> {
+        private final int maxKeys;
+
+        private Stripe(int maxKeys) {
+            super(16, 0.75f, false);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+    private static final class Ring {
+        private final long[] times;
+        private int next;
+
+        private Ring(int limit) {
+            this.times = new long[limit];
+            Arrays.fill(times, Long.MIN_VALUE);
+        }
+
+        private int count(long after) {
+            int count = 0;
+            for (long time : times) {
+                if (time > after) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.ebook.ebookstore.Util;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Append-only, column-oriented copy of the downloads table for ad-hoc reports.
+ * Every column is a dictionary-encoded int array split into fixed-size chunks, so
+ * a row costs 24 bytes and appends never copy existing data. Queries filter each
+ * chunk into a selection vector, count groups per chunk in parallel on a fork-join
+ * pool and merge the partial counts.
+ *
+ * <p>A single writer appends under the store lock; scans run without locking over
+ * the rows published before the query started.
+ */
+public class ColumnarDownloadStore {
+
+    public enum Dimension {
+        BOOK, CATEGORY, SUBCATEGORY, EMAIL_DOMAIN, EMAIL, DAY, WEEK, MONTH;
+
+        public boolean isTime() {
+            return this == DAY || this == WEEK || this == MONTH;
+        }
+
+        public static Dimension fromName(String name) {
+            String normalized = name.replace("_", "").replace("-", "").toLowerCase(Locale.ROOT);
+            for (Dimension dimension : values()) {
+                if (dimension.name().replace("_", "").toLowerCase(Locale.ROOT).equals(normalized)) {
+                    return dimension;
+                }
+            }
+            throw new IllegalArgumentException("Unknown dimension: " + name);
+        }
+    }
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int DENSE_GROUP_LIMIT = 1 << 14;
+    private static final String NONE = "(none)";
+
+    private final Dictionary books = new Dictionary();
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary subcategories = new Dictionary();
+    private final Dictionary domains = new Dictionary();
+    private final Dictionary emails = new Dictionary();
+
+    // Written before size, so a reader that sees size also sees the chunks holding those rows
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    private long maxDownloadId;
+
+    public synchronized void append(long downloadId, long ebookId, String email, LocalDate day,
+                                    String category, String subcategory) {
+        int row = size;
+        Chunk[] current = chunks;
+        int chunkIndex = row >>> CHUNK_SHIFT;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[chunkIndex] = new Chunk();
+            chunks = current;
+        }
+
+        Chunk chunk = current[chunkIndex];
+        int offset = row & CHUNK_MASK;
+        String normalizedEmail = email == null ? NONE : email.trim().toLowerCase(Locale.ROOT);
+        int at = normalizedEmail.lastIndexOf('@');
+        int epochDay = (int) day.toEpochDay();
+
+        chunk.columns[Dimension.BOOK.ordinal()][offset] = books.encode(Long.toString(ebookId));
+        chunk.columns[Dimension.CATEGORY.ordinal()][offset] = categories.encode(category);
+        chunk.columns[Dimension.SUBCATEGORY.ordinal()][offset] = subcategories.encode(subcategory);
+        chunk.columns[Dimension.EMAIL_DOMAIN.ordinal()][offset] = domains.encode(at >= 0 ? normalizedEmail.substring(at + 1) : null);
+        chunk.columns[Dimension.EMAIL.ordinal()][offset] = emails.encode(normalizedEmail);
+        chunk.columns[Dimension.DAY.ordinal()][offset] = epochDay;
+
+        minDay = Math.min(minDay, epochDay);
+        maxDay = Math.max(maxDay, epochDay);
+        maxDownloadId = Math.max(maxDownloadId, downloadId);
+        size = row + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public synchronized long maxDownloadId() {
+        return maxDownloadId;
+    }
+
+    public long memoryBytes() {
+        return (long) chunks.length * Chunk.COLUMNS * CHUNK_SIZE * Integer.BYTES;
+    }
+
+    /**
+     * Counts rows per group. Filters map a non-time dimension to the values it may take;
+     * fromDay/toDay bound the download day inclusively and may be null.
+     */
+    public Result count(List<Dimension> groupBy, Map<Dimension, Collection<String>> filters,
+                        LocalDate fromDay, LocalDate toDay, ForkJoinPool pool) {
+        Plan plan = plan(groupBy, filters, fromDay, toDay);
+        if (plan.rows == 0 || plan.empty) {
+            return new Result(groupBy, List.of(), 0, plan.rows);
+        }
+
+        Partial partial = pool.invoke(new ScanTask(plan, 0, (plan.rows + CHUNK_SIZE - 1) >>> CHUNK_SHIFT));
+        return decode(plan, partial);
+    }
+
+    // Resolves filter values and dictionary sizes against a consistent snapshot of the store
+    private synchronized Plan plan(List<Dimension> groupBy, Map<Dimension, Collection<String>> filters,
+                                   LocalDate fromDay, LocalDate toDay) {
+        Plan plan = new Plan();
+        plan.rows = size;
+        plan.chunks = chunks;
+        plan.groupBy = List.copyOf(groupBy);
+        plan.minDay = minDay;
+        plan.dayFrom = fromDay == null ? Integer.MIN_VALUE : (int) fromDay.toEpochDay();
+        plan.dayTo = toDay == null ? Integer.MAX_VALUE : (int) toDay.toEpochDay();
+        if (plan.rows == 0) {
+            return plan;
+        }
+
+        plan.filterColumns = new int[filters.size()];
+        plan.filterAllowed = new boolean[filters.size()][];
+        int f = 0;
+        for (Map.Entry<Dimension, Collection<String>> filter : filters.entrySet()) {
+            Dimension dimension = filter.getKey();
+            if (dimension.isTime()) {
+                throw new IllegalArgumentException("Filter time with from/to instead of " + dimension);
+            }
+            Dictionary dictionary = dictionary(dimension);
+            boolean[] allowed = new boolean[dictionary.size()];
+            boolean any = false;
+            for (String value : filter.getValue()) {
+                String key = dimension == Dimension.EMAIL || dimension == Dimension.EMAIL_DOMAIN
+                        ? value.trim().toLowerCase(Locale.ROOT) : value;
+                Integer code = dictionary.lookup(key);
+                if (code != null) {
+                    allowed[code] = true;
+                    any = true;
+                }
+            }
+            // A filter that matches no known value can short-circuit the whole scan
+            plan.empty |= !any;
+            plan.filterColumns[f] = dimension.ordinal();
+            plan.filterAllowed[f] = allowed;
+            f++;
+        }
+
+        int groups = plan.groupBy.size();
+        plan.groupColumns = new int[groups];
+        plan.groupMaps = new int[groups][];
+        plan.groupCardinality = new long[groups];
+        plan.groupBase = new int[groups];
+        long product = 1;
+        for (int g = 0; g < groups; g++) {
+            Dimension dimension = plan.groupBy.get(g);
+            if (dimension.isTime()) {
+                plan.groupColumns[g] = Dimension.DAY.ordinal();
+                plan.groupMaps[g] = timeBuckets(dimension, minDay, maxDay);
+                plan.groupCardinality[g] = plan.groupMaps[g][plan.groupMaps[g].length - 1] + 1;
+                plan.groupBase[g] = minDay;
+            } else {
+                plan.groupColumns[g] = dimension.ordinal();
+                plan.groupCardinality[g] = Math.max(1, dictionary(dimension).size());
+            }
+            product = Math.multiplyExact(product, plan.groupCardinality[g]);
+        }
+        plan.groupSpace = product;
+        return plan;
+    }
+
+    private synchronized Result decode(Plan plan, Partial partial) {
+        List<Row> rows = new ArrayList<>();
+        int groups = plan.groupBy.size();
+        partial.forEach((key, count) -> {
+            List<String> values = new ArrayList<>(groups);
+            long remainder = key;
+            for (int g = groups - 1; g >= 0; g--) {
+                int code = (int) (remainder % plan.groupCardinality[g]);
+                remainder /= plan.groupCardinality[g];
+                values.add(0, label(plan.groupBy.get(g), code, plan.minDay));
+            }
+            rows.add(new Row(values, count));
+        });
+        rows.sort(Comparator.comparingLong(Row::count).reversed());
+        return new Result(plan.groupBy, rows, partial.matched, plan.rows);
+    }
+
+    private String label(Dimension dimension, int code, int minDay) {
+        switch (dimension) {
+            case DAY:
+                return LocalDate.ofEpochDay((long) minDay + code).toString();
+            case WEEK:
+                return LocalDate.ofEpochDay((firstWeek(minDay) + code) * 7L - 3).toString();
+            case MONTH:
+                LocalDate first = LocalDate.ofEpochDay(minDay);
+                return YearMonth.of(first.getYear(), first.getMonth()).plusMonths(code).toString();
+            default:
+                return dictionary(dimension).decode(code);
+        }
+    }
+
+    private Dictionary dictionary(Dimension dimension) {
+        switch (dimension) {
+            case BOOK:
+                return books;
+            case CATEGORY:
+                return categories;
+            case SUBCATEGORY:
+                return subcategories;
+            case EMAIL_DOMAIN:
+                return domains;
+            case EMAIL:
+                return emails;
+            default:
+                throw new IllegalArgumentException("No dictionary for " + dimension);
+        }
+    }
+
+    // Maps (epochDay - minDay) to a zero-based day, week or month number
+    private static int[] timeBuckets(Dimension dimension, int minDay, int maxDay) {
+        int[] buckets = new int[maxDay - minDay + 1];
+        LocalDate first = LocalDate.ofEpochDay(minDay);
+        for (int i = 0; i < buckets.length; i++) {
+            int day = minDay + i;
+            switch (dimension) {
+                case WEEK:
+                    buckets[i] = week(day) - firstWeek(minDay);
+                    break;
+                case MONTH:
+                    LocalDate date = LocalDate.ofEpochDay(day);
+                    buckets[i] = (date.getYear() - first.getYear()) * 12 + date.getMonthValue() - first.getMonthValue();
+                    break;
+                default:
+                    buckets[i] = i;
+            }
+        }
+        return buckets;
+    }
+
+    // Weeks start on Monday; epoch day 0 (1970-01-01) was a Thursday
+    private static int week(int epochDay) {
+        return Math.floorDiv(epochDay + 3, 7);
+    }
+
+    private static int firstWeek(int minDay) {
+        return week(minDay);
+    }
+
+    private static final class ScanTask extends RecursiveTask<Partial> {
+        private final Plan plan;
+        private final int fromChunk;
+        private final int toChunk;
+
+        private ScanTask(Plan plan, int fromChunk, int toChunk) {
+            this.plan = plan;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (toChunk - fromChunk > 1) {
+                int middle = (fromChunk + toChunk) >>> 1;
+                ScanTask left = new ScanTask(plan, fromChunk, middle);
+                left.fork();
+                Partial right = new ScanTask(plan, middle, toChunk).compute();
+                return left.join().merge(right);
+            }
+            return scanChunk(fromChunk);
+        }
+
+        private Partial scanChunk(int chunkIndex) {
+            int[][] columns = plan.chunks[chunkIndex].columns;
+            int length = Math.min(CHUNK_SIZE, plan.rows - (chunkIndex << CHUNK_SHIFT));
+
+            // Each filter narrows the selection vector in one tight pass over a single column
+            int[] selection = new int[length];
+            int[] days = columns[Dimension.DAY.ordinal()];
+            int selected = 0;
+            for (int i = 0; i < length; i++) {
+                int day = days[i];
+                if (day >= plan.dayFrom && day <= plan.dayTo) {
+                    selection[selected++] = i;
+                }
+            }
+            for (int f = 0; f < plan.filterColumns.length; f++) {
+                int[] column = columns[plan.filterColumns[f]];
+                boolean[] allowed = plan.filterAllowed[f];
+                int kept = 0;
+                for (int s = 0; s < selected; s++) {
+                    int row = selection[s];
+                    int code = column[row];
+                    if (code < allowed.length && allowed[code]) {
+                        selection[kept++] = row;
+                    }
+                }
+                selected = kept;
+            }
+
+            // Mixed-radix group key computed column by column over the selection
+            long[] keys = new long[selected];
+            for (int g = 0; g < plan.groupColumns.length; g++) {
+                int[] column = columns[plan.groupColumns[g]];
+                int[] map = plan.groupMaps[g];
+                int base = plan.groupBase[g];
+                long cardinality = plan.groupCardinality[g];
+                for (int s = 0; s < selected; s++) {
+                    int code = map == null ? column[selection[s]] : map[column[selection[s]] - base];
+                    keys[s] = keys[s] * cardinality + code;
+                }
+            }
+
+            Partial partial = new Partial(plan.groupSpace);
+            partial.matched = selected;
+            if (partial.dense != null) {
+                long[] dense = partial.dense;
+                for (int s = 0; s < selected; s++) {
+                    dense[(int) keys[s]]++;
+                }
+            } else {
+                LongIntHashMap sparse = partial.sparse;
+                for (int s = 0; s < selected; s++) {
+                    sparse.addTo(keys[s] + 1, 1);
+                }
+            }
+            return partial;
+        }
+    }
+
+    // Per-task group counts: a flat array for small group spaces, a primitive hash map otherwise
+    private static final class Partial {
+        private long[] dense;
+        private LongIntHashMap sparse;
+        private Map<Long, Long> merged;
+        private long matched;
+
+        private Partial(long groupSpace) {
+            if (groupSpace <= DENSE_GROUP_LIMIT) {
+                dense = new long[(int) groupSpace];
+            } else {
+                // Keys are shifted by one because the map reserves 0 for empty slots
+                sparse = new LongIntHashMap(256);
+            }
+        }
+
+        private Partial merge(Partial other) {
+            matched += other.matched;
+            if (dense != null) {
+                for (int i = 0; i < dense.length; i++) {
+                    dense[i] += other.dense[i];
+                }
+                return this;
+            }
+            if (merged == null) {
+                merged = new HashMap<>();
+                sparse.forEach((key, count) -> merged.merge(key, (long) count, Long::sum));
+                sparse = null;
+            }
+            if (other.merged != null) {
+                other.merged.forEach((key, count) -> merged.merge(key, count, Long::sum));
+            } else {
+                other.sparse.forEach((key, count) -> merged.merge(key, (long) count, Long::sum));
+            }
+            return this;
+        }
+
+        private void forEach(java.util.function.BiConsumer<Long, Long> consumer) {
+            if (dense != null) {
+                for (int i = 0; i < dense.length; i++) {
+                    if (dense[i] != 0) {
+                        consumer.accept((long) i, dense[i]);
+                    }
+                }
+            } else if (merged != null) {
+                merged.forEach((key, count) -> consumer.accept(key - 1, count));
+            } else {
+                sparse.forEach((key, count) -> consumer.accept(key - 1, (long) count));
+            }
+        }
+    }
+
+    private static final class Plan {
+        private int rows;
+        private Chunk[] chunks;
+        private List<Dimension> groupBy;
+        private int minDay;
+        private int dayFrom;
+        private int dayTo;
+        private boolean empty;
+        private int[] filterColumns = new int[0];
+        private boolean[][] filterAllowed = new boolean[0][];
+        private int[] groupColumns;
+        private int[][] groupMaps;
+        private long[] groupCardinality;
+        private int[] groupBase;
+        private long groupSpace;
+    }
+
+    private static final class Chunk {
+        private static final int COLUMNS = Dimension.DAY.ordinal() + 1;
+        private final int[][] columns = new int[COLUMNS][CHUNK_SIZE];
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int encode(String value) {
+            String key = value == null || value.isBlank() ? NONE : value;
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = values.size();
+                codes.put(key, code);
+                values.add(key);
+            }
+            return code;
+        }
+
+        private Integer lookup(String value) {
+            return codes.get(value == null || value.isBlank() ? NONE : value);
+        }
+
+        private String decode(int code) {
+            return values.get(code);
+        }
+
+        private int size() {
+            return values.size();
+        }
+    }
+
+    public record Row(List<String> values, long count) {
+    }
+
+    public record Result(List<Dimension> groupBy, List<Row> rows, long matchedRows, long scannedRows) {
+    }
+}
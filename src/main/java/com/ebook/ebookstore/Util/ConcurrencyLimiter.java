@@ -0,0 +1,89 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many callers hold a scarce resource at once, with a bounded number of callers
+ * allowed to wait for it. With virtual threads there is no request thread pool left to act as
+ * that bound, so thousands of requests can pile up on a resource sized for a few dozen; past
+ * {@code maxWaiting} callers are turned away immediately, and waiters give up after the timeout.
+ * Permits are handed out in arrival order.
+ */
+public final class ConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final int limit;
+    private final int maxWaiting;
+    private final long timeoutNanos;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public ConcurrencyLimiter(int limit, int maxWaiting, long timeoutMillis) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.permits = new Semaphore(limit, true);
+        this.limit = limit;
+        this.maxWaiting = maxWaiting;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    // True once a permit is held; false when too many callers are already waiting or the wait timed out
+    public boolean acquire() {
+        if (permits.tryAcquire()) {
+            acquired.increment();
+            return true;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                acquired.increment();
+                return true;
+            }
+            timedOut.increment();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int active() {
+        return limit - permits.availablePermits();
+    }
+
+    public int waiting() {
+        return waiting.get();
+    }
+
+    public long acquired() {
+        return acquired.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long timedOut() {
+        return timedOut.sum();
+    }
+}
@@ -0,0 +1,254 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.List;
+
+/**
+ * Sparse item-item co-occurrence counts ("readers who downloaded A also downloaded B")
+ * kept in primitive maps, together with each item's top-k neighbours, which are
+ * updated as counts change so lookups never scan a row.
+ * <p>
+ * Thread-safe through lock striping: user histories are split into stripes by user key
+ * and item rows into stripes by item, each guarded by its own monitor, and no thread
+ * holds two at once. Histories are kept in two generations per stripe; when the current
+ * one fills up the previous one is dropped, so at most about {@code maxUsers} readers are
+ * remembered and those who have not downloaded anything for the longest are forgotten.
+ */
+public class CooccurrenceIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final int topK;
+    private final int maxHistory;
+    private final int maxRowSize;
+    private final int usersPerGeneration;
+    private final int mask;
+    private final UserStripe[] userStripes;
+    private final ItemStripe[] itemStripes;
+
+    public CooccurrenceIndex(int topK, int maxHistory, int maxRowSize, int maxUsers, int stripes) {
+        this.topK = topK;
+        this.maxHistory = maxHistory;
+        this.maxRowSize = maxRowSize;
+        int count = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+        this.mask = count - 1;
+        this.usersPerGeneration = Math.max(1, maxUsers / (2 * count));
+        this.userStripes = new UserStripe[count];
+        this.itemStripes = new ItemStripe[count];
+        for (int i = 0; i < count; i++) {
+            userStripes[i] = new UserStripe();
+            itemStripes[i] = new ItemStripe();
+        }
+    }
+
+    public void record(long userKey, long item) {
+        UserStripe users = userStripes[stripe(userKey)];
+        long[] earlier;
+        synchronized (users) {
+            earlier = users.append(userKey, item);
+        }
+        // Null for a repeat download of the same title, which does not strengthen any pair
+        if (earlier == null) {
+            return;
+        }
+        for (long other : earlier) {
+            increment(other, item);
+            increment(item, other);
+        }
+    }
+
+    // Packed [other, count, ...] pairs, best first; callers must not modify the array
+    public long[] related(long item) {
+        ItemStripe items = itemStripes[stripe(item)];
+        long[] top;
+        synchronized (items) {
+            top = items.topNeighbours.get(item);
+        }
+        return top == null ? EMPTY : top;
+    }
+
+    public int itemCount() {
+        int count = 0;
+        for (ItemStripe items : itemStripes) {
+            synchronized (items) {
+                count += items.rows.size();
+            }
+        }
+        return count;
+    }
+
+    // Readers carried over from the previous generation are counted twice until it is dropped
+    public int userCount() {
+        int count = 0;
+        for (UserStripe users : userStripes) {
+            synchronized (users) {
+                count += users.current.size() + users.previous.size();
+            }
+        }
+        return count;
+    }
+
+    public long pairCount() {
+        long count = 0;
+        for (ItemStripe items : itemStripes) {
+            synchronized (items) {
+                count += items.pairs;
+            }
+        }
+        return count;
+    }
+
+    public long memoryBytes() {
+        long[] total = {0};
+        for (UserStripe users : userStripes) {
+            synchronized (users) {
+                for (LongObjectHashMap<long[]> histories : List.of(users.current, users.previous)) {
+                    total[0] += histories.memoryBytes();
+                    histories.forEach((key, history) -> total[0] += 16L + (long) history.length * Long.BYTES);
+                }
+            }
+        }
+        for (ItemStripe items : itemStripes) {
+            synchronized (items) {
+                total[0] += items.rows.memoryBytes() + items.topNeighbours.memoryBytes();
+                items.rows.forEach((key, row) -> total[0] += 32L + row.memoryBytes());
+                items.topNeighbours.forEach((key, top) -> total[0] += 16L + (long) top.length * Long.BYTES);
+            }
+        }
+        return total[0];
+    }
+
+    private int stripe(long key) {
+        return Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+    }
+
+    private void increment(long item, long other) {
+        ItemStripe items = itemStripes[stripe(item)];
+        synchronized (items) {
+            LongIntHashMap row = items.rows.get(item);
+            if (row == null) {
+                row = new LongIntHashMap();
+                items.rows.put(item, row);
+            }
+            int count = row.addTo(other, 1);
+            if (count == 1) {
+                items.pairs++;
+            }
+            if (row.size() > maxRowSize) {
+                prune(items, item, row);
+            } else {
+                offer(items, item, other, count);
+            }
+        }
+    }
+
+    // Moves other to its new place in item's top-k; counts only grow between prunes
+    private void offer(ItemStripe items, long item, long other, int count) {
+        long[] top = items.topNeighbours.get(item);
+        int length = top == null ? 0 : top.length / 2;
+        int position = -1;
+        for (int i = 0; i < length; i++) {
+            if (top[2 * i] == other) {
+                position = i;
+                break;
+            }
+        }
+
+        long[] next;
+        if (position >= 0) {
+            next = top.clone();
+        } else if (length < topK) {
+            next = new long[(length + 1) * 2];
+            if (top != null) {
+                System.arraycopy(top, 0, next, 0, top.length);
+            }
+            position = length;
+        } else if (count > top[top.length - 1]) {
+            next = top.clone();
+            position = length - 1;
+        } else {
+            return;
+        }
+
+        next[2 * position] = other;
+        next[2 * position + 1] = count;
+        while (position > 0 && next[2 * position - 1] < next[2 * position + 1]) {
+            swap(next, position - 1, position);
+            position--;
+        }
+        items.topNeighbours.put(item, next);
+    }
+
+    // Drops the weakest pairs of an oversized row and recomputes its top-k from what is left
+    private void prune(ItemStripe items, long item, LongIntHashMap row) {
+        int threshold = 1;
+        LongIntHashMap pruned = row.retainAbove(threshold);
+        while (pruned.size() > maxRowSize / 2) {
+            pruned = pruned.retainAbove(++threshold);
+        }
+        items.pairs -= row.size() - pruned.size();
+        items.rows.put(item, pruned);
+
+        items.topNeighbours.put(item, EMPTY);
+        pruned.forEach((other, count) -> offer(items, item, other, count));
+    }
+
+    private static void swap(long[] pairs, int a, int b) {
+        long key = pairs[2 * a];
+        long count = pairs[2 * a + 1];
+        pairs[2 * a] = pairs[2 * b];
+        pairs[2 * a + 1] = pairs[2 * b + 1];
+        pairs[2 * b] = key;
+        pairs[2 * b + 1] = count;
+    }
+
+    private final class UserStripe {
+        // user key -> [count, item, item, ...] in download order, capped at maxHistory
+        private LongObjectHashMap<long[]> current = new LongObjectHashMap<>(64);
+        private LongObjectHashMap<long[]> previous = new LongObjectHashMap<>(64);
+
+        // Appends item to the user's history and returns the items before it, or null if already there
+        private long[] append(long userKey, long item) {
+            long[] history = current.get(userKey);
+            if (history == null) {
+                history = previous.get(userKey);
+                if (current.size() >= usersPerGeneration) {
+                    previous = current;
+                    current = new LongObjectHashMap<>(usersPerGeneration);
+                }
+            }
+            int count = history == null ? 0 : (int) history[0];
+            for (int i = 1; i <= count; i++) {
+                if (history[i] == item) {
+                    return null;
+                }
+            }
+            long[] earlier = new long[count];
+            if (count > 0) {
+                System.arraycopy(history, 1, earlier, 0, count);
+            }
+
+            if (history == null) {
+                history = new long[5];
+            } else if (count == maxHistory) {
+                System.arraycopy(history, 2, history, 1, count - 1);
+                count--;
+            } else if (count + 1 == history.length) {
+                long[] grown = new long[Math.min(history.length * 2, maxHistory + 1)];
+                System.arraycopy(history, 0, grown, 0, history.length);
+                history = grown;
+            }
+            history[count + 1] = item;
+            history[0] = count + 1;
+            current.put(userKey, history);
+            return earlier;
+        }
+    }
+
+    private static final class ItemStripe {
+        // item -> (other item -> co-occurrence count)
+        private final LongObjectHashMap<LongIntHashMap> rows = new LongObjectHashMap<>(64);
+        // item -> [other, count, other, count, ...] sorted by count descending; replaced, never mutated
+        private final LongObjectHashMap<long[]> topNeighbours = new LongObjectHashMap<>(64);
+        private long pairs;
+    }
+}
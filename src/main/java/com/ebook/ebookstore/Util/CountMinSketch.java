@@ -0,0 +1,73 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over long keys with lock-free updates. Sketches of the same
+ * shape are linear, so one can be subtracted from another; estimates never
+ * under-count and over-count by at most e/width of the total with high probability.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray cells;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + SEEDS.length);
+        }
+        if (width < 2 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width must be a power of two");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.mask = width - 1;
+        this.cells = new AtomicLongArray(depth * width);
+    }
+
+    public void add(long key, long delta) {
+        for (int row = 0; row < depth; row++) {
+            cells.getAndAdd(index(row, key), delta);
+        }
+    }
+
+    public long estimate(long key) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells.get(index(row, key)));
+        }
+        return Math.max(min, 0);
+    }
+
+    // Removes the contents of a sketch with the same shape, e.g. a time bucket leaving a window
+    public void subtract(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Sketch shapes differ");
+        }
+        for (int i = 0; i < cells.length(); i++) {
+            long value = other.cells.get(i);
+            if (value != 0) {
+                cells.getAndAdd(i, -value);
+            }
+        }
+    }
+
+    public long memoryBytes() {
+        return (long) cells.length() * Long.BYTES;
+    }
+
+    private int index(int row, long key) {
+        long hash = key * SEEDS[row];
+        hash ^= hash >>> 31;
+        hash *= 0x94D049BB133111EBL;
+        hash ^= hash >>> 29;
+        return row * width + (int) (hash & mask);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ebook.ebookstore.Util;
+
+public final class CsvUtils {
+
+    public static final String LEADS_HEADER = "ID,Book Name,Book Code,User Name,Email,Contact Number,Download Time";
+
+    private CsvUtils() {
+    }
+
+    public static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+
+        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+
+        return field;
+    }
+}
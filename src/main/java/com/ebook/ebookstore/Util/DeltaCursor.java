@@ -0,0 +1,46 @@
+package com.ebook.ebookstore.Util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position in a delta export: after the row with this ingest time and id, in (ingested_at, id)
+ * order. Written as {@code yyyyMMddHHmmssSSSSSS-id}; "0" is the start.
+ */
+public record DeltaCursor(LocalDateTime ingestedAt, long id) implements Comparable<DeltaCursor> {
+
+    public static final DeltaCursor START = new DeltaCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("uuuuMMddHHmmssSSSSSS");
+
+    public static DeltaCursor parse(String value) {
+        if (value == null || value.isEmpty() || value.equals("0")) {
+            return START;
+        }
+        int dash = value.indexOf('-');
+        if (dash <= 0) {
+            throw new IllegalArgumentException("Delta cursor must be <yyyyMMddHHmmssSSSSSS>-<id>: " + value);
+        }
+        try {
+            long id = Long.parseLong(value.substring(dash + 1));
+            if (id < 0) {
+                throw new IllegalArgumentException("Delta cursor id must not be negative: " + value);
+            }
+            return new DeltaCursor(LocalDateTime.parse(value.substring(0, dash), FORMAT), id);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid delta cursor: " + value, e);
+        }
+    }
+
+    @Override
+    public int compareTo(DeltaCursor other) {
+        int byTime = ingestedAt.compareTo(other.ingestedAt);
+        return byTime != 0 ? byTime : Long.compare(id, other.id);
+    }
+
+    @Override
+    public String toString() {
+        return FORMAT.format(ingestedAt) + "-" + id;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small size-bounded cache whose entries expire a fixed time after they were loaded.
+ * Loads take a {@link #version()} before reading the source and pass it to {@link #put};
+ * an {@link #invalidate} in between makes the put a no-op, so a load that raced with a
+ * write cannot put the old value back. At capacity, expired entries are dropped first,
+ * then arbitrary ones, down to 90% of capacity: one O(n) pass pays for the next tenth of
+ * the puts instead of running on every put. A put that finds another thread evicting
+ * goes ahead, so the cache can briefly exceed capacity by the number of concurrent puts.
+ */
+public final class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final int evictTo;
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    public ExpiringCache(long ttlMillis, int maxEntries) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxEntries = maxEntries;
+        this.evictTo = maxEntries - Math.max(1, maxEntries / 10);
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public void put(K key, V value, long loadedAtVersion) {
+        if (ttlNanos <= 0 || version.get() != loadedAtVersion) {
+            return;
+        }
+        if (entries.size() >= maxEntries && evictLock.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evictLock.unlock();
+            }
+        }
+        Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlNanos);
+        entries.put(key, entry);
+        // An invalidation that ran between the check and the put
+        if (version.get() != loadedAtVersion) {
+            entries.remove(key, entry);
+        }
+    }
+
+    public void invalidate(K key) {
+        version.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAt > 0);
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > evictTo && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
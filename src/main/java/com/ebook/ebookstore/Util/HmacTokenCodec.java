@@ -0,0 +1,115 @@
+package com.ebook.ebookstore.Util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Compact HMAC-SHA256 bearer tokens of the form {@code <keyId>.<payload>.<signature>}, where the
+ * payload is the subject id and expiry in epoch seconds (16 bytes, base64url). The key id names
+ * the key that signed the token, so keys can be rotated by adding a new one, making it active,
+ * and dropping the old one once its tokens have expired.
+ * <p>
+ * Verification needs no state beyond the keys: no session store and no database lookup.
+ */
+public final class HmacTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final int PAYLOAD_BYTES = 16;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final String activeKeyId;
+    // Mac instances are not thread-safe and slow to create. A thread-local would create one per
+    // virtual thread, i.e. per request, so initialised instances are borrowed from a small pool per key
+    private final Map<String, ArrayBlockingQueue<Mac>> idleMacs = new HashMap<>();
+
+    public HmacTokenCodec(Map<String, byte[]> keys, String activeKeyId) {
+        for (Map.Entry<String, byte[]> key : keys.entrySet()) {
+            String id = key.getKey();
+            if (id.isEmpty() || id.indexOf('.') >= 0) {
+                throw new IllegalArgumentException("Token key id must be non-empty and contain no '.': " + id);
+            }
+            if (key.getValue().length < MIN_KEY_BYTES) {
+                throw new IllegalArgumentException("Token key " + id + " must be at least " + MIN_KEY_BYTES + " bytes");
+            }
+            this.keys.put(id, new SecretKeySpec(key.getValue(), ALGORITHM));
+            this.idleMacs.put(id, new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2));
+        }
+        if (!this.keys.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Active token key " + activeKeyId + " is not configured");
+        }
+        this.activeKeyId = activeKeyId;
+    }
+
+    public String issue(long subject, long expiresAtSeconds) {
+        byte[] payload = ByteBuffer.allocate(PAYLOAD_BYTES).putLong(subject).putLong(expiresAtSeconds).array();
+        String signed = activeKeyId + "." + ENCODER.encodeToString(payload);
+        return signed + "." + ENCODER.encodeToString(sign(activeKeyId, signed));
+    }
+
+    /**
+     * Returns the claims of a well-formed token signed by a configured key and not expired at
+     * {@code nowSeconds}; null otherwise.
+     */
+    public Claims verify(String token, long nowSeconds) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first <= 0 || second < 0 || token.indexOf('.', second + 1) >= 0) {
+            return null;
+        }
+        String keyId = token.substring(0, first);
+        if (!keys.containsKey(keyId)) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(first + 1, second));
+            signature = DECODER.decode(token.substring(second + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length != PAYLOAD_BYTES
+                || !MessageDigest.isEqual(signature, sign(keyId, token.substring(0, second)))) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        Claims claims = new Claims(buffer.getLong(), buffer.getLong());
+        return claims.expiresAtSeconds() > nowSeconds ? claims : null;
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    private byte[] sign(String keyId, String signed) {
+        ArrayBlockingQueue<Mac> idle = idleMacs.get(keyId);
+        Mac mac = idle.poll();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(keys.get(keyId));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+        // doFinal resets the Mac for the next caller; a full pool just drops the extra instance
+        byte[] signature = mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII));
+        idle.offer(mac);
+        return signature;
+    }
+
+    public record Claims(long subject, long expiresAtSeconds) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.ebook.ebookstore.Util;
+
+/**
+ * HyperLogLog distinct-value estimate over strings: 2^precision one-byte registers, a relative
+ * standard error of about 1.04 / sqrt(2^precision), and linear counting while few registers are set,
+ * which keeps small counts close to exact. Sketches of the same precision merge into the sketch of
+ * the union, so per-partition sketches can be combined without seeing the values again. Values
+ * cannot be removed, so callers rebuild the sketch to shed stale ones. Not thread-safe.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 7 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 7 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        long hash = mix(hash(value));
+        int register = (int) (hash >>> (64 - precision));
+        // Position of the first set bit in the remaining 64 - precision bits
+        byte rank = (byte) (Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    // Turns this sketch into the sketch of the union with other
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Sketch precisions differ");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // With 64-bit hashes there is no large-range correction, only the small-range one
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public long memoryBytes() {
+        return registers.length;
+    }
+
+    // FNV-1a over the chars, as in BloomFilter; mix() spreads it over all 64 bits
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,139 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the result of a request under one or more keys for a sliding time window, so
+ * repeats get the original result instead of doing the work again. Concurrent repeats of a
+ * request still in flight wait on the same future.
+ * <p>
+ * Keys are filed into fixed-width time buckets; expiry drops whole buckets, so there is no
+ * per-entry timer and the cost of eviction is paid once per bucket by whichever caller notices
+ * the clock has moved on. When the map is at capacity new requests are simply not remembered.
+ * <p>
+ * Each claim carries a fingerprint of the request it stands for. A key only matches a request
+ * with the same fingerprint; reusing a key for a different request is rejected, so a key alone
+ * never returns someone else's result.
+ */
+public final class IdempotencyWindow<V> {
+
+    private final long bucketMillis;
+    private final int windowBuckets;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Queue<String>> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong expiredThrough;
+
+    public IdempotencyWindow(long windowMillis, int windowBuckets, int maxEntries) {
+        this.windowBuckets = Math.max(1, windowBuckets);
+        this.bucketMillis = Math.max(1, windowMillis / this.windowBuckets);
+        this.maxEntries = maxEntries;
+        this.expiredThrough = new AtomicLong(System.currentTimeMillis() / bucketMillis - this.windowBuckets - 1);
+    }
+
+    /**
+     * Registers {@code claim} under every key, in order, and returns null if none of them is
+     * already live. Otherwise returns the live future found; keys claimed before it was found are
+     * completed with its result, so callers arriving through those keys get the same answer, and
+     * are released again if it fails. Throws {@link KeyReusedException} if a live key was claimed
+     * with a different fingerprint.
+     */
+    public CompletableFuture<V> claim(List<String> keys, String fingerprint, CompletableFuture<V> claim, long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        expire(bucket);
+
+        for (String key : keys) {
+            Entry<V> mine = new Entry<>(claim, fingerprint, bucket);
+            boolean[] replacedExpired = new boolean[1];
+            Entry<V> winner = entries.compute(key, (k, existing) -> {
+                if (existing != null && existing.bucket > bucket - windowBuckets) {
+                    return existing;
+                }
+                replacedExpired[0] = existing != null;
+                return mine;
+            });
+            if (winner != mine) {
+                if (winner.future != claim) {
+                    if (!winner.fingerprint.equals(fingerprint)) {
+                        KeyReusedException reused = new KeyReusedException("Key " + key + " was already used for a different request");
+                        release(keys, claim);
+                        // Anyone who chained onto the keys claimed so far must not wait forever
+                        claim.completeExceptionally(reused);
+                        throw reused;
+                    }
+                    winner.future.whenComplete((value, error) -> {
+                        if (error != null) {
+                            // The winner forgets its keys when it fails; forget the ones chained onto it too
+                            release(keys, claim);
+                            claim.completeExceptionally(error);
+                        } else {
+                            claim.complete(value);
+                        }
+                    });
+                    return winner.future;
+                }
+                continue;
+            }
+            if (!replacedExpired[0] && size.incrementAndGet() > maxEntries) {
+                entries.remove(key, mine);
+                size.decrementAndGet();
+                continue;
+            }
+            buckets.computeIfAbsent(bucket, b -> new ConcurrentLinkedQueue<>()).add(key);
+        }
+        return null;
+    }
+
+    // Forgets the keys held by a claim that failed, so a retry runs again
+    public void release(List<String> keys, CompletableFuture<V> claim) {
+        for (String key : keys) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.future == claim && entries.remove(key, entry)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void expire(long currentBucket) {
+        long through = currentBucket - windowBuckets;
+        long previous = expiredThrough.get();
+        if (previous >= through || !expiredThrough.compareAndSet(previous, through)) {
+            return;
+        }
+        for (Map.Entry<Long, Queue<String>> bucket : buckets.entrySet()) {
+            long number = bucket.getKey();
+            if (number > through) {
+                continue;
+            }
+            buckets.remove(number);
+            for (String key : bucket.getValue()) {
+                Entry<V> entry = entries.get(key);
+                // The key may have been claimed again in a newer bucket
+                if (entry != null && entry.bucket == number && entries.remove(key, entry)) {
+                    size.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private record Entry<V>(CompletableFuture<V> future, String fingerprint, long bucket) {
+    }
+
+    public static final class KeyReusedException extends IllegalArgumentException {
+        public KeyReusedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ebook.ebookstore.Util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public final class JdbcStreaming {
+
+    private static final int BATCHED_FETCH_SIZE = 1000;
+
+    private JdbcStreaming() {
+    }
+
+    // MySQL only streams row by row with Integer.MIN_VALUE; other drivers (H2 in the local profiles) reject it,
+    // so they fetch in batches instead
+    public static int fetchSize(Connection connection) throws SQLException {
+        return "MySQL".equals(connection.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : BATCHED_FETCH_SIZE;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ebook.ebookstore.Util;
+
+/**
+ * Jump consistent hash (Lamping and Veach): maps a key to one of {@code buckets} buckets with
+ * no lookup table, and when buckets go from n to n + 1 only about 1/(n + 1) of the keys move,
+ * all of them into the new bucket. Buckets can therefore only be added or removed at the end.
+ */
+public final class JumpConsistentHash {
+
+    private JumpConsistentHash() {
+    }
+
+    public static int bucket(long key, int buckets) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("Bucket count must be positive");
+        }
+        // Sequential ids would otherwise walk the same jump sequence for a long prefix
+        long state = mix(key);
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            state = state * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((state >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    // Murmur3 fmix64
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
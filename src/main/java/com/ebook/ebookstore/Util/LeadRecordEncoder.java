@@ -0,0 +1,332 @@
+package com.ebook.ebookstore.Util;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Encodes lead rows as CSV or NDJSON directly into a pooled byte buffer, which is drained
+ * to the target stream when full. Fields are UTF-8 encoded and escaped in a single pass over
+ * their chars, numbers are written digit by digit, and timestamps reuse a cached
+ * "yyyy-MM-dd HH:mm:" prefix, so steady-state encoding allocates nothing per row.
+ * CSV output is byte-for-byte what the printf export produced: fields through {@link CsvUtils#escape},
+ * "Unknown" for the name and code of a missing book only, and lines ending in the platform separator.
+ * Not thread-safe; close() returns the buffer to the pool but leaves the stream open.
+ */
+public final class LeadRecordEncoder implements Closeable {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ArrayBlockingQueue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(32);
+
+    // println and %n in the printf export
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CSV_HEADER =
+            (CsvUtils.LEADS_HEADER + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UNKNOWN = "Unknown".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_ID = "{\"id\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_EBOOK_ID = ",\"ebookId\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_BOOK_NAME = ",\"bookName\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_BOOK_CODE = ",\"bookCode\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_USER_NAME = ",\"userName\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_EMAIL = ",\"email\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_CONTACT_NUMBER = ",\"contactNumber\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_DOWNLOAD_TIME = ",\"downloadTime\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final Format format;
+    private byte[] buffer;
+    private int position;
+
+    // "yyyy-MM-dd HH:mm:" (CSV) or "yyyy-MM-ddTHH:mm:" (NDJSON) for cachedMinute
+    private final byte[] minutePrefix = new byte[17];
+    private long cachedMinute = Long.MIN_VALUE;
+
+    public LeadRecordEncoder(OutputStream out, Format format) {
+        this.out = out;
+        this.format = format;
+        byte[] pooled = BUFFER_POOL.poll();
+        this.buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+    }
+
+    // CSV header line; NDJSON has none
+    public void writeHeader() throws IOException {
+        if (format == Format.CSV) {
+            writeBytes(CSV_HEADER);
+        }
+    }
+
+    public void write(LeadRowDTO row) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(row);
+        } else {
+            writeJson(row);
+        }
+    }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            if (buffer.length == BUFFER_SIZE) {
+                BUFFER_POOL.offer(buffer);
+            }
+            buffer = null;
+        }
+    }
+
+    private void writeCsv(LeadRowDTO row) throws IOException {
+        ensure(21);
+        putLong(row.getId());
+        if (row.isBookFound()) {
+            putCsvField(row.getBookName(), null);
+            putCsvField(row.getBookCode(), null);
+        } else {
+            putCsvField(null, UNKNOWN);
+            putCsvField(null, UNKNOWN);
+        }
+        putCsvField(row.getUserName(), null);
+        putCsvField(row.getEmail(), null);
+        putCsvField(row.getContactNumber(), null);
+        ensure(20 + LINE_SEPARATOR.length);
+        buffer[position++] = ',';
+        putTimestamp(row.getDownloadTime());
+        putBytes(LINE_SEPARATOR);
+    }
+
+    private void writeJson(LeadRowDTO row) throws IOException {
+        ensure(JSON_ID.length + 20 + JSON_EBOOK_ID.length + 20);
+        putBytes(JSON_ID);
+        putLong(row.getId());
+        putBytes(JSON_EBOOK_ID);
+        putLong(row.getEbookId());
+        putJsonField(JSON_BOOK_NAME, row.getBookName());
+        putJsonField(JSON_BOOK_CODE, row.getBookCode());
+        putJsonField(JSON_USER_NAME, row.getUserName());
+        putJsonField(JSON_EMAIL, row.getEmail());
+        putJsonField(JSON_CONTACT_NUMBER, row.getContactNumber());
+        ensure(JSON_DOWNLOAD_TIME.length + 23);
+        putBytes(JSON_DOWNLOAD_TIME);
+        buffer[position++] = '"';
+        putTimestamp(row.getDownloadTime());
+        buffer[position++] = '"';
+        buffer[position++] = '}';
+        buffer[position++] = '\n';
+    }
+
+    /**
+     * Writes the separator and the field, doubling quotes as it goes; if a quote, comma or
+     * newline turned up, the field's bytes are shifted right by one to open the quotes afterwards.
+     */
+    private void putCsvField(String value, byte[] nullValue) throws IOException {
+        if (value == null) {
+            ensure(1 + (nullValue != null ? nullValue.length : 0));
+            buffer[position++] = ',';
+            if (nullValue != null) {
+                putBytes(nullValue);
+            }
+            return;
+        }
+        int length = value.length();
+        // Worst case: 3 UTF-8 bytes per char, or a doubled quote, plus separator and quotes
+        ensure(length * 3 + 3);
+        buffer[position++] = ',';
+        int start = position;
+        boolean quote = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                quote = true;
+                buffer[position++] = '"';
+                buffer[position++] = '"';
+            } else if (c == ',' || c == '\n') {
+                quote = true;
+                buffer[position++] = (byte) c;
+            } else if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else {
+                i = putUtf8(value, i);
+            }
+        }
+        if (quote) {
+            System.arraycopy(buffer, start, buffer, start + 1, position - start);
+            buffer[start] = '"';
+            position++;
+            buffer[position++] = '"';
+        }
+    }
+
+    private void putJsonField(byte[] name, String value) throws IOException {
+        if (value == null) {
+            ensure(name.length + NULL.length);
+            putBytes(name);
+            putBytes(NULL);
+            return;
+        }
+        int length = value.length();
+        // Worst case: six bytes per char for a control character escape, plus the name and two quotes
+        ensure(name.length + length * 6 + 2);
+        putBytes(name);
+        buffer[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (c == '\n') {
+                buffer[position++] = '\\';
+                buffer[position++] = 'n';
+            } else if (c == '\r') {
+                buffer[position++] = '\\';
+                buffer[position++] = 'r';
+            } else if (c == '\t') {
+                buffer[position++] = '\\';
+                buffer[position++] = 't';
+            } else if (c < 0x20) {
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else {
+                i = putUtf8(value, i);
+            }
+        }
+        buffer[position++] = '"';
+    }
+
+    // Encodes the non-ASCII char at index i (and its low surrogate); returns the last index consumed
+    private int putUtf8(String value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            // Unpaired surrogate, replaced like String.getBytes does
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private void putTimestamp(LocalDateTime time) {
+        long epochSecond = time.toEpochSecond(ZoneOffset.UTC);
+        long minute = Math.floorDiv(epochSecond, 60);
+        if (minute != cachedMinute) {
+            fillMinutePrefix(time);
+            cachedMinute = minute;
+        }
+        System.arraycopy(minutePrefix, 0, buffer, position, minutePrefix.length);
+        position += minutePrefix.length;
+        int second = time.getSecond();
+        buffer[position++] = (byte) ('0' + second / 10);
+        buffer[position++] = (byte) ('0' + second % 10);
+    }
+
+    // Years outside 0000-9999 do not occur for download times and are clamped to four digits
+    private void fillMinutePrefix(LocalDateTime time) {
+        int year = Math.floorMod(time.getYear(), 10000);
+        minutePrefix[0] = (byte) ('0' + year / 1000);
+        minutePrefix[1] = (byte) ('0' + year / 100 % 10);
+        minutePrefix[2] = (byte) ('0' + year / 10 % 10);
+        minutePrefix[3] = (byte) ('0' + year % 10);
+        minutePrefix[4] = '-';
+        putTwoDigits(minutePrefix, 5, time.getMonthValue());
+        minutePrefix[7] = '-';
+        putTwoDigits(minutePrefix, 8, time.getDayOfMonth());
+        minutePrefix[10] = (byte) (format == Format.CSV ? ' ' : 'T');
+        putTwoDigits(minutePrefix, 11, time.getHour());
+        minutePrefix[13] = ':';
+        putTwoDigits(minutePrefix, 14, time.getMinute());
+        minutePrefix[16] = ':';
+    }
+
+    private static void putTwoDigits(byte[] target, int offset, int value) {
+        target[offset] = (byte) ('0' + value / 10);
+        target[offset + 1] = (byte) ('0' + value % 10);
+    }
+
+    // Needs 20 bytes of headroom
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            putBytes(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        putBytes(bytes);
+    }
+
+    private void putBytes(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    // Makes room for `bytes` more bytes, draining first and growing only for oversized fields
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes <= buffer.length) {
+            return;
+        }
+        drain();
+        if (bytes > buffer.length) {
+            buffer = new byte[bytes];
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
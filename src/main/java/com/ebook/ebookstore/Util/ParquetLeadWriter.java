@@ -0,0 +1,640 @@
+package com.ebook.ebookstore.Util;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams lead rows into a Parquet file. Rows are buffered one row group at a time and each
+ * column chunk is written as a single gzip-compressed page:
+ * <ul>
+ *   <li>id, download_time: INT64, DELTA_BINARY_PACKED (both grow with the id order of the cursor)</li>
+ *   <li>ebook_id, book_code, book_name: RLE_DICTIONARY with a PLAIN dictionary page per row group</li>
+ *   <li>user_name, email, contact_number: PLAIN</li>
+ * </ul>
+ * download_time is TIMESTAMP(MILLIS) not adjusted to UTC, matching LocalDateTime. INT64 columns
+ * carry min/max statistics so readers can skip row groups by time or book.
+ */
+public final class ParquetLeadWriter {
+
+    private static final byte[] MAGIC = {'P', 'A', 'R', '1'};
+    // "<application> version <version>", the form parquet-mr parses before it trusts a writer's statistics
+    private static final String CREATED_BY = "ebookstore-lead-export version 1.0.0";
+
+    // Enum values from parquet.thrift
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int REPETITION_REQUIRED = 0;
+    private static final int REPETITION_OPTIONAL = 1;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+    private static final int ENCODING_DELTA_BINARY_PACKED = 5;
+    private static final int ENCODING_RLE_DICTIONARY = 8;
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+    private static final int CODEC_GZIP = 2;
+
+    private static final int DELTA_BLOCK_SIZE = 128;
+    private static final int DELTA_MINIBLOCKS = 4;
+    private static final int DELTA_MINIBLOCK_SIZE = DELTA_BLOCK_SIZE / DELTA_MINIBLOCKS;
+
+    private enum LogicalType {
+        NONE, STRING, TIMESTAMP_MILLIS
+    }
+
+    private final OutputStream out;
+    private final int rowGroupSize;
+
+    private final DeltaLongColumn id;
+    private final DictionaryLongColumn ebookId;
+    private final DictionaryStringColumn bookCode;
+    private final DictionaryStringColumn bookName;
+    private final PlainStringColumn userName;
+    private final PlainStringColumn email;
+    private final PlainStringColumn contactNumber;
+    private final DeltaLongColumn downloadTime;
+    private final List<Column> columns;
+
+    private final List<RowGroupMeta> rowGroups = new ArrayList<>();
+    private long position;
+    private long totalRows;
+    private int rows;
+    private boolean finished;
+
+    public ParquetLeadWriter(OutputStream out, int rowGroupSize) throws IOException {
+        this.out = out;
+        this.rowGroupSize = rowGroupSize;
+        this.id = new DeltaLongColumn("id", LogicalType.NONE, rowGroupSize);
+        this.ebookId = new DictionaryLongColumn("ebook_id", rowGroupSize);
+        this.bookCode = new DictionaryStringColumn("book_code", rowGroupSize);
+        this.bookName = new DictionaryStringColumn("book_name", rowGroupSize);
+        this.userName = new PlainStringColumn("user_name", rowGroupSize);
+        this.email = new PlainStringColumn("email", rowGroupSize);
+        this.contactNumber = new PlainStringColumn("contact_number", rowGroupSize);
+        this.downloadTime = new DeltaLongColumn("download_time", LogicalType.TIMESTAMP_MILLIS, rowGroupSize);
+        this.columns = List.of(id, ebookId, bookCode, bookName, userName, email, contactNumber, downloadTime);
+        out.write(MAGIC);
+        position = MAGIC.length;
+    }
+
+    public void write(LeadRowDTO row) throws IOException {
+        id.add(row.getId());
+        ebookId.add(row.getEbookId());
+        bookCode.add(row.getBookCode());
+        bookName.add(row.getBookName());
+        userName.add(row.getUserName());
+        email.add(row.getEmail());
+        contactNumber.add(row.getContactNumber());
+        downloadTime.add(row.getDownloadTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+        if (++rows == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    /**
+     * Writes the last row group and the footer; the underlying stream is flushed but left open.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (rows > 0) {
+            flushRowGroup();
+        }
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        writeFileMetaData(new ThriftCompactWriter(footer));
+        footer.writeTo(out);
+        byte[] length = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            length[i] = (byte) (footer.size() >>> (8 * i));
+        }
+        out.write(length);
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    private void flushRowGroup() throws IOException {
+        long offset = position;
+        List<ChunkMeta> chunks = new ArrayList<>(columns.size());
+        long uncompressed = 0;
+        for (Column column : columns) {
+            ChunkMeta chunk = column.writeChunk();
+            chunks.add(chunk);
+            uncompressed += chunk.uncompressedSize();
+            column.reset();
+        }
+        rowGroups.add(new RowGroupMeta(chunks, rows, offset, uncompressed, position - offset));
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private ChunkMeta writeChunk(Column column, byte[] dictionaryPage, int dictionarySize, byte[] dataPage,
+                                 int dataEncoding, int[] encodings, byte[] min, byte[] max) throws IOException {
+        long offset = position;
+        long uncompressed = 0;
+        long dictionaryOffset = -1;
+        if (dictionaryPage != null) {
+            dictionaryOffset = position;
+            uncompressed += writePage(PAGE_DICTIONARY, dictionaryPage, dictionarySize, ENCODING_PLAIN);
+        }
+        long dataOffset = position;
+        uncompressed += writePage(PAGE_DATA, dataPage, rows, dataEncoding);
+        return new ChunkMeta(column, offset, dataOffset, dictionaryOffset, uncompressed, position - offset,
+                rows, encodings, column.nullCount, min, max);
+    }
+
+    // Returns the uncompressed size of the page including its header, as the column metadata counts it
+    private long writePage(int pageType, byte[] page, int valueCount, int encoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(page.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(page);
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(64);
+        ThriftCompactWriter thrift = new ThriftCompactWriter(header);
+        thrift.beginStruct();
+        thrift.fieldI32(1, pageType);
+        thrift.fieldI32(2, page.length);
+        thrift.fieldI32(3, compressed.size());
+        if (pageType == PAGE_DICTIONARY) {
+            thrift.fieldStruct(7);
+            thrift.fieldI32(1, valueCount);
+            thrift.fieldI32(2, ENCODING_PLAIN);
+            thrift.endStruct();
+        } else {
+            thrift.fieldStruct(5);
+            thrift.fieldI32(1, valueCount);
+            thrift.fieldI32(2, encoding);
+            thrift.fieldI32(3, ENCODING_RLE);
+            thrift.fieldI32(4, ENCODING_RLE);
+            thrift.endStruct();
+        }
+        thrift.endStruct();
+
+        header.writeTo(out);
+        compressed.writeTo(out);
+        position += header.size() + compressed.size();
+        return header.size() + page.length;
+    }
+
+    private void writeFileMetaData(ThriftCompactWriter thrift) {
+        thrift.beginStruct();
+        thrift.fieldI32(1, 1);
+
+        thrift.fieldList(2, ThriftCompactWriter.TYPE_STRUCT, columns.size() + 1);
+        thrift.beginStruct();
+        thrift.fieldString(4, "lead");
+        thrift.fieldI32(5, columns.size());
+        thrift.endStruct();
+        for (Column column : columns) {
+            writeSchemaElement(thrift, column);
+        }
+
+        thrift.fieldI64(3, totalRows);
+
+        thrift.fieldList(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+        for (RowGroupMeta rowGroup : rowGroups) {
+            thrift.beginStruct();
+            thrift.fieldList(1, ThriftCompactWriter.TYPE_STRUCT, rowGroup.chunks().size());
+            for (ChunkMeta chunk : rowGroup.chunks()) {
+                writeColumnChunk(thrift, chunk);
+            }
+            thrift.fieldI64(2, rowGroup.uncompressedSize());
+            thrift.fieldI64(3, rowGroup.rows());
+            thrift.fieldI64(5, rowGroup.offset());
+            thrift.fieldI64(6, rowGroup.compressedSize());
+            thrift.endStruct();
+        }
+
+        thrift.fieldString(6, CREATED_BY);
+
+        // TypeDefinedOrder for every column, so readers trust min_value/max_value
+        thrift.fieldList(7, ThriftCompactWriter.TYPE_STRUCT, columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            thrift.beginStruct();
+            thrift.fieldStruct(1);
+            thrift.endStruct();
+            thrift.endStruct();
+        }
+        thrift.endStruct();
+    }
+
+    private void writeSchemaElement(ThriftCompactWriter thrift, Column column) {
+        thrift.beginStruct();
+        thrift.fieldI32(1, column.type);
+        thrift.fieldI32(3, column.optional ? REPETITION_OPTIONAL : REPETITION_REQUIRED);
+        thrift.fieldString(4, column.name);
+        if (column.logicalType == LogicalType.STRING) {
+            thrift.fieldI32(6, CONVERTED_UTF8);
+            thrift.fieldStruct(10);
+            thrift.fieldStruct(1);
+            thrift.endStruct();
+            thrift.endStruct();
+        } else if (column.logicalType == LogicalType.TIMESTAMP_MILLIS) {
+            thrift.fieldStruct(10);
+            thrift.fieldStruct(8);
+            thrift.fieldBool(1, false);
+            thrift.fieldStruct(2);
+            thrift.fieldStruct(1);
+            thrift.endStruct();
+            thrift.endStruct();
+            thrift.endStruct();
+            thrift.endStruct();
+        }
+        thrift.endStruct();
+    }
+
+    private void writeColumnChunk(ThriftCompactWriter thrift, ChunkMeta chunk) {
+        Column column = chunk.column();
+        thrift.beginStruct();
+        thrift.fieldI64(2, chunk.offset());
+        thrift.fieldStruct(3);
+        thrift.fieldI32(1, column.type);
+        thrift.fieldList(2, ThriftCompactWriter.TYPE_I32, chunk.encodings().length);
+        for (int encoding : chunk.encodings()) {
+            thrift.i32(encoding);
+        }
+        thrift.fieldList(3, ThriftCompactWriter.TYPE_BINARY, 1);
+        thrift.string(column.name);
+        thrift.fieldI32(4, CODEC_GZIP);
+        thrift.fieldI64(5, chunk.valueCount());
+        thrift.fieldI64(6, chunk.uncompressedSize());
+        thrift.fieldI64(7, chunk.compressedSize());
+        thrift.fieldI64(9, chunk.dataPageOffset());
+        if (chunk.dictionaryPageOffset() >= 0) {
+            thrift.fieldI64(11, chunk.dictionaryPageOffset());
+        }
+        thrift.fieldStruct(12);
+        thrift.fieldI64(3, chunk.nullCount());
+        if (chunk.min() != null) {
+            thrift.fieldBinary(5, chunk.max());
+            thrift.fieldBinary(6, chunk.min());
+        }
+        thrift.endStruct();
+        thrift.endStruct();
+        thrift.endStruct();
+    }
+
+    private abstract class Column {
+        final String name;
+        final int type;
+        final boolean optional;
+        final LogicalType logicalType;
+        final int[] definitionLevels;
+        int nullCount;
+
+        Column(String name, int type, boolean optional, LogicalType logicalType, int capacity) {
+            this.name = name;
+            this.type = type;
+            this.optional = optional;
+            this.logicalType = logicalType;
+            this.definitionLevels = optional ? new int[capacity] : null;
+        }
+
+        abstract ChunkMeta writeChunk() throws IOException;
+
+        abstract void reset();
+
+        // Returns false for null, which optional columns record as definition level 0
+        boolean define(Object value) {
+            if (value == null) {
+                definitionLevels[rows] = 0;
+                nullCount++;
+                return false;
+            }
+            definitionLevels[rows] = 1;
+            return true;
+        }
+
+        // Data page v1 layout for a flat schema: [definition levels][values]
+        ByteArrayOutputStream startDataPage() throws IOException {
+            ByteArrayOutputStream page = new ByteArrayOutputStream();
+            if (optional) {
+                ByteArrayOutputStream levels = new ByteArrayOutputStream();
+                writeHybrid(levels, definitionLevels, rows, 1);
+                writeIntLE(page, levels.size());
+                levels.writeTo(page);
+            }
+            return page;
+        }
+    }
+
+    private final class DeltaLongColumn extends Column {
+        private final long[] values;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        DeltaLongColumn(String name, LogicalType logicalType, int capacity) {
+            super(name, TYPE_INT64, false, logicalType, capacity);
+            this.values = new long[capacity];
+        }
+
+        void add(long value) {
+            values[rows] = value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        @Override
+        ChunkMeta writeChunk() throws IOException {
+            ByteArrayOutputStream page = startDataPage();
+            writeDeltaBinaryPacked(page, values, rows);
+            return ParquetLeadWriter.this.writeChunk(this, null, 0, page.toByteArray(), ENCODING_DELTA_BINARY_PACKED,
+                    new int[]{ENCODING_DELTA_BINARY_PACKED}, longBytes(min), longBytes(max));
+        }
+
+        @Override
+        void reset() {
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+    }
+
+    private final class DictionaryLongColumn extends Column {
+        private final int[] indices;
+        private LongIntHashMap lookup = new LongIntHashMap();
+        private long[] dictionary = new long[256];
+        private int dictionarySize;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        DictionaryLongColumn(String name, int capacity) {
+            super(name, TYPE_INT64, false, LogicalType.NONE, capacity);
+            this.indices = new int[capacity];
+        }
+
+        void add(long value) {
+            // Stored as index + 1 so that 0 means absent
+            int index = lookup.get(value, 0) - 1;
+            if (index < 0) {
+                index = dictionarySize++;
+                if (index == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, index * 2);
+                }
+                dictionary[index] = value;
+                lookup.addTo(value, index + 1);
+            }
+            indices[rows] = index;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        @Override
+        ChunkMeta writeChunk() throws IOException {
+            ByteArrayOutputStream dictionaryPage = new ByteArrayOutputStream(dictionarySize * 8);
+            for (int i = 0; i < dictionarySize; i++) {
+                writeLongLE(dictionaryPage, dictionary[i]);
+            }
+            ByteArrayOutputStream page = startDataPage();
+            writeDictionaryIndices(page, indices, rows, dictionarySize);
+            return ParquetLeadWriter.this.writeChunk(this, dictionaryPage.toByteArray(), dictionarySize,
+                    page.toByteArray(), ENCODING_RLE_DICTIONARY,
+                    new int[]{ENCODING_PLAIN, ENCODING_RLE_DICTIONARY}, longBytes(min), longBytes(max));
+        }
+
+        @Override
+        void reset() {
+            lookup = new LongIntHashMap();
+            dictionarySize = 0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+    }
+
+    private final class DictionaryStringColumn extends Column {
+        private final int[] indices;
+        private final Map<String, Integer> lookup = new HashMap<>();
+        private final ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        private int valueCount;
+
+        DictionaryStringColumn(String name, int capacity) {
+            super(name, TYPE_BYTE_ARRAY, true, LogicalType.STRING, capacity);
+            this.indices = new int[capacity];
+        }
+
+        void add(String value) {
+            if (!define(value)) {
+                return;
+            }
+            Integer index = lookup.get(value);
+            if (index == null) {
+                index = lookup.size();
+                lookup.put(value, index);
+                writeByteArray(dictionary, value);
+            }
+            indices[valueCount++] = index;
+        }
+
+        @Override
+        ChunkMeta writeChunk() throws IOException {
+            ByteArrayOutputStream page = startDataPage();
+            writeDictionaryIndices(page, indices, valueCount, lookup.size());
+            return ParquetLeadWriter.this.writeChunk(this, dictionary.toByteArray(), lookup.size(),
+                    page.toByteArray(), ENCODING_RLE_DICTIONARY,
+                    new int[]{ENCODING_PLAIN, ENCODING_RLE, ENCODING_RLE_DICTIONARY}, null, null);
+        }
+
+        @Override
+        void reset() {
+            lookup.clear();
+            dictionary.reset();
+            valueCount = 0;
+            nullCount = 0;
+        }
+    }
+
+    private final class PlainStringColumn extends Column {
+        private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+
+        PlainStringColumn(String name, int capacity) {
+            super(name, TYPE_BYTE_ARRAY, true, LogicalType.STRING, capacity);
+        }
+
+        void add(String value) {
+            if (define(value)) {
+                writeByteArray(values, value);
+            }
+        }
+
+        @Override
+        ChunkMeta writeChunk() throws IOException {
+            ByteArrayOutputStream page = startDataPage();
+            values.writeTo(page);
+            return ParquetLeadWriter.this.writeChunk(this, null, 0, page.toByteArray(), ENCODING_PLAIN,
+                    new int[]{ENCODING_PLAIN, ENCODING_RLE}, null, null);
+        }
+
+        @Override
+        void reset() {
+            values.reset();
+            nullCount = 0;
+        }
+    }
+
+    private record ChunkMeta(Column column, long offset, long dataPageOffset, long dictionaryPageOffset,
+                             long uncompressedSize, long compressedSize, long valueCount, int[] encodings,
+                             long nullCount, byte[] min, byte[] max) {
+    }
+
+    private record RowGroupMeta(List<ChunkMeta> chunks, long rows, long offset, long uncompressedSize,
+                                long compressedSize) {
+    }
+
+    // Bit width byte followed by the RLE/bit-packed indices
+    private static void writeDictionaryIndices(ByteArrayOutputStream out, int[] indices, int count, int dictionarySize) {
+        int bitWidth = 32 - Integer.numberOfLeadingZeros(Math.max(1, dictionarySize - 1));
+        out.write(bitWidth);
+        writeHybrid(out, indices, count, bitWidth);
+    }
+
+    /**
+     * RLE/bit-packing hybrid: runs of 8 or more equal values become RLE runs, everything else
+     * is bit-packed in groups of 8. Only the final group may be padded.
+     */
+    private static void writeHybrid(ByteArrayOutputStream out, int[] values, int count, int bitWidth) {
+        int byteWidth = (bitWidth + 7) / 8;
+        BitPacker packer = new BitPacker(out);
+        int i = 0;
+        while (i < count) {
+            int run = repeatLength(values, i, count);
+            if (run >= 8) {
+                writeVarint(out, (long) run << 1);
+                for (int b = 0; b < byteWidth; b++) {
+                    out.write(values[i] >>> (8 * b));
+                }
+                i += run;
+                continue;
+            }
+            int start = i;
+            do {
+                i += 8;
+            } while (i < count && repeatLength(values, i, count) < 8);
+            writeVarint(out, ((long) (i - start) / 8 << 1) | 1);
+            for (int k = start; k < i; k++) {
+                packer.write(k < count ? values[k] : 0, bitWidth);
+            }
+            i = Math.min(i, count);
+        }
+    }
+
+    private static int repeatLength(int[] values, int from, int count) {
+        int end = from + 1;
+        while (end < count && values[end] == values[from]) {
+            end++;
+        }
+        return end - from;
+    }
+
+    /**
+     * DELTA_BINARY_PACKED: header, then blocks of 128 deltas stored as (delta - block minimum)
+     * bit-packed in four miniblocks of 32, each with its own bit width.
+     */
+    private static void writeDeltaBinaryPacked(ByteArrayOutputStream out, long[] values, int count) {
+        writeVarint(out, DELTA_BLOCK_SIZE);
+        writeVarint(out, DELTA_MINIBLOCKS);
+        writeVarint(out, count);
+        writeVarint(out, zigzag(count > 0 ? values[0] : 0));
+
+        long[] deltas = new long[DELTA_BLOCK_SIZE];
+        BitPacker packer = new BitPacker(out);
+        for (int i = 1; i < count; i += DELTA_BLOCK_SIZE) {
+            int n = Math.min(DELTA_BLOCK_SIZE, count - i);
+            long minDelta = Long.MAX_VALUE;
+            for (int k = 0; k < n; k++) {
+                deltas[k] = values[i + k] - values[i + k - 1];
+                minDelta = Math.min(minDelta, deltas[k]);
+            }
+            writeVarint(out, zigzag(minDelta));
+
+            int[] bitWidths = new int[DELTA_MINIBLOCKS];
+            for (int m = 0; m < DELTA_MINIBLOCKS; m++) {
+                long bits = 0;
+                for (int k = m * DELTA_MINIBLOCK_SIZE; k < Math.min(n, (m + 1) * DELTA_MINIBLOCK_SIZE); k++) {
+                    bits |= deltas[k] - minDelta;
+                }
+                bitWidths[m] = 64 - Long.numberOfLeadingZeros(bits);
+                out.write(bitWidths[m]);
+            }
+            // Miniblocks past the last value are omitted
+            for (int m = 0; m < DELTA_MINIBLOCKS && m * DELTA_MINIBLOCK_SIZE < n; m++) {
+                for (int k = m * DELTA_MINIBLOCK_SIZE; k < (m + 1) * DELTA_MINIBLOCK_SIZE; k++) {
+                    packer.write(k < n ? deltas[k] - minDelta : 0, bitWidths[m]);
+                }
+            }
+        }
+    }
+
+    // Little-endian bit packing, least significant bit first
+    private static final class BitPacker {
+        private final ByteArrayOutputStream out;
+        private int current;
+        private int bits;
+
+        private BitPacker(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        private void write(long value, int bitWidth) {
+            while (bitWidth > 0) {
+                int take = Math.min(bitWidth, 8 - bits);
+                current |= (int) ((value & ((1L << take) - 1)) << bits);
+                value >>>= take;
+                bitWidth -= take;
+                bits += take;
+                if (bits == 8) {
+                    out.write(current);
+                    current = 0;
+                    bits = 0;
+                }
+            }
+        }
+    }
+
+    private static void writeByteArray(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeIntLE(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] longBytes(long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8);
+        writeLongLE(out, value);
+        return out.toByteArray();
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        for (int i = 0; i < 4; i++) {
+            out.write(value >>> (8 * i));
+        }
+    }
+
+    private static void writeLongLE(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (value >>> (8 * i)));
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,207 @@
+package com.ebook.ebookstore.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Writes a zip archive whose entries were already deflated elsewhere (raw deflate, no zlib
+ * header). {@link java.util.zip.ZipOutputStream} can only compress on the writing thread;
+ * this writer lets entries be compressed in parallel and only copies bytes in order.
+ * Switches to Zip64 records when sizes, offsets or the entry count need it.
+ */
+public final class PrecompressedZipWriter {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+
+    private static final int VERSION_DEFLATE = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final byte[] scratch = new byte[8];
+    private long offset;
+    private long entries;
+    private boolean finished;
+
+    public PrecompressedZipWriter(OutputStream out) {
+        this.out = out;
+        this.channel = Channels.newChannel(out);
+    }
+
+    /**
+     * Appends one entry whose deflated bytes are {@code source[position, position + compressedSize)}.
+     */
+    public void writeEntry(String name, long crc, long compressedSize, long size, LocalDateTime modified,
+                           FileChannel source, long position) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Zip archive already finished");
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int dosTime = dosTime(modified);
+        int dosDate = dosDate(modified);
+        boolean zip64Sizes = compressedSize >= MAX_32 || size >= MAX_32;
+        long headerOffset = offset;
+
+        writeInt(out, LOCAL_HEADER);
+        writeShort(out, zip64Sizes ? VERSION_ZIP64 : VERSION_DEFLATE);
+        writeShort(out, FLAG_UTF8);
+        writeShort(out, METHOD_DEFLATED);
+        writeShort(out, dosTime);
+        writeShort(out, dosDate);
+        writeInt(out, (int) crc);
+        writeInt(out, zip64Sizes ? (int) MAX_32 : (int) compressedSize);
+        writeInt(out, zip64Sizes ? (int) MAX_32 : (int) size);
+        writeShort(out, nameBytes.length);
+        writeShort(out, zip64Sizes ? 20 : 0);
+        out.write(nameBytes);
+        if (zip64Sizes) {
+            writeShort(out, 0x0001);
+            writeShort(out, 16);
+            writeLong(out, size);
+            writeLong(out, compressedSize);
+        }
+        offset += 30 + nameBytes.length + (zip64Sizes ? 20 : 0);
+
+        out.flush();
+        long copied = 0;
+        while (copied < compressedSize) {
+            copied += source.transferTo(position + copied, compressedSize - copied, channel);
+        }
+        offset += compressedSize;
+
+        writeCentralEntry(nameBytes, crc, compressedSize, size, dosTime, dosDate, headerOffset);
+        entries++;
+    }
+
+    /**
+     * Writes the central directory; the underlying stream is flushed but left open.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        long centralOffset = offset;
+        long centralSize = centralDirectory.size();
+        centralDirectory.writeTo(out);
+        offset += centralSize;
+
+        boolean zip64 = entries >= MAX_16 || centralOffset >= MAX_32 || centralSize >= MAX_32;
+        if (zip64) {
+            long zip64EndOffset = offset;
+            writeInt(out, ZIP64_END_OF_CENTRAL_DIRECTORY);
+            writeLong(out, 44);
+            writeShort(out, VERSION_ZIP64);
+            writeShort(out, VERSION_ZIP64);
+            writeInt(out, 0);
+            writeInt(out, 0);
+            writeLong(out, entries);
+            writeLong(out, entries);
+            writeLong(out, centralSize);
+            writeLong(out, centralOffset);
+
+            writeInt(out, ZIP64_LOCATOR);
+            writeInt(out, 0);
+            writeLong(out, zip64EndOffset);
+            writeInt(out, 1);
+        }
+
+        writeInt(out, END_OF_CENTRAL_DIRECTORY);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, (int) Math.min(entries, MAX_16));
+        writeShort(out, (int) Math.min(entries, MAX_16));
+        writeInt(out, (int) Math.min(centralSize, MAX_32));
+        writeInt(out, (int) Math.min(centralOffset, MAX_32));
+        writeShort(out, 0);
+        out.flush();
+    }
+
+    private void writeCentralEntry(byte[] nameBytes, long crc, long compressedSize, long size,
+                                   int dosTime, int dosDate, long headerOffset) throws IOException {
+        boolean zip64Size = size >= MAX_32;
+        boolean zip64Compressed = compressedSize >= MAX_32;
+        boolean zip64Offset = headerOffset >= MAX_32;
+        int extraLength = (zip64Size ? 8 : 0) + (zip64Compressed ? 8 : 0) + (zip64Offset ? 8 : 0);
+        boolean zip64 = extraLength > 0;
+
+        OutputStream cd = centralDirectory;
+        writeInt(cd, CENTRAL_HEADER);
+        writeShort(cd, VERSION_ZIP64);
+        writeShort(cd, zip64 ? VERSION_ZIP64 : VERSION_DEFLATE);
+        writeShort(cd, FLAG_UTF8);
+        writeShort(cd, METHOD_DEFLATED);
+        writeShort(cd, dosTime);
+        writeShort(cd, dosDate);
+        writeInt(cd, (int) crc);
+        writeInt(cd, zip64Compressed ? (int) MAX_32 : (int) compressedSize);
+        writeInt(cd, zip64Size ? (int) MAX_32 : (int) size);
+        writeShort(cd, nameBytes.length);
+        writeShort(cd, zip64 ? extraLength + 4 : 0);
+        writeShort(cd, 0);
+        writeShort(cd, 0);
+        writeShort(cd, 0);
+        writeInt(cd, 0);
+        writeInt(cd, zip64Offset ? (int) MAX_32 : (int) headerOffset);
+        cd.write(nameBytes);
+        if (zip64) {
+            // Zip64 extra field carries only the values that overflowed, in this fixed order
+            writeShort(cd, 0x0001);
+            writeShort(cd, extraLength);
+            if (zip64Size) {
+                writeLong(cd, size);
+            }
+            if (zip64Compressed) {
+                writeLong(cd, compressedSize);
+            }
+            if (zip64Offset) {
+                writeLong(cd, headerOffset);
+            }
+        }
+    }
+
+    private static int dosTime(LocalDateTime time) {
+        return (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+    }
+
+    private static int dosDate(LocalDateTime time) {
+        int year = Math.max(1980, Math.min(2107, time.getYear()));
+        return ((year - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+    }
+
+    private void writeShort(OutputStream target, int value) throws IOException {
+        scratch[0] = (byte) value;
+        scratch[1] = (byte) (value >>> 8);
+        target.write(scratch, 0, 2);
+    }
+
+    private void writeInt(OutputStream target, int value) throws IOException {
+        scratch[0] = (byte) value;
+        scratch[1] = (byte) (value >>> 8);
+        scratch[2] = (byte) (value >>> 16);
+        scratch[3] = (byte) (value >>> 24);
+        target.write(scratch, 0, 4);
+    }
+
+    private void writeLong(OutputStream target, long value) throws IOException {
+        for (int i = 0; i < 8; i++) {
+            scratch[i] = (byte) (value >>> (8 * i));
+        }
+        target.write(scratch, 0, 8);
+    }
+}
@@ -0,0 +1,373 @@
+package com.ebook.ebookstore.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of opaque records in fixed-size memory-mapped segment files.
+ * <p>
+ * Each record is framed as [length][crc32][payload]; a zero length marks the end of a segment.
+ * Appends only copy into the mapping. {@link #awaitDurable} forces the active segment, and
+ * callers that queue up behind a running force are covered by the next one, so concurrent
+ * captures share fsyncs. A full segment is forced and sealed before the next one is created.
+ * <p>
+ * A single consumer reads with {@link #readBatch} and acknowledges with {@link #commit}, which
+ * persists a checkpoint and deletes segments that have been fully consumed. On open, existing
+ * segments are scanned up to the first torn or corrupt frame, sealed, and appending continues
+ * in a new segment.
+ */
+public final class SegmentedJournal implements Closeable {
+
+    private static final int FRAME_HEADER = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final FileChannel checkpoint;
+    private final byte[] lastRecord;
+
+    // Locks rather than monitors: both are held across disk I/O (force, segment creation), which would
+    // pin a virtual thread's carrier for the duration under synchronized
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private Segment active;
+    private volatile long durablePosition;
+
+    // Consumer state, only touched by the reading thread
+    private long readSegment;
+    private int readOffset;
+    private long skippedBytes;
+
+    public SegmentedJournal(Path dir, int segmentBytes, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        numbers.sort(null);
+
+        byte[] last = null;
+        for (long number : numbers) {
+            Segment segment = openSegment(number, false);
+            int lastFrame = recover(segment);
+            if (lastFrame >= 0) {
+                last = payload(segment, lastFrame);
+            }
+            segment.sealed = true;
+            segments.put(number, segment);
+        }
+        this.lastRecord = last;
+
+        this.checkpoint = FileChannel.open(dir.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readCheckpoint();
+
+        // Never reuse a number at or below the checkpoint, even when every segment was consumed
+        long nextNumber = Math.max(numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1) + 1, readSegment + 1);
+        this.active = openSegment(nextNumber, true);
+        segments.put(nextNumber, active);
+        this.durablePosition = position(active.number, 0);
+    }
+
+    /**
+     * Payload of the last intact record found when the journal was opened, or null.
+     */
+    public byte[] lastRecoveredRecord() {
+        return lastRecord;
+    }
+
+    /**
+     * Copies the record into the active segment and returns its position for {@link #awaitDurable}.
+     * Throws IllegalStateException when the unconsumed backlog has reached the segment limit.
+     */
+    public long append(byte[] payload) throws IOException {
+        int frame = FRAME_HEADER + payload.length;
+        if (frame > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            if (active.end + frame > segmentBytes) {
+                rotate();
+            }
+            Segment segment = active;
+            int offset = segment.end;
+            segment.buffer.putInt(offset + 4, (int) crc.getValue());
+            segment.buffer.put(offset + FRAME_HEADER, payload);
+            // Length last: a frame is only visible once complete
+            segment.buffer.putInt(offset, payload.length);
+            segment.end = offset + frame;
+            return position(segment.number, segment.end);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until everything up to {@code position} is on disk.
+     */
+    public void awaitDurable(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (durablePosition >= position) {
+                return;
+            }
+            Segment segment;
+            int end;
+            appendLock.lock();
+            try {
+                segment = active;
+                end = segment.end;
+            } finally {
+                appendLock.unlock();
+            }
+            segment.buffer.force(0, end);
+            durablePosition = position(segment.number, end);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // Forces whatever has been appended so far
+    public void flush() {
+        long position;
+        appendLock.lock();
+        try {
+            position = position(active.number, active.end);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    /**
+     * Reads up to {@code maxRecords} records after the last committed position. Reading stops at
+     * the end of the active segment; a corrupt frame in a sealed segment skips the rest of it.
+     */
+    public Batch readBatch(int maxRecords) {
+        List<byte[]> records = new ArrayList<>();
+        long segmentNumber = readSegment;
+        int offset = readOffset;
+        while (records.size() < maxRecords) {
+            Segment segment = segments.get(segmentNumber);
+            if (segment == null) {
+                Long next = segments.higherKey(segmentNumber);
+                if (next == null) {
+                    break;
+                }
+                segmentNumber = next;
+                offset = 0;
+                continue;
+            }
+            // Read sealed before end: once sealed, end is final
+            boolean sealed = segment.sealed;
+            int end = segment.end;
+            if (offset < end && validFrame(segment, offset, end)) {
+                int length = segment.buffer.getInt(offset);
+                records.add(payload(segment, offset));
+                offset += FRAME_HEADER + length;
+                continue;
+            }
+            if (!sealed) {
+                break;
+            }
+            if (offset < end) {
+                skippedBytes += end - offset;
+            }
+            Long next = segments.higherKey(segmentNumber);
+            if (next == null) {
+                break;
+            }
+            segmentNumber = next;
+            offset = 0;
+        }
+        return new Batch(records, segmentNumber, offset);
+    }
+
+    /**
+     * Marks the batch as consumed, persists the checkpoint and deletes fully consumed segments.
+     */
+    public void commit(Batch batch) throws IOException {
+        if (batch.segment == readSegment && batch.offset == readOffset) {
+            return;
+        }
+        readSegment = batch.segment;
+        readOffset = batch.offset;
+        writeCheckpoint();
+
+        for (Map.Entry<Long, Segment> entry : segments.headMap(readSegment).entrySet()) {
+            Segment segment = entry.getValue();
+            if (segment.sealed) {
+                segments.remove(entry.getKey());
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            }
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    // Bytes appended but not yet committed by the consumer
+    public long backlogBytes() {
+        long bytes = 0;
+        for (Segment segment : segments.tailMap(readSegment).values()) {
+            bytes += segment.number == readSegment ? segment.end - readOffset : segment.end;
+        }
+        return bytes;
+    }
+
+    public long skippedBytes() {
+        return skippedBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        checkpoint.close();
+    }
+
+    private void rotate() throws IOException {
+        if (segments.size() >= maxSegments) {
+            throw new IllegalStateException("Journal backlog has reached " + maxSegments + " segments");
+        }
+        Segment previous = active;
+        previous.buffer.force(0, previous.end);
+        previous.sealed = true;
+        active = openSegment(previous.number + 1, true);
+        segments.put(active.number, active);
+    }
+
+    private Segment openSegment(long number, boolean create) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        FileChannel channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = create ? segmentBytes : Math.min(channel.size(), Integer.MAX_VALUE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(number, path, channel, buffer);
+    }
+
+    // Sets the segment's end after its last intact frame and returns that frame's offset, or -1
+    private int recover(Segment segment) {
+        int capacity = segment.buffer.capacity();
+        int offset = 0;
+        int lastFrame = -1;
+        while (validFrame(segment, offset, capacity)) {
+            lastFrame = offset;
+            offset += FRAME_HEADER + segment.buffer.getInt(offset);
+        }
+        segment.end = offset;
+        return lastFrame;
+    }
+
+    private boolean validFrame(Segment segment, int offset, int end) {
+        if (offset + FRAME_HEADER > end) {
+            return false;
+        }
+        int length = segment.buffer.getInt(offset);
+        if (length <= 0 || length > end - offset - FRAME_HEADER) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(segment.buffer.slice(offset + FRAME_HEADER, length));
+        return (int) crc.getValue() == segment.buffer.getInt(offset + 4);
+    }
+
+    private byte[] payload(Segment segment, int offset) {
+        byte[] payload = new byte[segment.buffer.getInt(offset)];
+        segment.buffer.get(offset + FRAME_HEADER, payload);
+        return payload;
+    }
+
+    // [segment][offset][crc32 of both]; a torn or missing checkpoint restarts from the oldest segment
+    private void readCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        checkpoint.read(buffer, 0);
+        buffer.flip();
+        if (buffer.remaining() == 16) {
+            long segment = buffer.getLong(0);
+            int offset = buffer.getInt(8);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, 12));
+            if ((int) crc.getValue() == buffer.getInt(12)) {
+                readSegment = segment;
+                readOffset = offset;
+                return;
+            }
+        }
+        readSegment = segments.isEmpty() ? 0 : segments.firstKey();
+        readOffset = 0;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(0, readSegment);
+        buffer.putInt(8, readOffset);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, 12));
+        buffer.putInt(12, (int) crc.getValue());
+        checkpoint.write(buffer, 0);
+        checkpoint.force(false);
+    }
+
+    private static long position(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    public record Batch(List<byte[]> records, long segment, int offset) {
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    private static final class Segment {
+        private final long number;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private volatile int end;
+        private volatile boolean sealed;
+
+        private Segment(long number, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the loader,
+ * callers arriving while it is in flight wait for and share its result or exception. Nothing
+ * is cached once the call completes. Joining an in-flight call is a single map read; only the
+ * caller that starts a call writes to the map.
+ */
+public final class SingleFlight<K, V> {
+
+    private final String name;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> call = inFlight.get(key);
+        if (call == null) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            call = inFlight.putIfAbsent(key, mine);
+            if (call == null) {
+                return run(key, mine, loader);
+            }
+        }
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long executions() {
+        return executions.sum();
+    }
+
+    private V run(K key, CompletableFuture<V> call, Supplier<V> loader) {
+        executions.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+}
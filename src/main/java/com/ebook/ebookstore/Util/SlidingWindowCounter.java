@@ -0,0 +1,117 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate per-key event counts over a sliding time window, in fixed memory and without
+ * locks. Keys hash into {@code depth} rows of {@code width} cells, count-min style; each cell
+ * keeps a count for the current and the previous fixed window, and the sliding count is the
+ * current one plus the previous one weighted by how much of it is still inside the window.
+ * <p>
+ * A cell packs its window number and count into one long, so incrementing is a single CAS and
+ * a cell whose window has passed simply reads as zero: counters decay without a sweeper and
+ * the table never grows. Hash collisions can only make a count too high, never too low.
+ */
+public final class SlidingWindowCounter {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    // Window numbers are stored modulo 2^40, which only wraps after 2^40 windows
+    private static final long WINDOW_MASK = (1L << (64 - COUNT_BITS)) - 1;
+
+    private final long windowMillis;
+    private final int depth;
+    private final int mask;
+    // Two cells per slot: index 2 * slot + (window & 1)
+    private final AtomicLongArray cells;
+
+    public SlidingWindowCounter(long windowMillis, int depth, int width) {
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + SEEDS.length);
+        }
+        if (width < 2 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width must be a power of two");
+        }
+        this.windowMillis = windowMillis;
+        this.depth = depth;
+        this.mask = width - 1;
+        this.cells = new AtomicLongArray(2 * depth * width);
+    }
+
+    // Counts one event for the key and returns the sliding count including it
+    public long increment(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        long hash = hash(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int slot = slot(row, hash);
+            int index = 2 * slot + (int) (window & 1);
+            long current;
+            while (true) {
+                long cell = cells.get(index);
+                long count = cell >>> COUNT_BITS == (window & WINDOW_MASK) ? cell & COUNT_MASK : 0;
+                current = Math.min(count + 1, COUNT_MASK);
+                if (cells.compareAndSet(index, cell, (window & WINDOW_MASK) << COUNT_BITS | current)) {
+                    break;
+                }
+            }
+            min = Math.min(min, slidingCount(slot, window, current, nowMillis));
+        }
+        return min;
+    }
+
+    public long estimate(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        long hash = hash(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int slot = slot(row, hash);
+            min = Math.min(min, slidingCount(slot, window, countIn(slot, window), nowMillis));
+        }
+        return min;
+    }
+
+    public long windowMillis() {
+        return windowMillis;
+    }
+
+    public long memoryBytes() {
+        return (long) cells.length() * Long.BYTES;
+    }
+
+    private long slidingCount(int slot, long window, long current, long nowMillis) {
+        long previous = countIn(slot, window - 1);
+        if (previous == 0) {
+            return current;
+        }
+        double elapsed = (double) (nowMillis - window * windowMillis) / windowMillis;
+        return current + (long) Math.ceil(previous * (1 - elapsed));
+    }
+
+    private long countIn(int slot, long window) {
+        long cell = cells.get(2 * slot + (int) (window & 1));
+        return cell >>> COUNT_BITS == (window & WINDOW_MASK) ? cell & COUNT_MASK : 0;
+    }
+
+    private int slot(int row, long hash) {
+        long h = (hash ^ SEEDS[row]) * 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 32;
+        return row * (mask + 1) + (int) (h & mask);
+    }
+
+    // FNV-1a over the chars
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ebook.ebookstore.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal writer for the Thrift compact protocol, enough to serialize Parquet page headers
+ * and file metadata. Callers open and close structs explicitly; field ids must increase
+ * within a struct.
+ */
+public final class ThriftCompactWriter {
+
+    public static final byte TYPE_BOOLEAN_TRUE = 1;
+    public static final byte TYPE_BOOLEAN_FALSE = 2;
+    public static final byte TYPE_I32 = 5;
+    public static final byte TYPE_I64 = 6;
+    public static final byte TYPE_BINARY = 8;
+    public static final byte TYPE_LIST = 9;
+    public static final byte TYPE_STRUCT = 12;
+
+    private final ByteArrayOutputStream out;
+    private short[] lastFieldIds = new short[8];
+    private int depth = -1;
+
+    public ThriftCompactWriter(ByteArrayOutputStream out) {
+        this.out = out;
+    }
+
+    public void beginStruct() {
+        if (++depth == lastFieldIds.length) {
+            lastFieldIds = Arrays.copyOf(lastFieldIds, depth * 2);
+        }
+        lastFieldIds[depth] = 0;
+    }
+
+    public void endStruct() {
+        out.write(0);
+        depth--;
+    }
+
+    public void fieldI32(int id, int value) {
+        fieldHeader(id, TYPE_I32);
+        i32(value);
+    }
+
+    public void fieldI64(int id, long value) {
+        fieldHeader(id, TYPE_I64);
+        i64(value);
+    }
+
+    public void fieldBinary(int id, byte[] value) {
+        fieldHeader(id, TYPE_BINARY);
+        binary(value);
+    }
+
+    public void fieldString(int id, String value) {
+        fieldBinary(id, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void fieldBool(int id, boolean value) {
+        fieldHeader(id, value ? TYPE_BOOLEAN_TRUE : TYPE_BOOLEAN_FALSE);
+    }
+
+    // Followed by the struct's fields and endStruct()
+    public void fieldStruct(int id) {
+        fieldHeader(id, TYPE_STRUCT);
+        beginStruct();
+    }
+
+    // Followed by exactly `size` elements written with i32/i64/string or beginStruct/endStruct
+    public void fieldList(int id, byte elementType, int size) {
+        fieldHeader(id, TYPE_LIST);
+        if (size < 15) {
+            out.write((size << 4) | elementType);
+        } else {
+            out.write(0xF0 | elementType);
+            varint(size);
+        }
+    }
+
+    public void i32(int value) {
+        varint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    public void i64(long value) {
+        varint((value << 1) ^ (value >> 63));
+    }
+
+    public void binary(byte[] value) {
+        varint(value.length);
+        out.write(value, 0, value.length);
+    }
+
+    public void string(String value) {
+        binary(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void fieldHeader(int id, byte type) {
+        int delta = id - lastFieldIds[depth];
+        if (delta > 0 && delta <= 15) {
+            out.write((delta << 4) | type);
+        } else {
+            out.write(type);
+            i32(id);
+        }
+        lastFieldIds[depth] = (short) id;
+    }
+
+    private void varint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
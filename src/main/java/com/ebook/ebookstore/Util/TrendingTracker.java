@@ -0,0 +1,155 @@
+package com.ebook.ebookstore.Util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sliding-window heavy-hitter tracker. Events go into the current time bucket and
+ * into one aggregate sketch per window; when a bucket ages out of a window its
+ * sketch is subtracted from that window's aggregate. Recording an event is a handful
+ * of atomic adds and never blocks; only {@link #advance(long)} takes a lock.
+ */
+public class TrendingTracker {
+
+    private final long bucketMillis;
+    private final int depth;
+    private final int width;
+    private final int maxCandidates;
+    private final long[] windowBuckets;
+    private final CountMinSketch[] windowSketches;
+    private final long[] expiredUpTo;
+
+    private final AtomicReference<Bucket> current;
+    private final ArrayDeque<Bucket> history = new ArrayDeque<>();
+    // Keys seen recently, with the bucket epoch they were last seen in
+    private final ConcurrentHashMap<Long, Long> candidates = new ConcurrentHashMap<>();
+
+    public TrendingTracker(long bucketMillis, long[] windowMillis, int depth, int width, int maxCandidates, long nowMillis) {
+        this.bucketMillis = bucketMillis;
+        this.depth = depth;
+        this.width = width;
+        this.maxCandidates = maxCandidates;
+        this.windowBuckets = new long[windowMillis.length];
+        this.windowSketches = new CountMinSketch[windowMillis.length];
+        this.expiredUpTo = new long[windowMillis.length];
+
+        long epoch = nowMillis / bucketMillis;
+        for (int i = 0; i < windowMillis.length; i++) {
+            windowBuckets[i] = Math.max(1, windowMillis[i] / bucketMillis);
+            windowSketches[i] = new CountMinSketch(depth, width);
+            expiredUpTo[i] = epoch - windowBuckets[i];
+        }
+        Bucket first = new Bucket(epoch, new CountMinSketch(depth, width));
+        history.addLast(first);
+        this.current = new AtomicReference<>(first);
+    }
+
+    public void record(long key) {
+        Bucket bucket = current.get();
+        bucket.sketch.add(key, 1);
+        for (CountMinSketch sketch : windowSketches) {
+            sketch.add(key, 1);
+        }
+        Long seen = candidates.get(key);
+        if (seen == null || seen != bucket.epoch) {
+            candidates.put(key, bucket.epoch);
+        }
+    }
+
+    // Rotates to the bucket for nowMillis and expires buckets that fell out of each window
+    public synchronized void advance(long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        if (epoch > current.get().epoch) {
+            Bucket next = new Bucket(epoch, new CountMinSketch(depth, width));
+            history.addLast(next);
+            current.set(next);
+        }
+
+        long oldestKept = epoch;
+        for (int w = 0; w < windowSketches.length; w++) {
+            long expireThrough = epoch - windowBuckets[w];
+            for (Bucket bucket : history) {
+                if (bucket.epoch > expiredUpTo[w] && bucket.epoch <= expireThrough) {
+                    windowSketches[w].subtract(bucket.sketch);
+                }
+            }
+            expiredUpTo[w] = Math.max(expiredUpTo[w], expireThrough);
+            oldestKept = Math.min(oldestKept, expireThrough + 1);
+        }
+
+        while (!history.isEmpty() && history.peekFirst().epoch < oldestKept) {
+            history.removeFirst();
+        }
+        final long staleBefore = oldestKept;
+        candidates.values().removeIf(lastSeen -> lastSeen < staleBefore);
+        if (candidates.size() > maxCandidates) {
+            trimCandidates();
+        }
+    }
+
+    public List<Entry> top(int window, int limit) {
+        CountMinSketch sketch = windowSketches[window];
+        long seenAfter = current.get().epoch - windowBuckets[window];
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Comparator.comparingLong(Entry::count));
+        for (Map.Entry<Long, Long> candidate : candidates.entrySet()) {
+            if (candidate.getValue() <= seenAfter) {
+                continue;
+            }
+            long count = sketch.estimate(candidate.getKey());
+            if (count == 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(new Entry(candidate.getKey(), count));
+            } else if (count > heap.peek().count()) {
+                heap.poll();
+                heap.add(new Entry(candidate.getKey(), count));
+            }
+        }
+        List<Entry> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingLong(Entry::count).reversed());
+        return result;
+    }
+
+    public long estimate(int window, long key) {
+        return windowSketches[window].estimate(key);
+    }
+
+    public int candidateCount() {
+        return candidates.size();
+    }
+
+    public synchronized long memoryBytes() {
+        long perSketch = (long) depth * width * Long.BYTES;
+        return perSketch * (history.size() + windowSketches.length);
+    }
+
+    // Keeps the keys with the highest counts in the longest window
+    private void trimCandidates() {
+        int longest = 0;
+        for (int w = 1; w < windowBuckets.length; w++) {
+            if (windowBuckets[w] > windowBuckets[longest]) {
+                longest = w;
+            }
+        }
+        Set<Long> keep = new HashSet<>();
+        for (Entry entry : top(longest, maxCandidates)) {
+            keep.add(entry.key());
+        }
+        candidates.keySet().retainAll(keep);
+    }
+
+    public record Entry(long key, long count) {
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final CountMinSketch sketch;
+
+        private Bucket(long epoch, CountMinSketch sketch) {
+            this.epoch = epoch;
+            this.sketch = sketch;
+        }
+    }
+}
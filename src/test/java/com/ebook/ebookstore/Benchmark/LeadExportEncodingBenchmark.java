@@ -0,0 +1,144 @@
+package com.ebook.ebookstore.Benchmark;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+import com.ebook.ebookstore.Util.CsvUtils;
+import com.ebook.ebookstore.Util.LeadRecordEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lead encoding throughput: the original exportLeadsCSV row formatting (printf, a new
+ * DateTimeFormatter per row, CsvUtils.escape) against LeadRecordEncoder for CSV and NDJSON.
+ * The primary score is rows/s, "bytes" is output bytes/s, and gc.alloc.rate.norm from the
+ * GC profiler is bytes allocated per row.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ebook.ebookstore.Benchmark.LeadExportEncodingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LeadExportEncodingBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final String[] BOOK_NAMES = {"Spring in Action", "Clean Code", "Effective Java, 3rd Edition",
+            "The \"Pragmatic\" Programmer", "Café Society"};
+
+    private LeadRowDTO[] rows;
+    private final CountingOutputStream sink = new CountingOutputStream();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 0, 0);
+        rows = new LeadRowDTO[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            time = time.plusSeconds(random.nextInt(30));
+            int book = random.nextInt(BOOK_NAMES.length);
+            LeadRowDTO row = new LeadRowDTO();
+            row.setId(1_000_000L + i);
+            row.setEbookId(book + 1);
+            row.setBookName(BOOK_NAMES[book]);
+            row.setBookCode("BK-" + (book + 1));
+            row.setUserName("Reader " + random.nextInt(5000));
+            row.setEmail("reader" + random.nextInt(5000) + "@example.com");
+            row.setContactNumber("+91 98" + (10_000_000 + random.nextInt(89_999_999)));
+            row.setDownloadTime(time);
+            row.setBookFound(true);
+            rows[i] = row;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void printfCsv(Output output) {
+        sink.count = 0;
+        PrintWriter writer = new PrintWriter(sink);
+        writer.println(CsvUtils.LEADS_HEADER);
+        for (LeadRowDTO row : rows) {
+            writer.printf("%d,%s,%s,%s,%s,%s,%s%n",
+                    row.getId(),
+                    CsvUtils.escape(row.getBookName()),
+                    CsvUtils.escape(row.getBookCode()),
+                    CsvUtils.escape(row.getUserName()),
+                    CsvUtils.escape(row.getEmail()),
+                    CsvUtils.escape(row.getContactNumber()),
+                    row.getDownloadTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
+            );
+        }
+        writer.flush();
+        output.bytes += sink.count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void encoderCsv(Output output) throws IOException {
+        encode(LeadRecordEncoder.Format.CSV, output);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void encoderNdjson(Output output) throws IOException {
+        encode(LeadRecordEncoder.Format.NDJSON, output);
+    }
+
+    private void encode(LeadRecordEncoder.Format format, Output output) throws IOException {
+        sink.count = 0;
+        try (LeadRecordEncoder encoder = new LeadRecordEncoder(sink, format)) {
+            encoder.writeHeader();
+            for (LeadRowDTO row : rows) {
+                encoder.write(row);
+            }
+        }
+        output.bytes += sink.count;
+    }
+
+    // Discards output, counting bytes
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LeadExportEncodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,59 @@
+package com.ebook.ebookstore.Benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second per core at each bcrypt cost: one benchmark thread, so the score is
+ * what a single core of the password hash executor sustains. "login" verifies a stored
+ * hash (the common path); "register" also generates a salt and hashes, as a credential
+ * change or a rehash on login does. Use it to pick ebook.auth.hash.target-ms: logins/s
+ * for the whole node is roughly this score times ebook.auth.hash.threads.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ebook.ebookstore.Benchmark.PasswordHashingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "Reader#2025pass";
+
+    @Param({"10", "11", "12", "13"})
+    public int cost;
+
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        storedHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public boolean login() {
+        return BCrypt.checkpw(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public String register() {
+        return BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PasswordHashingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
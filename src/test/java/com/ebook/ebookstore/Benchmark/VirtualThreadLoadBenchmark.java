@@ -0,0 +1,145 @@
+package com.ebook.ebookstore.Benchmark;
+
+import com.ebook.ebookstore.Config.JdbcLimiterConfig;
+import com.ebook.ebookstore.Util.ConcurrencyLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Request throughput with platform threads (a Tomcat-sized pool of 200) against a virtual thread
+ * per request, for the shape of our download endpoints: a short JDBC call behind the concurrency
+ * limiter, sized like the Hikari pool, then blocking file streaming. Each invocation pushes a
+ * burst of requests through and waits for all of them; the score is requests/s, and the
+ * "rejected" counter shows requests the limiter turned away.
+ * <p>
+ * The platform pool tops out at threads / (jdbc + io) requests per second no matter how idle
+ * the database is; virtual threads are bounded by the JDBC limiter instead.
+ * <p>
+ * driver=8 stands in for Connector/J 8, whose socket reads run inside synchronized: the JDBC
+ * wait pins the carrier thread, and the limiter is capped below the carrier count the way
+ * JdbcLimiterConfig does for that driver.
+ * <p>
+ * JDK 21, one core (requests/s, jdbc=2): with driver=9, io=10 platform 8,899 / virtual 8,758 and
+ * io=50 platform 3,674 / virtual 7,539; with driver=8 virtual drops to 468 (io=10) and 461 (io=50)
+ * since the cap leaves a single JDBC call in flight. No requests were rejected.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ebook.ebookstore.Benchmark.VirtualThreadLoadBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadLoadBenchmark {
+
+    private static final int REQUESTS = 2000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"2"})
+    public int jdbcMillis;
+
+    @Param({"10", "50"})
+    public int ioMillis;
+
+    @Param({"9", "8"})
+    public int driver;
+
+    private ExecutorService executor;
+    private ConcurrencyLimiter limiter;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rejected = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+        limiter = new ConcurrencyLimiter(
+                JdbcLimiterConfig.maxConcurrent(POOL_SIZE, threads.equals("virtual"), driver, carriers), REQUESTS, 5000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void downloadRequests(Counters counters) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < REQUESTS; i++) {
+            executor.execute(() -> {
+                try {
+                    handleRequest(rejected);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        counters.rejected += rejected.get();
+    }
+
+    private void handleRequest(AtomicInteger rejected) {
+        if (!limiter.acquire()) {
+            rejected.incrementAndGet();
+            return;
+        }
+        try {
+            if (driver < 9) {
+                // One monitor per request: nothing contends for it, it only pins the carrier while held
+                Object connectionLock = new Object();
+                synchronized (connectionLock) {
+                    sleep(jdbcMillis);
+                }
+            } else {
+                sleep(jdbcMillis);
+            }
+        } finally {
+            limiter.release();
+        }
+        // Streaming the file happens after the connection is back in the pool
+        sleep(ioMillis);
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(VirtualThreadLoadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,27 @@
+package com.ebook.ebookstore.Config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcLimiterConfigTest {
+
+    @Test
+    void oldDriverWithVirtualThreadsLeavesOneCarrierFree() {
+        assertThat(JdbcLimiterConfig.maxConcurrent(20, true, 8, 8)).isEqualTo(7);
+        assertThat(JdbcLimiterConfig.maxConcurrent(4, true, 8, 8)).isEqualTo(4);
+        assertThat(JdbcLimiterConfig.maxConcurrent(20, true, 8, 1)).isEqualTo(1);
+    }
+
+    @Test
+    void currentDriverOrPlatformThreadsKeepConfiguredLimit() {
+        assertThat(JdbcLimiterConfig.maxConcurrent(20, true, 9, 8)).isEqualTo(20);
+        assertThat(JdbcLimiterConfig.maxConcurrent(20, false, 8, 8)).isEqualTo(20);
+        assertThat(JdbcLimiterConfig.maxConcurrent(20, true, -1, 8)).isEqualTo(20);
+    }
+
+    @Test
+    void readsDriverVersionFromClasspath() {
+        assertThat(JdbcLimiterConfig.mysqlDriverMajorVersion()).isGreaterThanOrEqualTo(9);
+    }
+}
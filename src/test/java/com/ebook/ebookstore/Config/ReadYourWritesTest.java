@@ -0,0 +1,60 @@
+package com.ebook.ebookstore.Config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesTest {
+
+    @AfterEach
+    void end() {
+        ReadYourWrites.end();
+    }
+
+    @Test
+    void writeTimeFollowsTheClientToTheNextRequest() {
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        ReadYourWrites.begin(new MockHttpServletRequest(), writeResponse, 5000);
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+        ReadYourWrites.recordWrite();
+        assertThat(ReadYourWrites.isSticky()).isTrue();
+        ReadYourWrites.end();
+
+        Cookie cookie = writeResponse.getCookie(ReadYourWrites.COOKIE);
+        assertThat(cookie).isNotNull();
+        MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+        nextRequest.setCookies(cookie);
+        ReadYourWrites.begin(nextRequest, new MockHttpServletResponse(), 5000);
+        assertThat(ReadYourWrites.isSticky()).isTrue();
+    }
+
+    @Test
+    void othersBehindTheSameAddressAndForgedFutureTimesAreNotSticky() {
+        MockHttpServletRequest writer = new MockHttpServletRequest();
+        writer.setRemoteAddr("203.0.113.7");
+        ReadYourWrites.begin(writer, new MockHttpServletResponse(), 5000);
+        ReadYourWrites.recordWrite();
+        ReadYourWrites.end();
+
+        MockHttpServletRequest neighbour = new MockHttpServletRequest();
+        neighbour.setRemoteAddr("203.0.113.7");
+        ReadYourWrites.begin(neighbour, new MockHttpServletResponse(), 5000);
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+        ReadYourWrites.end();
+
+        MockHttpServletRequest forged = new MockHttpServletRequest();
+        forged.setCookies(new Cookie(ReadYourWrites.COOKIE, Long.toString(System.currentTimeMillis() + 3_600_000)));
+        ReadYourWrites.begin(forged, new MockHttpServletResponse(), 5000);
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+    }
+
+    @Test
+    void backgroundWorkIsNeverSticky() {
+        ReadYourWrites.recordWrite();
+        assertThat(ReadYourWrites.isSticky()).isFalse();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Util.DeltaCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeadExportRepositoryTest {
+
+    private static final long SETTLE_MILLIS = 10_000;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(url(), "sa", ""));
+    private final LocalDateTime now = LocalDateTime.now();
+    private ShardedDownloadRepository shards;
+
+    @AfterEach
+    void close() throws Exception {
+        shards.close();
+    }
+
+    @Test
+    void rowCommittedLateWithALowerIdIsExportedByTheNextDelta() {
+        shards = new ShardedDownloadRepository(new StandardEnvironment(), new SyncTaskExecutor(), false, List.of(),
+                "sa", "", 0, false, 60000, 24);
+        primary.execute("CREATE TABLE downloads (id BIGINT PRIMARY KEY, ingested_at DATETIME(6) NOT NULL)");
+        LeadExportRepository repository = new LeadExportRepository(primary, shards);
+        insertPrimary(2, now.minusSeconds(60));
+        // Still inside the settle window, so possibly not the last row that will commit before it
+        insertPrimary(3, now);
+
+        DeltaCursor first = repository.findDeltaWatermark(DeltaCursor.START, SETTLE_MILLIS, null);
+        assertThat(first.id()).isEqualTo(2);
+
+        // id 1 was taken before id 2 but its transaction committed afterwards
+        insertPrimary(1, now.minusSeconds(30));
+        DeltaCursor second = repository.findDeltaWatermark(first, SETTLE_MILLIS, null);
+
+        assertThat(second.id()).isEqualTo(1);
+        assertThat(second).isGreaterThan(first);
+        assertThat(repository.findDeltaWatermark(second, SETTLE_MILLIS, 5)).isEqualTo(second);
+    }
+
+    @Test
+    void shardedDeltaPagesInIngestOrderAcrossShards() {
+        shards = new ShardedDownloadRepository(new StandardEnvironment(), new SyncTaskExecutor(), true,
+                List.of(url(), url()), "sa", "", 0, true, 60000, 24);
+        primary.execute("CREATE TABLE books (id BIGINT PRIMARY KEY, book_name VARCHAR(100), book_code VARCHAR(20), " +
+                "archived BOOLEAN NOT NULL)");
+        LeadExportRepository repository = new LeadExportRepository(primary, shards);
+        shards.insertAll(List.of(download(1, bookOn(0), now.minusSeconds(30)), download(2, bookOn(1), now.minusSeconds(50)),
+                download(3, bookOn(0), now.minusSeconds(40)), download(4, bookOn(1), now)));
+
+        DeltaCursor page = repository.findDeltaWatermark(DeltaCursor.START, SETTLE_MILLIS, 2);
+        List<Long> ids = new ArrayList<>();
+        repository.streamLeadsAfter(DeltaCursor.START, page, row -> ids.add(row.getId()));
+        DeltaCursor rest = repository.findDeltaWatermark(page, SETTLE_MILLIS, null);
+        repository.streamLeadsAfter(page, rest, row -> ids.add(row.getId()));
+
+        assertThat(page.id()).isEqualTo(3);
+        assertThat(rest.id()).isEqualTo(1);
+        assertThat(ids).containsExactlyInAnyOrder(2L, 3L, 1L);
+    }
+
+    @Test
+    void unshardedExportStreamsOnH2() {
+        shards = new ShardedDownloadRepository(new StandardEnvironment(), new SyncTaskExecutor(), false, List.of(),
+                "sa", "", 0, false, 60000, 24);
+        primary.execute("CREATE TABLE books (id BIGINT PRIMARY KEY, book_name VARCHAR(100), book_code VARCHAR(20), " +
+                "archived BOOLEAN NOT NULL)");
+        primary.execute("CREATE TABLE downloads (id BIGINT PRIMARY KEY, ebook_id BIGINT NOT NULL, " +
+                "user_name VARCHAR(100), email VARCHAR(100), contact_number VARCHAR(15), download_time DATETIME(6))");
+        primary.update("INSERT INTO books (id, book_name, book_code, archived) VALUES (1, 'Java', 'J1', false)");
+        for (long id = 1; id <= 3; id++) {
+            primary.update("INSERT INTO downloads (id, ebook_id, user_name, email, contact_number, download_time) " +
+                    "VALUES (?, 1, 'Reader', 'reader@example.com', '5550100', ?)", id, Timestamp.valueOf(now));
+        }
+        LeadExportRepository repository = new LeadExportRepository(primary, shards);
+
+        // The MySQL-only streaming fetch size is rejected by H2, so this export would fail on the local profiles
+        List<String> rows = new ArrayList<>();
+        repository.streamLeads(null, null, null, row -> rows.add(row.getId() + " " + row.getBookCode()));
+
+        assertThat(rows).containsExactly("1 J1", "2 J1", "3 J1");
+    }
+
+    @Test
+    void cursorRoundTripsThroughItsText() {
+        DeltaCursor cursor = new DeltaCursor(LocalDateTime.of(2024, 5, 1, 12, 0, 3, 123_456_000), 42);
+
+        assertThat(DeltaCursor.parse(cursor.toString())).isEqualTo(cursor);
+        assertThat(DeltaCursor.parse("0")).isEqualTo(DeltaCursor.START);
+    }
+
+    private void insertPrimary(long id, LocalDateTime ingestedAt) {
+        primary.update("INSERT INTO downloads (id, ingested_at) VALUES (?, ?)", id, Timestamp.valueOf(ingestedAt));
+    }
+
+    private long bookOn(int shard) {
+        for (long book = 1; ; book++) {
+            if (shards.shardOf(book) == shard) {
+                return book;
+            }
+        }
+    }
+
+    private static Download download(long id, long book, LocalDateTime ingestedAt) {
+        Download download = new Download();
+        download.setId(id);
+        download.setEbookId(book);
+        download.setUserName("Reader");
+        download.setContactNumber("5550100");
+        download.setEmail("reader@example.com");
+        download.setDownloadTime(ingestedAt);
+        download.setIngestedAt(ingestedAt);
+        return download;
+    }
+
+    private static String url() {
+        return "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+}
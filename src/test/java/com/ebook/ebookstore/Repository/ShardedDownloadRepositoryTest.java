@@ -0,0 +1,141 @@
+package com.ebook.ebookstore.Repository;
+
+import com.ebook.ebookstore.Model.Download;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedDownloadRepositoryTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private final List<String> urls = List.of(url(), url());
+    private ShardedDownloadRepository repository;
+
+    @AfterEach
+    void close() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    void streamAllPassesLeftBehindRowsOnlyWhenTheirOwnerLacksThem() {
+        repository = open(0);
+        long book = bookOn(1);
+        repository.insertAll(List.of(download(1, book), download(2, bookOn(0))));
+        // Copies on the old shard: id 1 already moved, id 3 not yet
+        insertDirectly(0, 1, book);
+        insertDirectly(0, 3, book);
+
+        List<Long> ids = new ArrayList<>();
+        repository.streamAll("", List.of(), download -> ids.add(download.getId()));
+
+        assertThat(ids).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(repository.count()).isEqualTo(4);
+    }
+
+    @Test
+    void perBookReadsDeduplicateWhileMoving() {
+        repository = open(1);
+        long book = bookOn(1);
+        repository.insertAll(List.of(download(1, book), download(2, book)));
+        insertDirectly(0, 1, book);
+
+        List<Long> ids = new ArrayList<>();
+        repository.streamByEbookId(book, "", List.of(), download -> ids.add(download.getId()));
+
+        assertThat(ids).containsExactly(1L, 2L);
+        assertThat(repository.countByEbookId(book)).isEqualTo(2);
+    }
+
+    @Test
+    void watermarkTakesTheSmallestIdsOverAllShards() {
+        repository = open(0);
+        repository.insertAll(List.of(download(1, bookOn(0)), download(2, bookOn(1)), download(3, bookOn(0)),
+                download(4, bookOn(1))));
+
+        assertThat(repository.findIdWatermark(0, 3)).isEqualTo(3);
+        assertThat(repository.findIdWatermark(1, null)).isEqualTo(4);
+        assertThat(repository.findIdWatermark(4, 10)).isEqualTo(4);
+    }
+
+    @Test
+    void distinctEmailsAreCountedOnceOverShardsAndNewRowsAreAddedLater() {
+        repository = open(0, 24);
+        repository.insertAll(List.of(download(1, bookOn(0), "Reader@example.com"),
+                download(2, bookOn(1), "reader@example.com"), download(3, bookOn(1), "other@example.com")));
+
+        assertThat(repository.countDistinctByEmail()).isEqualTo(2);
+
+        repository.insertAll(List.of(download(4, bookOn(0), "new@example.com")));
+        assertThat(repository.countDistinctByEmail()).isEqualTo(3);
+
+        // Purged rows still count until the sketches are rebuilt
+        new JdbcTemplate(new DriverManagerDataSource(urls.get(0), "sa", "")).update("DELETE FROM downloads");
+        assertThat(repository.countDistinctByEmail()).isEqualTo(3);
+    }
+
+    @Test
+    void dueRebuildDropsEmailsOfPurgedRows() {
+        repository = open(0, 0);
+        repository.insertAll(List.of(download(1, bookOn(0), "gone@example.com"),
+                download(2, bookOn(1), "kept@example.com")));
+        assertThat(repository.countDistinctByEmail()).isEqualTo(2);
+
+        new JdbcTemplate(new DriverManagerDataSource(urls.get(0), "sa", "")).update("DELETE FROM downloads");
+
+        assertThat(repository.countDistinctByEmail()).isEqualTo(1);
+    }
+
+    private ShardedDownloadRepository open(int previousCount) {
+        return open(previousCount, 24);
+    }
+
+    private ShardedDownloadRepository open(int previousCount, long emailSketchRebuildHours) {
+        return new ShardedDownloadRepository(new StandardEnvironment(), new SyncTaskExecutor(), true, urls,
+                "sa", "", previousCount, true, 60000, emailSketchRebuildHours);
+    }
+
+    private long bookOn(int shard) {
+        for (long book = 1; ; book++) {
+            if (repository.shardOf(book) == shard) {
+                return book;
+            }
+        }
+    }
+
+    private void insertDirectly(int shard, long id, long book) {
+        new JdbcTemplate(new DriverManagerDataSource(urls.get(shard), "sa", "")).update(
+                "INSERT INTO downloads (id, ebook_id, user_name, contact_number, email, download_time) VALUES (?, ?, ?, ?, ?, ?)",
+                id, book, "Reader", "5550100", "reader@example.com", Timestamp.valueOf(TIME.plusMinutes(id)));
+    }
+
+    private static Download download(long id, long book) {
+        return download(id, book, "reader@example.com");
+    }
+
+    private static Download download(long id, long book, String email) {
+        Download download = new Download();
+        download.setId(id);
+        download.setEbookId(book);
+        download.setUserName("Reader");
+        download.setContactNumber("5550100");
+        download.setEmail(email);
+        download.setDownloadTime(TIME.plusMinutes(id));
+        return download;
+    }
+
+    private static String url() {
+        return "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+}
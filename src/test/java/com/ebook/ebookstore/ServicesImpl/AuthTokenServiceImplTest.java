@@ -0,0 +1,32 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthTokenServiceImplTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    @Test
+    void enabledWithoutKeysFailsStartup() {
+        assertThatThrownBy(() -> new AuthTokenServiceImpl(true, 3600, "", ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("ebook.auth.token.keys");
+    }
+
+    @Test
+    void disabledNeedsNoKeys() {
+        assertThat(new AuthTokenServiceImpl(false, 3600, "", "").isEnabled()).isFalse();
+    }
+
+    @Test
+    void configuredKeysIssueAndVerify() {
+        AuthTokenServiceImpl tokens = new AuthTokenServiceImpl(true, 3600, "k1:" + KEY, "k1");
+
+        assertThat(tokens.verify(tokens.issue(5L))).isEqualTo(5L);
+    }
+}
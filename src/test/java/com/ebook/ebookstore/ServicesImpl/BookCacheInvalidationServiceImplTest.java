@@ -0,0 +1,57 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Model.Books;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+class BookCacheInvalidationServiceImplTest {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    @Test
+    void writeOnOneNodeEvictsTheBookOnAnother() {
+        BookCacheInvalidationServiceImpl writer = node(mock(Cache.class));
+        Cache readerCache = mock(Cache.class);
+        BookCacheInvalidationServiceImpl reader = node(readerCache);
+
+        writer.bookChanged(7L);
+        reader.pollInvalidations();
+
+        verify(readerCache).evictEntityData(Books.class, 7L);
+        verify(readerCache).evictNaturalIdData(Books.class);
+        verify(readerCache).evictQueryRegion(Books.QUERY_CACHE_REGION);
+    }
+
+    @Test
+    void entriesOlderThanStartupAreNotReplayed() {
+        BookCacheInvalidationServiceImpl writer = node(mock(Cache.class));
+        writer.bookChanged(7L);
+        jdbcTemplate.update("UPDATE book_cache_invalidations SET created_at = DATEADD('MINUTE', -1, created_at)");
+
+        Cache readerCache = mock(Cache.class);
+        node(readerCache).pollInvalidations();
+
+        verifyNoInteractions(readerCache);
+    }
+
+    private BookCacheInvalidationServiceImpl node(Cache cache) {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        BookCacheInvalidationServiceImpl node = new BookCacheInvalidationServiceImpl(jdbcTemplate, entityManagerFactory, mock(ApplicationEventPublisher.class),
+                true, 5000, 24);
+        node.onStartup();
+        return node;
+    }
+}
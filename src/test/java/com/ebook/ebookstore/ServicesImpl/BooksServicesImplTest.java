@@ -0,0 +1,79 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.CreateBookDTO;
+import com.ebook.ebookstore.Event.BooksChangedEvent;
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Services.BookCacheInvalidationServices;
+import com.ebook.ebookstore.Services.BookPurgeServices;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BooksServicesImplTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BookCacheInvalidationServices invalidations = mock(BookCacheInvalidationServices.class);
+    private final List<Runnable> queuedRebuilds = new ArrayList<>();
+
+    @Test
+    void filterNegativesAreOnlyTrustedWhileOtherNodesWritesAreApplied() {
+        BooksServicesImpl books = books(10_000);
+        when(bookRepository.existsByCode("B-2")).thenReturn(true);
+
+        when(invalidations.isCurrent(anyLong())).thenReturn(true);
+        assertThat(books.existsBookByCode("B-2")).isFalse();
+        verify(bookRepository, never()).existsByCode("B-2");
+
+        when(invalidations.isCurrent(anyLong())).thenReturn(false);
+        assertThat(books.existsBookByCode("B-2")).isTrue();
+
+        // Once the poll brings in the other node's write, the filter knows the code
+        when(invalidations.isCurrent(anyLong())).thenReturn(true);
+        when(bookRepository.findCodesByIdIn(List.of(2L))).thenReturn(List.of("B-2"));
+        books.onBooksChanged(new BooksChangedEvent(List.of(2L)));
+        assertThat(books.existsBookByCode("B-2")).isTrue();
+    }
+
+    @Test
+    void createChecksMySqlAndGrowsTheFilterOffTheRequestThread() {
+        BooksServicesImpl books = books(1);
+        when(invalidations.isCurrent(anyLong())).thenReturn(true);
+        when(bookRepository.existsByCode("B-2")).thenReturn(true);
+        when(bookRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThatThrownBy(() -> books.createBook(book("B-2"))).hasMessageContaining("already exists");
+
+        books.createBook(book("B-3"));
+        books.createBook(book("B-4"));
+        books.createBook(book("B-5"));
+        verify(bookRepository, times(1)).findAllCodes();
+        assertThat(queuedRebuilds).hasSize(1);
+
+        queuedRebuilds.get(0).run();
+        verify(bookRepository, times(2)).findAllCodes();
+    }
+
+    private BooksServicesImpl books(int minCapacity) {
+        when(bookRepository.findAllCodes()).thenReturn(List.of("B-1"));
+        BooksServicesImpl books = new BooksServicesImpl(bookRepository, mock(BookPurgeServices.class), invalidations,
+                mock(EntityManagerFactory.class), queuedRebuilds::add, 0.01, minCapacity, 3000);
+        books.onStartup();
+        return books;
+    }
+
+    private static CreateBookDTO book(String code) {
+        CreateBookDTO book = new CreateBookDTO();
+        book.setName("Book " + code);
+        book.setCode(code);
+        book.setCategory("Fiction");
+        book.setAuthor("Author");
+        return book;
+    }
+}
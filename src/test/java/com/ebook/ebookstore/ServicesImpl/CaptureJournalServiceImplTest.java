@@ -0,0 +1,167 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Util.SegmentedJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class CaptureJournalServiceImplTest {
+
+    private Path journalDir;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private CaptureJournalServiceImpl journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journalDir = Files.createTempDirectory("capture-journal-test");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE books (id BIGINT PRIMARY KEY, archived BOOLEAN NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE downloads (id BIGINT NOT NULL, ebook_id BIGINT NOT NULL, " +
+                "user_name VARCHAR(100) NOT NULL, contact_number VARCHAR(15) NOT NULL, email VARCHAR(100) NOT NULL, " +
+                "download_time DATETIME(6) NOT NULL, PRIMARY KEY (id, download_time))");
+        jdbcTemplate.update("INSERT INTO books (id, archived) VALUES (1, false), (2, true)");
+        journal = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.shutdown();
+        FileSystemUtils.deleteRecursively(journalDir.toFile());
+    }
+
+    @Test
+    void replayDivertsCapturesForUnknownOrArchivedBooks() {
+        Download live = journal.journalCapture(download(1L, "live@example.com"));
+        Download archived = journal.journalCapture(download(2L, "archived@example.com"));
+        Download unknown = journal.journalCapture(download(99L, "unknown@example.com"));
+
+        journal.replayJournal();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM downloads", Long.class))
+                .containsExactly(live.getId());
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM downloads_dead_letter ORDER BY id", Long.class))
+                .containsExactly(archived.getId(), unknown.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT reason FROM downloads_dead_letter WHERE id = ?",
+                String.class, unknown.getId())).isEqualTo("UNKNOWN_BOOK");
+        // Nothing is left pending, so the next pass does not insert them again
+        assertThat(journal.findPendingEbookId(unknown.getId())).isNull();
+    }
+
+    @Test
+    void replayIsIdempotentForDeadLetters() {
+        Download unknown = journal.journalCapture(download(99L, "unknown@example.com"));
+        journal.replayJournal();
+        journal.shutdown();
+
+        // Reopening replays nothing twice: the checkpoint moved past the dead letter
+        journal = open();
+        journal.replayJournal();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM downloads_dead_letter", Long.class)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT ebook_id FROM downloads_dead_letter WHERE id = ?",
+                Long.class, unknown.getId())).isEqualTo(99L);
+    }
+
+    @Test
+    void replaySkipsMalformedRecords() throws IOException {
+        Download before = journal.journalCapture(download(1L, "before@example.com"));
+        journal.shutdown();
+        try (SegmentedJournal raw = new SegmentedJournal(journalDir.toAbsolutePath(), 1 << 20, 4)) {
+            raw.awaitDurable(raw.append(new byte[]{1, 2, 3}));
+        }
+
+        // The malformed record is also the last one, which the id sequence is normally continued from
+        journal = open();
+        Download after = journal.journalCapture(download(1L, "after@example.com"));
+        journal.replayJournal();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM downloads ORDER BY id", Long.class))
+                .containsExactly(before.getId(), after.getId());
+    }
+
+    @Test
+    void replayDivertsACaptureWhoseIdIsTakenByAnotherRow() {
+        Download captured = journal.journalCapture(download(1L, "captured@example.com"));
+        // Another instance left on the same node id stored a different capture under this id
+        jdbcTemplate.update("INSERT INTO downloads (id, ebook_id, user_name, contact_number, email, download_time) " +
+                "VALUES (?, 1, 'Other', '5550100', 'other@example.com', ?)", captured.getId(), LocalDateTime.now().minusDays(1));
+
+        journal.replayJournal();
+
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM downloads", String.class))
+                .containsExactly("other@example.com");
+        assertThat(jdbcTemplate.queryForObject("SELECT reason FROM downloads_dead_letter WHERE id = ?",
+                String.class, captured.getId())).isEqualTo("ID_CONFLICT");
+    }
+
+    @Test
+    void replaySkipsACaptureAlreadyStoredByAnEarlierPass() {
+        Download captured = journal.journalCapture(download(1L, "captured@example.com"));
+        jdbcTemplate.update("INSERT INTO downloads (id, ebook_id, user_name, contact_number, email, download_time) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", captured.getId(), captured.getEbookId(), captured.getUserName(),
+                captured.getContactNumber(), captured.getEmail(), captured.getDownloadTime());
+
+        journal.replayJournal();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM downloads", Long.class)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables " +
+                "WHERE table_name = 'downloads_dead_letter'", Long.class)).isZero();
+    }
+
+    @Test
+    void enabledJournalNeedsANodeId() {
+        assertThatThrownBy(() -> new CaptureJournalServiceImpl(jdbcTemplate, mock(ShardedDownloadRepository.class),
+                transactionManager, true, journalDir.toString(), 1 << 20, 4, -1, true, 500))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void idsCarryTheNodeIdAboveTheSequence() {
+        journal.shutdown();
+        journal = new CaptureJournalServiceImpl(jdbcTemplate, mock(ShardedDownloadRepository.class), transactionManager,
+                true, journalDir.toString(), 1 << 20, 4, 31, true, 500);
+
+        long id = journal.journalCapture(download(1L, "node@example.com")).getId();
+
+        assertThat((id >>> 7) & 31).isEqualTo(31L);
+        assertThat(id).isLessThan(1L << 53);
+        assertThatThrownBy(() -> new CaptureJournalServiceImpl(jdbcTemplate, mock(ShardedDownloadRepository.class),
+                transactionManager, false, journalDir.toString(), 1 << 20, 4, 32, true, 500))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CaptureJournalServiceImpl open() {
+        return new CaptureJournalServiceImpl(jdbcTemplate, mock(ShardedDownloadRepository.class), transactionManager,
+                true, journalDir.toString(), 1 << 20, 4, 1, true, 500);
+    }
+
+    private static Download download(Long ebookId, String email) {
+        Download download = new Download();
+        download.setEbookId(ebookId);
+        download.setUserName("Test User");
+        download.setContactNumber("9876543210");
+        download.setEmail(email);
+        download.setDownloadTime(LocalDateTime.now());
+        return download;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Event.CredentialsChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CredentialCacheInvalidationServiceImplTest {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    @Test
+    void passwordChangeOnOneNodeInvalidatesTheCredentialOnAnother() {
+        CredentialCacheInvalidationServiceImpl writer = node(mock(ApplicationEventPublisher.class));
+        ApplicationEventPublisher readerEvents = mock(ApplicationEventPublisher.class);
+        CredentialCacheInvalidationServiceImpl reader = node(readerEvents);
+
+        writer.credentialChanged("Reader@Example.com");
+        reader.pollInvalidations();
+
+        ArgumentCaptor<CredentialsChangedEvent> event = ArgumentCaptor.forClass(CredentialsChangedEvent.class);
+        verify(readerEvents).publishEvent(event.capture());
+        assertThat(event.getValue().getEmails()).containsExactly("reader@example.com");
+    }
+
+    @Test
+    void entriesOlderThanStartupAreNotReplayed() {
+        CredentialCacheInvalidationServiceImpl writer = node(mock(ApplicationEventPublisher.class));
+        writer.credentialChanged("reader@example.com");
+        jdbcTemplate.update("UPDATE credential_cache_invalidations SET created_at = DATEADD('MINUTE', -1, created_at)");
+
+        ApplicationEventPublisher readerEvents = mock(ApplicationEventPublisher.class);
+        node(readerEvents).pollInvalidations();
+
+        verifyNoInteractions(readerEvents);
+    }
+
+    private CredentialCacheInvalidationServiceImpl node(ApplicationEventPublisher events) {
+        CredentialCacheInvalidationServiceImpl node = new CredentialCacheInvalidationServiceImpl(jdbcTemplate, events,
+                true, 5000, 24);
+        node.onStartup();
+        return node;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.AnalyticsQueryDTO;
+import com.ebook.ebookstore.DTO.CreateDownloadDTO;
+import com.ebook.ebookstore.DTO.DownloadDTO;
+import com.ebook.ebookstore.Event.DownloadCapturedEvent;
+import com.ebook.ebookstore.Model.Download;
+import com.ebook.ebookstore.Repository.BookRepository;
+import com.ebook.ebookstore.Repository.DownloadRepository;
+import com.ebook.ebookstore.Repository.ShardedDownloadRepository;
+import com.ebook.ebookstore.Services.CaptureJournalServices;
+import com.ebook.ebookstore.Services.LeadExportServices;
+import com.ebook.ebookstore.Util.IdempotencyWindow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DownloadServiceImplTest {
+
+    private BookRepository bookRepository;
+    private DownloadRepository downloadRepository;
+    private CaptureJournalServices captureJournalServices;
+    private AnalyticsServiceImpl analyticsService;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        downloadRepository = mock(DownloadRepository.class);
+        captureJournalServices = mock(CaptureJournalServices.class);
+        analyticsService = new AnalyticsServiceImpl(bookRepository, mock(JdbcTemplate.class),
+                mock(ShardedDownloadRepository.class), Runnable::run, 1, 100, 1000);
+
+        // Database down: every repository call fails to get a connection, the journal still accepts appends
+        CannotGetJdbcConnectionException down = new CannotGetJdbcConnectionException("Connection refused");
+        when(bookRepository.findById(any())).thenThrow(down);
+        when(downloadRepository.save(any())).thenThrow(down);
+        when(captureJournalServices.isEnabled()).thenReturn(true);
+        when(captureJournalServices.journalCapture(any())).thenAnswer(invocation -> {
+            Download download = invocation.getArgument(0);
+            download.setId(nextId.getAndIncrement());
+            return download;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        analyticsService.shutdown();
+    }
+
+    @Test
+    void captureSucceedsOnceJournalledWhileDatabaseIsDown() {
+        DownloadServiceImpl service = service(event -> analyticsService.onDownloadCaptured((DownloadCapturedEvent) event));
+
+        DownloadDTO captured = service.captureDownload(lead("ada@example.com"), "key-1");
+
+        assertThat(captured.getId()).isEqualTo(1L);
+        assertThat(captured.getEbookName()).isNull();
+        verify(captureJournalServices).journalCapture(any());
+        // The analytics listener counted it without categories instead of failing the request
+        assertThat(analyticsService.queryDownloads(new AnalyticsQueryDTO()).getMatchedRows()).isEqualTo(1L);
+    }
+
+    @Test
+    void failingListenerDoesNotFailJournalledCapture() {
+        DownloadServiceImpl service = service(event -> {
+            throw new CannotGetJdbcConnectionException("Connection refused");
+        });
+
+        DownloadDTO first = service.captureDownload(lead("grace@example.com"), "key-2");
+        // A retry with the same key is answered from the first capture, not journalled again
+        DownloadDTO retry = service.captureDownload(lead("grace@example.com"), "key-2");
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        verify(captureJournalServices, times(1)).journalCapture(any());
+    }
+
+    @Test
+    void idempotencyKeyReusedForAnotherLeadIsRejected() {
+        DownloadServiceImpl service = service(event -> {
+        });
+        service.captureDownload(lead("ada@example.com"), "key-3");
+
+        // Someone replaying the key with their own body must not get Ada's capture back
+        assertThatThrownBy(() -> service.captureDownload(lead("mallory@example.com"), "key-3"))
+                .isInstanceOf(IdempotencyWindow.KeyReusedException.class);
+        verify(captureJournalServices, times(1)).journalCapture(any());
+    }
+
+    private DownloadServiceImpl service(ApplicationEventPublisher eventPublisher) {
+        ShardedDownloadRepository shardedDownloadRepository = mock(ShardedDownloadRepository.class);
+        return new DownloadServiceImpl(downloadRepository, shardedDownloadRepository, bookRepository, eventPublisher,
+                mock(LeadExportServices.class), captureJournalServices, 10, 10, 1000);
+    }
+
+    private static CreateDownloadDTO lead(String email) {
+        return new CreateDownloadDTO(7L, "Test User", "9876543210", email);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleServiceImplTest {
+
+    private final LoginThrottleServiceImpl throttle =
+            new LoginThrottleServiceImpl(true, 30, 60_000, 10, 900_000, 65536, 100_000, 16);
+
+    @Test
+    void credentialStuffingDoesNotLockOutOtherEmails() {
+        // Enough distinct failing emails to fill a 2 x 65536 count-min table past the limit in every cell
+        for (int i = 0; i < 1_000_000; i++) {
+            throttle.recordFailure("victim" + i + "@example.com");
+        }
+
+        assertThat(throttle.tryAcquire(null, "innocent@example.com")).isTrue();
+        assertThat(throttle.getStats().getTrackedEmails()).isEqualTo(100_000L);
+        assertThat(throttle.getStats().getBlockedByEmail()).isZero();
+    }
+
+    @Test
+    void emailIsBlockedAfterTooManyFailuresDuringStuffing() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(throttle.tryAcquire(null, "target@example.com")).isTrue();
+            throttle.recordFailure("Target@example.com");
+            // Rotating emails around it must neither push it out nor add to its count
+            for (int j = 0; j < 5_000; j++) {
+                throttle.recordFailure("other" + i + "-" + j + "@example.com");
+            }
+        }
+
+        assertThat(throttle.tryAcquire(null, "target@example.com")).isFalse();
+        assertThat(throttle.tryAcquire(null, "other0-0@example.com")).isTrue();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingServiceImplTest {
+
+    private final AtomicInteger checks = new AtomicInteger();
+    private final PasswordHashingServiceImpl hashing = new PasswordHashingServiceImpl(task -> {
+        checks.incrementAndGet();
+        task.run();
+    }, 1, 5, 5, 5000);
+
+    @Test
+    void plaintextComparisonCostsAsMuchAsAHashCheck() {
+        assertThat(hashing.matches("Plain#one", "Plain#one")).isTrue();
+        assertThat(hashing.matches("Plain#two", "Plain#one")).isFalse();
+
+        assertThat(checks.get()).isEqualTo(2);
+    }
+
+    @Test
+    void onlyLowerCostHashesAndPlaintextNeedRehash() {
+        assertThat(hashing.needsRehash(BCrypt.hashpw("Secret#1", BCrypt.gensalt(4)))).isTrue();
+        assertThat(hashing.needsRehash(BCrypt.hashpw("Secret#1", BCrypt.gensalt(5)))).isFalse();
+        assertThat(hashing.needsRehash(BCrypt.hashpw("Secret#1", BCrypt.gensalt(6)))).isFalse();
+        assertThat(hashing.needsRehash("Secret#1")).isTrue();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordMigrationServiceImplTest {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+    private final PasswordHashingServices hashing = new PasswordHashingServiceImpl(Runnable::run, 1, 4, 4, 5000);
+
+    @Test
+    void sweepHashesPlaintextRowsInChunksAndLeavesHashesAlone() {
+        for (String table : List.of("users", "admin")) {
+            jdbcTemplate.execute("CREATE TABLE " + table + " (id BIGINT PRIMARY KEY, password VARCHAR(255) NOT NULL)");
+        }
+        String existing = BCrypt.hashpw("Existing#1", BCrypt.gensalt(4));
+        jdbcTemplate.update("INSERT INTO users VALUES (1, ?), (2, 'Plain#one'), (3, 'Plain#two'), (4, 'Plain#three')", existing);
+        jdbcTemplate.update("INSERT INTO admin VALUES (1, 'Admin#plain')");
+
+        PasswordMigrationServiceImpl migration = new PasswordMigrationServiceImpl(jdbcTemplate, hashing, true, 2, 1);
+
+        assertThat(migration.migratePlaintextPasswords()).isEqualTo(4);
+        assertThat(password("users", 1)).isEqualTo(existing);
+        assertThat(BCrypt.checkpw("Plain#two", password("users", 3))).isTrue();
+        assertThat(BCrypt.checkpw("Admin#plain", password("admin", 1))).isTrue();
+        assertThat(migration.migratePlaintextPasswords()).isZero();
+    }
+
+    private String password(String table, long id) {
+        return jdbcTemplate.queryForObject("SELECT password FROM " + table + " WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ebook.ebookstore.ServicesImpl;
+
+import com.ebook.ebookstore.DTO.CredentialDTO;
+import com.ebook.ebookstore.Repository.UserRepository;
+import com.ebook.ebookstore.Services.PasswordHashingServices;
+import com.ebook.ebookstore.Services.UserServices;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserProvisioningServiceImplTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordHashingServices passwordHashingServices = mock(PasswordHashingServices.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void rowTakenByAConcurrentRegistrationIsReportedDuplicateDespiteNoInfoCounts() throws Exception {
+        when(passwordHashingServices.hashAll(anyList(), anyInt())).thenReturn(List.of("hash-ann", "hash-bob"));
+        // rewriteBatchedStatements: Statement.SUCCESS_NO_INFO for every row, ignored or not
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{-2, -2});
+        when(userRepository.findCredentialsByEmails(any())).thenReturn(List.of(
+                new CredentialDTO(7L, "ann", "ann@example.com", "hash-ann"),
+                new CredentialDTO(3L, "bob", "bob@example.com", "someone-elses-hash")));
+
+        String results = provision(service(10), user("ann") + user("bob"));
+
+        assertThat(results.lines()).hasSize(2);
+        assertThat(results.lines().toList().get(0)).contains("\"CREATED\"").contains("\"id\":7");
+        assertThat(results.lines().toList().get(1)).contains("\"DUPLICATE\"");
+    }
+
+    @Test
+    void readingStopsAtTheFirstRowBeyondTheLimit() throws Exception {
+        when(passwordHashingServices.hashAll(anyList(), anyInt())).thenReturn(List.of("hash-ann"));
+        when(userRepository.findCredentialsByEmails(any())).thenReturn(List.of(
+                new CredentialDTO(7L, "ann", "ann@example.com", "hash-ann")));
+        byte[] upload = (user("ann") + user("bob")).getBytes(StandardCharsets.UTF_8);
+        ByteArrayInputStream input = new ByteArrayInputStream(upload);
+        // Anything after the two rows fails the test if it is read
+        InputStream guarded = new SequenceInputStream(input, new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("read past the row limit");
+            }
+        });
+
+        String results = provision(service(1), guarded);
+
+        assertThat(results.lines()).hasSize(2);
+        assertThat(results.lines().toList().get(0)).contains("\"CREATED\"");
+        assertThat(results.lines().toList().get(1)).contains("\"INVALID\"").contains("exceeds 1 rows");
+    }
+
+    private UserProvisioningServiceImpl service(int maxRows) {
+        return new UserProvisioningServiceImpl(userRepository, mock(UserServices.class), passwordHashingServices,
+                jdbcTemplate, mock(PlatformTransactionManager.class), new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 500, maxRows, 1);
+    }
+
+    private static String provision(UserProvisioningServiceImpl service, String upload) throws Exception {
+        return provision(service, new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String provision(UserProvisioningServiceImpl service, InputStream upload) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.provisionUsers(upload, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String user(String name) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + name + "@example.com\",\"password\":\"Secret@123\"}\n";
+    }
+}
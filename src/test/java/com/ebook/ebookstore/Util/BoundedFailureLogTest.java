@@ -0,0 +1,56 @@
+package com.ebook.ebookstore.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedFailureLogTest {
+
+    @Test
+    void eachStripeDropsItsLeastRecentFailure() {
+        BoundedFailureLog log = new BoundedFailureLog(60_000, 5, 64, 8);
+
+        for (int i = 0; i < 10_000; i++) {
+            log.record("key" + i, 1_000);
+        }
+
+        assertThat(log.size()).isEqualTo(64);
+        assertThat(log.count("key9999", 1_000)).isEqualTo(1);
+        assertThat(log.count("key0", 1_000)).isZero();
+    }
+
+    @Test
+    void concurrentFailuresForOneKeyAreCountedExactly() throws InterruptedException {
+        BoundedFailureLog log = new BoundedFailureLog(60_000, 1000, 1024, 16);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                for (int i = 0; i < 200; i++) {
+                    log.record("shared", 1_000);
+                    log.record("own" + thread + "-" + i, 1_000);
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(log.count("shared", 1_000)).isEqualTo(800);
+        assertThat(log.count("shared", 61_000)).isZero();
+    }
+
+    @Test
+    void neverMoreStripesThanKeys() {
+        BoundedFailureLog log = new BoundedFailureLog(60_000, 3, 2, 64);
+
+        log.record("a", 1_000);
+        log.record("b", 1_000);
+        log.record("c", 1_000);
+
+        assertThat(log.size()).isBetween(1, 2);
+    }
+}
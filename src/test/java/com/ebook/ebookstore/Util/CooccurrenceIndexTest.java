@@ -0,0 +1,58 @@
+package com.ebook.ebookstore.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CooccurrenceIndexTest {
+
+    @Test
+    void concurrentCapturesCountEveryPairOnceInBothDirections() throws Exception {
+        CooccurrenceIndex index = new CooccurrenceIndex(5, 50, 200, 100_000, 8);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (long user = 1; user <= 2_000; user++) {
+            long userKey = user;
+            for (long book = 1; book <= 3; book++) {
+                long item = book;
+                tasks.add(() -> {
+                    index.record(userKey, item);
+                    return null;
+                });
+            }
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+
+        assertThat(index.pairCount()).isEqualTo(6);
+        assertThat(index.related(1)).containsExactlyInAnyOrder(2, 2_000, 3, 2_000);
+        assertThat(index.related(3)).containsExactlyInAnyOrder(1, 2_000, 2, 2_000);
+    }
+
+    @Test
+    void readersBeyondTheLimitAreForgottenOldestFirst() {
+        CooccurrenceIndex index = new CooccurrenceIndex(5, 50, 200, 8, 1);
+        index.record(1, 100);
+        for (long user = 2; user <= 20; user++) {
+            index.record(user, 100);
+        }
+        assertThat(index.userCount()).isLessThanOrEqualTo(8);
+
+        // Reader 1's earlier download is no longer remembered, so no pair is formed
+        index.record(1, 200);
+        assertThat(index.related(100)).isEmpty();
+
+        index.record(20, 200);
+        assertThat(index.related(100)).containsExactly(200, 1);
+    }
+}
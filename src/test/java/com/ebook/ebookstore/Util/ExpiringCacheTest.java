@@ -0,0 +1,37 @@
+package com.ebook.ebookstore.Util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringCacheTest {
+
+    @Test
+    void fullCacheEvictsDownToNinetyPercentInOnePass() {
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>(60_000, 100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "v" + i, cache.version());
+        }
+        assertThat(cache.size()).isEqualTo(100);
+
+        cache.put(100, "v100", cache.version());
+        assertThat(cache.size()).isEqualTo(91);
+        assertThat(cache.get(100)).isEqualTo("v100");
+
+        for (int i = 101; i < 110; i++) {
+            cache.put(i, "v" + i, cache.version());
+        }
+        assertThat(cache.size()).isEqualTo(100);
+    }
+
+    @Test
+    void putAfterInvalidationIsDropped() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(60_000, 10);
+        long version = cache.version();
+        cache.invalidate("a");
+
+        cache.put("a", "stale", version);
+
+        assertThat(cache.get("a")).isNull();
+    }
+}
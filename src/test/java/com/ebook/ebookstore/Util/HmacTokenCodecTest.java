@@ -0,0 +1,50 @@
+package com.ebook.ebookstore.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HmacTokenCodecTest {
+
+    private static final byte[] KEY_A = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final byte[] KEY_B = "fedcba9876543210fedcba9876543210".getBytes();
+
+    @Test
+    void tokensVerifyUnderEveryConfiguredKeyAndFailWhenTampered() {
+        HmacTokenCodec old = new HmacTokenCodec(Map.of("a", KEY_A), "a");
+        HmacTokenCodec rotated = new HmacTokenCodec(Map.of("a", KEY_A, "b", KEY_B), "b");
+
+        String issuedBeforeRotation = old.issue(42, 2_000);
+        String issuedAfterRotation = rotated.issue(43, 2_000);
+
+        assertThat(rotated.verify(issuedBeforeRotation, 1_000).subject()).isEqualTo(42);
+        assertThat(rotated.verify(issuedAfterRotation, 1_000).subject()).isEqualTo(43);
+        assertThat(rotated.verify(issuedAfterRotation, 2_000)).isNull();
+        assertThat(rotated.verify(issuedAfterRotation.substring(0, issuedAfterRotation.length() - 2) + "AA", 1_000)).isNull();
+    }
+
+    @Test
+    void pooledMacsSignCorrectlyFromManyVirtualThreads() throws Exception {
+        HmacTokenCodec codec = new HmacTokenCodec(Map.of("a", KEY_A), "a");
+        String expected = codec.issue(7, 2_000);
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long subject = i;
+            tasks.add(() -> codec.issue(7, 2_000).equals(expected) && codec.verify(codec.issue(subject, 2_000), 1_000).subject() == subject);
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ebook.ebookstore.Util;
+
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+
+    @Test
+    void smallCountsAreExactAndRepeatsDoNotCount() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        assertThat(sketch.estimate()).isZero();
+
+        for (int i = 0; i < 100; i++) {
+            sketch.add("reader" + i + "@example.com");
+            sketch.add("reader" + i + "@example.com");
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(100);
+    }
+
+    @Test
+    void largeCountsStayWithinTheExpectedError() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 1_000_000; i++) {
+            sketch.add("reader" + i + "@example.com");
+        }
+
+        // About 0.8% standard error at 2^14 registers
+        assertThat((double) sketch.estimate()).isCloseTo(1_000_000, Percentage.withPercentage(3));
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        HyperLogLog first = new HyperLogLog(14);
+        HyperLogLog second = new HyperLogLog(14);
+        HyperLogLog both = new HyperLogLog(14);
+        for (int i = 0; i < 50_000; i++) {
+            // Every fourth value is on both sides, like emails seen on several shards
+            String value = "reader" + i + "@example.com";
+            (i % 2 == 0 ? first : second).add(value);
+            if (i % 4 == 0) {
+                second.add(value);
+            }
+            both.add(value);
+        }
+
+        first.merge(second);
+
+        assertThat(first.estimate()).isEqualTo(both.estimate());
+        assertThatThrownBy(() -> first.merge(new HyperLogLog(12))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ebook.ebookstore.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyWindowTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final IdempotencyWindow<String> window = new IdempotencyWindow<>(60_000, 6, 1000);
+
+    @Test
+    void repeatWithSameFingerprintGetsOriginalResult() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        assertThat(window.claim(List.of("key:a"), "body-1", first, NOW)).isNull();
+        first.complete("capture-1");
+
+        CompletableFuture<String> original = window.claim(List.of("key:a"), "body-1", new CompletableFuture<>(), NOW + 1);
+
+        assertThat(original).isSameAs(first);
+        assertThat(original.join()).isEqualTo("capture-1");
+    }
+
+    @Test
+    void keyReusedWithDifferentFingerprintIsRejected() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        window.claim(List.of("key:a"), "body-1", first, NOW);
+        first.complete("capture-1");
+
+        CompletableFuture<String> second = new CompletableFuture<>();
+        assertThatThrownBy(() -> window.claim(List.of("lead:b", "key:a"), "body-2", second, NOW + 1))
+                .isInstanceOf(IdempotencyWindow.KeyReusedException.class);
+
+        // The key it did claim before the clash is free again, and the original is untouched
+        assertThat(second).isCompletedExceptionally();
+        assertThat(window.claim(List.of("lead:b"), "body-2", new CompletableFuture<>(), NOW + 2)).isNull();
+        assertThat(window.claim(List.of("key:a"), "body-1", new CompletableFuture<>(), NOW + 2)).isSameAs(first);
+    }
+
+    @Test
+    void keysChainedOntoFailedWinnerAreReleased() {
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        List<String> winnerKeys = List.of("lead:b");
+        window.claim(winnerKeys, "body-1", winner, NOW);
+
+        // Claims key:a, then finds the winner in flight under lead:b and waits on it
+        CompletableFuture<String> chained = new CompletableFuture<>();
+        assertThat(window.claim(List.of("key:a", "lead:b"), "body-1", chained, NOW + 1)).isSameAs(winner);
+
+        window.release(winnerKeys, winner);
+        winner.completeExceptionally(new IllegalStateException("journal full"));
+
+        // A retry through key:a runs again instead of replaying the failure
+        assertThat(chained).isCompletedExceptionally();
+        assertThat(window.claim(List.of("key:a"), "body-1", new CompletableFuture<>(), NOW + 2)).isNull();
+        assertThat(window.size()).isEqualTo(1);
+    }
+}
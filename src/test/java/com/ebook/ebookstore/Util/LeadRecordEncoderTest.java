@@ -0,0 +1,73 @@
+package com.ebook.ebookstore.Util;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeadRecordEncoderTest {
+
+    @Test
+    void csvMatchesThePrintfExportByteForByte() throws IOException {
+        LocalDateTime time = LocalDateTime.of(2024, 12, 31, 23, 59, 7);
+        List<LeadRowDTO> rows = List.of(
+                row(1, "Java, Second \"Edition\"", "JV-2", true, "Ana\nLine", time),
+                // A live book whose code was cleared: empty, not Unknown
+                row(2, "Kotlin", null, true, "Bo", time.plusSeconds(60)),
+                // A missing or archived book
+                row(3, null, null, false, "Čeněk ünïcode", time.plusDays(1)));
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (LeadRecordEncoder encoder = new LeadRecordEncoder(encoded, LeadRecordEncoder.Format.CSV)) {
+            encoder.writeHeader();
+            for (LeadRowDTO row : rows) {
+                encoder.write(row);
+            }
+        }
+
+        assertThat(encoded.toByteArray()).isEqualTo(printf(rows));
+    }
+
+    // The export before the encoder, with the book looked up per row
+    private static byte[] printf(List<LeadRowDTO> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintWriter writer = new PrintWriter(out);
+        writer.println(CsvUtils.LEADS_HEADER);
+        for (LeadRowDTO row : rows) {
+            String bookName = row.isBookFound() ? row.getBookName() : "Unknown";
+            String bookCode = row.isBookFound() ? row.getBookCode() : "Unknown";
+            writer.printf("%d,%s,%s,%s,%s,%s,%s%n",
+                    row.getId(),
+                    CsvUtils.escape(bookName),
+                    CsvUtils.escape(bookCode),
+                    CsvUtils.escape(row.getUserName()),
+                    CsvUtils.escape(row.getEmail()),
+                    CsvUtils.escape(row.getContactNumber()),
+                    row.getDownloadTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static LeadRowDTO row(long id, String bookName, String bookCode, boolean bookFound, String userName,
+                                  LocalDateTime time) {
+        LeadRowDTO row = new LeadRowDTO();
+        row.setId(id);
+        row.setEbookId(id);
+        row.setBookName(bookName);
+        row.setBookCode(bookCode);
+        row.setBookFound(bookFound);
+        row.setUserName(userName);
+        row.setEmail("reader" + id + "@example.com");
+        row.setContactNumber("5550100");
+        row.setDownloadTime(time);
+        return row;
+    }
+}
@@ -0,0 +1,189 @@
+package com.ebook.ebookstore.Util;
+
+import com.ebook.ebookstore.DTO.LeadRowDTO;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParquetLeadWriterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    private Path file;
+
+    @AfterEach
+    void delete() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void parquetReaderReadsBackEveryRowAcrossRowGroups() throws IOException {
+        // 300-row groups: several groups, each over the 128 values of a delta block; the last one is partial
+        List<LeadRowDTO> rows = new ArrayList<>();
+        Random random = new Random(7);
+        long id = 1000;
+        LocalDateTime time = START;
+        for (int i = 0; i < 1000; i++) {
+            id += 1 + random.nextInt(5);
+            time = time.plusNanos(random.nextInt(90_000) * 1_000_000L);
+            LeadRowDTO row = new LeadRowDTO();
+            row.setId(id);
+            // One book throughout, so every ebook_id dictionary holds a single value
+            row.setEbookId(42);
+            // Single-value dictionary with nulls in between, and a last group that is all nulls
+            row.setBookCode(i % 2 == 0 && i < 900 ? "JAVA-42" : null);
+            row.setBookName(i % 3 == 0 ? null : "Book " + (i % 5));
+            row.setUserName("Reader " + i);
+            row.setEmail(i % 7 == 0 ? null : "reader" + i + "@example.com");
+            row.setContactNumber(String.valueOf(5550000 + i));
+            row.setDownloadTime(time);
+            rows.add(row);
+        }
+
+        write(rows, 300);
+
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            List<BlockMetaData> blocks = reader.getFooter().getBlocks();
+            assertThat(blocks).extracting(BlockMetaData::getRowCount).containsExactly(300L, 300L, 300L, 100L);
+
+            MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+            MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
+            int index = 0;
+            PageReadStore pages;
+            while ((pages = reader.readNextRowGroup()) != null) {
+                RecordReader<Group> records = columnIO.getRecordReader(pages, new GroupRecordConverter(schema));
+                for (long r = 0; r < pages.getRowCount(); r++) {
+                    Group group = records.read();
+                    LeadRowDTO expected = rows.get(index++);
+                    assertThat(group.getLong("id", 0)).isEqualTo(expected.getId());
+                    assertThat(group.getLong("ebook_id", 0)).isEqualTo(expected.getEbookId());
+                    assertThat(string(group, "book_code")).isEqualTo(expected.getBookCode());
+                    assertThat(string(group, "book_name")).isEqualTo(expected.getBookName());
+                    assertThat(string(group, "user_name")).isEqualTo(expected.getUserName());
+                    assertThat(string(group, "email")).isEqualTo(expected.getEmail());
+                    assertThat(string(group, "contact_number")).isEqualTo(expected.getContactNumber());
+                    assertThat(group.getLong("download_time", 0))
+                            .isEqualTo(expected.getDownloadTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+                }
+            }
+            assertThat(index).isEqualTo(rows.size());
+        }
+    }
+
+    @Test
+    void rowStatisticsLetReadersSkipRowGroups() throws IOException {
+        List<LeadRowDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(lead(i + 1, i < 10 ? 1 : 2, "reader" + i + "@example.com", START.plusMinutes(i)));
+        }
+
+        write(rows, 10);
+
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            BlockMetaData second = reader.getFooter().getBlocks().get(1);
+            assertThat(second.getColumns().get(0).getStatistics().genericGetMin()).isEqualTo(11L);
+            assertThat(second.getColumns().get(0).getStatistics().genericGetMax()).isEqualTo(20L);
+            assertThat(second.getColumns().get(1).getStatistics().genericGetMin()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    void exportIsSeveralTimesSmallerThanCsv() throws IOException {
+        // Shaped like production leads: a few hundred books, a reader per row, ids and times in order
+        Random random = new Random(11);
+        List<LeadRowDTO> rows = new ArrayList<>();
+        LocalDateTime time = START;
+        for (int i = 0; i < 100_000; i++) {
+            time = time.plusSeconds(random.nextInt(20));
+            int reader = random.nextInt(40_000);
+            LeadRowDTO row = lead(i + 1, 1 + random.nextInt(300), "reader" + reader + "@example.com", time);
+            row.setUserName("Reader " + reader);
+            row.setContactNumber(String.valueOf(9_000_000_000L + reader));
+            rows.add(row);
+        }
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        try (LeadRecordEncoder encoder = new LeadRecordEncoder(csv, LeadRecordEncoder.Format.CSV)) {
+            encoder.writeHeader();
+            for (LeadRowDTO row : rows) {
+                encoder.write(row);
+            }
+        }
+        CountingStream parquet = new CountingStream();
+        ParquetLeadWriter writer = new ParquetLeadWriter(parquet, 100_000);
+        for (LeadRowDTO row : rows) {
+            writer.write(row);
+        }
+        writer.finish();
+
+        // The unique emails, names and phone numbers bound the ratio: about 6.5x here, not 10x
+        assertThat((double) csv.size() / parquet.count).isGreaterThan(5);
+    }
+
+    private void write(List<LeadRowDTO> rows, int rowGroupSize) throws IOException {
+        file = Files.createTempFile("leads", ".parquet");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            ParquetLeadWriter writer = new ParquetLeadWriter(out, rowGroupSize);
+            for (LeadRowDTO row : rows) {
+                writer.write(row);
+            }
+            writer.finish();
+        }
+    }
+
+    private static String string(Group group, String field) {
+        return group.getFieldRepetitionCount(field) == 0 ? null : group.getString(field, 0);
+    }
+
+    private static LeadRowDTO lead(long id, long ebookId, String email, LocalDateTime time) {
+        LeadRowDTO row = new LeadRowDTO();
+        row.setId(id);
+        row.setEbookId(ebookId);
+        row.setBookCode("BOOK-" + ebookId);
+        row.setBookName("Book " + ebookId);
+        row.setUserName("Reader");
+        row.setEmail(email);
+        row.setContactNumber("5550100");
+        row.setDownloadTime(time);
+        row.setBookFound(true);
+        return row;
+    }
+
+    private static final class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.ebook.ebookstore.Util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrecompressedZipWriterTest {
+
+    private static final LocalDateTime MODIFIED = LocalDateTime.of(2024, 3, 1, 9, 30, 14);
+
+    private Path deflated;
+    private Path zip;
+    private FileChannel source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        deflated = Files.createTempFile("partitions", ".deflate");
+        zip = Files.createTempFile("leads", ".zip");
+        source = FileChannel.open(deflated, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        source.close();
+        Files.deleteIfExists(deflated);
+        Files.deleteIfExists(zip);
+    }
+
+    @Test
+    void zipFileAndZipInputStreamReadEveryEntry() throws IOException {
+        List<String> names = List.of("leads-1-100.csv", "leads-101-200.csv", "leads-201-300.csv", "léads-ü.csv");
+        List<String> contents = List.of("ID,Book Name\n1,Java\n", "", "ID,Book Name\n" + "201,Kotlin\n".repeat(5000),
+                "ID,Book Name\n7,Ünïcode\n");
+
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            PrecompressedZipWriter writer = new PrecompressedZipWriter(out);
+            for (int i = 0; i < names.size(); i++) {
+                append(writer, names.get(i), contents.get(i).getBytes(StandardCharsets.UTF_8));
+            }
+            writer.finish();
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            List<String> read = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                read.add(entry.getName());
+                int i = names.indexOf(entry.getName());
+                byte[] expected = contents.get(i).getBytes(StandardCharsets.UTF_8);
+                assertThat(entry.getCrc()).isEqualTo(crc(expected));
+                assertThat(entry.getSize()).isEqualTo(expected.length);
+                assertThat(entry.getTimeLocal()).isEqualTo(MODIFIED);
+                try (InputStream in = file.getInputStream(entry)) {
+                    assertThat(in.readAllBytes()).isEqualTo(expected);
+                }
+            }
+            assertThat(read).containsExactlyElementsOf(names);
+        }
+
+        // The streaming reader only sees the local headers, which must agree with the central directory
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            int i = 0;
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                assertThat(entry.getName()).isEqualTo(names.get(i));
+                // ZipInputStream checks the CRC against the inflated bytes at the end of each entry
+                assertThat(in.readAllBytes()).isEqualTo(contents.get(i).getBytes(StandardCharsets.UTF_8));
+                i++;
+            }
+            assertThat(i).isEqualTo(names.size());
+        }
+    }
+
+    @Test
+    void moreThan65535EntriesSwitchToZip64() throws IOException {
+        int count = 70_000;
+        byte[] content = "ID\n".getBytes(StandardCharsets.US_ASCII);
+        long crc = crc(content);
+        long size = deflate(content);
+
+        try (OutputStream out = Files.newOutputStream(zip)) {
+            PrecompressedZipWriter writer = new PrecompressedZipWriter(out);
+            for (int i = 0; i < count; i++) {
+                writer.writeEntry("part-" + i + ".csv", crc, size, content.length, MODIFIED, source, 0);
+            }
+            writer.finish();
+        }
+
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            assertThat(file.size()).isEqualTo(count);
+            ZipEntry last = file.getEntry("part-" + (count - 1) + ".csv");
+            assertThat(last.getCrc()).isEqualTo(crc);
+            try (InputStream in = file.getInputStream(last)) {
+                assertThat(in.readAllBytes()).isEqualTo(content);
+            }
+        }
+    }
+
+    private void append(PrecompressedZipWriter writer, String name, byte[] content) throws IOException {
+        long position = source.size();
+        long compressedSize = deflate(content);
+        writer.writeEntry(name, crc(content), compressedSize, content.length, MODIFIED, source, position);
+    }
+
+    // Appends the raw deflate stream of content to the source file and returns its length
+    private long deflate(byte[] content) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(content);
+        deflater.finish();
+        byte[] buffer = new byte[content.length + 64];
+        long written = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            written += source.write(ByteBuffer.wrap(buffer, 0, n), source.size());
+        }
+        deflater.end();
+        return written;
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ebook.ebookstore.Util;
+
+import org.apache.parquet.format.FileMetaData;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.format.Util;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThriftCompactWriterTest {
+
+    @Test
+    void parquetReadsAPageHeaderWithNegativeAndLongFormFields() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ThriftCompactWriter thrift = new ThriftCompactWriter(out);
+        thrift.beginStruct();
+        thrift.fieldI32(1, 0);
+        thrift.fieldI32(2, Integer.MAX_VALUE);
+        thrift.fieldI32(3, 300);
+        thrift.fieldI32(4, -123_456);
+        thrift.fieldStruct(5);
+        thrift.fieldI32(1, 128);
+        thrift.fieldI32(2, 8);
+        thrift.fieldI32(3, 3);
+        thrift.fieldI32(4, 3);
+        thrift.endStruct();
+        // Unknown to the reader and more than 15 ids on, so the header takes the long form; readers skip it
+        thrift.fieldI64(40, Long.MIN_VALUE);
+        thrift.endStruct();
+
+        PageHeader header = Util.readPageHeader(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(header.getType()).isEqualTo(PageType.DATA_PAGE);
+        assertThat(header.getUncompressed_page_size()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(header.getCompressed_page_size()).isEqualTo(300);
+        assertThat(header.getCrc()).isEqualTo(-123_456);
+        assertThat(header.getData_page_header().getNum_values()).isEqualTo(128);
+    }
+
+    @Test
+    void parquetReadsLongListsNestedStructsAndBooleans() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ThriftCompactWriter thrift = new ThriftCompactWriter(out);
+        thrift.beginStruct();
+        thrift.fieldI32(1, 1);
+        // More than 14 elements, so the list size goes in its own varint
+        thrift.fieldList(2, ThriftCompactWriter.TYPE_STRUCT, 20);
+        for (int i = 0; i < 20; i++) {
+            thrift.beginStruct();
+            thrift.fieldI32(1, 2);
+            thrift.fieldString(4, "column-" + i);
+            thrift.fieldStruct(10);
+            thrift.fieldStruct(8);
+            thrift.fieldBool(1, i % 2 == 0);
+            thrift.fieldStruct(2);
+            thrift.fieldStruct(1);
+            thrift.endStruct();
+            thrift.endStruct();
+            thrift.endStruct();
+            thrift.endStruct();
+            thrift.endStruct();
+        }
+        thrift.fieldI64(3, 1L << 40);
+        thrift.fieldList(4, ThriftCompactWriter.TYPE_STRUCT, 0);
+        thrift.fieldString(6, "écrit par ebookstore");
+        thrift.endStruct();
+
+        FileMetaData metadata = Util.readFileMetaData(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(metadata.getSchema()).hasSize(20);
+        assertThat(metadata.getSchema().get(19).getName()).isEqualTo("column-19");
+        assertThat(metadata.getSchema().get(2).getLogicalType().getTIMESTAMP().isIsAdjustedToUTC()).isTrue();
+        assertThat(metadata.getSchema().get(3).getLogicalType().getTIMESTAMP().isIsAdjustedToUTC()).isFalse();
+        assertThat(metadata.getNum_rows()).isEqualTo(1L << 40);
+        assertThat(metadata.getCreated_by()).isEqualTo("écrit par ebookstore");
+    }
+}